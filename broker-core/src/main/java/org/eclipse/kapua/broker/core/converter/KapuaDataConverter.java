@@ -11,11 +11,31 @@
  *******************************************************************************/
 package org.eclipse.kapua.broker.core.converter;
 
+import java.util.Date;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+
 import org.apache.camel.Converter;
 import org.apache.camel.Exchange;
+import org.apache.camel.component.jms.JmsMessage;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.broker.core.listener.CamelConstants;
 import org.eclipse.kapua.broker.core.message.CamelKapuaMessage;
+import org.eclipse.kapua.broker.core.message.CamelUtil;
+import org.eclipse.kapua.broker.core.message.KuraDataMessageReader;
+import org.eclipse.kapua.broker.core.message.MessageConstants;
+import org.eclipse.kapua.broker.core.plugin.ConnectorDescriptor;
 import org.eclipse.kapua.broker.core.plugin.ConnectorDescriptor.MessageType;
+import org.eclipse.kapua.broker.core.setting.BrokerSetting;
+import org.eclipse.kapua.broker.core.setting.BrokerSettingKey;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.message.device.data.KapuaDataMessage;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.MessageStoreService;
+import org.eclipse.kapua.service.datastore.internal.MessageRecordStore;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageRecord;
+import org.eclipse.kapua.service.device.call.message.kura.data.KuraDataMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,15 +52,23 @@ public class KapuaDataConverter extends AbstractKapuaConverter
     public static final Logger logger = LoggerFactory.getLogger(KapuaDataConverter.class);
 
     private Counter metricConverterDataMessage;
+    private Counter metricConverterDataRecordMessage;
+
+    private final boolean fastPathEnabled;
 
     public KapuaDataConverter()
     {
         super();
         metricConverterDataMessage = metricsService.getCounter(METRIC_COMPONENT_NAME, "kapua", "kapua_message", "messages", "data", "count");
+        metricConverterDataRecordMessage = metricsService.getCounter(METRIC_COMPONENT_NAME, "kapua", "kapua_message", "messages", "data", "record", "count");
+        // the message records can be stored only by the datastore service implementations supporting them
+        fastPathEnabled = BrokerSetting.getInstance().getBoolean(BrokerSettingKey.DATA_FAST_PATH_ENABLED, false) &&
+                KapuaLocator.getInstance().getService(MessageStoreService.class) instanceof MessageRecordStore;
     }
 
     /**
-     * Convert incoming message to a Kapua data message
+     * Convert incoming message to a Kapua data message.<br>
+     * If the data fast path is enabled, the Kura data messages are read as {@link MessageRecord} by the {@link KuraDataMessageReader}.
      * 
      * @param exchange
      * @param value
@@ -51,7 +79,46 @@ public class KapuaDataConverter extends AbstractKapuaConverter
     public CamelKapuaMessage<?> convertToData(Exchange exchange, Object value) throws KapuaException
     {
         metricConverterDataMessage.inc();
+        if (fastPathEnabled) {
+            CamelKapuaMessage<?> message = convertToDataRecord(exchange, value);
+            if (message != null) {
+                metricConverterDataRecordMessage.inc();
+                return message;
+            }
+        }
         return convertTo(exchange, value, MessageType.DATA);
     }
 
+    /**
+     * Read the incoming Kura data message as a {@link MessageRecord}
+     * 
+     * @param exchange
+     * @param value
+     * @return Message container that contains the message record or null if the message must be converted to a Kapua data message
+     * @throws KapuaException
+     */
+    private CamelKapuaMessage<?> convertToDataRecord(Exchange exchange, Object value) throws KapuaException
+    {
+        JmsMessage message = exchange.getIn(JmsMessage.class);
+        if (!(message.getJmsMessage() instanceof BytesMessage)) {
+            return null;
+        }
+        ConnectorDescriptor connectorDescriptor = message.getHeader(MessageConstants.HEADER_KAPUA_CONNECTOR_DEVICE_PROTOCOL, ConnectorDescriptor.class);
+        if (connectorDescriptor == null ||
+                !KuraDataMessage.class.equals(connectorDescriptor.getDeviceClass(MessageType.DATA)) ||
+                !KapuaDataMessage.class.equals(connectorDescriptor.getKapuaClass(MessageType.DATA))) {
+            return null;
+        }
+        try {
+            Date queuedOn = new Date(message.getHeader(CamelConstants.JMS_HEADER_TIMESTAMP, Long.class));
+            KapuaId connectionId = message.getHeader(MessageConstants.HEADER_KAPUA_CONNECTION_ID, KapuaId.class);
+            String clientId = (String) message.getHeader(MessageConstants.HEADER_KAPUA_CLIENT_ID);
+            MessageRecord messageRecord = KuraDataMessageReader.read(CamelUtil.getTopic(message), queuedOn, (byte[]) value, clientId);
+            return messageRecord != null ? new CamelKapuaMessage<KapuaDataMessage>(messageRecord, connectionId, connectorDescriptor) : null;
+        } catch (JMSException e) {
+            logger.error("Exception reading message {}", e.getMessage(), e);
+            throw KapuaException.internalError(e, "Cannot read the message type " + exchange.getIn().getClass());
+        }
+    }
+
 }
@@ -12,11 +12,29 @@
  *******************************************************************************/
 package org.eclipse.kapua.broker.core.listener;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
 import org.apache.camel.spi.UriEndpoint;
+import org.apache.camel.util.AsyncProcessorHelper;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.broker.core.message.CamelKapuaMessage;
+import org.eclipse.kapua.broker.core.message.MessageConstants;
+import org.eclipse.kapua.broker.core.setting.BrokerSetting;
+import org.eclipse.kapua.broker.core.setting.BrokerSettingKey;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.security.KapuaSession;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.service.datastore.MessageStoreService;
+import org.eclipse.kapua.service.datastore.internal.MessageRecordStore;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageRecord;
+import org.eclipse.kapua.service.datastore.model.StorableId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,15 +43,19 @@ import com.codahale.metrics.Timer;
 import com.codahale.metrics.Timer.Context;
 
 /**
- * Data storage message listener
+ * Data storage message listener.<br>
+ * Used as Camel processor, it doesn't wait for the datastore to index the message (bulk indexing): the exchange is completed once the message is stored,
+ * so the route error handler can still dead letter the messages that cannot be stored while the consumer thread goes on with the next messages.
  *
  * @since 1.0
  */
 @UriEndpoint(title = "Data storage message processor", syntax = "bean:dataStorageMessageProcessor", scheme = "bean")
-public class DataStorageMessageProcessor extends AbstractProcessor<CamelKapuaMessage<?>> {
+public class DataStorageMessageProcessor extends AbstractProcessor<CamelKapuaMessage<?>> implements AsyncProcessor {
 
     private static final Logger logger = LoggerFactory.getLogger(DataStorageMessageProcessor.class);
 
+    private static final int DEFAULT_COMPLETION_THREADS = 4;
+
     // metrics
     private Counter metricStorageMessage;
     // data message
@@ -41,23 +63,51 @@ public class DataStorageMessageProcessor extends AbstractProcessor<CamelKapuaMes
     // store timers
     private Timer metricStorageDataSaveTime;
 
-    private MessageStoreService    messageStoreService    = KapuaLocator.getInstance().getService(MessageStoreService.class);
+    private final MessageStoreService messageStoreService;
+
+    /**
+     * Executor completing the exchanges once the messages are stored.<br>
+     * The store outcomes are notified by the Elasticsearch client threads, that must not run the rest of the route (it may block).
+     */
+    private final ExecutorService completionExecutor;
 
     public DataStorageMessageProcessor() {
+        this(KapuaLocator.getInstance().getService(MessageStoreService.class),
+                BrokerSetting.getInstance().getInt(BrokerSettingKey.DATA_STORAGE_COMPLETION_THREADS, DEFAULT_COMPLETION_THREADS));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param messageStoreService
+     * @param completionThreads
+     *            the number of threads completing the exchanges once the messages are stored
+     */
+    DataStorageMessageProcessor(MessageStoreService messageStoreService, int completionThreads) {
         super("DataStorage");
+        this.messageStoreService = messageStoreService;
 
         // data message
         metricStorageMessage = registerCounter("listener", "storage", "messages", "count");
         metricStorageDataErrorMessage = registerCounter("listener", "storage", "messages", "data", "error", "count");
         // store timers
         metricStorageDataSaveTime = registerTimer("listener", "storage", "store", "data", "time", "s");
+
+        AtomicInteger threadCount = new AtomicInteger();
+        completionExecutor = Executors.newFixedThreadPool(completionThreads,
+                runnable -> {
+                    Thread thread = new Thread(runnable, "kapua-data-storage-completion-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
     }
 
     /**
-     * Process a data message.
+     * Process a data message.<br>
+     * The store errors are rethrown so the message can be handled by the route error handler (dead letter).
      */
     @Override
-    public void processMessage(CamelKapuaMessage<?> message) {
+    public void processMessage(CamelKapuaMessage<?> message) throws KapuaException {
 
         // TODO filter alert topic???
         //
@@ -65,14 +115,99 @@ public class DataStorageMessageProcessor extends AbstractProcessor<CamelKapuaMes
         // data messages
         try {
             Context metricStorageDataSaveTimeContext = metricStorageDataSaveTime.time();
-            logger.debug("Received data message from device channel: client id '{}' - {}", message.getMessage().getClientId(), message.getMessage().getChannel());
-            messageStoreService.store(message.getMessage());
+            MessageRecord messageRecord = message.getMessageRecord();
+            if (messageRecord != null) {
+                // read by the data fast path, only enabled if the datastore service is a message record store
+                logger.debug("Received data message from device channel: client id '{}' - {}", messageRecord.getClientId(), messageRecord.getSemanticParts());
+                ((MessageRecordStore) messageStoreService).store(messageRecord);
+            } else {
+                logger.debug("Received data message from device channel: client id '{}' - {}", message.getMessage().getClientId(), message.getMessage().getChannel());
+                messageStoreService.store(message.getMessage());
+            }
             metricStorageMessage.inc();
             metricStorageDataSaveTimeContext.stop();
         } catch (KapuaException e) {
             metricStorageDataErrorMessage.inc();
             logger.error("An error occurred while storing message: {}", e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        AsyncProcessorHelper.process(this, exchange);
+    }
+
+    /**
+     * Store the data message of the exchange.<br>
+     * The exchange is completed once the message is stored; if the message cannot be stored the error is set on the exchange, so the message can be
+     * handled by the route error handler (dead letter).
+     */
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        Context metricStorageDataSaveTimeContext = metricStorageDataSaveTime.time();
+
+        CompletableFuture<StorableId> messageStored;
+        // the session is not bound if the message is redelivered by the route error handler
+        boolean bindSession = KapuaSecurityUtils.getSession() == null;
+        try {
+            if (bindSession) {
+                KapuaSecurityUtils.setSession(exchange.getIn().getHeader(MessageConstants.HEADER_KAPUA_SESSION, KapuaSession.class));
+            }
+            messageStored = storeAsync(exchange.getIn().getBody(CamelKapuaMessage.class));
+        } catch (Exception e) {
+            onStoreFailure(exchange, e);
+            callback.done(true);
+            return true;
+        } finally {
+            if (bindSession) {
+                KapuaSecurityUtils.clearSession();
+            }
+        }
+
+        if (messageStored.isDone()) {
+            onStoreCompleted(exchange, messageStored, metricStorageDataSaveTimeContext);
+            callback.done(true);
+            return true;
+        }
+        messageStored.whenCompleteAsync((messageId, failure) -> {
+            onStoreCompleted(exchange, messageStored, metricStorageDataSaveTimeContext);
+            callback.done(false);
+        }, completionExecutor);
+        return false;
+    }
+
+    private CompletableFuture<StorableId> storeAsync(CamelKapuaMessage<?> message) throws KapuaException {
+        MessageRecord messageRecord = message.getMessageRecord();
+        if (messageRecord != null) {
+            // read by the data fast path, only enabled if the datastore service is a message record store
+            logger.debug("Received data message from device channel: client id '{}' - {}", messageRecord.getClientId(), messageRecord.getSemanticParts());
+            return ((MessageRecordStore) messageStoreService).storeAsync(messageRecord);
+        }
+
+        logger.debug("Received data message from device channel: client id '{}' - {}", message.getMessage().getClientId(), message.getMessage().getChannel());
+        if (messageStoreService instanceof MessageRecordStore) {
+            return ((MessageRecordStore) messageStoreService).storeAsync(new MessageRecord(message.getMessage()));
         }
+        return CompletableFuture.completedFuture(messageStoreService.store(message.getMessage()));
+    }
+
+    private void onStoreCompleted(Exchange exchange, CompletableFuture<StorableId> messageStored, Context metricStorageDataSaveTimeContext) {
+        try {
+            messageStored.join();
+            metricStorageMessage.inc();
+            metricStorageDataSaveTimeContext.stop();
+        } catch (CompletionException e) {
+            onStoreFailure(exchange, e.getCause());
+        } catch (Exception e) {
+            onStoreFailure(exchange, e);
+        }
+    }
+
+    private void onStoreFailure(Exchange exchange, Throwable failure) {
+        metricStorageDataErrorMessage.inc();
+        logger.error("An error occurred while storing message: {}", failure);
+        exchange.setException(failure);
     }
 
 }
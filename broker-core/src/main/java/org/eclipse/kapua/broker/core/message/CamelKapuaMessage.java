@@ -15,10 +15,12 @@ package org.eclipse.kapua.broker.core.message;
 import org.eclipse.kapua.broker.core.plugin.ConnectorDescriptor;
 import org.eclipse.kapua.message.KapuaMessage;
 import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageRecord;
 
 /**
  * Platform message container.<BR>
- * Contains the message and additional information such as the connection id and the connector descriptor (useful for the message translation process)
+ * Contains the message and additional information such as the connection id and the connector descriptor (useful for the message translation process).<br>
+ * A data message read by the {@link KuraDataMessageReader} is contained as a {@link MessageRecord}, with no Kapua message.
  *
  * @param <M> Contained message type
  * @since 1.0
@@ -26,6 +28,7 @@ import org.eclipse.kapua.model.id.KapuaId;
 public class CamelKapuaMessage<M extends KapuaMessage<?, ?>> {
 
     private M message;
+    private MessageRecord messageRecord;
     private KapuaId connectionId;
     private ConnectorDescriptor connectorDescriptor;
 
@@ -42,6 +45,19 @@ public class CamelKapuaMessage<M extends KapuaMessage<?, ?>> {
         this.connectorDescriptor = connectorDescriptor;
     }
 
+    /**
+     * Constructs a new Camel Kapua message containing a message record
+     *
+     * @param messageRecord       message record
+     * @param connectionId        connection id
+     * @param connectorDescriptor connector descriptor
+     */
+    public CamelKapuaMessage(MessageRecord messageRecord, KapuaId connectionId, ConnectorDescriptor connectorDescriptor) {
+        this.connectionId = connectionId;
+        this.messageRecord = messageRecord;
+        this.connectorDescriptor = connectorDescriptor;
+    }
+
     public M getMessage() {
         return message;
     }
@@ -50,6 +66,14 @@ public class CamelKapuaMessage<M extends KapuaMessage<?, ?>> {
         this.message = message;
     }
 
+    public MessageRecord getMessageRecord() {
+        return messageRecord;
+    }
+
+    public void setMessageRecord(MessageRecord messageRecord) {
+        this.messageRecord = messageRecord;
+    }
+
     public KapuaId getConnectionId() {
         return connectionId;
     }
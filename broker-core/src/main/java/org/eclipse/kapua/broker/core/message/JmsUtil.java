@@ -43,6 +43,9 @@ public class JmsUtil {
 
     public static final Logger logger = LoggerFactory.getLogger(JmsUtil.class);
 
+    private static final String CONTROL_TOPIC_PREFIX = "$EDC.";
+    private static final String LIFE_CYCLE_TOPIC = "MQTT";
+
     /**
      * Return the topic for the message's destination
      *
@@ -62,6 +65,44 @@ public class JmsUtil {
         return jmsTopic;
     }
 
+    /**
+     * Return the type of the message published on the topic.<br>
+     * The control topics ($EDC.{account}.{client id}...) are life cycle messages if they end with MQTT.BIRTH, MQTT.DC, MQTT.APPS, MQTT.LWT or MQTT.NOTIFY,
+     * unmatched messages otherwise. All the other topics are data messages.
+     *
+     * @param jmsTopic
+     *            the topic, without the virtual topic prefix
+     * @return
+     */
+    public static MessageType getMessageType(String jmsTopic) {
+        if (jmsTopic == null || !jmsTopic.startsWith(CONTROL_TOPIC_PREFIX)) {
+            return MessageType.DATA;
+        }
+        // $EDC.{account}.{client id}.MQTT.{life cycle message}
+        int typeStart = jmsTopic.lastIndexOf('.') + 1;
+        int lifeCycleStart = typeStart - 1 - LIFE_CYCLE_TOPIC.length();
+        if (lifeCycleStart <= CONTROL_TOPIC_PREFIX.length() ||
+                jmsTopic.charAt(lifeCycleStart - 1) != '.' ||
+                !jmsTopic.startsWith(LIFE_CYCLE_TOPIC, lifeCycleStart) ||
+                jmsTopic.lastIndexOf('.', lifeCycleStart - 2) < CONTROL_TOPIC_PREFIX.length()) {
+            return MessageType.UNMATCHED;
+        }
+        switch (jmsTopic.substring(typeStart)) {
+        case "BIRTH":
+            return MessageType.BIRTH;
+        case "DC":
+            return MessageType.DISCONNECT;
+        case "APPS":
+            return MessageType.APP;
+        case "LWT":
+            return MessageType.MISSING;
+        case "NOTIFY":
+            return MessageType.NOTIFY;
+        default:
+            return MessageType.UNMATCHED;
+        }
+    }
+
     /**
      * Convert a {@link BytesMessage} to {@link CamelKapuaMessage}
      *
@@ -0,0 +1,322 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.message;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.eclipse.kapua.KapuaEntityNotFoundException;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.service.account.Account;
+import org.eclipse.kapua.service.account.AccountService;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageRecord;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto.KuraPayload;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto.KuraPayload.KuraMetric;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto.KuraPayload.KuraMetric.ValueType;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto.KuraPayload.KuraPosition;
+import org.eclipse.kapua.service.device.call.message.kura.utils.GZIPCodec;
+import org.eclipse.kapua.service.device.registry.Device;
+import org.eclipse.kapua.service.device.registry.DeviceRegistryService;
+import org.eclipse.kapua.transport.message.jms.JmsTopic;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+/**
+ * Reader of the Kura data messages into the {@link MessageRecord} stored by the datastore.<br>
+ * The Kura protobuf payload is read with a streaming {@link CodedInputStream} straight into the record, so the message is stored without building the Kura and
+ * the Kapua data messages. The record gets the same values set by the Jms to Kura and the Kura to Kapua data message translators.<br>
+ * The messages not read exactly as the translators do (a payload not valid or not complete, a topic without the client id...) are left to the translators,
+ * that report the error as before.
+ *
+ * @since 1.0
+ */
+public final class KuraDataMessageReader {
+
+    private static final int TIMESTAMP_TAG = KuraPayload.TIMESTAMP_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int POSITION_TAG = KuraPayload.POSITION_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int METRIC_TAG = KuraPayload.METRIC_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int BODY_TAG = KuraPayload.BODY_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+    private static final int LATITUDE_TAG = KuraPosition.LATITUDE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int LONGITUDE_TAG = KuraPosition.LONGITUDE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int ALTITUDE_TAG = KuraPosition.ALTITUDE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int PRECISION_TAG = KuraPosition.PRECISION_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int HEADING_TAG = KuraPosition.HEADING_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int SPEED_TAG = KuraPosition.SPEED_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int POSITION_TIMESTAMP_TAG = KuraPosition.TIMESTAMP_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int SATELLITES_TAG = KuraPosition.SATELLITES_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int STATUS_TAG = KuraPosition.STATUS_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT;
+
+    private static final int NAME_TAG = KuraMetric.NAME_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int TYPE_TAG = KuraMetric.TYPE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int DOUBLE_VALUE_TAG = KuraMetric.DOUBLE_VALUE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int FLOAT_VALUE_TAG = KuraMetric.FLOAT_VALUE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED32;
+    private static final int LONG_VALUE_TAG = KuraMetric.LONG_VALUE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int INT_VALUE_TAG = KuraMetric.INT_VALUE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int BOOL_VALUE_TAG = KuraMetric.BOOL_VALUE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int STRING_VALUE_TAG = KuraMetric.STRING_VALUE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int BYTES_VALUE_TAG = KuraMetric.BYTES_VALUE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    private KuraDataMessageReader() {
+    }
+
+    /**
+     * Read a Kura data message
+     *
+     * @param jmsTopic
+     *            the topic, without the virtual topic prefix
+     * @param queuedOn
+     * @param messageBody
+     *            the Kura protobuf payload
+     * @param clientId
+     *            the client id of the connection
+     * @return the record or null if the message must be converted by the translators
+     * @throws KapuaException
+     *             if the account of the topic cannot be found
+     */
+    public static MessageRecord read(String jmsTopic, Date queuedOn, byte[] messageBody, String clientId) throws KapuaException {
+        if (jmsTopic == null || messageBody == null) {
+            return null;
+        }
+        // {account}.{client id}.{semantic channel parts}
+        String[] topicTokens = new JmsTopic(jmsTopic).getSplittedTopic();
+        if (topicTokens.length < 2) {
+            return null;
+        }
+
+        MessageRecord record = new MessageRecord();
+        if (!readPayload(messageBody, record)) {
+            return null;
+        }
+
+        KapuaLocator locator = KapuaLocator.getInstance();
+        Account account = locator.getService(AccountService.class).findByName(topicTokens[0]);
+        if (account == null) {
+            throw new KapuaEntityNotFoundException(Account.TYPE, topicTokens[0]);
+        }
+        Device device = locator.getService(DeviceRegistryService.class).findByClientId(account.getId(), topicTokens[1]);
+
+        record.setScopeId(account.getId());
+        record.setDeviceId(device != null ? device.getId() : null);
+        record.setClientId(clientId);
+        record.setSemanticParts(Arrays.asList(topicTokens).subList(2, topicTokens.length));
+        record.setReceivedOn(queuedOn);
+        return record;
+    }
+
+    /**
+     * Read the Kura protobuf payload (plain or compressed) into the record
+     *
+     * @param payload
+     * @param record
+     * @return false if the payload must be parsed by the translators
+     */
+    static boolean readPayload(byte[] payload, MessageRecord record) {
+        try {
+            // the body is kept as a slice of the bytes so the uncompressed payload is not read from the reused buffer of the codec
+            byte[] bytes = GZIPCodec.isCompressed(payload) ? GZIPCodec.decompress(payload) : payload;
+            CodedInputStream input = CodedInputStream.newInstance(bytes);
+
+            // the Kura to Kapua translator always sets the payload and the metrics
+            record.setHasPayload(true);
+            record.setHasMetrics(true);
+
+            Date timestamp = null;
+            int tag;
+            while ((tag = input.readTag()) != 0) {
+                switch (tag) {
+                case TIMESTAMP_TAG:
+                    timestamp = new Date(input.readInt64());
+                    break;
+                case POSITION_TAG:
+                    int positionLimit = input.pushLimit(input.readRawVarint32());
+                    boolean positionValid = readPosition(input, record);
+                    input.popLimit(positionLimit);
+                    if (!positionValid) {
+                        return false;
+                    }
+                    break;
+                case METRIC_TAG:
+                    int metricLimit = input.pushLimit(input.readRawVarint32());
+                    boolean metricValid = readMetric(input, record);
+                    input.popLimit(metricLimit);
+                    if (!metricValid) {
+                        return false;
+                    }
+                    break;
+                case BODY_TAG:
+                    // the body is kept as a slice of the payload
+                    int bodyLength = input.readRawVarint32();
+                    int bodyOffset = input.getTotalBytesRead();
+                    input.skipRawBytes(bodyLength);
+                    record.setBody(bytes, bodyOffset, bodyLength);
+                    break;
+                default:
+                    if (!input.skipField(tag)) {
+                        return false;
+                    }
+                }
+            }
+            // the latitude and the longitude are required
+            if (record.hasPosition() && !record.hasPositionLocation()) {
+                return false;
+            }
+            record.setCapturedOn(timestamp);
+            record.setSentOn(timestamp);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Read a position (a position read more times is merged)
+     *
+     * @param input
+     * @param record
+     * @return false if the position is not valid
+     * @throws IOException
+     */
+    private static boolean readPosition(CodedInputStream input, MessageRecord record) throws IOException {
+        record.setHasPosition(true);
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (tag) {
+            case LATITUDE_TAG:
+                record.setPositionLatitude(input.readDouble());
+                break;
+            case LONGITUDE_TAG:
+                record.setPositionLongitude(input.readDouble());
+                break;
+            case ALTITUDE_TAG:
+                record.setPositionAltitude(input.readDouble());
+                break;
+            case PRECISION_TAG:
+                record.setPositionPrecision(input.readDouble());
+                break;
+            case HEADING_TAG:
+                record.setPositionHeading(input.readDouble());
+                break;
+            case SPEED_TAG:
+                record.setPositionSpeed(input.readDouble());
+                break;
+            case POSITION_TIMESTAMP_TAG:
+                record.setPositionTimestamp(new Date(input.readInt64()));
+                break;
+            case SATELLITES_TAG:
+                record.setPositionSatellites(input.readInt32());
+                break;
+            case STATUS_TAG:
+                record.setPositionStatus(input.readInt32());
+                break;
+            default:
+                if (!input.skipField(tag)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read a metric
+     *
+     * @param input
+     * @param record
+     * @return false if the metric is not valid, if the name or the type are missing or if the type is unknown
+     * @throws IOException
+     */
+    private static boolean readMetric(CodedInputStream input, MessageRecord record) throws IOException {
+        String name = null;
+        ValueType type = null;
+        double doubleValue = 0;
+        float floatValue = 0;
+        long longValue = 0;
+        int intValue = 0;
+        boolean boolValue = false;
+        String stringValue = "";
+        byte[] bytesValue = EMPTY_BYTES;
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (tag) {
+            case NAME_TAG:
+                name = input.readString();
+                break;
+            case TYPE_TAG:
+                type = ValueType.valueOf(input.readEnum());
+                if (type == null) {
+                    return false;
+                }
+                break;
+            case DOUBLE_VALUE_TAG:
+                doubleValue = input.readDouble();
+                break;
+            case FLOAT_VALUE_TAG:
+                floatValue = input.readFloat();
+                break;
+            case LONG_VALUE_TAG:
+                longValue = input.readInt64();
+                break;
+            case INT_VALUE_TAG:
+                intValue = input.readInt32();
+                break;
+            case BOOL_VALUE_TAG:
+                boolValue = input.readBool();
+                break;
+            case STRING_VALUE_TAG:
+                stringValue = input.readString();
+                break;
+            case BYTES_VALUE_TAG:
+                bytesValue = input.readRawBytes(input.readRawVarint32());
+                break;
+            default:
+                if (!input.skipField(tag)) {
+                    return false;
+                }
+            }
+        }
+        if (name == null || type == null) {
+            return false;
+        }
+        switch (type) {
+        case DOUBLE:
+            record.addMetric(name, doubleValue);
+            break;
+        case FLOAT:
+            record.addMetric(name, floatValue);
+            break;
+        case INT64:
+            record.addMetric(name, longValue);
+            break;
+        case INT32:
+            record.addMetric(name, intValue);
+            break;
+        case BOOL:
+            record.addMetric(name, boolValue);
+            break;
+        case STRING:
+            record.addMetric(name, stringValue);
+            break;
+        case BYTES:
+            record.addMetric(name, bytesValue);
+            break;
+        default:
+            return false;
+        }
+        return true;
+    }
+}
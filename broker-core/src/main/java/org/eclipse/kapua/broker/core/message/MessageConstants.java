@@ -24,6 +24,7 @@ public class MessageConstants {
     public static final String METRIC_CLIENT_ID = "clientId";
     public static final String METRIC_IP = "ip";
     public final static String PROPERTY_ORIGINAL_TOPIC = "originalTopic";
+    public final static String PROPERTY_MESSAGE_TYPE = "messageType";
     public final static String PROPERTY_ENQUEUED_TIMESTAMP = "enqueuedTimestamp";
 
     // used by login update info asynch
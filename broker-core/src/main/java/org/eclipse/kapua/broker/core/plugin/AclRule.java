@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.plugin;
+
+/**
+ * Topic ACL rules granted to the broker connections.<br>
+ * In the templates {0} is the account name and {1} is the client id of the connection.<br>
+ * Each read rule grants also the read of the durable subscription queues of the topic ({@link AclConstants#ACL_VT_DURABLE_PREFIX}).
+ *
+ * @since 1.0
+ */
+enum AclRule {
+
+    // kapua-sys
+    ALL(AclConstants.ACL_HASH, true, true, true),
+    ADVISORY(AclConstants.ACL_AMQ_ADVISORY, false, true, true),
+
+    // normal users
+    CTRL_ACC(AclConstants.ACL_CTRL_ACC, true, true, true),
+    CTRL_ACC_CLI(AclConstants.ACL_CTRL_ACC_CLI, true, true, true),
+    DATA_ACC(AclConstants.ACL_DATA_ACC, true, true, true),
+    DATA_ACC_VIEW(AclConstants.ACL_DATA_ACC, true, false, true),
+    DATA_ACC_CLI(AclConstants.ACL_DATA_ACC_CLI, true, true, true),
+    DATA_ACC_CLI_WRITE(AclConstants.ACL_DATA_ACC_CLI, false, true, false),
+    CTRL_ACC_REPLY(AclConstants.ACL_CTRL_ACC_REPLY, false, true, true),
+    CTRL_ACC_NOTIFY(AclConstants.ACL_CTRL_ACC_NOTIFY, false, true, false),
+
+    // provisioning
+    PROVISIONING_CTRL_ACC_REPLY(AclConstants.ACL_CTRL_ACC_REPLY, false, true, false),
+    PROVISIONING_CTRL_ACC_CLI_MQTT_LIFE_CYCLE(AclConstants.ACL_CTRL_ACC_CLI_MQTT_LIFE_CYCLE, false, true, false),
+    PROVISIONING_CTRL_ACC_CLI(AclConstants.ACL_CTRL_ACC_CLI, true, false, false),
+    PROVISIONING_CTRL_ACC(AclConstants.ACL_CTRL_ACC, false, false, true);
+
+    private final String template;
+    private final boolean read;
+    private final boolean write;
+    private final boolean admin;
+
+    private AclRule(String template, boolean read, boolean write, boolean admin) {
+        this.template = template;
+        this.read = read;
+        this.write = write;
+        this.admin = admin;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public boolean isRead() {
+        return read;
+    }
+
+    public boolean isWrite() {
+        return write;
+    }
+
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    /**
+     * Bit of the rule in the rule masks of the connections
+     *
+     * @return
+     */
+    public long mask() {
+        return 1L << ordinal();
+    }
+}
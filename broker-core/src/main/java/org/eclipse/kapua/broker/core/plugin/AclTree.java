@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.plugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.activemq.command.ActiveMQDestination;
+
+/**
+ * Destination tree of the {@link AclRule} templates, compiled once and shared by all the broker connections.<br>
+ * The account name and the client id of the templates are kept as parameters of the tree, a connection supplies their values and the mask of the rules granted
+ * to it, so the check of a destination walks its path elements without building any per connection map or allocating any object.<br>
+ * The wildcards are matched as by the ActiveMQ {@link org.apache.activemq.security.DefaultAuthorizationMap}: '*' matches one path element and '&gt;' matches the
+ * remaining path elements, none included. In a destination (a wildcard subscription) a '*' path element matches any child of the tree node, while a '&gt;'
+ * path element is matched as a literal. The parameter values are always matched as literals.
+ *
+ * @since 1.0
+ */
+final class AclTree {
+
+    public static final int READ = 0;
+    public static final int WRITE = 1;
+    public static final int ADMIN = 2;
+
+    public static final int ACCOUNT_NAME = 0;
+    public static final int CLIENT_ID = 1;
+    public static final int FULL_CLIENT_ID = 2;
+
+    private static final int LITERAL = -1;
+    private static final int TOPIC = -2;
+
+    private static final String ANY_CHILD = "*";
+    private static final String ANY_DESCENDANT = ">";
+
+    private static final AclTree INSTANCE = new AclTree(AclRule.values());
+
+    private final Node topicRoot = new Node();
+    private final Node queueRoot = new Node();
+
+    private AclTree(AclRule[] rules) {
+        for (AclRule rule : rules) {
+            List<Token> topicTokens = parse(rule.getTemplate(), ACCOUNT_NAME, CLIENT_ID);
+            topicRoot.add(topicTokens, 0, rule.mask(), rule.isRead(), rule.isWrite(), rule.isAdmin());
+            if (rule.isRead()) {
+                // the durable subscriptions are queues named after the full client id and the topic
+                for (String durablePrefix : AclConstants.ACL_VT_DURABLE_PREFIX) {
+                    List<Token> queueTokens = new ArrayList<>();
+                    for (Token token : parse(durablePrefix, FULL_CLIENT_ID, TOPIC)) {
+                        if (token.parameter == TOPIC) {
+                            queueTokens.addAll(topicTokens);
+                        } else {
+                            queueTokens.add(token);
+                        }
+                    }
+                    queueRoot.add(queueTokens, 0, rule.mask(), true, false, false);
+                }
+            }
+        }
+        topicRoot.compile();
+        queueRoot.compile();
+    }
+
+    public static AclTree getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Check if the rules grant the action on the destination.<br>
+     * A composite destination is allowed only if all its destinations are allowed.
+     *
+     * @param destination
+     * @param rules
+     *            mask of the granted {@link AclRule}
+     * @param parameters
+     *            account name, client id and full client id of the connection
+     * @param action
+     *            {@link #READ}, {@link #WRITE} or {@link #ADMIN}
+     * @return
+     */
+    public boolean isAllowed(ActiveMQDestination destination, long rules, String[] parameters, int action) {
+        if (destination.isComposite()) {
+            for (ActiveMQDestination compositeDestination : destination.getCompositeDestinations()) {
+                if (!isAllowed(compositeDestination, rules, parameters, action)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        Node root;
+        if (destination.isQueue()) {
+            root = queueRoot;
+        } else if (destination.isTopic()) {
+            root = topicRoot;
+        } else {
+            return false;
+        }
+        return root.matches(destination.getDestinationPaths(), 0, rules, parameters, action);
+    }
+
+    /**
+     * Parse the template in tokens, one per path element
+     *
+     * @param template
+     * @param parameter0
+     *            parameter of the {0} placeholder
+     * @param parameter1
+     *            parameter of the {1} placeholder, {@link #TOPIC} for the topic of the durable subscription templates
+     * @return
+     */
+    private static List<Token> parse(String template, int parameter0, int parameter1) {
+        List<Token> tokens = new ArrayList<>();
+        for (String path : template.split("\\.")) {
+            if (path.startsWith("{0}")) {
+                tokens.add(new Token(parameter0, path.substring(3)));
+            } else if (path.startsWith("{1}")) {
+                tokens.add(new Token(parameter1, path.substring(3)));
+            } else {
+                tokens.add(new Token(path));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Path element of a template: a literal (wildcards included) or a parameter followed by a literal suffix
+     */
+    private static class Token {
+
+        private final int parameter;
+        private final String text;
+
+        private Token(String literal) {
+            this(LITERAL, literal);
+        }
+
+        private Token(int parameter, String text) {
+            this.parameter = parameter;
+            this.text = text;
+        }
+
+        private boolean isLiteral() {
+            return parameter == LITERAL;
+        }
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<ParameterChild> parameterChildrenList = new ArrayList<>();
+        private ParameterChild[] parameterChildren;
+        private Node[] allChildren;
+        private Node anyChild;
+        private Node anyDescendant;
+
+        /**
+         * Rules ending in this node, by action
+         */
+        private final long[] rules = new long[3];
+
+        /**
+         * Rules ending in this node or in its descendants, by action
+         */
+        private final long[] subtreeRules = new long[3];
+
+        private void add(List<Token> tokens, int index, long rule, boolean read, boolean write, boolean admin) {
+            if (index == tokens.size()) {
+                rules[READ] |= read ? rule : 0;
+                rules[WRITE] |= write ? rule : 0;
+                rules[ADMIN] |= admin ? rule : 0;
+                return;
+            }
+            child(tokens.get(index)).add(tokens, index + 1, rule, read, write, admin);
+        }
+
+        private Node child(Token token) {
+            if (!token.isLiteral()) {
+                for (ParameterChild parameterChild : parameterChildrenList) {
+                    if (parameterChild.parameter == token.parameter && parameterChild.suffix.equals(token.text)) {
+                        return parameterChild.node;
+                    }
+                }
+                ParameterChild parameterChild = new ParameterChild(token.parameter, token.text);
+                parameterChildrenList.add(parameterChild);
+                return parameterChild.node;
+            } else if (ANY_CHILD.equals(token.text)) {
+                if (anyChild == null) {
+                    anyChild = new Node();
+                }
+                return anyChild;
+            } else if (ANY_DESCENDANT.equals(token.text)) {
+                if (anyDescendant == null) {
+                    anyDescendant = new Node();
+                }
+                return anyDescendant;
+            }
+            return children.computeIfAbsent(token.text, text -> new Node());
+        }
+
+        /**
+         * Freeze the children in arrays and compute the subtree rules
+         */
+        private void compile() {
+            List<Node> nodes = new ArrayList<>(children.values());
+            for (ParameterChild parameterChild : parameterChildrenList) {
+                nodes.add(parameterChild.node);
+            }
+            if (anyChild != null) {
+                nodes.add(anyChild);
+            }
+            if (anyDescendant != null) {
+                nodes.add(anyDescendant);
+            }
+            parameterChildren = parameterChildrenList.toArray(new ParameterChild[parameterChildrenList.size()]);
+            allChildren = nodes.toArray(new Node[nodes.size()]);
+
+            System.arraycopy(rules, 0, subtreeRules, 0, rules.length);
+            for (Node child : allChildren) {
+                child.compile();
+                for (int action = 0; action < subtreeRules.length; action++) {
+                    subtreeRules[action] |= child.subtreeRules[action];
+                }
+            }
+        }
+
+        private boolean matches(String[] paths, int index, long grantedRules, String[] parameters, int action) {
+            if ((subtreeRules[action] & grantedRules) == 0) {
+                return false;
+            }
+            // '>' matches the remaining path elements, none included
+            if (anyDescendant != null && (anyDescendant.rules[action] & grantedRules) != 0) {
+                return true;
+            }
+            if (index == paths.length) {
+                return (rules[action] & grantedRules) != 0;
+            }
+
+            String path = paths[index];
+            if (ANY_CHILD.equals(path)) {
+                for (Node child : allChildren) {
+                    if (child != anyDescendant && child.matches(paths, index + 1, grantedRules, parameters, action)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            Node child = children.get(path);
+            if (child != null && child.matches(paths, index + 1, grantedRules, parameters, action)) {
+                return true;
+            }
+            if (anyChild != null && anyChild.matches(paths, index + 1, grantedRules, parameters, action)) {
+                return true;
+            }
+            for (ParameterChild parameterChild : parameterChildren) {
+                if (parameterChild.matches(path, parameters) && parameterChild.node.matches(paths, index + 1, grantedRules, parameters, action)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class ParameterChild {
+
+        private final int parameter;
+        private final String suffix;
+        private final Node node = new Node();
+
+        private ParameterChild(int parameter, String suffix) {
+            this.parameter = parameter;
+            this.suffix = suffix;
+        }
+
+        private boolean matches(String path, String[] parameters) {
+            String value = parameters[parameter];
+            return value != null && path.length() == value.length() + suffix.length() && path.startsWith(value) && path.endsWith(suffix);
+        }
+    }
+}
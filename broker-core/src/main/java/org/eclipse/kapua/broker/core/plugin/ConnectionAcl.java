@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.plugin;
+
+import java.text.MessageFormat;
+import java.util.List;
+
+import org.apache.activemq.command.ActiveMQDestination;
+
+/**
+ * Topic ACL of a broker connection.<br>
+ * The connection keeps only the account name, the client id and the mask of the {@link AclRule} granted to it, the destinations are checked against the
+ * {@link AclTree} shared by all the connections.
+ *
+ * @since 1.0
+ */
+public class ConnectionAcl {
+
+    private final long rules;
+    private final String[] parameters;
+
+    private ConnectionAcl(long rules, String accountName, String clientId, String fullClientId) {
+        this.rules = rules;
+        this.parameters = new String[] { accountName != null ? accountName.intern() : null, clientId, fullClientId };
+    }
+
+    /**
+     * Create the ACL of a kapua-sys connection
+     *
+     * @param accountName
+     * @param clientId
+     * @param fullClientId
+     * @return
+     */
+    public static ConnectionAcl newAdminAcl(String accountName, String clientId, String fullClientId) {
+        return new ConnectionAcl(AclRule.ALL.mask() | AclRule.ADVISORY.mask(), accountName, clientId, fullClientId);
+    }
+
+    /**
+     * Create the ACL of a provisioning connection
+     *
+     * @param accountName
+     * @param clientId
+     * @param fullClientId
+     * @return
+     */
+    public static ConnectionAcl newProvisioningAcl(String accountName, String clientId, String fullClientId) {
+        long rules = AclRule.PROVISIONING_CTRL_ACC_REPLY.mask() |
+                AclRule.PROVISIONING_CTRL_ACC_CLI_MQTT_LIFE_CYCLE.mask() |
+                AclRule.PROVISIONING_CTRL_ACC_CLI.mask() |
+                AclRule.PROVISIONING_CTRL_ACC.mask() |
+                AclRule.ADVISORY.mask();
+        return new ConnectionAcl(rules, accountName, clientId, fullClientId);
+    }
+
+    /**
+     * Create the ACL of a normal user connection
+     *
+     * @param hasPermissions
+     *            permissions of the user, by the {@link AclConstants} permission indexes
+     * @param accountName
+     * @param clientId
+     * @param fullClientId
+     * @return
+     */
+    public static ConnectionAcl newUserAcl(boolean[] hasPermissions, String accountName, String clientId, String fullClientId) {
+        long rules = AclRule.ADVISORY.mask();
+
+        // addConnection checks BROKER_CONNECT_IDX permission before creating the ACL
+        if (hasPermissions[AclConstants.DEVICE_MANAGE_IDX]) {
+            rules |= AclRule.CTRL_ACC.mask();
+        } else {
+            rules |= AclRule.CTRL_ACC_CLI.mask();
+        }
+
+        if (hasPermissions[AclConstants.DATA_MANAGE_IDX]) {
+            rules |= AclRule.DATA_ACC.mask();
+        } else if (hasPermissions[AclConstants.DATA_VIEW_IDX]) {
+            rules |= AclRule.DATA_ACC_VIEW.mask() | AclRule.DATA_ACC_CLI_WRITE.mask();
+        } else {
+            rules |= AclRule.DATA_ACC_CLI.mask();
+        }
+
+        rules |= AclRule.CTRL_ACC_REPLY.mask();
+        // Write notify to any client Id and any application and operation
+        rules |= AclRule.CTRL_ACC_NOTIFY.mask();
+        return new ConnectionAcl(rules, accountName, clientId, fullClientId);
+    }
+
+    public boolean canRead(ActiveMQDestination destination) {
+        return AclTree.getInstance().isAllowed(destination, rules, parameters, AclTree.READ);
+    }
+
+    public boolean canWrite(ActiveMQDestination destination) {
+        return AclTree.getInstance().isAllowed(destination, rules, parameters, AclTree.WRITE);
+    }
+
+    public boolean canAdmin(ActiveMQDestination destination) {
+        return AclTree.getInstance().isAllowed(destination, rules, parameters, AclTree.ADMIN);
+    }
+
+    /**
+     * Append the description of the granted destinations (one per line) to the list
+     *
+     * @param authDestinations
+     */
+    public void describe(List<String> authDestinations) {
+        for (AclRule rule : AclRule.values()) {
+            if ((rules & rule.mask()) == 0) {
+                continue;
+            }
+            String topic = MessageFormat.format(rule.getTemplate(), parameters[AclTree.ACCOUNT_NAME], parameters[AclTree.CLIENT_ID]);
+            authDestinations.add(MessageFormat.format(AclConstants.PERMISSION_LOG,
+                    rule.isRead() ? "r" : "_",
+                    rule.isWrite() ? "w" : "_",
+                    rule.isAdmin() ? "a" : "_",
+                    topic));
+            if (rule.isRead()) {
+                for (String durablePrefix : AclConstants.ACL_VT_DURABLE_PREFIX) {
+                    authDestinations.add(MessageFormat.format(AclConstants.PERMISSION_LOG, "r", "_", "_",
+                            MessageFormat.format(durablePrefix, parameters[AclTree.FULL_CLIENT_ID], topic)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,392 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.broker.core.setting.BrokerSetting;
+import org.eclipse.kapua.broker.core.setting.BrokerSettingKey;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnection;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionCreator;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionFactory;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionListResult;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionService;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Live state of the device connections handled by the broker.<br>
+ * The connects and disconnects are recorded in memory and written to the database by a single background thread: the status changes of a client are
+ * coalesced (only the last one is written) and are written periodically, in batches, so the connection threads don't wait for the database.<br>
+ * Only the first connection of a client not yet known by the broker looks up (or creates) the device connection synchronously, since its id is needed by
+ * the messages of the connection.<br>
+ * On stop the pending changes are written; if the database is not available they are saved to a journal file (in the broker data directory by default)
+ * and written on the next start.
+ *
+ * @since 1.0
+ */
+public class DeviceConnectionStateManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceConnectionStateManager.class);
+
+    private static final long DEFAULT_FLUSH_INTERVAL = 1000;
+    private static final int DEFAULT_FLUSH_BATCH_SIZE = 500;
+    private static final String DEFAULT_JOURNAL_FILE_NAME = "kapua-device-connection.journal";
+    private static final String ACTIVEMQ_DATA_PROPERTY = "activemq.data";
+    private static final String DEFAULT_DATA_DIRECTORY = "data";
+
+    private final DeviceConnectionService deviceConnectionService;
+    private final DeviceConnectionFactory deviceConnectionFactory;
+    private final long flushInterval;
+    private final int flushBatchSize;
+    private final File journalFile;
+
+    /**
+     * Device connection ids of the clients known by the broker
+     */
+    private final Map<String, KapuaId> deviceConnectionIds = new ConcurrentHashMap<>();
+
+    /**
+     * Last status change of the clients, not yet written
+     */
+    private final Map<String, StatusChange> pendingChanges = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flushExecutor;
+
+    /**
+     * Constructor
+     */
+    public DeviceConnectionStateManager() {
+        this(KapuaLocator.getInstance().getService(DeviceConnectionService.class),
+                KapuaLocator.getInstance().getFactory(DeviceConnectionFactory.class),
+                BrokerSetting.getInstance().getLong(BrokerSettingKey.DEVICE_CONNECTION_FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL),
+                BrokerSetting.getInstance().getInt(BrokerSettingKey.DEVICE_CONNECTION_FLUSH_BATCH_SIZE, DEFAULT_FLUSH_BATCH_SIZE),
+                defaultJournalFile());
+    }
+
+    private static File defaultJournalFile() {
+        BrokerSetting setting = BrokerSetting.getInstance();
+        String journalFile = setting.getString(BrokerSettingKey.DEVICE_CONNECTION_JOURNAL_FILE, null);
+        if (journalFile != null) {
+            return new File(journalFile);
+        }
+        // the journal must survive a restart of the host, so it is kept with the broker data (the ActiveMQ data directory by default)
+        return new File(setting.getString(BrokerSettingKey.DATA_DIRECTORY, System.getProperty(ACTIVEMQ_DATA_PROPERTY, DEFAULT_DATA_DIRECTORY)), DEFAULT_JOURNAL_FILE_NAME);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param deviceConnectionService
+     * @param deviceConnectionFactory
+     * @param flushInterval
+     *            the interval in milliseconds between two writes of the pending changes
+     * @param flushBatchSize
+     *            the maximum number of changes written in a single transaction
+     * @param journalFile
+     *            the file where the pending changes are saved if they cannot be written on stop
+     */
+    DeviceConnectionStateManager(DeviceConnectionService deviceConnectionService,
+            DeviceConnectionFactory deviceConnectionFactory,
+            long flushInterval,
+            int flushBatchSize,
+            File journalFile) {
+        this.deviceConnectionService = deviceConnectionService;
+        this.deviceConnectionFactory = deviceConnectionFactory;
+        this.flushInterval = flushInterval;
+        this.flushBatchSize = flushBatchSize;
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * Start writing the status changes, after loading the changes saved in the journal file by the last stop (if any)
+     */
+    public synchronized void start() {
+        readJournal();
+
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kapua-device-connection-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop writing the status changes in background and write the pending ones.<br>
+     * The changes that cannot be written are saved in the journal file.
+     */
+    public synchronized void stop() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            try {
+                flushExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flushExecutor = null;
+        }
+
+        flush();
+        if (!pendingChanges.isEmpty()) {
+            writeJournal();
+        }
+    }
+
+    /**
+     * Record the connection of a client.<br>
+     * If the client is not known by the broker its device connection is looked up and created if it doesn't exist yet, otherwise the status change is
+     * written in background.
+     *
+     * @param deviceConnectionCreator
+     *            the data of the connection
+     * @return the device connection id of the client
+     * @throws KapuaException
+     */
+    public KapuaId connect(DeviceConnectionCreator deviceConnectionCreator) throws KapuaException {
+        KapuaId scopeId = deviceConnectionCreator.getScopeId();
+        String clientId = deviceConnectionCreator.getClientId();
+        String key = key(scopeId, clientId);
+
+        KapuaId deviceConnectionId = deviceConnectionIds.get(key);
+        if (deviceConnectionId == null) {
+            DeviceConnection deviceConnection = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.findByClientId(scopeId, clientId));
+            if (deviceConnection == null) {
+                // a new device connection is created with the connected status
+                deviceConnection = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.create(deviceConnectionCreator));
+                deviceConnectionIds.put(key, deviceConnection.getId());
+                pendingChanges.remove(key);
+                return deviceConnection.getId();
+            }
+            deviceConnectionId = deviceConnection.getId();
+            deviceConnectionIds.put(key, deviceConnectionId);
+        }
+
+        pendingChanges.put(key, new StatusChange(deviceConnectionId, deviceConnectionCreator, DeviceConnectionStatus.CONNECTED));
+        return deviceConnectionId;
+    }
+
+    /**
+     * Record the disconnection of a client. The status change is written in background.
+     *
+     * @param scopeId
+     * @param clientId
+     * @param userId
+     *            the user of the connection
+     * @param status
+     *            the status of the device connection after the disconnection
+     */
+    public void disconnect(KapuaId scopeId, String clientId, KapuaId userId, DeviceConnectionStatus status) {
+        String key = key(scopeId, clientId);
+
+        // an unknown device connection id is looked up when the change is written
+        StatusChange statusChange = new StatusChange(deviceConnectionIds.get(key), scopeId, clientId, userId, status);
+        pendingChanges.merge(key, statusChange, (previousChange, change) -> previousChange.withStatus(change.status));
+    }
+
+    /**
+     * Write the pending status changes.<br>
+     * The changes of the same user are written together, since the user is the modifier of the device connections. If a write fails the changes not
+     * written are kept pending, unless a newer change of the same client has been recorded in the meantime.
+     */
+    void flush() {
+        Map<KapuaId, List<StatusChange>> changesByUser = new LinkedHashMap<>();
+        for (String key : pendingChanges.keySet()) {
+            StatusChange change = pendingChanges.remove(key);
+            if (change != null) {
+                changesByUser.computeIfAbsent(change.userId, userId -> new ArrayList<>()).add(change);
+            }
+        }
+
+        List<StatusChange> notWrittenChanges = new ArrayList<>();
+        for (List<StatusChange> userChanges : changesByUser.values()) {
+            for (int i = 0; i < userChanges.size(); i += flushBatchSize) {
+                List<StatusChange> batch = userChanges.subList(i, Math.min(i + flushBatchSize, userChanges.size()));
+                if (notWrittenChanges.isEmpty()) {
+                    try {
+                        write(batch);
+                        continue;
+                    } catch (Exception e) {
+                        logger.warn("Cannot write the device connection status changes, they will be written later", e);
+                    }
+                }
+                // the database is not available, don't try the following batches
+                notWrittenChanges.addAll(batch);
+            }
+        }
+
+        for (StatusChange change : notWrittenChanges) {
+            pendingChanges.putIfAbsent(key(change.scopeId, change.clientId), change);
+        }
+    }
+
+    private void write(List<StatusChange> changes) throws KapuaException {
+        KapuaSession previousSession = KapuaSecurityUtils.getSession();
+        KapuaSecurityUtils.setSession(new KapuaSession(null, changes.get(0).scopeId, changes.get(0).userId));
+        try {
+            List<DeviceConnection> deviceConnections = new ArrayList<>();
+            for (StatusChange change : changes) {
+                KapuaId deviceConnectionId = change.deviceConnectionId;
+                if (deviceConnectionId == null) {
+                    DeviceConnection deviceConnection = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.findByClientId(change.scopeId, change.clientId));
+                    if (deviceConnection == null) {
+                        logger.warn("Cannot find the device connection of client id {} - account id {}: the status change is discarded", change.clientId, change.scopeId);
+                        continue;
+                    }
+                    deviceConnectionId = deviceConnection.getId();
+                }
+                deviceConnections.add(change.toDeviceConnection(deviceConnectionFactory, deviceConnectionId));
+            }
+
+            DeviceConnectionListResult updatedDeviceConnections = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.updateStatus(deviceConnections));
+
+            // forget the device connections deleted in the meantime, they will be looked up on the next connection
+            Set<KapuaId> updatedDeviceConnectionIds = new HashSet<>();
+            for (DeviceConnection deviceConnection : updatedDeviceConnections.getItems()) {
+                updatedDeviceConnectionIds.add(deviceConnection.getId());
+            }
+            for (DeviceConnection deviceConnection : deviceConnections) {
+                if (!updatedDeviceConnectionIds.contains(deviceConnection.getId())) {
+                    deviceConnectionIds.remove(key(deviceConnection.getScopeId(), deviceConnection.getClientId()), deviceConnection.getId());
+                }
+            }
+        } finally {
+            KapuaSecurityUtils.setSession(previousSession);
+        }
+    }
+
+    private void writeJournal() {
+        List<StatusChange> changes = new ArrayList<>(pendingChanges.values());
+        File journalDirectory = journalFile.getAbsoluteFile().getParentFile();
+        if (journalDirectory != null && !journalDirectory.isDirectory() && !journalDirectory.mkdirs()) {
+            logger.warn("Cannot create {}", journalDirectory);
+        }
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(journalFile))) {
+            out.writeObject(changes);
+            pendingChanges.clear();
+            logger.warn("Saved {} device connection status changes to {}, they will be written on the next start", changes.size(), journalFile);
+        } catch (IOException e) {
+            logger.error("Cannot save the device connection status changes to {}: {} changes are lost", journalFile, changes.size(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readJournal() {
+        if (!journalFile.exists()) {
+            return;
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(journalFile))) {
+            List<StatusChange> changes = (List<StatusChange>) in.readObject();
+            for (StatusChange change : changes) {
+                String key = key(change.scopeId, change.clientId);
+                pendingChanges.putIfAbsent(key, change);
+                if (change.deviceConnectionId != null) {
+                    deviceConnectionIds.putIfAbsent(key, change.deviceConnectionId);
+                }
+            }
+            logger.info("Loaded {} device connection status changes from {}", changes.size(), journalFile);
+        } catch (IOException | ClassNotFoundException e) {
+            logger.error("Cannot load the device connection status changes from {}", journalFile, e);
+        }
+
+        if (!journalFile.delete()) {
+            logger.warn("Cannot delete {}", journalFile);
+        }
+    }
+
+    private static String key(KapuaId scopeId, String clientId) {
+        return scopeId.getId() + ":" + clientId;
+    }
+
+    /**
+     * Status change of a device connection
+     */
+    private static final class StatusChange implements Serializable {
+
+        private static final long serialVersionUID = 5203948257813744208L;
+
+        private final KapuaId deviceConnectionId;
+        private final KapuaId scopeId;
+        private final String clientId;
+        private final KapuaId userId;
+        private final String protocol;
+        private final String clientIp;
+        private final String serverIp;
+        private final DeviceConnectionStatus status;
+
+        private StatusChange(KapuaId deviceConnectionId, KapuaId scopeId, String clientId, KapuaId userId, DeviceConnectionStatus status) {
+            this(deviceConnectionId, scopeId, clientId, userId, null, null, null, status);
+        }
+
+        private StatusChange(KapuaId deviceConnectionId, DeviceConnectionCreator deviceConnectionCreator, DeviceConnectionStatus status) {
+            this(deviceConnectionId,
+                    deviceConnectionCreator.getScopeId(),
+                    deviceConnectionCreator.getClientId(),
+                    deviceConnectionCreator.getUserId(),
+                    deviceConnectionCreator.getProtocol(),
+                    deviceConnectionCreator.getClientIp(),
+                    deviceConnectionCreator.getServerIp(),
+                    status);
+        }
+
+        private StatusChange(KapuaId deviceConnectionId, KapuaId scopeId, String clientId, KapuaId userId, String protocol, String clientIp, String serverIp,
+                DeviceConnectionStatus status) {
+            this.deviceConnectionId = deviceConnectionId;
+            this.scopeId = scopeId;
+            this.clientId = clientId;
+            this.userId = userId;
+            this.protocol = protocol;
+            this.clientIp = clientIp;
+            this.serverIp = serverIp;
+            this.status = status;
+        }
+
+        private StatusChange withStatus(DeviceConnectionStatus status) {
+            return new StatusChange(deviceConnectionId, scopeId, clientId, userId, protocol, clientIp, serverIp, status);
+        }
+
+        private DeviceConnection toDeviceConnection(DeviceConnectionFactory deviceConnectionFactory, KapuaId deviceConnectionId) {
+            DeviceConnection deviceConnection = deviceConnectionFactory.newEntity(scopeId);
+            deviceConnection.setId(deviceConnectionId);
+            deviceConnection.setClientId(clientId);
+            deviceConnection.setUserId(userId);
+            deviceConnection.setProtocol(protocol);
+            deviceConnection.setClientIp(clientIp);
+            deviceConnection.setServerIp(serverIp);
+            deviceConnection.setStatus(status);
+            return deviceConnection;
+        }
+    }
+}
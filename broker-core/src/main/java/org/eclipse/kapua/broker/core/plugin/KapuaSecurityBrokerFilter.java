@@ -14,11 +14,10 @@ package org.eclipse.kapua.broker.core.plugin;
 
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.security.auth.login.CredentialException;
 
@@ -34,9 +33,6 @@ import org.apache.activemq.command.ConnectionId;
 import org.apache.activemq.command.ConnectionInfo;
 import org.apache.activemq.command.ConsumerInfo;
 import org.apache.activemq.command.Message;
-import org.apache.activemq.filter.DestinationMapEntry;
-import org.apache.activemq.security.AuthorizationEntry;
-import org.apache.activemq.security.DefaultAuthorizationMap;
 import org.apache.activemq.security.SecurityContext;
 import org.apache.shiro.ShiroException;
 import org.apache.shiro.authc.AuthenticationException;
@@ -45,6 +41,7 @@ import org.eclipse.kapua.KapuaErrorCode;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.KapuaIllegalAccessException;
 import org.eclipse.kapua.broker.core.BrokerDomain;
+import org.eclipse.kapua.broker.core.message.JmsUtil;
 import org.eclipse.kapua.broker.core.message.MessageConstants;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.commons.security.KapuaSession;
@@ -67,11 +64,12 @@ import org.eclipse.kapua.service.authorization.domain.Domain;
 import org.eclipse.kapua.service.authorization.permission.Actions;
 import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.datastore.DatastoreDomain;
+import org.eclipse.kapua.service.datastore.internal.DataRetentionManager;
+import org.eclipse.kapua.service.datastore.internal.DataRollupManager;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsBulkIndexer;
 import org.eclipse.kapua.service.device.management.commons.DeviceManagementDomain;
-import org.eclipse.kapua.service.device.registry.connection.DeviceConnection;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionCreator;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionFactory;
-import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionService;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionStatus;
 import org.eclipse.kapua.service.metric.MetricsService;
 import org.slf4j.Logger;
@@ -145,10 +143,11 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
     private PermissionFactory permissionFactory = KapuaLocator.getInstance().getFactory(PermissionFactory.class);
     private CredentialsFactory credentialsFactory = KapuaLocator.getInstance().getFactory(CredentialsFactory.class);
     private AccountService accountService = KapuaLocator.getInstance().getService(AccountService.class);
-    private DeviceConnectionService deviceConnectionService = KapuaLocator.getInstance().getService(DeviceConnectionService.class);
     private DeviceConnectionFactory deviceConnectionFactory = KapuaLocator.getInstance().getFactory(DeviceConnectionFactory.class);
     private MetricsService metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
 
+    private final DeviceConnectionStateManager deviceConnectionStateManager = new DeviceConnectionStateManager();
+
     public KapuaSecurityBrokerFilter(Broker next) throws KapuaException {
         super(next);
 
@@ -195,6 +194,13 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
     public void start()
             throws Exception {
         super.start();
+        deviceConnectionStateManager.start();
+        if (DataRetentionManager.isEnabled()) {
+            DataRetentionManager.getInstance().start();
+        }
+        if (DataRollupManager.isEnabled()) {
+            DataRollupManager.getInstance().start();
+        }
     }
 
     @Override
@@ -202,6 +208,17 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
             throws Exception {
         logger.info(">>> Security broker filter: calling stop...");
         super.stop();
+        deviceConnectionStateManager.stop();
+        if (DataRetentionManager.isEnabled()) {
+            DataRetentionManager.getInstance().stop();
+        }
+        if (DataRollupManager.isEnabled()) {
+            DataRollupManager.getInstance().stop();
+        }
+        // the data messages are acknowledged before being indexed, so the pending ones must be indexed before stopping
+        if (!EsBulkIndexer.closeInstance(1, TimeUnit.MINUTES)) {
+            logger.warn("Timeout while waiting for the pending bulk requests to complete");
+        }
     }
 
     // ------------------------------------------------------------------
@@ -313,7 +330,8 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
 
             Context loginShiroLoginTimeContext = metricLoginShiroLoginTime.time();
             LoginCredentials credentials = credentialsFactory.newUsernamePasswordCredentials(username, password != null ? password.toCharArray() : null);
-            AccessToken accessToken = authenticationService.login(credentials);
+            // the access token is never handed out to the device, so don't persist it
+            AccessToken accessToken = authenticationService.loginTransient(credentials);
 
             KapuaId scopeId = accessToken.getScopeId();
             KapuaId userId = accessToken.getUserId();
@@ -347,13 +365,13 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
                     username,
                     clientId,
                     clientIp);
-            DeviceConnection deviceConnection = null;
+            KapuaId deviceConnectionId = null;
             // 3) check authorization
-            DefaultAuthorizationMap authMap = null;
+            ConnectionAcl connectionAcl = null;
             if (isAdminUser(username)) {
                 metricLoginKapuasysTokenAttempt.inc();
-                // 3-1) admin authMap
-                authMap = buildAdminAuthMap(authDestinations, principal, fullClientId);
+                // 3-1) admin acl
+                connectionAcl = ConnectionAcl.newAdminAcl(accountName, clientId, fullClientId);
                 metricClientConnectedKapuasys.inc();
             } else {
                 Context loginNormalUserTimeContext = metricLoginNormalUserTime.time();
@@ -373,47 +391,36 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
                 }
                 loginCheckAccessTimeContext.stop();
 
-                // 3-4) build authMap
-                authMap = buildAuthMap(authDestinations, principal, hasPermissions, accountName, clientId, fullClientId);
-
-                // 4) find device
-                Context loginFindClientIdTimeContext = metricLoginFindClientIdTime.time();
-                deviceConnection = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.findByClientId(scopeId, clientId));
-                loginFindClientIdTimeContext.stop();
+                // 3-4) build acl
+                connectionAcl = ConnectionAcl.newUserAcl(hasPermissions, accountName, clientId, fullClientId);
 
+                // 4) update device connection (the status change is written in background if the device connection is already known)
                 Context loginFindDevTimeContext = metricLoginFindDevTime.time();
 
                 // send connect message
                 ConnectionId previousConnectionId = connectionMap.put(fullClientId, info.getConnectionId());
                 boolean stealingLinkDetected = (previousConnectionId != null);
-                if (deviceConnection == null) {
-                    DeviceConnectionCreator deviceConnectionCreator = deviceConnectionFactory.newCreator(scopeId);
-                    deviceConnectionCreator.setClientId(clientId);
-                    deviceConnectionCreator.setClientIp(clientIp);
-                    deviceConnectionCreator.setProtocol("MQTT");
-                    deviceConnectionCreator.setServerIp(null);// TODO to be filled with the proper value
-                    deviceConnectionCreator.setUserId(userId);
-                    deviceConnection = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.create(deviceConnectionCreator));
-                } else {
-                    deviceConnection.setClientIp(clientIp);
-                    deviceConnection.setProtocol("MQTT");
-                    deviceConnection.setServerIp(null);// TODO to be filled with the proper value
-                    deviceConnection.setUserId(userId);
-                    deviceConnection.setStatus(DeviceConnectionStatus.CONNECTED);
-                    final DeviceConnection deviceConnectionToUpdate = deviceConnection;
-                    KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.update(deviceConnectionToUpdate));
-                    // TODO implement the banned status
-                    // if (DeviceStatus.DISABLED.equals(device.getStatus())) {
-                    // throw new KapuaIllegalAccessException("clientId - This client ID is disabled and cannot connect");
-                    // }
-                    // TODO manage the stealing link event (may be a good idea to use different connect status (connect -stealing)?
-                    if (stealingLinkDetected) {
-                        metricLoginStealingLinkConnect.inc();
-
-                        // stealing link detected, skip info
-                        logger.warn("Detected Stealing link for cliend id {} - account - last connection id was {} - current connection id is {} - IP: {} - No connection status changes!",
-                                new Object[] { clientId, accountName, previousConnectionId, info.getConnectionId(), info.getClientIp() });
-                    }
+                DeviceConnectionCreator deviceConnectionCreator = deviceConnectionFactory.newCreator(scopeId);
+                deviceConnectionCreator.setClientId(clientId);
+                deviceConnectionCreator.setClientIp(clientIp);
+                deviceConnectionCreator.setProtocol("MQTT");
+                deviceConnectionCreator.setServerIp(null);// TODO to be filled with the proper value
+                deviceConnectionCreator.setUserId(userId);
+                // the device connection is looked up by client id only if the client is not yet known by the broker
+                Context loginFindClientIdTimeContext = metricLoginFindClientIdTime.time();
+                deviceConnectionId = deviceConnectionStateManager.connect(deviceConnectionCreator);
+                loginFindClientIdTimeContext.stop();
+                // TODO implement the banned status
+                // if (DeviceStatus.DISABLED.equals(device.getStatus())) {
+                // throw new KapuaIllegalAccessException("clientId - This client ID is disabled and cannot connect");
+                // }
+                // TODO manage the stealing link event (may be a good idea to use different connect status (connect -stealing)?
+                if (stealingLinkDetected) {
+                    metricLoginStealingLinkConnect.inc();
+
+                    // stealing link detected, skip info
+                    logger.warn("Detected Stealing link for cliend id {} - account - last connection id was {} - current connection id is {} - IP: {} - No connection status changes!",
+                            new Object[] { clientId, accountName, previousConnectionId, info.getConnectionId(), info.getClientIp() });
                 }
                 loginFindDevTimeContext.stop();
 
@@ -423,6 +430,9 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
                 loginSendLogingUpdateMsgTimeContex.stop();
                 metricClientConnectedClient.inc();
             }
+            if (authDestinations != null) {
+                connectionAcl.describe(authDestinations);
+            }
             logAuthDestinationToLog(authDestinations);
 
             final String connectorName = (((TransportConnector) context.getConnector()).getName());
@@ -431,8 +441,8 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
                 throw new IllegalStateException(String.format("Unable to find connector descriptor for connector '%s'", connectorName));
             }
             KapuaSecurityContext securityCtx = new KapuaSecurityContext(principal,
-                    authMap,
-                    (deviceConnection != null ? deviceConnection.getId() : null),
+                    connectionAcl,
+                    deviceConnectionId,
                     connectionId,
                     connectorDescriptor);
             context.setSecurityContext(securityCtx);
@@ -527,29 +537,11 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
                         logger.warn("Detected Stealing link for cliend id {} - account id {} - last connection id was {} - current connection id is {} - IP: {} - No disconnection info will be added!",
                                 new Object[] { clientId, accountId, connectionId, info.getConnectionId(), info.getClientIp() });
                     } else {
-                        final DeviceConnection deviceConnection;
-                        try {
-                            deviceConnection = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.findByClientId(scopeId, clientId));
-                        } catch (Exception e) {
-                            throw new ShiroException("Error while looking for device connection on updating the device!", e);
-                        }
-                        if (deviceConnection != null) {
-                            // the device connection must be not null
-                            // update device connection
-                            if (error == null) {
-                                deviceConnection.setStatus(DeviceConnectionStatus.DISCONNECTED);
-                            } else {
-                                deviceConnection.setStatus(DeviceConnectionStatus.MISSING);
-                            }
-                            try {
-                                KapuaSecurityUtils.doPrivileged(() -> {
-                                    deviceConnectionService.update(deviceConnection);
-                                    return null;
-                                });
-                            } catch (Exception e) {
-                                throw new ShiroException("Error while updating the device connection status!", e);
-                            }
-                        }
+                        // update device connection (the status change is written in background)
+                        deviceConnectionStateManager.disconnect(scopeId,
+                                clientId,
+                                kapuaPrincipal.getUserId(),
+                                error == null ? DeviceConnectionStatus.DISCONNECTED : DeviceConnectionStatus.MISSING);
                     }
                     metricClientDisconnectionClient.inc();
                 } else {
@@ -601,8 +593,7 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
             // if (!kapuaSecurityContext.getAuthorizedWriteDests().contains(messageSend.getDestination()))
             // {
             if (!messageSend.getDestination().isTemporary()) {
-                Set<?> allowedACLs = kapuaSecurityContext.getAuthorizationMap().getWriteACLs(messageSend.getDestination());
-                if (allowedACLs != null && !kapuaSecurityContext.isInOneOf(allowedACLs)) {
+                if (!kapuaSecurityContext.getConnectionAcl().canWrite(messageSend.getDestination())) {
                     String message = MessageFormat.format("User {0} ({1} - {2} - conn id {3}) is not authorized to write to: {4}",
                             kapuaSecurityContext.getUserName(),
                             ((KapuaPrincipal) kapuaSecurityContext.getMainPrincipal()).getClientId(),
@@ -632,7 +623,10 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
         ActiveMQDestination destination = messageSend.getDestination();
         if (destination instanceof ActiveMQTopic) {
             ActiveMQTopic destinationTopic = (ActiveMQTopic) destination;
-            messageSend.setProperty(MessageConstants.PROPERTY_ORIGINAL_TOPIC, destinationTopic.getTopicName().substring(AclConstants.VT_TOPIC_PREFIX.length()));
+            String originalTopic = destinationTopic.getTopicName().substring(AclConstants.VT_TOPIC_PREFIX.length());
+            messageSend.setProperty(MessageConstants.PROPERTY_ORIGINAL_TOPIC, originalTopic);
+            // classified once here so the message routes don't have to match the topic
+            messageSend.setProperty(MessageConstants.PROPERTY_MESSAGE_TYPE, JmsUtil.getMessageType(originalTopic).name());
         }
         metricPublishAllowedMessages.inc();
         super.send(producerExchange, messageSend);
@@ -681,9 +675,7 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
             // if (!kapuaSecurityContext.getAuthorizedReadDests().contains(info.getDestination()))
             // {
             if (!info.getDestination().isTemporary()) {
-                Set<?> allowedACLs = null;
-                allowedACLs = kapuaSecurityContext.getAuthorizationMap().getReadACLs(info.getDestination());
-                if (allowedACLs != null && !kapuaSecurityContext.isInOneOf(allowedACLs)) {
+                if (!kapuaSecurityContext.getConnectionAcl().canRead(info.getDestination())) {
                     String message = MessageFormat.format("User {0} ({1} - {2} - conn id {3}) is not authorized to read from: {4}",
                             kapuaSecurityContext.getUserName(),
                             ((KapuaPrincipal) kapuaSecurityContext.getMainPrincipal()).getClientId(),
@@ -726,202 +718,6 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
     //
     // ------------------------------------------------------------------
 
-    @SuppressWarnings("rawtypes")
-    private DefaultAuthorizationMap buildAdminAuthMap(List<String> authDestinations, KapuaPrincipal principal, String fullClientId) {
-        ArrayList<DestinationMapEntry> dme = new ArrayList<DestinationMapEntry>();
-        String clientId = principal.getClientId();
-        dme.addAll(createAuthorizationEntries(authDestinations, AclConstants.ACL_HASH,
-                principal, clientId, fullClientId, true, true, true));// (topic, principal, read, write, admin)
-        dme.addAll(createAuthorizationEntries(authDestinations, AclConstants.ACL_AMQ_ADVISORY,
-                principal, clientId, fullClientId, false, true, true));// (topic, principal, read, write, admin)
-        return new DefaultAuthorizationMap(dme);
-    }
-
-    @SuppressWarnings("rawtypes")
-    private DefaultAuthorizationMap buildProvisioningAuthMap(List<String> authDestinations, KapuaPrincipal principal, String accountName, String fullClientId) {
-        ArrayList<DestinationMapEntry> dme = new ArrayList<DestinationMapEntry>();
-
-        String clientId = principal.getClientId();
-        // Write reply to any client Id and any application
-        dme.addAll(createAuthorizationEntries(authDestinations, MessageFormat.format(AclConstants.ACL_CTRL_ACC_REPLY, accountName),
-                principal, clientId, fullClientId, false, true, false));// (topic, principal, read, write, admin)
-
-        // Publish only on MQTT/# for life-cycle messages and message that will trigger the provision service
-        dme.addAll(createAuthorizationEntries(authDestinations, MessageFormat.format(AclConstants.ACL_CTRL_ACC_CLI_MQTT_LIFE_CYCLE, accountName, clientId),
-                principal, clientId, fullClientId, false, true, false));// (topic, principal, read, write, admin)
-
-        // Read any control topic on its client id to be able to receive configurations and bundles
-        dme.addAll(createAuthorizationEntries(authDestinations, MessageFormat.format(AclConstants.ACL_CTRL_ACC_CLI, accountName, clientId),
-                principal, clientId, fullClientId, true, false, false));// (topic, principal, read, write, admin)
-
-        // FIXME: check if is correct "$EDC.{0}.>" instead of ">"
-        dme.addAll(createAuthorizationEntries(authDestinations, MessageFormat.format(AclConstants.ACL_CTRL_ACC, accountName),
-                principal, clientId, fullClientId, false, false, true));// (topic, principal, read, write, admin)
-
-        dme.addAll(createAuthorizationEntries(authDestinations, AclConstants.ACL_AMQ_ADVISORY,
-                principal, clientId, fullClientId, false, true, true));// (topic, principal, read, write, admin)
-
-        return new DefaultAuthorizationMap(dme);
-    }
-
-    @SuppressWarnings("rawtypes")
-    private DefaultAuthorizationMap buildAuthMap(List<String> authDestinations, KapuaPrincipal principal,
-            boolean[] hasPermissions,
-            String accountName,
-            String clientId,
-            String fullClientId) {
-        ArrayList<DestinationMapEntry> dme = new ArrayList<DestinationMapEntry>();
-
-        dme.addAll(createAuthorizationEntries(authDestinations, AclConstants.ACL_AMQ_ADVISORY,
-                principal, clientId, fullClientId, false, true, true));// (topic, principal, read, write, admin)
-
-        // addConnection checks BROKER_CONNECT_IDX permission before call this method
-        // then here user has BROKER_CONNECT_IDX permission and if check isn't needed
-        // if (hasPermissions[BROKER_CONNECT_IDX]) {
-        if (hasPermissions[AclConstants.DEVICE_MANAGE_IDX]) {
-            dme.addAll(createAuthorizationEntries(authDestinations,
-                    MessageFormat.format(AclConstants.ACL_CTRL_ACC, accountName),
-                    principal,
-                    clientId,
-                    fullClientId,
-                    true,
-                    true,
-                    true)); // (topic, principal, read, write, admin)
-        } else {
-            dme.addAll(createAuthorizationEntries(authDestinations,
-                    MessageFormat.format(AclConstants.ACL_CTRL_ACC_CLI, accountName, clientId),
-                    principal,
-                    clientId,
-                    fullClientId,
-                    true,
-                    true,
-                    true)); // (topic, principal, read, write, admin)
-        }
-
-        if (hasPermissions[AclConstants.DATA_MANAGE_IDX]) {
-            dme.addAll(createAuthorizationEntries(authDestinations,
-                    MessageFormat.format(AclConstants.ACL_DATA_ACC, accountName),
-                    principal,
-                    clientId,
-                    fullClientId,
-                    true,
-                    true,
-                    true)); // (topic, principal, read, write, admin)
-        } else if (hasPermissions[AclConstants.DATA_VIEW_IDX]) {
-            dme.addAll(createAuthorizationEntries(authDestinations,
-                    MessageFormat.format(AclConstants.ACL_DATA_ACC, accountName),
-                    principal,
-                    clientId,
-                    fullClientId,
-                    true,
-                    false,
-                    true)); // (topic, principal, read, write, admin)
-
-            dme.addAll(createAuthorizationEntries(authDestinations,
-                    MessageFormat.format(AclConstants.ACL_DATA_ACC_CLI, accountName, clientId),
-                    principal,
-                    clientId,
-                    fullClientId,
-                    false,
-                    true,
-                    false)); // (topic, principal, read, write, admin)
-        } else {
-            dme.addAll(createAuthorizationEntries(authDestinations,
-                    MessageFormat.format(AclConstants.ACL_DATA_ACC_CLI, accountName, clientId),
-                    principal,
-                    clientId,
-                    fullClientId,
-                    true,
-                    true,
-                    true)); // (topic, principal, read, write, admin)
-        }
-
-        dme.addAll(createAuthorizationEntries(authDestinations,
-                MessageFormat.format(AclConstants.ACL_CTRL_ACC_REPLY, accountName),
-                principal,
-                clientId,
-                fullClientId,
-                false,
-                true,
-                true)); // (topic, principal, read, write, admin)
-
-        // Write notify to any client Id and any application and operation
-        dme.addAll(createAuthorizationEntries(authDestinations,
-                MessageFormat.format(AclConstants.ACL_CTRL_ACC_NOTIFY, accountName, clientId),
-                principal,
-                clientId,
-                fullClientId,
-                false,
-                true,
-                false));// (topic, principal, read, write, admin)
-
-        return new DefaultAuthorizationMap(dme);
-    }
-
-    protected List<AuthorizationEntry> createAuthorizationEntries(List<String> authDestinations, String topic, KapuaPrincipal principal, String clientId, String fullClientId, boolean read,
-            boolean write, boolean admin) {
-        List<AuthorizationEntry> entries = new ArrayList<AuthorizationEntry>();
-        entries.add(createAuthorizationEntry(authDestinations, topic, principal, read, write, admin));
-        // added to support the vt topic name space for durable subscriptions
-        if (read) {
-            // logger.info("pattern {} - clientid {} - topic {} - evaluated {}", new Object[]{JmsConstants.ACL_VT_DURABLE_PREFIX[0], clientId, topic,
-            // MessageFormat.format(JmsConstants.ACL_VT_DURABLE_PREFIX[0], fullClientId, topic)});
-            entries.add(createAuthorizationEntry(authDestinations, MessageFormat.format(AclConstants.ACL_VT_DURABLE_PREFIX[0], fullClientId, topic), principal));
-            // logger.info("pattern {} - clientid {} - topic {} - evaluated {}", new Object[]{JmsConstants.ACL_VT_DURABLE_PREFIX[1], clientId, topic,
-            // MessageFormat.format(JmsConstants.ACL_VT_DURABLE_PREFIX[1], fullClientId, topic)});
-            entries.add(createAuthorizationEntry(authDestinations, MessageFormat.format(AclConstants.ACL_VT_DURABLE_PREFIX[1], fullClientId, topic), principal));
-        }
-        return entries;
-    }
-
-    protected AuthorizationEntry createAuthorizationEntry(List<String> authDestinations, String topic, KapuaPrincipal principal, boolean read, boolean write, boolean admin) {
-        AuthorizationEntry entry = new AuthorizationEntry();
-        entry.setDestination(ActiveMQDestination.createDestination(topic, ActiveMQDestination.TOPIC_TYPE));
-        Set<Object> writeACLs = new HashSet<Object>();
-        Set<Object> readACLs = new HashSet<Object>();
-        Set<Object> adminACLs = new HashSet<Object>();
-        if (read) {
-            readACLs.add(principal);
-        }
-        if (write) {
-            writeACLs.add(principal);
-        }
-        if (admin) {
-            adminACLs.add(principal);
-        }
-        entry.setWriteACLs(writeACLs);
-        entry.setReadACLs(readACLs);
-        entry.setAdminACLs(adminACLs);
-        addAuthDestinationToLog(authDestinations, MessageFormat.format(AclConstants.PERMISSION_LOG,
-                read ? "r" : "_",
-                write ? "w" : "_",
-                admin ? "a" : "_",
-                topic));
-        return entry;
-
-    }
-
-    protected AuthorizationEntry createAuthorizationEntry(List<String> authDestinations, String topic, KapuaPrincipal principal) {
-        AuthorizationEntry entry = new AuthorizationEntry();
-        entry.setDestination(ActiveMQDestination.createDestination(topic, ActiveMQDestination.QUEUE_TYPE));
-        Set<Object> writeACLs = new HashSet<Object>();
-        Set<Object> readACLs = new HashSet<Object>();
-        Set<Object> adminACLs = new HashSet<Object>();
-        readACLs.add(principal);
-        entry.setWriteACLs(writeACLs);
-        entry.setReadACLs(readACLs);
-        entry.setAdminACLs(adminACLs);
-        addAuthDestinationToLog(authDestinations, MessageFormat.format(AclConstants.PERMISSION_LOG, "r", "_", "_", topic));
-        return entry;
-
-    }
-
-    private void addAuthDestinationToLog(List<String> authDestinations, String message) {
-        if (logger.isDebugEnabled()) {
-            authDestinations.add(message);
-        }
-    }
-
     private void logAuthDestinationToLog(List<String> authDestinations) {
         if (authDestinations != null) {
             logger.debug("Authorization map:");
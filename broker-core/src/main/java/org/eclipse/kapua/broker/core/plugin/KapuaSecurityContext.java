@@ -16,7 +16,6 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.apache.activemq.command.ConnectionId;
-import org.apache.activemq.security.AuthorizationMap;
 import org.apache.activemq.security.SecurityContext;
 import org.eclipse.kapua.commons.security.KapuaSession;
 import org.eclipse.kapua.model.id.KapuaId;
@@ -36,14 +35,14 @@ public class KapuaSecurityContext extends SecurityContext {
     private ConnectorDescriptor connectorDescriptor;
     private ConnectionId        brokerConnectionId;
 
-    private AuthorizationMap authMap;
+    private ConnectionAcl    connectionAcl;
     private boolean          hasDataView;
     private boolean          hasDataManage;
     private boolean          hasDeviceView;
     private boolean          hasDeviceManage;
 
     public KapuaSecurityContext(KapuaPrincipal     principal,
-                              AuthorizationMap authMap,
+                              ConnectionAcl connectionAcl,
                               KapuaId connectionId,
                               ConnectionId brokerConnectionId,
                               ConnectorDescriptor connectorDescriptor) {
@@ -54,7 +53,7 @@ public class KapuaSecurityContext extends SecurityContext {
         principals = new HashSet<Principal>();
         principals.add(principal);
 
-        this.authMap = authMap;
+        this.connectionAcl = connectionAcl;
         this.connectionId = connectionId;
         this.connectorDescriptor = connectorDescriptor;
         this.brokerConnectionId = brokerConnectionId;
@@ -70,9 +69,9 @@ public class KapuaSecurityContext extends SecurityContext {
         return principals;
     }
 
-    public AuthorizationMap getAuthorizationMap()
+    public ConnectionAcl getConnectionAcl()
     {
-        return authMap;
+        return connectionAcl;
     }
 
     public KapuaId getConnectionId()
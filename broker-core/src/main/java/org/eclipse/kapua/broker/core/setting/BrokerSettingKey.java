@@ -25,7 +25,32 @@ public enum BrokerSettingKey implements SettingKey {
     /**
      * A URI to a configuration file for providing additional {@link ConnectorDescriptor} configurations
      */
-    CONFIGURATION_URI("broker.connector.descriptor.configuration.uri");
+    CONFIGURATION_URI("broker.connector.descriptor.configuration.uri"),
+    /**
+     * Interval in milliseconds between two writes of the device connection status changes
+     */
+    DEVICE_CONNECTION_FLUSH_INTERVAL("broker.device.connection.flush.interval"),
+    /**
+     * Maximum number of device connection status changes written in a single transaction
+     */
+    DEVICE_CONNECTION_FLUSH_BATCH_SIZE("broker.device.connection.flush.batch.size"),
+    /**
+     * Broker data directory (the default directory of the files written by the broker plugins)
+     */
+    DATA_DIRECTORY("broker.data.directory"),
+    /**
+     * File where the device connection status changes that cannot be written on stop are kept, to be written on the next start (by default in the broker
+     * data directory)
+     */
+    DEVICE_CONNECTION_JOURNAL_FILE("broker.device.connection.journal.file"),
+    /**
+     * Store the Kura data messages reading the protobuf payload straight into the datastore record, without translating them to Kapua messages
+     */
+    DATA_FAST_PATH_ENABLED("broker.data.fast_path.enabled"),
+    /**
+     * Number of threads completing the routing of the data messages once they are stored (only used if the datastore stores the messages asynchronously)
+     */
+    DATA_STORAGE_COMPLETION_THREADS("broker.data.storage.completion.threads");
 
     private String key;
 
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.listener;
+
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.broker.core.message.CamelKapuaMessage;
+import org.eclipse.kapua.commons.metric.MetricsServiceImpl;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.service.datastore.MessageStoreService;
+import org.eclipse.kapua.service.datastore.internal.MessageRecordStore;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageRecord;
+import org.eclipse.kapua.service.datastore.internal.model.StorableIdImpl;
+import org.eclipse.kapua.service.datastore.model.StorableId;
+import org.eclipse.kapua.service.metric.MetricsService;
+import org.eclipse.kapua.test.MockedLocator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DataStorageMessageProcessorTest {
+
+    private static final StorableId MESSAGE_ID = new StorableIdImpl("message-1");
+
+    private CompletableFuture<StorableId> messageStored;
+    private DataStorageMessageProcessor processor;
+
+    @BeforeClass
+    public static void setUpLocator() {
+        // the listener metrics are registered by the metrics service
+        ((MockedLocator) KapuaLocator.getInstance()).setMockedService(MetricsService.class, new MetricsServiceImpl());
+    }
+
+    @Before
+    public void setUp() {
+        messageStored = new CompletableFuture<>();
+        MessageStoreService messageStoreService = (MessageStoreService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { MessageStoreService.class, MessageRecordStore.class },
+                (proxy, method, args) -> {
+                    if ("storeAsync".equals(method.getName())) {
+                        return messageStored;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        processor = new DataStorageMessageProcessor(messageStoreService, 1);
+    }
+
+    @Test
+    public void shouldNotWaitForTheMessageToBeStored() throws Exception {
+        // Given
+        Exchange exchange = newExchange();
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Thread> doneThread = new AtomicReference<>();
+
+        // When
+        boolean doneSync = processor.process(exchange, sync -> {
+            doneThread.set(Thread.currentThread());
+            done.countDown();
+        });
+
+        // Then
+        Assert.assertFalse(doneSync);
+        Assert.assertEquals(1, done.getCount());
+
+        // When
+        messageStored.complete(MESSAGE_ID);
+
+        // Then
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertNull(exchange.getException());
+        Assert.assertNotEquals(Thread.currentThread(), doneThread.get());
+    }
+
+    @Test
+    public void shouldSetTheStoreFailureOnTheExchange() throws Exception {
+        // Given
+        Exchange exchange = newExchange();
+        CountDownLatch done = new CountDownLatch(1);
+        KapuaException failure = KapuaException.internalError("Bulk item failed");
+
+        // When
+        processor.process(exchange, sync -> done.countDown());
+        messageStored.completeExceptionally(failure);
+
+        // Then
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertSame(failure, exchange.getException());
+    }
+
+    @Test
+    public void shouldCompleteSynchronouslyIfTheMessageIsAlreadyStored() throws Exception {
+        // Given
+        Exchange exchange = newExchange();
+        CountDownLatch done = new CountDownLatch(1);
+        messageStored.complete(MESSAGE_ID);
+
+        // When
+        boolean doneSync = processor.process(exchange, sync -> done.countDown());
+
+        // Then
+        Assert.assertTrue(doneSync);
+        Assert.assertEquals(0, done.getCount());
+        Assert.assertNull(exchange.getException());
+    }
+
+    private static Exchange newExchange() {
+        MessageRecord messageRecord = new MessageRecord();
+        messageRecord.setScopeId(new KapuaEid(BigInteger.ONE));
+        Exchange exchange = new DefaultExchange(new DefaultCamelContext());
+        exchange.getIn().setBody(new CamelKapuaMessage<>(messageRecord, null, null));
+        return exchange;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.message;
+
+import org.eclipse.kapua.broker.core.plugin.ConnectorDescriptor.MessageType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JmsUtilTest {
+
+    private static final String[] TOPICS = new String[] {
+            "acme.dev-1.heater.data",
+            "acme.dev-1.MQTT.BIRTH",
+            "$EDC.acme.dev-1.MQTT.BIRTH",
+            "$EDC.acme.dev-1.MQTT.DC",
+            "$EDC.acme.dev-1.MQTT.APPS",
+            "$EDC.acme.dev-1.MQTT.LWT",
+            "$EDC.acme.dev-1.MQTT.NOTIFY",
+            "$EDC.acme.dev-1.MQTT.OTHER",
+            "$EDC.acme.dev-1.MQTT.BIRTH.more",
+            "$EDC.acme.dev-1.CONF-V1.REPLY.req-1",
+            "$EDC.acme.MQTT.BIRTH",
+            "$EDC.acme.dev-1.app.MQTT.BIRTH",
+            "$EDC..MQTT.BIRTH",
+            "$EDC...MQTT.BIRTH",
+            "$EDC.acme.dev-1.XMQTT.BIRTH",
+            "$EDC.acme.dev-1.MQTT.",
+            "$EDC.MQTT.BIRTH",
+            "$EDC.",
+            "$EDC",
+            ""
+    };
+
+    /**
+     * Message type as matched by the regular expressions of the main route before the message type header
+     */
+    private static MessageType matchMessageType(String topic) {
+        if (!topic.matches("^\\$EDC\\..*")) {
+            return MessageType.DATA;
+        } else if (topic.matches("^\\$EDC\\.(.*\\.){2}MQTT\\.BIRTH")) {
+            return MessageType.BIRTH;
+        } else if (topic.matches("^\\$EDC\\.(.*\\.){2}MQTT\\.DC")) {
+            return MessageType.DISCONNECT;
+        } else if (topic.matches("^\\$EDC\\.(.*\\.){2}MQTT\\.APPS")) {
+            return MessageType.APP;
+        } else if (topic.matches("^\\$EDC\\.(.*\\.){2}MQTT\\.LWT")) {
+            return MessageType.MISSING;
+        } else if (topic.matches("^\\$EDC\\.(.*\\.){2}MQTT\\.NOTIFY")) {
+            return MessageType.NOTIFY;
+        }
+        return MessageType.UNMATCHED;
+    }
+
+    @Test
+    public void shouldClassifyTheTopicsAsTheRouteExpressions() {
+        for (String topic : TOPICS) {
+            Assert.assertEquals(topic, matchMessageType(topic), JmsUtil.getMessageType(topic));
+        }
+    }
+
+    @Test
+    public void shouldClassifyNoTopicAsData() {
+        Assert.assertEquals(MessageType.DATA, JmsUtil.getMessageType(null));
+    }
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.message;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto.KuraPayload;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto.KuraPayload.KuraMetric;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto.KuraPayload.KuraMetric.ValueType;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto.KuraPayload.KuraPosition;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Benchmark of the conversion of a Kura data message payload to the datastore document.<br>
+ * The same payload is converted by the translators (to the Kura and then to the Kapua message) and read by the {@link KuraDataMessageReader}.
+ * The conversion rate and the allocated bytes per message of both are logged.<br>
+ * The benchmark is not part of the default test run, execute it with:
+ *
+ * <pre>
+ * mvn -pl broker-core test -Dtest=KuraDataMessageReaderBenchmark
+ * </pre>
+ *
+ * The number of messages can be changed with the {@code benchmark.messages} system property.
+ */
+public class KuraDataMessageReaderBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(KuraDataMessageReaderBenchmark.class);
+
+    private static final int MESSAGES = Integer.getInteger("benchmark.messages", 200000);
+
+    @Test
+    public void documentConversion() throws Exception {
+        KuraPayload.Builder payloadBuilder = KuraPayload.newBuilder()
+                .setTimestamp(System.currentTimeMillis())
+                .setPosition(KuraPosition.newBuilder().setLatitude(45.5).setLongitude(13.7).setAltitude(120).setSatellites(7))
+                .setBody(ByteString.copyFromUtf8("heater status"));
+        for (int i = 0; i < 10; i++) {
+            payloadBuilder.addMetric(KuraMetric.newBuilder().setName("temperature" + i).setType(ValueType.DOUBLE).setDoubleValue(20 + i));
+            payloadBuilder.addMetric(KuraMetric.newBuilder().setName("counter" + i).setType(ValueType.INT64).setLongValue(i));
+        }
+        byte[] payload = payloadBuilder.build().toByteArray();
+
+        // warm up
+        convertAll(payload, true, MESSAGES / 10);
+        convertAll(payload, false, MESSAGES / 10);
+
+        long[] translated = convertAll(payload, true, MESSAGES);
+        long[] read = convertAll(payload, false, MESSAGES);
+
+        logger.info("{} messages: with translators {} messages/s {} bytes/message, with reader {} messages/s {} bytes/message",
+                MESSAGES, messageRate(translated[0]), translated[1] / MESSAGES, messageRate(read[0]), read[1] / MESSAGES);
+    }
+
+    private static long[] convertAll(byte[] payload, boolean translate, int messages) throws Exception {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedStart = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            if (translate) {
+                KuraDataMessageReaderTest.translatedDocument(payload);
+            } else {
+                KuraDataMessageReaderTest.readDocument(payload);
+            }
+        }
+        return new long[] { System.nanoTime() - start, threadBean.getThreadAllocatedBytes(threadId) - allocatedStart };
+    }
+
+    private static long messageRate(long time) {
+        return MESSAGES * TimeUnit.SECONDS.toNanos(1) / time;
+    }
+}
@@ -0,0 +1,316 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.message;
+
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.message.KapuaMessageFactory;
+import org.eclipse.kapua.message.device.data.KapuaDataMessage;
+import org.eclipse.kapua.message.internal.KapuaMessageFactoryImpl;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.account.Account;
+import org.eclipse.kapua.service.account.AccountService;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsMetric;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageRecord;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageXContentBuilder;
+import org.eclipse.kapua.service.device.call.message.kura.data.KuraDataMessage;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto.KuraPayload;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto.KuraPayload.KuraMetric;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto.KuraPayload.KuraMetric.ValueType;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto.KuraPayload.KuraPosition;
+import org.eclipse.kapua.service.device.call.message.kura.utils.GZIPCodec;
+import org.eclipse.kapua.service.device.registry.Device;
+import org.eclipse.kapua.service.device.registry.DeviceRegistryService;
+import org.eclipse.kapua.test.MockedLocator;
+import org.eclipse.kapua.translator.jms.kura.TranslatorDataJmsKura;
+import org.eclipse.kapua.translator.kura.kapua.TranslatorDataKuraKapua;
+import org.eclipse.kapua.transport.message.jms.JmsMessage;
+import org.eclipse.kapua.transport.message.jms.JmsPayload;
+import org.eclipse.kapua.transport.message.jms.JmsTopic;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Check that the documents of the Kura data messages read by the {@link KuraDataMessageReader} are the same (byte by byte) of the documents of the messages
+ * converted by the translators ({@link TranslatorDataJmsKura} and {@link TranslatorDataKuraKapua}).
+ */
+public class KuraDataMessageReaderTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.ONE);
+    private static final KapuaId DEVICE_ID = new KapuaEid(BigInteger.TEN);
+    private static final String ACCOUNT_NAME = "acme";
+    private static final String CLIENT_ID = "dev-1";
+    private static final List<String> SEMANTIC_PARTS = Arrays.asList("heater", "data");
+    private static final Date INDEXED_ON = new Date(1500000000000L);
+    private static final Date RECEIVED_ON = new Date(1500000001000L);
+
+    private static final TranslatorDataJmsKura JMS_KURA_TRANSLATOR = new TranslatorDataJmsKura();
+    private static final TranslatorDataKuraKapua KURA_KAPUA_TRANSLATOR = new TranslatorDataKuraKapua();
+
+    // '.' is normalized to "$2e" so "a.b" and "a$2eb" are the same field
+    private static final String[] METRIC_NAMES = new String[] { "temperature", "humidity", "a.b", "a$2eb", "status", "x.y.z", "" };
+
+    @BeforeClass
+    public static void setUpLocator() {
+        // the Kura to Kapua translator looks up the account by name and the device by client id, and creates the position by the message factory
+        Account account = (Account) Proxy.newProxyInstance(KuraDataMessageReaderTest.class.getClassLoader(), new Class<?>[] { Account.class },
+                (proxy, method, args) -> "getId".equals(method.getName()) ? SCOPE_ID : null);
+        Device device = (Device) Proxy.newProxyInstance(KuraDataMessageReaderTest.class.getClassLoader(), new Class<?>[] { Device.class },
+                (proxy, method, args) -> "getId".equals(method.getName()) ? DEVICE_ID : null);
+        AccountService accountService = (AccountService) Proxy.newProxyInstance(KuraDataMessageReaderTest.class.getClassLoader(), new Class<?>[] { AccountService.class },
+                (proxy, method, args) -> "findByName".equals(method.getName()) && ACCOUNT_NAME.equals(args[0]) ? account : null);
+        DeviceRegistryService deviceRegistryService = (DeviceRegistryService) Proxy.newProxyInstance(KuraDataMessageReaderTest.class.getClassLoader(),
+                new Class<?>[] { DeviceRegistryService.class },
+                (proxy, method, args) -> "findByClientId".equals(method.getName()) && SCOPE_ID.equals(args[0]) && CLIENT_ID.equals(args[1]) ? device : null);
+
+        MockedLocator locator = (MockedLocator) KapuaLocator.getInstance();
+        locator.setMockedService(AccountService.class, accountService);
+        locator.setMockedService(DeviceRegistryService.class, deviceRegistryService);
+        locator.setMockedFactory(KapuaMessageFactory.class, new KapuaMessageFactoryImpl());
+    }
+
+    @Test
+    public void shouldReadAllTheMetricTypes() throws Exception {
+        KuraPayload.Builder payload = KuraPayload.newBuilder()
+                .setTimestamp(1499999999000L)
+                .setPosition(KuraPosition.newBuilder()
+                        .setLatitude(45.5)
+                        .setLongitude(13.7)
+                        .setAltitude(120.25)
+                        .setPrecision(1.5)
+                        .setHeading(270)
+                        .setSpeed(12.5)
+                        .setTimestamp(1499999998000L)
+                        .setSatellites(7)
+                        .setStatus(4))
+                .addMetric(metric("double", ValueType.DOUBLE).setDoubleValue(1.25))
+                .addMetric(metric("float", ValueType.FLOAT).setFloatValue(2.5f))
+                .addMetric(metric("long", ValueType.INT64).setLongValue(Long.MAX_VALUE))
+                .addMetric(metric("int", ValueType.INT32).setIntValue(-42))
+                .addMetric(metric("bool", ValueType.BOOL).setBoolValue(true))
+                .addMetric(metric("string", ValueType.STRING).setStringValue("héllo \"world\""))
+                .addMetric(metric("bytes", ValueType.BYTES).setBytesValue(ByteString.copyFrom(new byte[] { 0, 1, 2, -1 })))
+                .setBody(ByteString.copyFromUtf8("the body"));
+
+        assertSameDocument(payload.build().toByteArray());
+    }
+
+    @Test
+    public void shouldReadTheOptionalFields() throws Exception {
+        assertSameDocument(new byte[0]);
+        assertSameDocument(KuraPayload.newBuilder().setTimestamp(1L).build().toByteArray());
+        assertSameDocument(KuraPayload.newBuilder().setBody(ByteString.EMPTY).build().toByteArray());
+        assertSameDocument(KuraPayload.newBuilder()
+                .setPosition(KuraPosition.newBuilder().setLatitude(0).setLongitude(0))
+                .build().toByteArray());
+        // the metric values not set are the defaults
+        assertSameDocument(KuraPayload.newBuilder()
+                .addMetric(metric("double", ValueType.DOUBLE))
+                .addMetric(metric("string", ValueType.STRING))
+                .addMetric(metric("bytes", ValueType.BYTES))
+                .addMetric(metric("other", ValueType.INT32).setLongValue(1))
+                .build().toByteArray());
+    }
+
+    @Test
+    public void shouldKeepTheLastOfTheMetricsWithTheSameName() throws Exception {
+        assertSameDocument(KuraPayload.newBuilder()
+                .addMetric(metric("a.b", ValueType.INT32).setIntValue(1))
+                .addMetric(metric("a$2eb", ValueType.STRING).setStringValue("second"))
+                .addMetric(metric("a.b", ValueType.DOUBLE).setDoubleValue(3))
+                .addMetric(metric("c", ValueType.INT32).setIntValue(4))
+                .addMetric(metric("c", ValueType.BOOL).setBoolValue(true))
+                .build().toByteArray());
+    }
+
+    @Test
+    public void shouldReadACompressedPayload() throws Exception {
+        byte[] payload = KuraPayload.newBuilder()
+                .setTimestamp(1499999999000L)
+                .addMetric(metric("temperature", ValueType.DOUBLE).setDoubleValue(21.5))
+                .setBody(ByteString.copyFromUtf8("compressed"))
+                .build().toByteArray();
+
+        assertSameDocument(GZIPCodec.compress(payload));
+    }
+
+    @Test
+    public void shouldSkipTheUnknownFields() throws Exception {
+        byte[] payload = KuraPayload.newBuilder()
+                .addMetric(metric("temperature", ValueType.DOUBLE).setDoubleValue(21.5))
+                .build().toByteArray();
+        // field 3 (an extension) as varint and field 1 (the timestamp) as fixed64
+        byte[] unknownFields = new byte[] { 3 << 3, 1, 1 << 3 | 1, 1, 2, 3, 4, 5, 6, 7, 8 };
+        byte[] extendedPayload = Arrays.copyOf(payload, payload.length + unknownFields.length);
+        System.arraycopy(unknownFields, 0, extendedPayload, payload.length, unknownFields.length);
+
+        // the translators cannot parse the unknown fields of the payload (the descriptor is needed) so the payload without them is the reference
+        Assert.assertEquals(documentContent(translatedDocument(payload)), documentContent(readDocument(extendedPayload)));
+    }
+
+    @Test
+    public void shouldReadRandomPayloads() throws Exception {
+        Random random = new Random(17);
+        for (int i = 0; i < 1000; i++) {
+            assertSameDocument(randomPayload(random).toByteArray());
+        }
+    }
+
+    @Test
+    public void shouldLeaveTheInvalidPayloadsToTheTranslators() throws Exception {
+        // missing metric type
+        assertTranslatorFailure(KuraPayload.newBuilder()
+                .addMetric(KuraMetric.newBuilder().setName("temperature").setDoubleValue(1).buildPartial())
+                .buildPartial().toByteArray());
+        // missing position longitude
+        assertTranslatorFailure(KuraPayload.newBuilder()
+                .setPosition(KuraPosition.newBuilder().setLatitude(1).buildPartial())
+                .buildPartial().toByteArray());
+        // unknown metric type
+        assertTranslatorFailure(new byte[] { (byte) 0xc2, (byte) 0xb8, 0x02, 5, 0x0a, 1, 'a', 0x10, 9 });
+        // truncated payload
+        byte[] payload = KuraPayload.newBuilder().setBody(ByteString.copyFromUtf8("truncated")).build().toByteArray();
+        assertTranslatorFailure(Arrays.copyOf(payload, payload.length - 1));
+    }
+
+    private static KuraMetric.Builder metric(String name, ValueType type) {
+        return KuraMetric.newBuilder().setName(name).setType(type);
+    }
+
+    private static KuraPayload randomPayload(Random random) {
+        KuraPayload.Builder payload = KuraPayload.newBuilder();
+        if (random.nextBoolean()) {
+            payload.setTimestamp(random.nextLong());
+        }
+        if (random.nextBoolean()) {
+            KuraPosition.Builder position = KuraPosition.newBuilder()
+                    .setLatitude(random.nextDouble() * 180 - 90)
+                    .setLongitude(random.nextDouble() * 360 - 180);
+            if (random.nextBoolean()) {
+                position.setAltitude(random.nextDouble());
+            }
+            if (random.nextBoolean()) {
+                position.setSpeed(random.nextDouble());
+            }
+            if (random.nextBoolean()) {
+                position.setTimestamp(random.nextLong() >>> 20);
+            }
+            if (random.nextBoolean()) {
+                position.setSatellites(random.nextInt(12));
+            }
+            payload.setPosition(position);
+        }
+        int metrics = random.nextInt(20);
+        for (int i = 0; i < metrics; i++) {
+            String name = METRIC_NAMES[random.nextInt(METRIC_NAMES.length)] + (random.nextBoolean() ? "" : random.nextInt(10));
+            ValueType type = ValueType.values()[random.nextInt(ValueType.values().length)];
+            KuraMetric.Builder metric = metric(name, type);
+            switch (type) {
+            case DOUBLE:
+                metric.setDoubleValue(random.nextDouble() * 1000);
+                break;
+            case FLOAT:
+                metric.setFloatValue(random.nextFloat());
+                break;
+            case INT64:
+                metric.setLongValue(random.nextLong());
+                break;
+            case INT32:
+                metric.setIntValue(random.nextInt());
+                break;
+            case BOOL:
+                metric.setBoolValue(random.nextBoolean());
+                break;
+            case STRING:
+                metric.setStringValue(Long.toString(random.nextLong(), 36));
+                break;
+            case BYTES:
+                byte[] bytes = new byte[random.nextInt(16)];
+                random.nextBytes(bytes);
+                metric.setBytesValue(ByteString.copyFrom(bytes));
+                break;
+            }
+            payload.addMetric(metric);
+        }
+        if (random.nextBoolean()) {
+            byte[] body = new byte[random.nextInt(64)];
+            random.nextBytes(body);
+            payload.setBody(ByteString.copyFrom(body));
+        }
+        return payload.build();
+    }
+
+    private static void assertSameDocument(byte[] payload) throws Exception {
+        MessageXContentBuilder translatedDocument = translatedDocument(payload);
+        MessageXContentBuilder readDocument = readDocument(payload);
+
+        Assert.assertEquals(documentContent(translatedDocument), documentContent(readDocument));
+        Assert.assertEquals(mappings(translatedDocument.getMetricMappings()), mappings(readDocument.getMetricMappings()));
+    }
+
+    /**
+     * Document content without the generated message id
+     */
+    private static String documentContent(MessageXContentBuilder document) throws Exception {
+        return document.getBuilder().string().replace(document.getMessageId().toString(), "");
+    }
+
+    private static void assertTranslatorFailure(byte[] payload) {
+        Assert.assertFalse(KuraDataMessageReader.readPayload(payload, new MessageRecord()));
+    }
+
+    /**
+     * Document of the message converted by the Jms to Kura and the Kura to Kapua data message translators
+     */
+    static MessageXContentBuilder translatedDocument(byte[] payload) throws Exception {
+        JmsTopic jmsTopic = new JmsTopic(new String[] { ACCOUNT_NAME, CLIENT_ID, SEMANTIC_PARTS.get(0), SEMANTIC_PARTS.get(1) });
+        KuraDataMessage kuraMessage = JMS_KURA_TRANSLATOR.translate(new JmsMessage(jmsTopic, RECEIVED_ON, new JmsPayload(payload)));
+        KapuaDataMessage kapuaMessage = KURA_KAPUA_TRANSLATOR.translate(kuraMessage);
+
+        return new MessageXContentBuilder().build(SCOPE_ID, kapuaMessage, INDEXED_ON, RECEIVED_ON);
+    }
+
+    /**
+     * Document of the message read by the {@link KuraDataMessageReader}
+     */
+    static MessageXContentBuilder readDocument(byte[] payload) throws Exception {
+        MessageRecord record = new MessageRecord();
+        Assert.assertTrue(KuraDataMessageReader.readPayload(payload, record));
+        record.setScopeId(SCOPE_ID);
+        record.setDeviceId(DEVICE_ID);
+        record.setClientId(CLIENT_ID);
+        record.setSemanticParts(SEMANTIC_PARTS);
+        record.setReceivedOn(RECEIVED_ON);
+
+        return new MessageXContentBuilder().build(SCOPE_ID, record, INDEXED_ON, RECEIVED_ON);
+    }
+
+    private static Map<String, String> mappings(Map<String, EsMetric> esMetrics) {
+        Map<String, String> mappings = new HashMap<>();
+        for (EsMetric esMetric : esMetrics.values()) {
+            mappings.put(esMetric.getName(), esMetric.getType());
+        }
+        return mappings;
+    }
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.message;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark of the routing of the messages by the main Camel route.<br>
+ * The same messages are routed by the choice on the original topic regular expressions (as the main route did) and by the choice on the message type header,
+ * set as the broker filter does. The routing rate of both is logged.<br>
+ * The benchmark is not part of the default test run, execute it with:
+ *
+ * <pre>
+ * mvn -pl broker-core test -Dtest=MessageRoutingBenchmark
+ * </pre>
+ *
+ * The number of messages can be changed with the {@code benchmark.messages} system property.
+ */
+public class MessageRoutingBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageRoutingBenchmark.class);
+
+    private static final int MESSAGES = Integer.getInteger("benchmark.messages", 200000);
+
+    private static final String[] TOPICS = new String[] {
+            "acme.dev-1.heater.data",
+            "acme.dev-2.heater.data",
+            "acme.dev-3.heater.data",
+            "$EDC.acme.dev-1.MQTT.BIRTH",
+            "$EDC.acme.dev-1.CONF-V1.REPLY.req-1"
+    };
+
+    private final AtomicInteger dataMessages = new AtomicInteger();
+
+    @Test
+    public void mainRouteChoice() throws Exception {
+        CamelContext camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+
+            @Override
+            public void configure() throws Exception {
+                from("direct:topicRoute")
+                        .choice()
+                        .when().simple("${header.originalTopic} regex '^\\$EDC\\..*'")
+                        .choice()
+                        .when().simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.BIRTH'").to("direct:lifeCycle")
+                        .when().simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.DC'").to("direct:lifeCycle")
+                        .when().simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.APPS'").to("direct:lifeCycle")
+                        .when().simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.LWT'").to("direct:lifeCycle")
+                        .when().simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.NOTIFY'").to("direct:lifeCycle")
+                        .otherwise().to("direct:lifeCycle")
+                        .endChoice()
+                        .otherwise().to("direct:data");
+
+                from("direct:messageTypeRoute")
+                        .choice()
+                        .when().simple("${header.messageType} == 'BIRTH'").to("direct:lifeCycle")
+                        .when().simple("${header.messageType} == 'DISCONNECT'").to("direct:lifeCycle")
+                        .when().simple("${header.messageType} == 'APP'").to("direct:lifeCycle")
+                        .when().simple("${header.messageType} == 'MISSING'").to("direct:lifeCycle")
+                        .when().simple("${header.messageType} == 'NOTIFY'").to("direct:lifeCycle")
+                        .when().simple("${header.messageType} == 'UNMATCHED'").to("direct:lifeCycle")
+                        .otherwise().to("direct:data");
+
+                from("direct:lifeCycle").stop();
+                from("direct:data").process(exchange -> dataMessages.incrementAndGet());
+            }
+        });
+        camelContext.start();
+        try {
+            ProducerTemplate producerTemplate = camelContext.createProducerTemplate();
+
+            // warm up
+            routeAll(producerTemplate, "direct:topicRoute", MESSAGES / 10);
+            routeAll(producerTemplate, "direct:messageTypeRoute", MESSAGES / 10);
+            dataMessages.set(0);
+
+            long topicTime = routeAll(producerTemplate, "direct:topicRoute", MESSAGES);
+            int topicDataMessages = dataMessages.getAndSet(0);
+            long messageTypeTime = routeAll(producerTemplate, "direct:messageTypeRoute", MESSAGES);
+            int messageTypeDataMessages = dataMessages.getAndSet(0);
+
+            logger.info("{} messages: routed by topic regular expressions {} messages/s, routed by message type {} messages/s",
+                    MESSAGES, routeRate(topicTime), routeRate(messageTypeTime));
+
+            Assert.assertEquals(topicDataMessages, messageTypeDataMessages);
+            Assert.assertTrue(messageTypeTime < topicTime);
+        } finally {
+            camelContext.stop();
+        }
+    }
+
+    private static long routeAll(ProducerTemplate producerTemplate, String route, int messages) {
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            String topic = TOPICS[i % TOPICS.length];
+            Map<String, Object> headers = new HashMap<>();
+            headers.put(MessageConstants.PROPERTY_ORIGINAL_TOPIC, topic);
+            // set by the broker filter on send
+            headers.put(MessageConstants.PROPERTY_MESSAGE_TYPE, JmsUtil.getMessageType(topic).name());
+            producerTemplate.sendBodyAndHeaders(route, null, headers);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long routeRate(long time) {
+        return MESSAGES * TimeUnit.SECONDS.toNanos(1) / time;
+    }
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.plugin;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.security.DefaultAuthorizationMap;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark of the publish authorization of a normal user connection.<br>
+ * The same destinations are checked with the per connection {@link DefaultAuthorizationMap} (as the broker filter did) and with the {@link ConnectionAcl}.
+ * The check rate of both is logged.<br>
+ * The benchmark is not part of the default test run, execute it with:
+ *
+ * <pre>
+ * mvn -pl broker-core test -Dtest=ConnectionAclBenchmark
+ * </pre>
+ *
+ * The number of checks can be changed with the {@code benchmark.checks} system property.
+ */
+public class ConnectionAclBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionAclBenchmark.class);
+
+    private static final int CHECKS = Integer.getInteger("benchmark.checks", 2000000);
+
+    private static final ActiveMQDestination[] DESTINATIONS = new ActiveMQDestination[] {
+            ActiveMQDestination.createDestination("VirtualTopic.acme.dev-1.heater.data", ActiveMQDestination.TOPIC_TYPE),
+            ActiveMQDestination.createDestination("VirtualTopic.$EDC.acme.dev-1.MQTT.BIRTH", ActiveMQDestination.TOPIC_TYPE),
+            ActiveMQDestination.createDestination("VirtualTopic.$EDC.acme.dev-2.CONF-V1.REPLY.req-1", ActiveMQDestination.TOPIC_TYPE),
+            ActiveMQDestination.createDestination("VirtualTopic.acme.dev-2.heater.data", ActiveMQDestination.TOPIC_TYPE)
+    };
+
+    @Test
+    public void publishAuthorization() {
+        boolean[] hasPermissions = new boolean[] { true, false, false, false };
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        DefaultAuthorizationMap authorizationMap = new DefaultAuthorizationMap((List) ConnectionAclTest.newUserEntries(hasPermissions));
+        ConnectionAcl connectionAcl = ConnectionAcl.newUserAcl(hasPermissions, "acme", "dev-1", "1:dev-1");
+
+        // warm up
+        checkAll(authorizationMap, connectionAcl, CHECKS / 10);
+
+        long mapStart = System.nanoTime();
+        int mapAllowed = checkAll(authorizationMap, null, CHECKS);
+        long mapTime = System.nanoTime() - mapStart;
+
+        long aclStart = System.nanoTime();
+        int aclAllowed = checkAll(null, connectionAcl, CHECKS);
+        long aclTime = System.nanoTime() - aclStart;
+
+        logger.info("{} publish authorizations: with authorization map {} checks/s, with connection acl {} checks/s",
+                CHECKS, checkRate(mapTime), checkRate(aclTime));
+
+        Assert.assertEquals(mapAllowed, aclAllowed);
+        Assert.assertTrue(aclTime < mapTime);
+    }
+
+    private static int checkAll(DefaultAuthorizationMap authorizationMap, ConnectionAcl connectionAcl, int checks) {
+        int allowed = 0;
+        for (int i = 0; i < checks; i++) {
+            ActiveMQDestination destination = DESTINATIONS[i % DESTINATIONS.length];
+            if (authorizationMap != null && authorizationMap.getWriteACLs(destination).contains(ConnectionAclTest.CLIENT_ID)) {
+                allowed++;
+            }
+            if (connectionAcl != null && connectionAcl.canWrite(destination)) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    private static long checkRate(long time) {
+        return CHECKS * TimeUnit.SECONDS.toNanos(1) / time;
+    }
+}
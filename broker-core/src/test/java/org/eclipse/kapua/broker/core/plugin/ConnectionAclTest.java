@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.plugin;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.filter.DestinationMapEntry;
+import org.apache.activemq.security.AuthorizationEntry;
+import org.apache.activemq.security.DefaultAuthorizationMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConnectionAclTest {
+
+    private static final String ACCOUNT_NAME = "acme";
+    static final String CLIENT_ID = "dev-1";
+    private static final String FULL_CLIENT_ID = "1:dev-1";
+
+    private static final String[] TOPICS = new String[] {
+            "VirtualTopic.acme.dev-1.app.data",
+            "VirtualTopic.acme.dev-2.app.data",
+            "VirtualTopic.acme.dev-1",
+            "VirtualTopic.acme",
+            "VirtualTopic.other.dev-1.app",
+            "VirtualTopic.$EDC.acme.dev-1.CONF-V1.GET.configurations",
+            "VirtualTopic.$EDC.acme.dev-2.CONF-V1.GET.configurations",
+            "VirtualTopic.$EDC.acme.dev-2.CONF-V1.REPLY.req-1",
+            "VirtualTopic.$EDC.acme.dev-2.CONF-V1.NOTIFY.dev-1.progress",
+            "VirtualTopic.$EDC.acme.dev-2.CONF-V1.NOTIFY.dev-3.progress",
+            "VirtualTopic.$EDC.acme.dev-1.MQTT.BIRTH",
+            "VirtualTopic.$EDC.other.dev-1.MQTT.BIRTH",
+            "VirtualTopic.ActiveMQ.Advisory.Connection",
+            "VirtualTopic.>",
+            "VirtualTopic.acme.>",
+            "VirtualTopic.acme.*.app",
+            "VirtualTopic.acme.dev-1.>",
+            "VirtualTopic.*.dev-1.>",
+            "VirtualTopic.$EDC.acme.*.*.REPLY.>",
+            "VirtualTopic.$EDC.*",
+            "VirtualTopic.$EDC.acme.dev-1.*.*.REPLY.req-1",
+            "VirtualTopic.acme.dev-1.*",
+            "VirtualTopic.acme.dev-1.app.>",
+            "VirtualTopic.*",
+            "*.>",
+            "topic.other"
+    };
+
+    private static final String[] QUEUES = new String[] {
+            "Consumer.1:dev-1:AT_LEAST_ONCE.VirtualTopic.acme.dev-1.app",
+            "Consumer.1:dev-1:EXACTLY_ONCE.VirtualTopic.acme.dev-1.>",
+            "Consumer.1:dev-1:EXACTLY_ONCE.VirtualTopic.$EDC.acme.dev-1.CONF-V1.EXEC",
+            "Consumer.1:dev-2:AT_LEAST_ONCE.VirtualTopic.acme.dev-1.app",
+            "Consumer.1:dev-1:AT_MOST_ONCE.VirtualTopic.acme.dev-1.app",
+            "Consumer.1:dev-1:AT_LEAST_ONCE.VirtualTopic.acme.dev-2.app",
+            "Consumer.*.VirtualTopic.>",
+            "Consumer.*.VirtualTopic.acme.dev-1.app",
+            "Consumer.>",
+            "queue.other"
+    };
+
+    @Test
+    public void shouldMatchTheAdminAuthorizationMap() {
+        List<DestinationMapEntry<?>> entries = new ArrayList<>();
+        addEntries(entries, AclConstants.ACL_HASH, true, true, true);
+        addEntries(entries, AclConstants.ACL_AMQ_ADVISORY, false, true, true);
+
+        assertEquivalent(ConnectionAcl.newAdminAcl(ACCOUNT_NAME, CLIENT_ID, FULL_CLIENT_ID), entries);
+    }
+
+    @Test
+    public void shouldMatchTheProvisioningAuthorizationMap() {
+        List<DestinationMapEntry<?>> entries = new ArrayList<>();
+        addEntries(entries, MessageFormat.format(AclConstants.ACL_CTRL_ACC_REPLY, ACCOUNT_NAME), false, true, false);
+        addEntries(entries, MessageFormat.format(AclConstants.ACL_CTRL_ACC_CLI_MQTT_LIFE_CYCLE, ACCOUNT_NAME, CLIENT_ID), false, true, false);
+        addEntries(entries, MessageFormat.format(AclConstants.ACL_CTRL_ACC_CLI, ACCOUNT_NAME, CLIENT_ID), true, false, false);
+        addEntries(entries, MessageFormat.format(AclConstants.ACL_CTRL_ACC, ACCOUNT_NAME), false, false, true);
+        addEntries(entries, AclConstants.ACL_AMQ_ADVISORY, false, true, true);
+
+        assertEquivalent(ConnectionAcl.newProvisioningAcl(ACCOUNT_NAME, CLIENT_ID, FULL_CLIENT_ID), entries);
+    }
+
+    @Test
+    public void shouldMatchTheUserAuthorizationMaps() {
+        for (boolean deviceManage : new boolean[] { false, true }) {
+            for (boolean dataView : new boolean[] { false, true }) {
+                for (boolean dataManage : new boolean[] { false, true }) {
+                    boolean[] hasPermissions = new boolean[] { true, deviceManage, dataView, dataManage };
+
+                    assertEquivalent(ConnectionAcl.newUserAcl(hasPermissions, ACCOUNT_NAME, CLIENT_ID, FULL_CLIENT_ID), newUserEntries(hasPermissions));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldAllowACompositeDestinationOnlyIfAllItsDestinationsAreAllowed() {
+        ConnectionAcl connectionAcl = ConnectionAcl.newUserAcl(new boolean[] { true, false, false, false }, ACCOUNT_NAME, CLIENT_ID, FULL_CLIENT_ID);
+
+        Assert.assertTrue(connectionAcl.canWrite(topic("VirtualTopic.acme.dev-1.app,VirtualTopic.acme.dev-1.other")));
+        Assert.assertFalse(connectionAcl.canWrite(topic("VirtualTopic.acme.dev-1.app,VirtualTopic.acme.dev-2.app")));
+    }
+
+    @Test
+    public void shouldMatchTheClientIdAsALiteral() {
+        ConnectionAcl connectionAcl = ConnectionAcl.newUserAcl(new boolean[] { true, false, false, false }, ACCOUNT_NAME, "*", "1:*");
+
+        Assert.assertTrue(connectionAcl.canWrite(topic("VirtualTopic.acme.*.app")));
+        Assert.assertFalse(connectionAcl.canWrite(topic("VirtualTopic.acme.dev-2.app")));
+    }
+
+    /**
+     * Entries of the normal user authorization map, as built by the broker filter before the {@link ConnectionAcl}
+     */
+    static List<DestinationMapEntry<?>> newUserEntries(boolean[] hasPermissions) {
+        List<DestinationMapEntry<?>> entries = new ArrayList<>();
+        addEntries(entries, AclConstants.ACL_AMQ_ADVISORY, false, true, true);
+        if (hasPermissions[AclConstants.DEVICE_MANAGE_IDX]) {
+            addEntries(entries, MessageFormat.format(AclConstants.ACL_CTRL_ACC, ACCOUNT_NAME), true, true, true);
+        } else {
+            addEntries(entries, MessageFormat.format(AclConstants.ACL_CTRL_ACC_CLI, ACCOUNT_NAME, CLIENT_ID), true, true, true);
+        }
+        if (hasPermissions[AclConstants.DATA_MANAGE_IDX]) {
+            addEntries(entries, MessageFormat.format(AclConstants.ACL_DATA_ACC, ACCOUNT_NAME), true, true, true);
+        } else if (hasPermissions[AclConstants.DATA_VIEW_IDX]) {
+            addEntries(entries, MessageFormat.format(AclConstants.ACL_DATA_ACC, ACCOUNT_NAME), true, false, true);
+            addEntries(entries, MessageFormat.format(AclConstants.ACL_DATA_ACC_CLI, ACCOUNT_NAME, CLIENT_ID), false, true, false);
+        } else {
+            addEntries(entries, MessageFormat.format(AclConstants.ACL_DATA_ACC_CLI, ACCOUNT_NAME, CLIENT_ID), true, true, true);
+        }
+        addEntries(entries, MessageFormat.format(AclConstants.ACL_CTRL_ACC_REPLY, ACCOUNT_NAME), false, true, true);
+        addEntries(entries, MessageFormat.format(AclConstants.ACL_CTRL_ACC_NOTIFY, ACCOUNT_NAME, CLIENT_ID), false, true, false);
+        return entries;
+    }
+
+    private static void addEntries(List<DestinationMapEntry<?>> entries, String topic, boolean read, boolean write, boolean admin) {
+        entries.add(newEntry(ActiveMQDestination.createDestination(topic, ActiveMQDestination.TOPIC_TYPE), read, write, admin));
+        if (read) {
+            for (String durablePrefix : AclConstants.ACL_VT_DURABLE_PREFIX) {
+                entries.add(newEntry(ActiveMQDestination.createDestination(MessageFormat.format(durablePrefix, FULL_CLIENT_ID, topic), ActiveMQDestination.QUEUE_TYPE),
+                        true, false, false));
+            }
+        }
+    }
+
+    private static AuthorizationEntry newEntry(ActiveMQDestination destination, boolean read, boolean write, boolean admin) {
+        AuthorizationEntry entry = new AuthorizationEntry();
+        entry.setDestination(destination);
+        entry.setReadACLs(read ? Collections.<Object> singleton(CLIENT_ID) : Collections.emptySet());
+        entry.setWriteACLs(write ? Collections.<Object> singleton(CLIENT_ID) : Collections.emptySet());
+        entry.setAdminACLs(admin ? Collections.<Object> singleton(CLIENT_ID) : Collections.emptySet());
+        return entry;
+    }
+
+    private static void assertEquivalent(ConnectionAcl connectionAcl, List<DestinationMapEntry<?>> entries) {
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        DefaultAuthorizationMap authorizationMap = new DefaultAuthorizationMap((List) entries);
+
+        List<ActiveMQDestination> destinations = new ArrayList<>();
+        for (String topic : TOPICS) {
+            destinations.add(topic(topic));
+        }
+        for (String queue : QUEUES) {
+            destinations.add(ActiveMQDestination.createDestination(queue, ActiveMQDestination.QUEUE_TYPE));
+        }
+        for (ActiveMQDestination destination : destinations) {
+            Assert.assertEquals("read " + destination, isAllowed(authorizationMap.getReadACLs(destination)), connectionAcl.canRead(destination));
+            Assert.assertEquals("write " + destination, isAllowed(authorizationMap.getWriteACLs(destination)), connectionAcl.canWrite(destination));
+            Assert.assertEquals("admin " + destination, isAllowed(authorizationMap.getAdminACLs(destination)), connectionAcl.canAdmin(destination));
+        }
+    }
+
+    private static boolean isAllowed(Set<?> acls) {
+        return acls.contains(CLIENT_ID);
+    }
+
+    private static ActiveMQDestination topic(String name) {
+        return ActiveMQDestination.createDestination(name, ActiveMQDestination.TOPIC_TYPE);
+    }
+}
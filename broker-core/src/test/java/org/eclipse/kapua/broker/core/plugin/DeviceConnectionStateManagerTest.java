@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.plugin;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnection;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionCreator;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionFactory;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionListResult;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionService;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionStatus;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DeviceConnectionStateManagerTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.ONE);
+    private static final KapuaId USER_ID = new KapuaEid(BigInteger.TEN);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DeviceConnectionStore store;
+    private DeviceConnectionFactory deviceConnectionFactory;
+    private DeviceConnectionService deviceConnectionService;
+
+    @Before
+    public void setUp() {
+        store = new DeviceConnectionStore();
+        deviceConnectionFactory = (DeviceConnectionFactory) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DeviceConnectionFactory.class },
+                (proxy, method, args) -> newDeviceConnection((KapuaId) args[0]));
+        deviceConnectionService = (DeviceConnectionService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DeviceConnectionService.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "findByClientId":
+                        return store.findByClientId((String) args[1]);
+                    case "create":
+                        return store.create((DeviceConnectionCreator) args[0]);
+                    case "updateStatus":
+                        return store.updateStatus(castList(args[0]));
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Test
+    public void shouldLookUpOnlyTheFirstConnectionOfAClient() throws Exception {
+        // Given
+        DeviceConnectionStateManager stateManager = newStateManager(folder.newFile());
+
+        // When
+        KapuaId deviceConnectionId = stateManager.connect(newCreator("client-1", "10.0.0.1"));
+        stateManager.disconnect(SCOPE_ID, "client-1", USER_ID, DeviceConnectionStatus.DISCONNECTED);
+        KapuaId reconnectedDeviceConnectionId = stateManager.connect(newCreator("client-1", "10.0.0.2"));
+
+        // Then
+        Assert.assertEquals(deviceConnectionId, reconnectedDeviceConnectionId);
+        Assert.assertEquals(1, store.finds);
+        Assert.assertEquals(1, store.creates);
+        Assert.assertTrue(store.updates.isEmpty());
+    }
+
+    @Test
+    public void shouldWriteOnlyTheLastStatusOfAClient() throws Exception {
+        // Given
+        DeviceConnectionStateManager stateManager = newStateManager(folder.newFile());
+        stateManager.connect(newCreator("client-1", "10.0.0.1"));
+        stateManager.connect(newCreator("client-2", "10.0.0.2"));
+
+        // When
+        stateManager.disconnect(SCOPE_ID, "client-1", USER_ID, DeviceConnectionStatus.DISCONNECTED);
+        stateManager.connect(newCreator("client-1", "10.0.0.3"));
+        stateManager.disconnect(SCOPE_ID, "client-1", USER_ID, DeviceConnectionStatus.MISSING);
+        stateManager.flush();
+
+        // Then
+        Assert.assertEquals(1, store.updates.size());
+        Assert.assertEquals(1, store.updates.get(0).size());
+        DeviceConnection deviceConnection = store.updates.get(0).get(0);
+        Assert.assertEquals("client-1", deviceConnection.getClientId());
+        Assert.assertEquals(DeviceConnectionStatus.MISSING, deviceConnection.getStatus());
+        Assert.assertEquals("10.0.0.3", deviceConnection.getClientIp());
+    }
+
+    @Test
+    public void shouldWriteTheChangesInBatches() throws Exception {
+        // Given
+        DeviceConnectionStateManager stateManager = newStateManager(folder.newFile());
+        for (int i = 0; i < 5; i++) {
+            stateManager.connect(newCreator("client-" + i, "10.0.0.1"));
+        }
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            stateManager.disconnect(SCOPE_ID, "client-" + i, USER_ID, DeviceConnectionStatus.DISCONNECTED);
+        }
+        stateManager.flush();
+
+        // Then
+        Assert.assertEquals(3, store.updates.size());
+        Assert.assertEquals(2, store.updates.get(0).size());
+        Assert.assertEquals(1, store.updates.get(2).size());
+    }
+
+    @Test
+    public void shouldKeepTheChangesNotWrittenOnStop() throws Exception {
+        // Given
+        File journalFile = new File(folder.getRoot(), "device-connection.journal");
+        DeviceConnectionStateManager stateManager = newStateManager(journalFile);
+        stateManager.start();
+        stateManager.connect(newCreator("client-1", "10.0.0.1"));
+        store.available = false;
+
+        // When
+        stateManager.disconnect(SCOPE_ID, "client-1", USER_ID, DeviceConnectionStatus.DISCONNECTED);
+        stateManager.flush();
+        stateManager.stop();
+
+        // Then
+        Assert.assertTrue(store.updates.isEmpty());
+        Assert.assertTrue(journalFile.exists());
+
+        // When
+        store.available = true;
+        DeviceConnectionStateManager restartedStateManager = newStateManager(journalFile);
+        restartedStateManager.start();
+        restartedStateManager.stop();
+
+        // Then
+        Assert.assertFalse(journalFile.exists());
+        Assert.assertEquals(1, store.updates.size());
+        Assert.assertEquals(DeviceConnectionStatus.DISCONNECTED, store.updates.get(0).get(0).getStatus());
+        Assert.assertEquals(1, store.creates);
+    }
+
+    private DeviceConnectionStateManager newStateManager(File journalFile) {
+        return new DeviceConnectionStateManager(deviceConnectionService, deviceConnectionFactory, 60000, 2, journalFile);
+    }
+
+    private DeviceConnectionCreator newCreator(String clientId, String clientIp) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("ScopeId", SCOPE_ID);
+        properties.put("ClientId", clientId);
+        properties.put("ClientIp", clientIp);
+        properties.put("UserId", USER_ID);
+        properties.put("Protocol", "MQTT");
+        return newBean(DeviceConnectionCreator.class, properties);
+    }
+
+    private static DeviceConnection newDeviceConnection(KapuaId scopeId) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("ScopeId", scopeId);
+        return newBean(DeviceConnection.class, properties);
+    }
+
+    /**
+     * Create a bean backed by the given properties, for the getters and the setters of the given interface
+     */
+    private static <T> T newBean(Class<T> beanInterface, Map<String, Object> properties) {
+        return beanInterface.cast(Proxy.newProxyInstance(DeviceConnectionStateManagerTest.class.getClassLoader(), new Class<?>[] { beanInterface },
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set")) {
+                        properties.put(name.substring(3), args[0]);
+                        return null;
+                    } else if (name.startsWith("get")) {
+                        return properties.get(name.substring(3));
+                    } else if (name.equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    } else if (name.equals("equals")) {
+                        return proxy == args[0];
+                    }
+                    return properties.toString();
+                }));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<DeviceConnection> castList(Object list) {
+        return (List<DeviceConnection>) list;
+    }
+
+    /**
+     * In memory device connections
+     */
+    private static class DeviceConnectionStore {
+
+        private final Map<String, DeviceConnection> deviceConnections = new HashMap<>();
+        private final List<List<DeviceConnection>> updates = new ArrayList<>();
+        private int finds;
+        private int creates;
+        private boolean available = true;
+
+        private DeviceConnection findByClientId(String clientId) {
+            finds++;
+            return deviceConnections.get(clientId);
+        }
+
+        private DeviceConnection create(DeviceConnectionCreator deviceConnectionCreator) {
+            creates++;
+            DeviceConnection deviceConnection = newDeviceConnection(deviceConnectionCreator.getScopeId());
+            deviceConnection.setId(new KapuaEid(BigInteger.valueOf(100 + creates)));
+            deviceConnection.setClientId(deviceConnectionCreator.getClientId());
+            deviceConnection.setStatus(DeviceConnectionStatus.CONNECTED);
+            deviceConnections.put(deviceConnection.getClientId(), deviceConnection);
+            return deviceConnection;
+        }
+
+        private DeviceConnectionListResult updateStatus(List<DeviceConnection> deviceConnectionUpdates) throws KapuaException {
+            if (!available) {
+                throw KapuaException.internalError("Database not available");
+            }
+            updates.add(deviceConnectionUpdates);
+
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("Items", deviceConnectionUpdates);
+            return newBean(DeviceConnectionListResult.class, properties);
+        }
+    }
+}
@@ -11,6 +11,8 @@
  *******************************************************************************/
 package org.eclipse.kapua.commons.configuration;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.kapua.KapuaException;
@@ -29,6 +31,10 @@ import org.eclipse.kapua.service.authorization.domain.Domain;
 public abstract class AbstractKapuaConfigurableResourceLimitedService<E extends KapuaEntity, C extends KapuaEntityCreator<E>, S extends KapuaEntityService<E, C>, L extends KapuaListResult<E>, Q extends KapuaQuery<E>, F extends KapuaEntityFactory<E, C, Q, L>>
         extends AbstractKapuaConfigurableService {
 
+    private static final String INFINITE_CHILD_ENTITIES = "infiniteChildEntities";
+    private static final String MAX_NUMBER_CHILD_ENTITIES = "maxNumberChildEntities";
+    private static final int CHILD_QUERY_BATCH_SIZE = 500;
+
     private final Class<S> serviceClass;
     private final Class<F> factoryClass;
 
@@ -64,6 +70,10 @@ public abstract class AbstractKapuaConfigurableResourceLimitedService<E extends
     }
 
     /**
+     * The number of child entities still available is computed as the maximum number of child entities minus the current child entities count and minus the child
+     * entities allotted to the child entities themselves.<br>
+     * The child entities are counted, not loaded, and the allotments are computed from the default allotment plus the (cached) differences of the child entities
+     * having a stored configuration, so the child entities are paged only when the differences are not cached.
      * 
      * @param scopeId
      *            The {@link ScopeId} of the account to be tested
@@ -81,20 +91,56 @@ public abstract class AbstractKapuaConfigurableResourceLimitedService<E extends
         if (configuration == null) {
             configuration = getConfigValues(scopeId);
         }
-        boolean allowInfiniteChildEntities = (boolean) configuration.get("infiniteChildEntities");
+        boolean allowInfiniteChildEntities = (boolean) configuration.get(INFINITE_CHILD_ENTITIES);
         if (!allowInfiniteChildEntities) {
-            int maxChildAccounts = (int) configuration.get("maxNumberChildEntities");
-            Q query = factory.newQuery(scopeId);
-            KapuaListResult<E> currentChildEntities = service.query(query);
-            long childCount = currentChildEntities.getSize();
-            for (E childEntity : currentChildEntities.getItems()) {
-                Map<String, Object> childConfigValues = getConfigValues(childEntity.getId());
-                int maxChildChildAccounts = (int) childConfigValues.get("maxNumberChildEntities");
-                childCount += maxChildChildAccounts;
-            }
-            return (int) (maxChildAccounts - childCount);
+            int maxChildAccounts = (int) configuration.get(MAX_NUMBER_CHILD_ENTITIES);
+            long childCount = service.count(factory.newQuery(scopeId));
+            int defaultChildAllotment = (int) getDefaultConfigValues().get(MAX_NUMBER_CHILD_ENTITIES);
+            long childAllotments = childCount * defaultChildAllotment + childAllotmentsDelta(scopeId, service, factory, defaultChildAllotment);
+            return (int) (maxChildAccounts - childCount - childAllotments);
         }
         return Integer.MAX_VALUE;
     }
 
+    /**
+     * Sum, over the child entities having a stored configuration, of the difference between their allotment and the default allotment.<br>
+     * The child entities are paged by key offset and only their stored configurations are read.
+     * The sum is cached by scope and evicted as soon as any configuration of this service changes.
+     *
+     * @param scopeId
+     * @param service
+     * @param factory
+     * @param defaultChildAllotment
+     * @return
+     * @throws KapuaException
+     */
+    private long childAllotmentsDelta(KapuaId scopeId, S service, F factory, int defaultChildAllotment) throws KapuaException {
+        ServiceConfigCache configCache = ServiceConfigCache.getInstance();
+        Long cachedDelta = configCache.getChildAllotments(getServicePid(), scopeId);
+        if (cachedDelta != null) {
+            return cachedDelta;
+        }
+
+        Q query = factory.newQuery(scopeId);
+        query.setLimit(CHILD_QUERY_BATCH_SIZE);
+
+        long delta = 0;
+        KapuaListResult<E> childEntities;
+        do {
+            childEntities = service.query(query);
+            List<KapuaId> childIds = new ArrayList<>();
+            for (E childEntity : childEntities.getItems()) {
+                childIds.add(childEntity.getId());
+            }
+
+            for (Map<String, Object> childConfigValues : getStoredConfigValues(childIds).values()) {
+                delta += (int) childConfigValues.get(MAX_NUMBER_CHILD_ENTITIES) - defaultChildAllotment;
+            }
+            query.setKeyOffset(childEntities.getNextKey());
+        } while (childEntities.getNextKey() != null);
+
+        configCache.putChildAllotments(getServicePid(), scopeId, delta);
+        return delta;
+    }
+
 }
@@ -26,6 +26,7 @@ import javax.xml.stream.XMLStreamException;
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.jpa.EntityManagerFactory;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
 import org.eclipse.kapua.commons.model.query.predicate.AndPredicate;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicate;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
@@ -33,6 +34,7 @@ import org.eclipse.kapua.commons.service.internal.AbstractKapuaService;
 import org.eclipse.kapua.commons.util.ResourceUtils;
 import org.eclipse.kapua.commons.util.xml.XmlUtil;
 import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.KapuaEntityPredicates;
 import org.eclipse.kapua.model.config.metatype.KapuaTad;
 import org.eclipse.kapua.model.config.metatype.KapuaTmetadata;
 import org.eclipse.kapua.model.config.metatype.KapuaTocd;
@@ -53,6 +55,7 @@ public abstract class AbstractKapuaConfigurableService extends AbstractKapuaServ
 
     private Domain domain = null;
     private String pid = null;
+    private volatile KapuaTocd ocd = null;
 
     /**
      * Constructor
@@ -250,19 +253,94 @@ public abstract class AbstractKapuaConfigurableService extends AbstractKapuaServ
         KapuaId scopeId = KapuaSecurityUtils.getSession().getScopeId();
         authorizationService.checkPermission(permissionFactory.newPermission(domain, Actions.read, scopeId));
 
-        try {
-            KapuaTmetadata metadata = readMetadata(this.pid);
-            if (metadata != null && metadata.getOCD() != null && !metadata.getOCD().isEmpty()) {
-                for (KapuaTocd ocd : metadata.getOCD()) {
-                    if (ocd.getId() != null && ocd.getId().equals(pid)) {
-                        return ocd;
+        return readConfigMetadata();
+    }
+
+    /**
+     * Read the service configuration metadata without checking the permissions.<br>
+     * The metadata is read once and then kept for the service lifetime.
+     *
+     * @return
+     * @throws KapuaException
+     */
+    private KapuaTocd readConfigMetadata()
+            throws KapuaException {
+        if (ocd == null) {
+            try {
+                KapuaTmetadata metadata = readMetadata(this.pid);
+                if (metadata != null && metadata.getOCD() != null && !metadata.getOCD().isEmpty()) {
+                    for (KapuaTocd metadataOcd : metadata.getOCD()) {
+                        if (metadataOcd.getId() != null && metadataOcd.getId().equals(pid)) {
+                            ocd = metadataOcd;
+                            break;
+                        }
                     }
                 }
+            } catch (Exception e) {
+                throw KapuaConfigurationException.internalError(e);
             }
-            return null;
-        } catch (Exception e) {
-            throw KapuaConfigurationException.internalError(e);
         }
+        return ocd;
+    }
+
+    /**
+     * Get the service pid
+     *
+     * @return
+     */
+    protected String getServicePid() {
+        return pid;
+    }
+
+    /**
+     * Get the default configuration values (the values of the scopes without a stored configuration)
+     *
+     * @return
+     * @throws KapuaException
+     */
+    protected Map<String, Object> getDefaultConfigValues()
+            throws KapuaException {
+        return toValues(readConfigMetadata(), null);
+    }
+
+    /**
+     * Get the configuration values of the given scopes having a stored configuration for this service, keyed by scope id.<br>
+     * The permissions are not checked, so the values must not be exposed to the caller: they are meant for internal aggregations (e.g. the resource limits).
+     *
+     * @param scopeIds
+     * @return
+     * @throws KapuaException
+     */
+    protected Map<KapuaId, Map<String, Object>> getStoredConfigValues(List<KapuaId> scopeIds)
+            throws KapuaException {
+        Map<KapuaId, Map<String, Object>> storedValues = new HashMap<>();
+        if (scopeIds.isEmpty()) {
+            return storedValues;
+        }
+
+        ServiceConfigQueryImpl query = new ServiceConfigQueryImpl(null);
+        query.setPredicate(new AndPredicate()
+                .and(new AttributePredicate<String>("pid", this.pid, Operator.EQUAL))
+                .and(new AttributePredicate<>(KapuaEntityPredicates.SCOPE_ID, scopeIds.stream().map(KapuaEid::new).toArray(KapuaEid[]::new))));
+
+        ServiceConfigListResult result = entityManagerSession.onResult(em -> ServiceConfigDAO.query(em, ServiceConfig.class, ServiceConfigImpl.class, new ServiceConfigListResultImpl(), query));
+
+        KapuaTocd serviceOcd = readConfigMetadata();
+        for (ServiceConfig serviceConfig : result.getItems()) {
+            storedValues.put(serviceConfig.getScopeId(), toValues(serviceOcd, serviceConfig.getConfigurations()));
+        }
+        return storedValues;
+    }
+
+    /**
+     * Invalidate the cached configuration values of the scope (e.g. when the entity the scope refers to is deleted)
+     *
+     * @param scopeId
+     * @throws KapuaException
+     */
+    protected void invalidateConfigValues(KapuaId scopeId)
+            throws KapuaException {
+        ServiceConfigCache.getInstance().invalidate(this.pid, scopeId);
     }
 
     @Override
@@ -273,6 +351,12 @@ public abstract class AbstractKapuaConfigurableService extends AbstractKapuaServ
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(domain, Actions.read, scopeId));
 
+        ServiceConfigCache configCache = ServiceConfigCache.getInstance();
+        Map<String, Object> values = configCache.get(this.pid, scopeId);
+        if (values != null) {
+            return values;
+        }
+
         AndPredicate predicate = new AndPredicate()
                 .and(new AttributePredicate<String>("pid", this.pid, Operator.EQUAL))
                 .and(new AttributePredicate<KapuaId>("scopeId", scopeId, Operator.EQUAL));
@@ -288,7 +372,10 @@ public abstract class AbstractKapuaConfigurableService extends AbstractKapuaServ
         }
             
         KapuaTocd ocd = this.getConfigMetadata();
-        return toValues(ocd, properties);
+        values = toValues(ocd, properties);
+
+        configCache.put(this.pid, scopeId, values);
+        return values;
     }
 
     @Override
@@ -327,5 +414,7 @@ public abstract class AbstractKapuaConfigurableService extends AbstractKapuaServ
 
             updateConfig(serviceConfig);
         }
+
+        ServiceConfigCache.getInstance().invalidate(this.pid, scopeId);
     }
 }
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.configuration;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Service configuration invalidation notifier for a single node (the invalidations are notified only to the listeners of the current JVM).
+ *
+ * @since 1.0
+ */
+public class LocalServiceConfigInvalidationNotifier implements ServiceConfigInvalidationNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalServiceConfigInvalidationNotifier.class);
+
+    private final List<ServiceConfigInvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void addListener(ServiceConfigInvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void notifyInvalidation(String pid, KapuaId scopeId) {
+        for (ServiceConfigInvalidationListener listener : listeners) {
+            try {
+                listener.onInvalidation(pid, scopeId);
+            } catch (RuntimeException e) {
+                logger.warn("Cannot notify the invalidation of the configuration {} for scope {}", pid, scopeId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.configuration;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaRuntimeException;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.metric.MetricsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Service configuration cache.<br>
+ * It keeps the configuration values (already converted according to the service metadata) by service pid and scope id.<br>
+ * The configurations are invalidated through the configured {@link ServiceConfigInvalidationNotifier} when they are changed, and expire after a configurable
+ * time anyway.<br>
+ * It also keeps, by service pid and scope id, the aggregated child entity allotments used by the resource limited services. They are evicted whenever a configuration
+ * of the same service pid is invalidated.
+ *
+ * @since 1.0
+ */
+public class ServiceConfigCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServiceConfigCache.class);
+
+    private static final String METRIC_MODULE = "commons";
+    private static final String METRIC_COMPONENT = "configuration";
+
+    private static ServiceConfigCache instance;
+
+    private final Cache<Key, Map<String, Object>> cache;
+    private final Cache<Key, Long> childAllotmentsCache;
+    private final ServiceConfigInvalidationNotifier notifier;
+
+    /**
+     * Constructor
+     *
+     * @param sizeMax
+     *            the maximum number of configurations
+     * @param expireAfter
+     *            the configuration time to live in seconds
+     * @param notifier
+     *            the invalidation notifier
+     */
+    ServiceConfigCache(int sizeMax, int expireAfter, ServiceConfigInvalidationNotifier notifier) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(sizeMax)
+                .expireAfterWrite(expireAfter, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        this.childAllotmentsCache = CacheBuilder.newBuilder()
+                .maximumSize(sizeMax)
+                .expireAfterWrite(expireAfter, TimeUnit.SECONDS)
+                .build();
+        this.notifier = notifier;
+        this.notifier.addListener(this::evict);
+    }
+
+    /**
+     * Get the service configuration cache instance (singleton)
+     *
+     * @return
+     * @throws KapuaException
+     *             if the configured invalidation notifier cannot be created
+     */
+    public static synchronized ServiceConfigCache getInstance() throws KapuaException {
+        if (instance == null) {
+            SystemSetting config = SystemSetting.getInstance();
+            int sizeMax = config.getInt(SystemSettingKey.CONFIG_CACHE_SIZE_MAXIMUM, 10000);
+            int expireAfter = config.getInt(SystemSettingKey.CONFIG_CACHE_EXPIRE_AFTER, 300);
+            String notifierClassName = config.getString(SystemSettingKey.CONFIG_CACHE_NOTIFIER, LocalServiceConfigInvalidationNotifier.class.getName());
+
+            ServiceConfigInvalidationNotifier notifier;
+            try {
+                notifier = (ServiceConfigInvalidationNotifier) Class.forName(notifierClassName).newInstance();
+            } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException e) {
+                throw KapuaConfigurationException.internalError(e);
+            }
+
+            instance = new ServiceConfigCache(sizeMax, expireAfter, notifier);
+            instance.registerMetrics();
+        }
+        return instance;
+    }
+
+    /**
+     * Get the cached configuration values
+     *
+     * @param pid
+     * @param scopeId
+     * @return a copy of the configuration values or {@code null} if the configuration is not cached
+     */
+    public Map<String, Object> get(String pid, KapuaId scopeId) {
+        Map<String, Object> values = cache.getIfPresent(new Key(pid, scopeId));
+        return values != null ? new HashMap<>(values) : null;
+    }
+
+    /**
+     * Cache the configuration values
+     *
+     * @param pid
+     * @param scopeId
+     * @param values
+     */
+    public void put(String pid, KapuaId scopeId, Map<String, Object> values) {
+        cache.put(new Key(pid, scopeId), Collections.unmodifiableMap(new HashMap<>(values)));
+    }
+
+    /**
+     * Get the cached aggregated child entity allotments
+     *
+     * @param pid
+     * @param scopeId
+     * @return the child entity allotments or {@code null} if they are not cached
+     */
+    public Long getChildAllotments(String pid, KapuaId scopeId) {
+        return childAllotmentsCache.getIfPresent(new Key(pid, scopeId));
+    }
+
+    /**
+     * Cache the aggregated child entity allotments
+     *
+     * @param pid
+     * @param scopeId
+     * @param childAllotments
+     */
+    public void putChildAllotments(String pid, KapuaId scopeId, long childAllotments) {
+        childAllotmentsCache.put(new Key(pid, scopeId), childAllotments);
+    }
+
+    /**
+     * Invalidate the configuration on all the nodes
+     *
+     * @param pid
+     * @param scopeId
+     */
+    public void invalidate(String pid, KapuaId scopeId) {
+        // evict the local copy first, so the caller reads its own change even if the notification is asynchronous
+        evict(pid, scopeId);
+        notifier.notifyInvalidation(pid, scopeId);
+    }
+
+    /**
+     * Add a listener notified when a configuration is invalidated (on any node)
+     *
+     * @param listener
+     */
+    public void addInvalidationListener(ServiceConfigInvalidationListener listener) {
+        notifier.addListener(listener);
+    }
+
+    /**
+     * Get the cache statistics (hits, misses and evictions)
+     *
+     * @return
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private void evict(String pid, KapuaId scopeId) {
+        cache.invalidate(new Key(pid, scopeId));
+        // the configuration may be part of the allotments of any parent scope
+        childAllotmentsCache.asMap().keySet().removeIf(key -> key.pid.equals(pid));
+    }
+
+    private void registerMetrics() {
+        try {
+            MetricsService metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
+            if (metricsService == null) {
+                logger.info("Metrics service not available, the configuration cache metrics are not exposed");
+                return;
+            }
+            metricsService.registerGauge((Gauge<Double>) () -> stats().hitRate(), METRIC_MODULE, METRIC_COMPONENT, "cache", "hit_ratio");
+            metricsService.registerGauge((Gauge<Long>) () -> stats().hitCount(), METRIC_MODULE, METRIC_COMPONENT, "cache", "hit");
+            metricsService.registerGauge((Gauge<Long>) () -> stats().missCount(), METRIC_MODULE, METRIC_COMPONENT, "cache", "miss");
+        } catch (KapuaRuntimeException e) {
+            logger.info("Metrics service not available, the configuration cache metrics are not exposed");
+        } catch (KapuaException e) {
+            logger.warn("Cannot register the configuration cache metrics", e);
+        }
+    }
+
+    /**
+     * Configuration cache key
+     */
+    private static final class Key {
+
+        private final String pid;
+        private final KapuaId scopeId;
+
+        private Key(String pid, KapuaId scopeId) {
+            this.pid = pid;
+            this.scopeId = scopeId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pid, scopeId);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(pid, other.pid) && Objects.equals(scopeId, other.scopeId);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.configuration;
+
+import org.eclipse.kapua.model.id.KapuaId;
+
+/**
+ * Service configuration invalidation listener.
+ *
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface ServiceConfigInvalidationListener {
+
+    /**
+     * Invoked when the configuration of the service for the scope is changed
+     *
+     * @param pid
+     *            the service pid
+     * @param scopeId
+     *            the scope id
+     */
+    public void onInvalidation(String pid, KapuaId scopeId);
+}
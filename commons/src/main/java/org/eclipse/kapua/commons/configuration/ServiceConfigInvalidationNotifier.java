@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.configuration;
+
+import org.eclipse.kapua.model.id.KapuaId;
+
+/**
+ * Service configuration invalidation notifier.<br>
+ * It propagates the service configuration changes to the {@link ServiceConfigInvalidationListener}s, so the cached configurations are refreshed.<br>
+ * A clustered deployment must provide an implementation propagating the invalidations to all the nodes (see {@link LocalServiceConfigInvalidationNotifier} for
+ * the single node implementation).
+ *
+ * @since 1.0
+ */
+public interface ServiceConfigInvalidationNotifier {
+
+    /**
+     * Add a listener notified of the invalidations coming from any node (this one included)
+     *
+     * @param listener
+     */
+    public void addListener(ServiceConfigInvalidationListener listener);
+
+    /**
+     * Notify the change of the configuration of the service for the scope
+     *
+     * @param pid
+     *            the service pid
+     * @param scopeId
+     *            the scope id
+     */
+    public void notifyInvalidation(String pid, KapuaId scopeId);
+}
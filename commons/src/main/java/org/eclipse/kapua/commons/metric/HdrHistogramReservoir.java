@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.metric;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * {@link Reservoir} backed by an HdrHistogram.<br>
+ * All the values are recorded (without sampling) with 2 significant digits, so the high percentiles are accurate. The values are recorded without locking
+ * by a {@link Recorder}.<br>
+ * The snapshots hold the values recorded in the current and in the previous window, so they report the recent values (from one to two windows), and the sum
+ * of all the values recorded since the reservoir creation.
+ *
+ * @since 1.0
+ */
+public class HdrHistogramReservoir implements Reservoir {
+
+    private static final int SIGNIFICANT_VALUE_DIGITS = 2;
+    private static final long DEFAULT_WINDOW = TimeUnit.MINUTES.toNanos(1);
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_VALUE_DIGITS);
+    private final LongAdder sum = new LongAdder();
+    private final long window;
+
+    private Histogram intervalHistogram;
+    private Histogram currentWindow = new Histogram(SIGNIFICANT_VALUE_DIGITS);
+    private Histogram previousWindow = new Histogram(SIGNIFICANT_VALUE_DIGITS);
+    private long currentWindowStart;
+
+    /**
+     * Constructs a reservoir with a window of one minute
+     */
+    public HdrHistogramReservoir() {
+        this(DEFAULT_WINDOW, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Constructs a reservoir with the given window
+     *
+     * @param window
+     * @param unit
+     */
+    public HdrHistogramReservoir(long window, TimeUnit unit) {
+        this.window = unit.toNanos(window);
+        currentWindowStart = System.nanoTime();
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        // negative values cannot be recorded
+        long recordedValue = Math.max(value, 0);
+        recorder.recordValue(recordedValue);
+        sum.add(recordedValue);
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+
+        long now = System.nanoTime();
+        long elapsed = now - currentWindowStart;
+        if (elapsed >= window) {
+            Histogram expiredWindow = previousWindow;
+            expiredWindow.reset();
+            if (elapsed < 2 * window) {
+                previousWindow = currentWindow;
+            } else {
+                // the current window is expired too
+                currentWindow.reset();
+                previousWindow = currentWindow;
+            }
+            currentWindow = expiredWindow;
+            currentWindowStart = now;
+        }
+        currentWindow.add(intervalHistogram);
+
+        Histogram histogram = previousWindow.copy();
+        histogram.add(currentWindow);
+        return new HdrHistogramSnapshot(histogram, sum.sum());
+    }
+
+    /**
+     * {@link Snapshot} of an HdrHistogram
+     */
+    static class HdrHistogramSnapshot extends Snapshot {
+
+        private final Histogram histogram;
+        private final long sum;
+
+        HdrHistogramSnapshot(Histogram histogram, long sum) {
+            this.histogram = histogram;
+            this.sum = sum;
+        }
+
+        /**
+         * Get the sum of all the values recorded by the reservoir (not only the values of the snapshot windows)
+         *
+         * @return
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(quantile + " is not in [0..1]");
+            }
+            return histogram.getValueAtPercentile(quantile * 100);
+        }
+
+        /**
+         * Get the distinct recorded values (with the precision of the histogram), since all the recorded values can be too many
+         */
+        @Override
+        public long[] getValues() {
+            int count = 0;
+            for (@SuppressWarnings("unused")
+            HistogramIterationValue value : histogram.recordedValues()) {
+                count++;
+            }
+            long[] values = new long[count];
+            int i = 0;
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                values[i++] = histogram.highestEquivalentValue(value.getValueIteratedTo());
+            }
+            return values;
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(histogram.getTotalCount(), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    writer.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.metric;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.commons.metric.HdrHistogramReservoir.HdrHistogramSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Counting;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Pull based exporter of the metrics of a {@link MetricRegistry}, in the Prometheus text format.<br>
+ * The metrics are served by an embedded HTTP listener on the {@value #PATH} path. Each scrape reads the current value of the metrics (nothing is computed
+ * between the scrapes) so they can be scraped often.<br>
+ * The metric names are prefixed by {@value #NAME_PREFIX} and their dots are replaced by underscores. The counters and the gauges are exported as gauges, the
+ * histograms and the timers as summaries (the timers in seconds) and the meters as counters.<br>
+ * The HTTP listener is bound to the given address only, so it is not reachable from the other hosts when bound to the loopback interface.
+ *
+ * @since 1.0
+ */
+public class MetricsExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsExporter.class);
+
+    public static final String PATH = "/metrics";
+    public static final String NAME_PREFIX = "kapua_";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = new double[] { 0.5, 0.75, 0.95, 0.98, 0.99, 0.999 };
+    private static final double SECONDS_PER_NANO = 1.0 / TimeUnit.SECONDS.toNanos(1);
+
+    private final MetricRegistry metricRegistry;
+    private final Map<String, String> exportedNames = new ConcurrentHashMap<>();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Constructs an exporter of the metric registry
+     *
+     * @param metricRegistry
+     */
+    public MetricsExporter(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * Start the HTTP listener
+     *
+     * @param address
+     *            the listener address (host name or IP address)
+     * @param port
+     *            the listener port (0 for any free port)
+     * @throws IOException
+     *             if the listener cannot be bound
+     */
+    public synchronized void start(String address, int port) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("The metrics exporter is already started");
+        }
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.createContext(PATH, this::handle);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Metrics exporter listening on {}:{}", address, getPort());
+    }
+
+    /**
+     * Stop the HTTP listener
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdown();
+            server = null;
+            executor = null;
+        }
+    }
+
+    /**
+     * @return the bound address of the HTTP listener
+     */
+    public synchronized InetSocketAddress getAddress() {
+        if (server == null) {
+            throw new IllegalStateException("The metrics exporter is not started");
+        }
+        return server.getAddress();
+    }
+
+    /**
+     * @return the port of the HTTP listener
+     */
+    public int getPort() {
+        return getAddress().getPort();
+    }
+
+    /**
+     * Write all the metrics of the registry in the Prometheus text format
+     *
+     * @param builder
+     */
+    public void write(StringBuilder builder) {
+        // the registry map is read without the copies (sorted by name) of the typed getters
+        for (Map.Entry<String, Metric> entry : metricRegistry.getMetrics().entrySet()) {
+            String name = exportedName(entry.getKey());
+            Metric metric = entry.getValue();
+            if (metric instanceof Counter) {
+                writeType(builder, name, "gauge");
+                writeSample(builder, name, ((Counter) metric).getCount());
+            } else if (metric instanceof Gauge) {
+                Object value = ((Gauge<?>) metric).getValue();
+                if (value instanceof Number) {
+                    writeType(builder, name, "gauge");
+                    writeSample(builder, name, ((Number) value).doubleValue());
+                } else if (value instanceof Boolean) {
+                    writeType(builder, name, "gauge");
+                    writeSample(builder, name, (Boolean) value ? 1 : 0);
+                }
+            } else if (metric instanceof Timer) {
+                writeSummary(builder, name, (Timer) metric, ((Timer) metric).getSnapshot(), SECONDS_PER_NANO);
+            } else if (metric instanceof Histogram) {
+                writeSummary(builder, name, (Histogram) metric, ((Histogram) metric).getSnapshot(), 1);
+            } else if (metric instanceof Meter) {
+                writeType(builder, name + "_total", "counter");
+                writeSample(builder, name + "_total", ((Meter) metric).getCount());
+            }
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringBuilder builder = new StringBuilder(16 * 1024);
+            write(builder);
+            byte[] response = builder.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(response);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Error exporting the metrics", e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String exportedName(String name) {
+        String exportedName = exportedNames.get(name);
+        if (exportedName == null) {
+            StringBuilder builder = new StringBuilder(NAME_PREFIX.length() + name.length()).append(NAME_PREFIX);
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                builder.append((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == ':' ? c : '_');
+            }
+            exportedName = builder.toString();
+            exportedNames.put(name, exportedName);
+        }
+        return exportedName;
+    }
+
+    private static void writeSummary(StringBuilder builder, String name, Counting counting, Snapshot snapshot, double factor) {
+        writeType(builder, name, "summary");
+        for (double quantile : QUANTILES) {
+            builder.append(name).append("{quantile=\"").append(quantile).append("\"} ");
+            writeValue(builder, snapshot.getValue(quantile) * factor);
+        }
+        // the other reservoirs do not keep the sum, so it is estimated from the mean of their sample
+        double sum = snapshot instanceof HdrHistogramSnapshot ? ((HdrHistogramSnapshot) snapshot).getSum() : snapshot.getMean() * counting.getCount();
+        writeSample(builder, name + "_sum", sum * factor);
+        writeSample(builder, name + "_count", counting.getCount());
+    }
+
+    private static void writeType(StringBuilder builder, String name, String type) {
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void writeSample(StringBuilder builder, String name, long value) {
+        builder.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void writeSample(StringBuilder builder, String name, double value) {
+        builder.append(name).append(' ');
+        writeValue(builder, value);
+    }
+
+    private static void writeValue(StringBuilder builder, double value) {
+        if (Double.isNaN(value)) {
+            builder.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            builder.append(value > 0 ? "+Inf" : "-Inf");
+        } else {
+            builder.append(value);
+        }
+        builder.append('\n');
+    }
+}
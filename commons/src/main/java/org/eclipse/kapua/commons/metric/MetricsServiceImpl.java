@@ -11,8 +11,10 @@
  *******************************************************************************/
 package org.eclipse.kapua.commons.metric;
 
+import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.setting.system.SystemSetting;
@@ -23,10 +25,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.JmxReporter.Builder;
+import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 
@@ -47,6 +51,8 @@ public class MetricsServiceImpl implements MetricsService {
 
     private JmxReporter jmxReporter;
 
+    private MetricsExporter metricsExporter;
+
     /**
      * Default metric service constructor
      */
@@ -56,6 +62,9 @@ public class MetricsServiceImpl implements MetricsService {
         if (isJmxEnabled()) {
             enableJmxSupport();
         }
+        if (isExporterEnabled()) {
+            enableExporterSupport();
+        }
     }
 
     private void enableJmxSupport() {
@@ -71,6 +80,19 @@ public class MetricsServiceImpl implements MetricsService {
          */
     }
 
+    private void enableExporterSupport() {
+        metricsExporter = new MetricsExporter(metricRegistry);
+        try {
+            // the listener is bound to the loopback interface unless another address is configured
+            SystemSetting setting = SystemSetting.getInstance();
+            metricsExporter.start(setting.getString(SystemSettingKey.METRICS_EXPORTER_ADDRESS, "localhost"), setting.getInt(SystemSettingKey.METRICS_EXPORTER_PORT, 9404));
+        } catch (IOException e) {
+            // the metrics are still available to the other reporters
+            logger.error("Cannot start the metrics exporter", e);
+        }
+        // as for the JMX reporter the listener is never stopped (it runs on a daemon thread)
+    }
+
     @Override
     public MetricRegistry getMetricRegistry() {
         return metricRegistry;
@@ -78,41 +100,26 @@ public class MetricsServiceImpl implements MetricsService {
 
     @Override
     public Counter getCounter(String module, String component, String... names) {
-        String name = getMetricName(module, component, names);
-        Counter counter = metricRegistry.getCounters().get(name);
-        if (counter == null) {
-            logger.debug("Creating a Counter: {}", name);
-            counter = metricRegistry.counter(name);
-        }
-        return counter;
+        return getMetric(getMetricName(module, component, names), Counter.class, Counter::new);
     }
 
     @Override
     public Histogram getHistogram(String module, String component, String... names) {
-        String name = getMetricName(module, component, names);
-        Histogram histogram = metricRegistry.getHistograms().get(name);
-        if (histogram == null) {
-            logger.debug("Creating a Histogram: {}", name);
-            histogram = metricRegistry.histogram(name);
-        }
-        return histogram;
+        return getMetric(getMetricName(module, component, names), Histogram.class, () -> new Histogram(new ExponentiallyDecayingReservoir()));
     }
 
+    /**
+     * Get a Timer for the specified name. The timer values are recorded by an {@link HdrHistogramReservoir}, so the high percentiles are accurate.
+     */
     @Override
     public Timer getTimer(String module, String component, String... names) {
-        String name = getMetricName(module, component, names);
-        Timer timer = metricRegistry.getTimers().get(name);
-        if (timer == null) {
-            logger.debug("Creating a Timer: {}", name);
-            timer = metricRegistry.timer(name);
-        }
-        return timer;
+        return getMetric(getMetricName(module, component, names), Timer.class, () -> new Timer(new HdrHistogramReservoir()));
     }
 
     @Override
     public void registerGauge(Gauge<?> gauge, String module, String component, String... names) throws KapuaException {
         String name = getMetricName(module, component, names);
-        if (metricRegistry.getGauges().get(name) != null) {
+        if (metricRegistry.getMetrics().get(name) instanceof Gauge) {
             throw KapuaException.internalError(MessageFormat.format("A metric with the name {0} is already defined!", name));
         } else {
             metricRegistry.register(name, gauge);
@@ -120,32 +127,46 @@ public class MetricsServiceImpl implements MetricsService {
     }
 
     /**
-     * Build the metric name based on module, component and metric names
+     * Get the metric with the specified name, registering a new one if it doesn't exist.<br>
+     * The metric is looked up in the registry map (the typed getters of the registry copy all the metrics of the type in a sorted map).
      *
-     * @param module
-     * @param component
-     * @param metricsName
+     * @param name
+     * @param type
+     * @param metricFactory
      * @return
      */
-    private String getMetricName(String module, String component, String... metricsName) {
-        return MessageFormat.format(METRICS_NAME_FORMAT, new Object[] { module, component, convertToDotNotation(metricsName) });
+    private <M extends Metric> M getMetric(String name, Class<M> type, Supplier<M> metricFactory) {
+        Metric metric = metricRegistry.getMetrics().get(name);
+        if (metric == null) {
+            logger.debug("Creating a {}: {}", type.getSimpleName(), name);
+            try {
+                metric = metricRegistry.register(name, metricFactory.get());
+            } catch (IllegalArgumentException e) {
+                // registered by another thread in the meantime
+                metric = metricRegistry.getMetrics().get(name);
+            }
+        }
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException(MessageFormat.format("{0} is already used for a different type of metric", name));
+        }
+        return type.cast(metric);
     }
 
     /**
-     * Convert the metric names to a concatenated dot separated string
+     * Build the metric name ({@link #METRICS_NAME_FORMAT}) based on module, component and metric names
      *
+     * @param module
+     * @param component
      * @param metricsName
      * @return
      */
-    private String convertToDotNotation(String... metricsName) {
-        StringBuilder builder = new StringBuilder();
-        boolean firstMetricName = true;
-        for (String s : metricsName) {
-            if (!firstMetricName) {
+    private String getMetricName(String module, String component, String... metricsName) {
+        StringBuilder builder = new StringBuilder(64).append(module).append('.').append(component).append('.');
+        for (int i = 0; i < metricsName.length; i++) {
+            if (i > 0) {
                 builder.append('.');
             }
-            firstMetricName = false;
-            builder.append(s);
+            builder.append(metricsName[i]);
         }
         return builder.toString();
     }
@@ -162,4 +183,16 @@ public class MetricsServiceImpl implements MetricsService {
         return SystemSetting.getInstance().getBoolean(SystemSettingKey.METRICS_ENABLE_JMX, false);
     }
 
+    /**
+     * Tests is the metrics exporter is enabled
+     * <p>
+     * The default is that the exporter is disabled
+     * </p>
+     *
+     * @return {@code true} the metrics exporter should be enabled, {@code false} otherwise
+     */
+    private static boolean isExporterEnabled() {
+        return SystemSetting.getInstance().getBoolean(SystemSettingKey.METRICS_ENABLE_EXPORTER, false);
+    }
+
 }
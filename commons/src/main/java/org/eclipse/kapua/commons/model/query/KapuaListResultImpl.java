@@ -31,6 +31,8 @@ import org.eclipse.kapua.model.query.KapuaListResult;
 public class KapuaListResultImpl<E extends KapuaEntity> implements KapuaListResult<E> {
 
     private boolean limitExceeded;
+    private String nextKey;
+    private Long totalCount;
     private ArrayList<E> items;
 
     /**
@@ -51,6 +53,26 @@ public class KapuaListResultImpl<E extends KapuaEntity> implements KapuaListResu
         this.limitExceeded = limitExceeded;
     }
 
+    @Override
+    public String getNextKey() {
+        return nextKey;
+    }
+
+    @Override
+    public void setNextKey(String nextKey) {
+        this.nextKey = nextKey;
+    }
+
+    @Override
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    @Override
+    public void setTotalCount(Long totalCount) {
+        this.totalCount = totalCount;
+    }
+
     @Override
     public E getItem(int index) {
         return this.items.get(index);
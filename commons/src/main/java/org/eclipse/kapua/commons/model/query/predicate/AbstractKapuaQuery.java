@@ -43,6 +43,8 @@ public abstract class AbstractKapuaQuery<E extends KapuaEntity> implements Kapua
 
     private Integer offset;
     private Integer limit;
+    private String keyOffset;
+    private Boolean askTotalCount;
 
     /**
      * Constructor.
@@ -136,4 +138,24 @@ public abstract class AbstractKapuaQuery<E extends KapuaEntity> implements Kapua
     public void setLimit(Integer limit) {
         this.limit = limit;
     }
+
+    @Override
+    public String getKeyOffset() {
+        return keyOffset;
+    }
+
+    @Override
+    public void setKeyOffset(String keyOffset) {
+        this.keyOffset = keyOffset;
+    }
+
+    @Override
+    public Boolean getAskTotalCount() {
+        return askTotalCount;
+    }
+
+    @Override
+    public void setAskTotalCount(Boolean askTotalCount) {
+        this.askTotalCount = askTotalCount;
+    }
 }
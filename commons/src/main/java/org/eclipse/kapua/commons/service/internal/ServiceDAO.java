@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.eclipse.kapua.commons.service.internal;
 
+import java.math.BigInteger;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -38,6 +39,7 @@ import org.eclipse.kapua.KapuaEntityExistsException;
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaErrorCodes;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.jpa.EntityManager;
 import org.eclipse.kapua.commons.model.AbstractKapuaUpdatableEntity;
 import org.eclipse.kapua.commons.model.id.KapuaEid;
@@ -105,6 +107,8 @@ public class ServiceDAO {
 
     private static final String LIKE = "%";
 
+    private static final String ENTITY_ID_VALUE = "eid";
+
     private static final String ATTRIBUTE_SEPARATOR = ".";
     private static final String ATTRIBUTE_SEPARATOR_ESCAPED = "\\.";
 
@@ -374,6 +378,17 @@ public class ServiceDAO {
                 entityRoot,
                 entityRoot.getModel());
 
+        // Manage the key offset to select only the results following the last one of the previous result list.
+        if (kapuaQuery.getKeyOffset() != null) {
+            Expression<Boolean> afterExpr = handleKeyOffset(em,
+                    implementingClass,
+                    kapuaQuery,
+                    cb,
+                    entityRoot);
+
+            expr = expr != null ? cb.and(expr, afterExpr) : afterExpr;
+        }
+
         if (expr != null) {
             criteriaSelectQuery.where(expr);
         }
@@ -381,20 +396,19 @@ public class ServiceDAO {
         //
         // ORDER BY
         // Default to the KapuaEntity id if no ordering is specified.
-        Order order;
+        // The KapuaEntity id is always the last ordering, so that the order is unique and the key offset can resume from any result.
+        List<Order> orders = new ArrayList<>();
         if (kapuaQuery.getSortCriteria() != null) {
             FieldSortCriteria sortCriteria = (FieldSortCriteria) kapuaQuery.getSortCriteria();
 
             if (SortOrder.ASCENDING.equals(sortCriteria.getSortOrder())) {
-                order = cb.asc(extractAttribute(entityRoot, sortCriteria.getAttributeName()));
+                orders.add(cb.asc(extractAttribute(entityRoot, sortCriteria.getAttributeName())));
             } else {
-                order = cb.desc(extractAttribute(entityRoot, sortCriteria.getAttributeName()));
+                orders.add(cb.desc(extractAttribute(entityRoot, sortCriteria.getAttributeName())));
             }
-
-        } else {
-            order = cb.asc(entityRoot.get(entityType.getSingularAttribute(KapuaEntityPredicates.ENTITY_ID)));
         }
-        criteriaSelectQuery.orderBy(order);
+        orders.add(cb.asc(extractEntityId(entityRoot)));
+        criteriaSelectQuery.orderBy(orders);
 
         //
         // QUERY!
@@ -405,8 +419,8 @@ public class ServiceDAO {
             query.setParameter(pe, binds.get(pe));
         }
 
-        // Set offset
-        if (kapuaQuery.getOffset() != null) {
+        // Set offset. It is ignored if the key offset is set
+        if (kapuaQuery.getOffset() != null && kapuaQuery.getKeyOffset() == null) {
             query.setFirstResult(kapuaQuery.getOffset().intValue());
         }
 
@@ -423,6 +437,16 @@ public class ServiceDAO {
                 result.size() > kapuaQuery.getLimit().intValue()) {
             result.remove(kapuaQuery.getLimit().intValue());
             resultContainer.setLimitExceeded(true);
+
+            // Set the next key only if there is something left to fetch
+            if (!result.isEmpty()) {
+                resultContainer.setNextKey(result.get(result.size() - 1).getId().toCompactId());
+            }
+        }
+
+        // Set total count
+        if (Boolean.TRUE.equals(kapuaQuery.getAskTotalCount())) {
+            resultContainer.setTotalCount(count(em, interfaceClass, implementingClass, kapuaQuery));
         }
 
         // Set results
@@ -672,6 +696,116 @@ public class ServiceDAO {
         return expr;
     }
 
+    /**
+     * Builds the expression that matches the {@link KapuaEntity}es following the one identified by the {@link KapuaQuery#getKeyOffset()},
+     * according to the {@link KapuaQuery} ordering.<br>
+     * The key offset is the compact id of the last {@link KapuaEntity} of the previous result list.
+     * Its value of the sort attribute is loaded by id, then the following {@link KapuaEntity}es are selected with:
+     * 
+     * <pre>
+     * sortAttribute &gt; lastValue OR (sortAttribute = lastValue AND id &gt; lastId)
+     * </pre>
+     * 
+     * (the comparison is reversed for the {@link SortOrder#DESCENDING} ordering).<br>
+     * {@code null} values are sorted first by {@link SortOrder#ASCENDING} ordering and last by {@link SortOrder#DESCENDING} ordering.
+     * 
+     * @param em
+     *            The {@link EntityManager} that holds the transaction.
+     * @param implementingClass
+     *            {@link KapuaQuery} result entity implementation class
+     * @param kapuaQuery
+     *            The {@link KapuaQuery} to perform.
+     * @param cb
+     *            The {@link CriteriaBuilder} of the query.
+     * @param entityRoot
+     *            The {@link Root} entity of the query.
+     * @return The {@link Expression} that matches the {@link KapuaEntity}es following the key offset.
+     * @throws KapuaException
+     *             If the key offset is not valid or the sort attribute values are not comparable.
+     * @since 1.0.0
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static <E> Expression<Boolean> handleKeyOffset(EntityManager em,
+            Class<E> implementingClass,
+            KapuaQuery<?> kapuaQuery,
+            CriteriaBuilder cb,
+            Root<E> entityRoot)
+            throws KapuaException {
+        KapuaEid lastId;
+        try {
+            lastId = KapuaEid.parseCompactId(kapuaQuery.getKeyOffset());
+        } catch (IllegalArgumentException e) {
+            throw new KapuaIllegalArgumentException("keyOffset", kapuaQuery.getKeyOffset());
+        }
+
+        Path<BigInteger> idPath = extractEntityId(entityRoot);
+        Predicate afterId = cb.greaterThan(idPath, lastId.getId());
+
+        FieldSortCriteria sortCriteria = (FieldSortCriteria) kapuaQuery.getSortCriteria();
+        if (sortCriteria == null) {
+            return afterId;
+        }
+
+        //
+        // Load the sort attribute value of the last entity
+        CriteriaQuery<Object> lastValueQuery = cb.createQuery(Object.class);
+        Root<E> lastValueRoot = lastValueQuery.from(implementingClass);
+        lastValueQuery.select(extractAttribute(lastValueRoot, sortCriteria.getAttributeName()));
+
+        Predicate lastValueWhere = cb.equal(extractEntityId(lastValueRoot), lastId.getId());
+        if (kapuaQuery.getScopeId() != null) {
+            lastValueWhere = cb.and(lastValueWhere,
+                    cb.equal(lastValueRoot.get(KapuaEntityPredicates.SCOPE_ID), new KapuaEid(kapuaQuery.getScopeId())));
+        }
+        lastValueQuery.where(lastValueWhere);
+
+        List<Object> lastValues = em.createQuery(lastValueQuery).getResultList();
+        if (lastValues.isEmpty()) {
+            throw new KapuaIllegalArgumentException("keyOffset", kapuaQuery.getKeyOffset());
+        }
+
+        Path sortPath = extractAttribute(entityRoot, sortCriteria.getAttributeName());
+        Object lastValue = lastValues.get(0);
+        if (lastValue instanceof KapuaEid) {
+            sortPath = sortPath.get(ENTITY_ID_VALUE);
+            lastValue = ((KapuaEid) lastValue).getId();
+        } else if (lastValue != null && !(lastValue instanceof Comparable)) {
+            throw new KapuaException(KapuaErrorCodes.ILLEGAL_ARGUMENT, "Trying to compare a non-comparable value");
+        }
+
+        Expression<Boolean> expr;
+        if (SortOrder.ASCENDING.equals(sortCriteria.getSortOrder())) {
+            if (lastValue == null) {
+                expr = cb.or(cb.and(cb.isNull(sortPath), afterId),
+                        cb.isNotNull(sortPath));
+            } else {
+                expr = cb.or(cb.greaterThan(sortPath, (Comparable) lastValue),
+                        cb.and(cb.equal(sortPath, lastValue), afterId));
+            }
+        } else {
+            if (lastValue == null) {
+                expr = cb.and(cb.isNull(sortPath), afterId);
+            } else {
+                expr = cb.or(cb.lessThan(sortPath, (Comparable) lastValue),
+                        cb.and(cb.equal(sortPath, lastValue), afterId),
+                        cb.isNull(sortPath));
+            }
+        }
+        return expr;
+    }
+
+    /**
+     * Utility method that selects the {@link KapuaEntity} id value of the {@link Root} entity.
+     * 
+     * @param entityRoot
+     *            The {@link Root} entity from which extract the id.
+     * @return The {@link Path} expression of the {@link KapuaEntity} id value.
+     * @since 1.0.0
+     */
+    private static <E> Path<BigInteger> extractEntityId(Root<E> entityRoot) {
+        return entityRoot.get(KapuaEntityPredicates.ENTITY_ID).get(ENTITY_ID_VALUE);
+    }
+
     /**
      * Utility method that selects the correct {@link Root} attribute.<br>
      * This method handles {@link Embedded} attributes and nested {@link KapuaEntity}es up to one level of nesting<br>
@@ -160,6 +160,18 @@ public enum SystemSettingKey implements SettingKey {
      * Metrics JMX disabled
      */
     METRICS_ENABLE_JMX("metrics.enable.jmx"),
+    /**
+     * Metrics exporter (Prometheus text format over HTTP) enabled
+     */
+    METRICS_ENABLE_EXPORTER("metrics.enable.exporter"),
+    /**
+     * Metrics exporter HTTP address
+     */
+    METRICS_EXPORTER_ADDRESS("metrics.exporter.address"),
+    /**
+     * Metrics exporter HTTP port
+     */
+    METRICS_EXPORTER_PORT("metrics.exporter.port"),
 
     /**
      * Tell if is running into ogsi container
@@ -174,7 +186,22 @@ public enum SystemSettingKey implements SettingKey {
     /**
      * Maximum allowed retry (due to a {@link EntityExistsException}, so already exists key) on insert operation
      */
-    KAPUA_INSERT_MAX_RETRY("commons.entity.insert.max.retry");
+    KAPUA_INSERT_MAX_RETRY("commons.entity.insert.max.retry"),
+
+    /**
+     * Service configuration cache maximum size
+     */
+    CONFIG_CACHE_SIZE_MAXIMUM("commons.configuration.cache.size.maximum"),
+
+    /**
+     * Service configuration cache expire time (in seconds)
+     */
+    CONFIG_CACHE_EXPIRE_AFTER("commons.configuration.cache.expire.after"),
+
+    /**
+     * Service configuration cache invalidation notifier class name
+     */
+    CONFIG_CACHE_NOTIFIER("commons.configuration.cache.notifier");
 
     private String key;
 
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.junit.Test;
+
+public class ServiceConfigCacheTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.ONE);
+
+    @Test
+    public void shouldReturnCachedValuesByPidAndScope() {
+        // Given
+        ServiceConfigCache cache = new ServiceConfigCache(100, 60, new LocalServiceConfigInvalidationNotifier());
+        cache.put("pid", SCOPE_ID, Collections.singletonMap("key", 10));
+
+        // When
+        Map<String, Object> values = cache.get("pid", SCOPE_ID);
+
+        // Then
+        assertThat(values).containsEntry("key", 10);
+        assertThat(cache.get("otherPid", SCOPE_ID)).isNull();
+        assertThat(cache.get("pid", new KapuaEid(BigInteger.TEN))).isNull();
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotExposeCachedValues() {
+        // Given
+        ServiceConfigCache cache = new ServiceConfigCache(100, 60, new LocalServiceConfigInvalidationNotifier());
+        Map<String, Object> values = new HashMap<>();
+        values.put("key", 10);
+        cache.put("pid", SCOPE_ID, values);
+
+        // When
+        values.put("key", 20);
+        cache.get("pid", SCOPE_ID).put("key", 30);
+
+        // Then
+        assertThat(cache.get("pid", SCOPE_ID)).containsEntry("key", 10);
+    }
+
+    @Test
+    public void shouldNotifyInvalidation() {
+        // Given
+        LocalServiceConfigInvalidationNotifier notifier = new LocalServiceConfigInvalidationNotifier();
+        ServiceConfigCache cache = new ServiceConfigCache(100, 60, notifier);
+        cache.put("pid", SCOPE_ID, Collections.singletonMap("key", 10));
+        cache.put("otherPid", SCOPE_ID, Collections.singletonMap("key", 10));
+        Map<String, KapuaId> invalidations = new HashMap<>();
+        cache.addInvalidationListener(invalidations::put);
+
+        // When
+        cache.invalidate("pid", SCOPE_ID);
+
+        // Then
+        assertThat(cache.get("pid", SCOPE_ID)).isNull();
+        assertThat(cache.get("otherPid", SCOPE_ID)).isNotNull();
+        assertThat(invalidations).containsEntry("pid", SCOPE_ID);
+    }
+
+    @Test
+    public void shouldEvictOnRemoteInvalidation() {
+        // Given
+        LocalServiceConfigInvalidationNotifier notifier = new LocalServiceConfigInvalidationNotifier();
+        ServiceConfigCache cache = new ServiceConfigCache(100, 60, notifier);
+        cache.put("pid", SCOPE_ID, Collections.singletonMap("key", 10));
+
+        // When
+        notifier.notifyInvalidation("pid", SCOPE_ID);
+
+        // Then
+        assertThat(cache.get("pid", SCOPE_ID)).isNull();
+    }
+
+    @Test
+    public void shouldEvictChildAllotmentsOfInvalidatedPid() {
+        // Given
+        ServiceConfigCache cache = new ServiceConfigCache(100, 60, new LocalServiceConfigInvalidationNotifier());
+        cache.putChildAllotments("pid", SCOPE_ID, 5);
+        cache.putChildAllotments("otherPid", SCOPE_ID, 7);
+
+        // When
+        cache.invalidate("pid", new KapuaEid(BigInteger.TEN));
+
+        // Then
+        assertThat(cache.getChildAllotments("pid", SCOPE_ID)).isNull();
+        assertThat(cache.getChildAllotments("otherPid", SCOPE_ID)).isEqualTo(7);
+    }
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+public class HdrHistogramReservoirTest {
+
+    @Test
+    public void shouldReportAccurateHighPercentiles() {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir();
+        // 1 ms values and a 1% of 1 s values
+        for (int i = 0; i < 99000; i++) {
+            reservoir.update(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        for (int i = 0; i < 1000; i++) {
+            reservoir.update(TimeUnit.SECONDS.toNanos(1));
+        }
+
+        Snapshot snapshot = reservoir.getSnapshot();
+
+        assertEquals(100000, snapshot.size());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), snapshot.getMedian(), TimeUnit.MILLISECONDS.toNanos(1) * 0.01);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), snapshot.getValue(0.99), TimeUnit.MILLISECONDS.toNanos(1) * 0.01);
+        assertEquals(TimeUnit.SECONDS.toNanos(1), snapshot.get999thPercentile(), TimeUnit.SECONDS.toNanos(1) * 0.01);
+        assertEquals(TimeUnit.SECONDS.toNanos(1), snapshot.getMax(), TimeUnit.SECONDS.toNanos(1) * 0.01);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), snapshot.getMin(), TimeUnit.MILLISECONDS.toNanos(1) * 0.01);
+        assertEquals(2, snapshot.getValues().length);
+    }
+
+    @Test
+    public void shouldKeepTheValuesOfTheLastTwoWindows() throws Exception {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir(500, TimeUnit.MILLISECONDS);
+        reservoir.update(10);
+        assertEquals(1, reservoir.getSnapshot().size());
+
+        Thread.sleep(600);
+        reservoir.update(20);
+        // the previous window is still reported
+        assertEquals(2, reservoir.getSnapshot().size());
+
+        Thread.sleep(600);
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(1, snapshot.size());
+        assertEquals(20, snapshot.getMax());
+
+        Thread.sleep(1100);
+        assertEquals(0, reservoir.getSnapshot().size());
+        assertEquals(0, reservoir.getSnapshot().getMax());
+    }
+
+    @Test
+    public void shouldCreateTheTimersOnce() {
+        MetricsServiceImpl metricsService = new MetricsServiceImpl();
+        Timer timer = metricsService.getTimer("module", "component", "publish", "time", "s");
+        timer.update(5, TimeUnit.MILLISECONDS);
+
+        assertSame(timer, metricsService.getTimer("module", "component", "publish", "time", "s"));
+        assertSame(timer, metricsService.getMetricRegistry().getTimers().get("module.component.publish.time.s"));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(5), timer.getSnapshot().getMax(), TimeUnit.MILLISECONDS.toNanos(5) * 0.01);
+    }
+}
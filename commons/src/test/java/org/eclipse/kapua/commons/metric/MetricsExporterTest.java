@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+public class MetricsExporterTest {
+
+    @Test
+    public void shouldWriteTheMetricsInTheTextFormat() {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        metricRegistry.counter("security.login.success.count").inc(3);
+        metricRegistry.register("broker.connections", (Gauge<Integer>) () -> 7);
+        metricRegistry.register("broker.name", (Gauge<String>) () -> "broker-1");
+        metricRegistry.histogram("security.publish.size").update(100);
+        metricRegistry.meter("listener.rate").mark(2);
+        Timer timer = metricRegistry.register("security.publish.time.s", new Timer(new HdrHistogramReservoir()));
+        timer.update(500, TimeUnit.MILLISECONDS);
+
+        StringBuilder builder = new StringBuilder();
+        new MetricsExporter(metricRegistry).write(builder);
+        String text = builder.toString();
+
+        assertTrue(text, text.contains("# TYPE kapua_security_login_success_count gauge\nkapua_security_login_success_count 3\n"));
+        assertTrue(text, text.contains("# TYPE kapua_broker_connections gauge\nkapua_broker_connections 7.0\n"));
+        assertTrue(text, !text.contains("kapua_broker_name"));
+        assertTrue(text, text.contains("# TYPE kapua_security_publish_size summary\nkapua_security_publish_size{quantile=\"0.5\"} 100.0\n"));
+        assertTrue(text, text.contains("kapua_security_publish_size_count 1\n"));
+        assertTrue(text, text.contains("kapua_security_publish_size_sum 100.0\n"));
+        assertTrue(text, text.contains("# TYPE kapua_listener_rate_total counter\nkapua_listener_rate_total 2\n"));
+        assertTrue(text, text.contains("# TYPE kapua_security_publish_time_s summary\n"));
+        assertTrue(text, text.contains("kapua_security_publish_time_s{quantile=\"0.999\"} 0.50"));
+        assertTrue(text, text.contains("kapua_security_publish_time_s_count 1\n"));
+        assertTrue(text, text.contains("kapua_security_publish_time_s_sum 0.5\n"));
+    }
+
+    @Test
+    public void shouldServeTheMetrics() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        metricRegistry.counter("security.login.success.count").inc();
+        MetricsExporter metricsExporter = new MetricsExporter(metricRegistry);
+        metricsExporter.start("localhost", 0);
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + metricsExporter.getPort() + MetricsExporter.PATH).openConnection();
+            assertTrue(metricsExporter.getAddress().getAddress().isLoopbackAddress());
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(connection.getContentType().startsWith("text/plain; version=0.0.4"));
+            assertEquals("# TYPE kapua_security_login_success_count gauge\nkapua_security_login_success_count 1\n", read(connection.getInputStream()));
+
+            connection = (HttpURLConnection) new URL("http://localhost:" + metricsExporter.getPort() + MetricsExporter.PATH).openConnection();
+            connection.setRequestMethod("POST");
+            assertEquals(405, connection.getResponseCode());
+        } finally {
+            metricsExporter.stop();
+        }
+    }
+
+    private static String read(InputStream input) throws Exception {
+        try (InputStream in = input) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.service.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.model.AbstractCommonServiceTest;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.model.misc.CollisionEntity;
+import org.eclipse.kapua.commons.model.misc.CollisionEntityManagerFactory;
+import org.eclipse.kapua.commons.model.misc.CollisionIdGenerator;
+import org.eclipse.kapua.commons.model.misc.CollisionServiceImpl;
+import org.eclipse.kapua.commons.model.query.FieldSortCriteria;
+import org.eclipse.kapua.commons.model.query.FieldSortCriteria.SortOrder;
+import org.eclipse.kapua.commons.model.query.KapuaListResultImpl;
+import org.eclipse.kapua.commons.model.query.predicate.AbstractKapuaQuery;
+import org.eclipse.kapua.commons.model.query.predicate.AttributePredicate;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.query.KapuaQuery;
+import org.eclipse.kapua.model.query.predicate.KapuaAttributePredicate.Operator;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the {@link ServiceDAO#query(EntityManager, Class, Class, org.eclipse.kapua.model.query.KapuaListResult, KapuaQuery)} pagination.
+ *
+ * @since 1.0
+ *
+ */
+public class ServiceDAOQueryTest extends AbstractCommonServiceTest {
+
+    public static String DEFAULT_TEST_FILTER = "test_*.sql";
+    // not matching the default filters, so the table is dropped only by this test
+    public static String DROP_COLLISION_FILTER = "collision_entity_test_drop.sql";
+
+    private static final String TEST_FIELD_PREFIX = "KeyOffset - ";
+    private static final int ENTITY_COUNT = 7;
+
+    @BeforeClass
+    public static void tearUp()
+            throws KapuaException {
+        // start from an empty table, even if it was left by the other tests
+        scriptSession(DEFAULT_TEST_PATH, DROP_COLLISION_FILTER);
+        scriptSession(DEFAULT_TEST_PATH, DEFAULT_TEST_FILTER);
+
+        CollisionEntity.initializeCollisionIdGenerator(new CollisionIdGenerator("5000", new BigInteger("4999"), 0));
+        CollisionServiceImpl collisionServiceImpl = new CollisionServiceImpl();
+        for (int i = 0; i < ENTITY_COUNT; i++) {
+            collisionServiceImpl.insert(TEST_FIELD_PREFIX + i);
+        }
+    }
+
+    @AfterClass
+    public static void dropCollisionTable() {
+        scriptSession(DEFAULT_TEST_PATH, DROP_COLLISION_FILTER);
+    }
+
+    @Test
+    /**
+     * Test the key offset pagination with the default ordering (the creation date may be the same for more entities)
+     */
+    public void testKeyOffset()
+            throws KapuaException {
+        checkKeyOffset(newQuery());
+    }
+
+    @Test
+    /**
+     * Test the key offset pagination with a descending ordering
+     */
+    public void testKeyOffsetDescending()
+            throws KapuaException {
+        KapuaQuery<CollisionEntity> query = newQuery();
+        query.setSortCriteria(new FieldSortCriteria("testField", SortOrder.DESCENDING));
+
+        checkKeyOffset(query);
+    }
+
+    @Test
+    /**
+     * Test the total count, computed only if requested
+     */
+    public void testTotalCount()
+            throws KapuaException {
+        KapuaQuery<CollisionEntity> query = newQuery();
+        query.setLimit(2);
+
+        assertNull(query(query).getTotalCount());
+
+        query.setAskTotalCount(true);
+        KapuaListResultImpl<CollisionEntity> result = query(query);
+        assertEquals(2, result.getSize());
+        assertEquals(Long.valueOf(ENTITY_COUNT), result.getTotalCount());
+    }
+
+    @Test(expected = KapuaIllegalArgumentException.class)
+    /**
+     * Test the key offset of a not existing entity
+     */
+    public void testKeyOffsetNotFound()
+            throws KapuaException {
+        KapuaQuery<CollisionEntity> query = newQuery();
+        query.setKeyOffset(new KapuaEid(BigInteger.valueOf(42)).toCompactId());
+
+        query(query);
+    }
+
+    private void checkKeyOffset(KapuaQuery<CollisionEntity> query)
+            throws KapuaException {
+        // the whole result list by offset
+        List<KapuaId> expectedIds = idsOf(query(query));
+        assertEquals(ENTITY_COUNT, expectedIds.size());
+
+        // the same result list by key offset
+        query.setLimit(3);
+        List<KapuaId> ids = new ArrayList<>();
+        KapuaListResultImpl<CollisionEntity> result;
+        do {
+            result = query(query);
+            ids.addAll(idsOf(result));
+            assertEquals(result.isLimitExceeded(), result.getNextKey() != null);
+            query.setKeyOffset(result.getNextKey());
+        } while (result.getNextKey() != null);
+
+        assertEquals(expectedIds, ids);
+        assertFalse(result.isLimitExceeded());
+
+        // the offset is ignored if the key offset is set
+        query.setOffset(1);
+        query.setKeyOffset(expectedIds.get(2).toCompactId());
+        result = query(query);
+        assertTrue(result.isLimitExceeded());
+        assertEquals(expectedIds.subList(3, 6), idsOf(result));
+    }
+
+    private static List<KapuaId> idsOf(KapuaListResultImpl<CollisionEntity> result) {
+        List<KapuaId> ids = new ArrayList<>();
+        for (CollisionEntity collisionEntity : result.getItems()) {
+            ids.add(collisionEntity.getId());
+        }
+        return ids;
+    }
+
+    private static KapuaQuery<CollisionEntity> newQuery() {
+        KapuaQuery<CollisionEntity> query = new AbstractKapuaQuery<CollisionEntity>() {
+        };
+        query.setPredicate(new AttributePredicate<>("testField", TEST_FIELD_PREFIX, Operator.STARTS_WITH));
+        return query;
+    }
+
+    private static KapuaListResultImpl<CollisionEntity> query(KapuaQuery<CollisionEntity> query)
+            throws KapuaException {
+        EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            return ServiceDAO.query(em, CollisionEntity.class, CollisionEntity.class, new KapuaListResultImpl<>(), query);
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -105,14 +105,13 @@ public class DataExporterServlet extends HttpServlet {
             predicate.getPredicates().add(new RangePredicateImpl(MessageField.TIMESTAMP, start, end));
             query.setPredicate(predicate);
             MessageListResult result; 
-            int offset = 0;
             query.setLimit(250);
             do{
-                query.setOffset(offset);
                 result = messageService.query(query);
                 dataExporter.append(result.getItems());
-                offset += result.getSize();
-            }while (result.getSize() > 0);
+                // the next page is selected by key offset, so the deep pages cost as the first one
+                query.setKeyOffset(result.getNextKey() != null ? result.getNextKey().toString() : null);
+            }while (result.getNextKey() != null);
             dataExporter.close();
         } catch (IllegalArgumentException iae) {
             response.sendError(400, "Illegal value for query parameter(s): " + iae.getMessage());
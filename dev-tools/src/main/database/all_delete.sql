@@ -26,6 +26,10 @@ DELETE FROM dvc_device;
 
 DELETE FROM dvc_device_event;
 
+DELETE FROM dvc_batch_operation_target;
+
+DELETE FROM dvc_batch_operation;
+
 DELETE FROM sys_configuration WHERE NOT (scope_id = 1 AND id IN (1,2,3,4,5));
 
 DELETE FROM usr_user WHERE NOT (scope_id = 1 AND id IN (1,2));
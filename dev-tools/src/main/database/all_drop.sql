@@ -34,6 +34,10 @@ DROP TABLE IF EXISTS dvc_device;
 
 DROP TABLE IF EXISTS dvc_device_event;
 
+DROP TABLE IF EXISTS dvc_batch_operation_target;
+
+DROP TABLE IF EXISTS dvc_batch_operation;
+
 DROP TABLE IF EXISTS sys_configuration;
 
 DROP TABLE IF EXISTS collision_entity_test;
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authentication.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.util.xml.XmlUtil;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.DBHelper;
+import org.eclipse.kapua.service.TestJAXBContextProvider;
+import org.eclipse.kapua.service.authentication.AuthenticationService;
+import org.eclipse.kapua.service.authentication.credential.CredentialFactory;
+import org.eclipse.kapua.service.authentication.credential.CredentialService;
+import org.eclipse.kapua.service.authentication.credential.CredentialType;
+import org.eclipse.kapua.service.authentication.shiro.UsernamePasswordCredentialsImpl;
+import org.eclipse.kapua.service.authentication.shiro.realm.UserPassCredentialsCache;
+import org.eclipse.kapua.service.authentication.token.AccessToken;
+import org.eclipse.kapua.service.authentication.token.AccessTokenService;
+import org.eclipse.kapua.service.user.User;
+import org.eclipse.kapua.service.user.UserFactory;
+import org.eclipse.kapua.service.user.UserService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark of the login used by the broker connections.<br>
+ * The same user logs in and out repeatedly, first with {@link AuthenticationService#login(org.eclipse.kapua.service.authentication.LoginCredentials)},
+ * which persists and invalidates an access token with a signed JWT, then with
+ * {@link AuthenticationService#loginTransient(org.eclipse.kapua.service.authentication.LoginCredentials)}, which keeps the access token in memory only.
+ * The login rate of both is logged.<br>
+ * The benchmark is not part of the default test run, execute it with:
+ *
+ * <pre>
+ * mvn -pl qa test -Dtest=BrokerLoginBenchmark
+ * </pre>
+ *
+ * The number of logins can be changed with the {@code benchmark.logins} system property.
+ */
+public class BrokerLoginBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(BrokerLoginBenchmark.class);
+
+    private static final KapuaId SYS_SCOPE_ID = new KapuaEid(BigInteger.ONE);
+
+    private static final int LOGINS = Integer.getInteger("benchmark.logins", 500);
+    private static final String USERNAME = "benchmark-device";
+    private static final String PASSWORD = "KapuaBenchmark-Passw0rd!";
+
+    private DBHelper dbHelper;
+
+    private AuthenticationService authenticationService;
+    private AccessTokenService accessTokenService;
+    private UserService userService;
+    private UserFactory userFactory;
+    private CredentialService credentialService;
+    private CredentialFactory credentialFactory;
+
+    @Before
+    public void setUp() {
+        dbHelper = new DBHelper();
+        XmlUtil.setContextProvider(new TestJAXBContextProvider());
+
+        KapuaLocator locator = KapuaLocator.getInstance();
+        authenticationService = locator.getService(AuthenticationService.class);
+        accessTokenService = locator.getService(AccessTokenService.class);
+        userService = locator.getService(UserService.class);
+        userFactory = locator.getFactory(UserFactory.class);
+        credentialService = locator.getService(CredentialService.class);
+        credentialFactory = locator.getFactory(CredentialFactory.class);
+    }
+
+    @After
+    public void tearDown() {
+        UserPassCredentialsCache.getInstance().invalidateAll();
+        dbHelper.deleteAll();
+    }
+
+    @Test
+    public void brokerLogin() throws Exception {
+        User user = KapuaSecurityUtils.doPrivileged(() -> {
+            Map<String, Object> values = new HashMap<>();
+            values.put("infiniteChildEntities", true);
+            values.put("maxNumberChildEntities", 0);
+            userService.setConfigValues(SYS_SCOPE_ID, SYS_SCOPE_ID, values);
+
+            User newUser = userService.create(userFactory.newCreator(SYS_SCOPE_ID, USERNAME));
+            credentialService.create(credentialFactory.newCreator(SYS_SCOPE_ID, newUser.getId(), CredentialType.PASSWORD, PASSWORD));
+            return newUser;
+        });
+
+        // warm up the verified credentials cache, so that only the access token handling is measured
+        loginAll(1, false);
+
+        long persistedTime = loginAll(LOGINS, false);
+        long persistedTokens = countAccessTokens(user);
+        long transientTime = loginAll(LOGINS, true);
+
+        logger.info("{} logins: with persisted access token {} login/s, with transient access token {} login/s",
+                LOGINS, loginRate(persistedTime), loginRate(transientTime));
+
+        assertThat(countAccessTokens(user)).isEqualTo(persistedTokens);
+        assertThat(transientTime).isLessThan(persistedTime);
+    }
+
+    private long loginAll(int logins, boolean transientAccessToken) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < logins; i++) {
+            UsernamePasswordCredentialsImpl credentials = new UsernamePasswordCredentialsImpl(USERNAME, PASSWORD.toCharArray());
+            AccessToken accessToken = transientAccessToken ? authenticationService.loginTransient(credentials) : authenticationService.login(credentials);
+            assertThat(accessToken.getUserId()).isNotNull();
+            authenticationService.logout();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long countAccessTokens(User user) throws Exception {
+        return KapuaSecurityUtils.doPrivileged(() -> accessTokenService.findByUserId(SYS_SCOPE_ID, user.getId()).getSize());
+    }
+
+    private static long loginRate(long time) {
+        return LOGINS * TimeUnit.SECONDS.toNanos(1) / time;
+    }
+}
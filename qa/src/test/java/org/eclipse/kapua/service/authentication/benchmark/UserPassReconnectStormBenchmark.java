@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authentication.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.util.xml.XmlUtil;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.DBHelper;
+import org.eclipse.kapua.service.TestJAXBContextProvider;
+import org.eclipse.kapua.service.authentication.AuthenticationService;
+import org.eclipse.kapua.service.authentication.credential.CredentialFactory;
+import org.eclipse.kapua.service.authentication.credential.CredentialService;
+import org.eclipse.kapua.service.authentication.credential.CredentialType;
+import org.eclipse.kapua.service.authentication.shiro.UsernamePasswordCredentialsImpl;
+import org.eclipse.kapua.service.authentication.shiro.realm.UserPassCredentialsCache;
+import org.eclipse.kapua.service.user.User;
+import org.eclipse.kapua.service.user.UserFactory;
+import org.eclipse.kapua.service.user.UserService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark of a reconnect storm of devices authenticating with username and password.<br>
+ * All the devices log in concurrently twice: the first round has no verified credentials cached, so each login checks the BCrypt hash of the password
+ * (as every login did before the {@link UserPassCredentialsCache}), the second round is served by the cache. The connect rate of both rounds is logged.<br>
+ * The benchmark is not part of the default test run, execute it with:
+ *
+ * <pre>
+ * mvn -pl qa test -Dtest=UserPassReconnectStormBenchmark
+ * </pre>
+ *
+ * The number of devices and the number of concurrent logins can be changed with the {@code benchmark.devices} and {@code benchmark.concurrency} system
+ * properties.
+ */
+public class UserPassReconnectStormBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserPassReconnectStormBenchmark.class);
+
+    private static final KapuaId SYS_SCOPE_ID = new KapuaEid(BigInteger.ONE);
+
+    private static final int DEVICES = Integer.getInteger("benchmark.devices", 200);
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", Runtime.getRuntime().availableProcessors() * 2);
+    private static final String PASSWORD = "KapuaBenchmark-Passw0rd!";
+
+    private DBHelper dbHelper;
+
+    private AuthenticationService authenticationService;
+    private UserService userService;
+    private UserFactory userFactory;
+    private CredentialService credentialService;
+    private CredentialFactory credentialFactory;
+
+    @Before
+    public void setUp() {
+        dbHelper = new DBHelper();
+        XmlUtil.setContextProvider(new TestJAXBContextProvider());
+
+        KapuaLocator locator = KapuaLocator.getInstance();
+        authenticationService = locator.getService(AuthenticationService.class);
+        userService = locator.getService(UserService.class);
+        userFactory = locator.getFactory(UserFactory.class);
+        credentialService = locator.getService(CredentialService.class);
+        credentialFactory = locator.getFactory(CredentialFactory.class);
+    }
+
+    @After
+    public void tearDown() {
+        UserPassCredentialsCache.getInstance().invalidateAll();
+        dbHelper.deleteAll();
+    }
+
+    @Test
+    public void reconnectStorm() throws Exception {
+        List<String> usernames = KapuaSecurityUtils.doPrivileged(() -> {
+            Map<String, Object> values = new HashMap<>();
+            values.put("infiniteChildEntities", true);
+            values.put("maxNumberChildEntities", 0);
+            userService.setConfigValues(SYS_SCOPE_ID, SYS_SCOPE_ID, values);
+
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < DEVICES; i++) {
+                User user = userService.create(userFactory.newCreator(SYS_SCOPE_ID, "benchmark-device-" + i));
+                credentialService.create(credentialFactory.newCreator(SYS_SCOPE_ID, user.getId(), CredentialType.PASSWORD, PASSWORD));
+                names.add(user.getName());
+            }
+            return names;
+        });
+
+        UserPassCredentialsCache.getInstance().invalidateAll();
+        long coldTime = loginAll(usernames);
+        long warmTime = loginAll(usernames);
+
+        logger.info("Reconnect storm of {} devices with {} concurrent logins: without cached credentials {} connect/s, with cached credentials {} connect/s",
+                DEVICES, CONCURRENCY, connectRate(coldTime), connectRate(warmTime));
+
+        assertThat(warmTime).isLessThan(coldTime);
+    }
+
+    private long loginAll(List<String> usernames) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> logins = new ArrayList<>();
+            for (String username : usernames) {
+                logins.add(executor.submit(() -> {
+                    authenticationService.login(new UsernamePasswordCredentialsImpl(username, PASSWORD.toCharArray()));
+                    authenticationService.logout();
+                    return null;
+                }));
+            }
+            for (Future<?> login : logins) {
+                login.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private static long connectRate(long time) {
+        return DEVICES * TimeUnit.SECONDS.toNanos(1) / time;
+    }
+}
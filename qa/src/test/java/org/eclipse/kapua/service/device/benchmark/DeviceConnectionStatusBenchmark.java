@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.commons.util.xml.XmlUtil;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.DBHelper;
+import org.eclipse.kapua.service.TestJAXBContextProvider;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnection;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionCreator;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionFactory;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionListResult;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionService;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark of the device connection status updates of a mass disconnection.<br>
+ * The status of all the device connections is updated first one by one, looking up each device connection by client id (as the broker did on every
+ * disconnection), then with {@link DeviceConnectionService#updateStatus(List)} in batches (as the broker does now in background). The update rate of both is
+ * logged.<br>
+ * The benchmark is not part of the default test run, execute it with:
+ *
+ * <pre>
+ * mvn -pl qa test -Dtest=DeviceConnectionStatusBenchmark
+ * </pre>
+ *
+ * The number of device connections can be changed with the {@code benchmark.devices} system property.
+ */
+public class DeviceConnectionStatusBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceConnectionStatusBenchmark.class);
+
+    private static final KapuaId SYS_SCOPE_ID = new KapuaEid(BigInteger.ONE);
+    private static final KapuaId SYS_USER_ID = new KapuaEid(BigInteger.ONE);
+
+    private static final int DEVICES = Integer.getInteger("benchmark.devices", 2000);
+    private static final int BATCH_SIZE = 500;
+
+    private DBHelper dbHelper;
+
+    private DeviceConnectionService deviceConnectionService;
+    private DeviceConnectionFactory deviceConnectionFactory;
+
+    @Before
+    public void setUp() {
+        dbHelper = new DBHelper();
+        XmlUtil.setContextProvider(new TestJAXBContextProvider());
+        KapuaSecurityUtils.setSession(new KapuaSession(null, SYS_SCOPE_ID, SYS_USER_ID));
+
+        KapuaLocator locator = KapuaLocator.getInstance();
+        deviceConnectionService = locator.getService(DeviceConnectionService.class);
+        deviceConnectionFactory = locator.getFactory(DeviceConnectionFactory.class);
+    }
+
+    @After
+    public void tearDown() {
+        KapuaSecurityUtils.clearSession();
+        dbHelper.deleteAll();
+    }
+
+    @Test
+    public void massDisconnection() throws Exception {
+        List<DeviceConnection> deviceConnections = KapuaSecurityUtils.doPrivileged(() -> {
+            List<DeviceConnection> connections = new ArrayList<>();
+            for (int i = 0; i < DEVICES; i++) {
+                DeviceConnectionCreator deviceConnectionCreator = deviceConnectionFactory.newCreator(SYS_SCOPE_ID);
+                deviceConnectionCreator.setClientId("benchmark-device-" + i);
+                deviceConnectionCreator.setClientIp("10.0.0.1");
+                deviceConnectionCreator.setProtocol("MQTT");
+                deviceConnectionCreator.setUserId(SYS_USER_ID);
+                connections.add(deviceConnectionService.create(deviceConnectionCreator));
+            }
+            return connections;
+        });
+
+        long singleTime = KapuaSecurityUtils.doPrivileged(() -> {
+            long start = System.nanoTime();
+            for (DeviceConnection deviceConnection : deviceConnections) {
+                DeviceConnection currentDeviceConnection = deviceConnectionService.findByClientId(SYS_SCOPE_ID, deviceConnection.getClientId());
+                currentDeviceConnection.setStatus(DeviceConnectionStatus.DISCONNECTED);
+                deviceConnectionService.update(currentDeviceConnection);
+            }
+            return System.nanoTime() - start;
+        });
+
+        long batchTime = KapuaSecurityUtils.doPrivileged(() -> {
+            long start = System.nanoTime();
+            for (int i = 0; i < DEVICES; i += BATCH_SIZE) {
+                List<DeviceConnection> batch = new ArrayList<>();
+                for (DeviceConnection deviceConnection : deviceConnections.subList(i, Math.min(i + BATCH_SIZE, DEVICES))) {
+                    DeviceConnection statusChange = deviceConnectionFactory.newEntity(SYS_SCOPE_ID);
+                    statusChange.setId(deviceConnection.getId());
+                    statusChange.setStatus(DeviceConnectionStatus.MISSING);
+                    batch.add(statusChange);
+                }
+                DeviceConnectionListResult updatedDeviceConnections = deviceConnectionService.updateStatus(batch);
+                assertThat(updatedDeviceConnections.getSize()).isEqualTo(batch.size());
+            }
+            return System.nanoTime() - start;
+        });
+
+        logger.info("Status update of {} device connections: one by one {} updates/s, in batches of {} {} updates/s",
+                DEVICES, updateRate(singleTime), BATCH_SIZE, updateRate(batchTime));
+
+        DeviceConnection deviceConnection = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.find(SYS_SCOPE_ID, deviceConnections.get(DEVICES - 1).getId()));
+        assertThat(deviceConnection.getStatus()).isEqualTo(DeviceConnectionStatus.MISSING);
+        assertThat(deviceConnection.getClientIp()).isEqualTo("10.0.0.1");
+        assertThat(batchTime).isLessThan(singleTime);
+    }
+
+    private static long updateRate(long time) {
+        return DEVICES * TimeUnit.SECONDS.toNanos(1) / time;
+    }
+}
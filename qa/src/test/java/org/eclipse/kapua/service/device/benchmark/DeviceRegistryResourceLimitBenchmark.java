@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.util.xml.XmlUtil;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.DBHelper;
+import org.eclipse.kapua.service.TestJAXBContextProvider;
+import org.eclipse.kapua.service.account.Account;
+import org.eclipse.kapua.service.account.AccountCreator;
+import org.eclipse.kapua.service.account.AccountFactory;
+import org.eclipse.kapua.service.account.AccountService;
+import org.eclipse.kapua.service.device.registry.DeviceFactory;
+import org.eclipse.kapua.service.device.registry.DeviceRegistryService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark of the device creation in an account with a limited number of devices.<br>
+ * The devices are created in batches and the average creation time of each batch is logged: since the resource limit check counts the devices instead of
+ * loading them, the creation time of the last devices is expected to be in line with the creation time of the first ones.<br>
+ * The benchmark is not part of the default test run, execute it with:
+ *
+ * <pre>
+ * mvn -pl qa test -Dtest=DeviceRegistryResourceLimitBenchmark
+ * </pre>
+ *
+ * The number of devices can be changed with the {@code benchmark.devices} system property.
+ */
+public class DeviceRegistryResourceLimitBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceRegistryResourceLimitBenchmark.class);
+
+    private static final KapuaId SYS_SCOPE_ID = new KapuaEid(BigInteger.ONE);
+
+    private static final int DEVICES = Integer.getInteger("benchmark.devices", 2000);
+    private static final int BATCH_SIZE = 200;
+
+    private DBHelper dbHelper;
+
+    private AccountService accountService;
+    private AccountFactory accountFactory;
+    private DeviceRegistryService deviceRegistryService;
+    private DeviceFactory deviceFactory;
+
+    @Before
+    public void setUp() {
+        dbHelper = new DBHelper();
+        XmlUtil.setContextProvider(new TestJAXBContextProvider());
+
+        KapuaLocator locator = KapuaLocator.getInstance();
+        accountService = locator.getService(AccountService.class);
+        accountFactory = locator.getFactory(AccountFactory.class);
+        deviceRegistryService = locator.getService(DeviceRegistryService.class);
+        deviceFactory = locator.getFactory(DeviceFactory.class);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.deleteAll();
+    }
+
+    @Test
+    public void createDevicesInLimitedAccount() throws Exception {
+        KapuaSecurityUtils.doPrivileged(() -> {
+            Account account = createLimitedAccount(DEVICES);
+
+            long[] batchTimes = new long[DEVICES / BATCH_SIZE];
+            for (int batch = 0; batch < batchTimes.length; batch++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    deviceRegistryService.create(deviceFactory.newCreator(account.getId(), "device-" + (batch * BATCH_SIZE + i)));
+                }
+                batchTimes[batch] = System.nanoTime() - start;
+                logger.info("Devices {}-{}: {} us/device", batch * BATCH_SIZE, (batch + 1) * BATCH_SIZE - 1, batchTimes[batch] / BATCH_SIZE / 1000);
+            }
+
+            // skip the first batch, it includes the warm up of the services
+            logger.info("Device creation: second batch {} us/device, last batch {} us/device",
+                    batchTimes[Math.min(1, batchTimes.length - 1)] / BATCH_SIZE / 1000,
+                    batchTimes[batchTimes.length - 1] / BATCH_SIZE / 1000);
+
+            assertThat(deviceRegistryService.count(deviceFactory.newQuery(account.getId()))).isEqualTo(batchTimes.length * BATCH_SIZE);
+            if (batchTimes.length * BATCH_SIZE == DEVICES) {
+                try {
+                    deviceRegistryService.create(deviceFactory.newCreator(account.getId(), "device-over-limit"));
+                    fail("The device limit is not enforced");
+                } catch (KapuaIllegalArgumentException e) {
+                    // expected
+                }
+            }
+            return null;
+        });
+    }
+
+    private Account createLimitedAccount(int maxDevices) throws KapuaException {
+        AccountCreator accountCreator = accountFactory.newCreator(SYS_SCOPE_ID, "benchmark-account");
+        accountCreator.setOrganizationName("ACME Inc.");
+        accountCreator.setOrganizationEmail("some@one.com");
+        Account account = accountService.create(accountCreator);
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("infiniteChildEntities", false);
+        values.put("maxNumberChildEntities", maxDevices);
+        deviceRegistryService.setConfigValues(account.getId(), SYS_SCOPE_ID, values);
+
+        return account;
+    }
+}
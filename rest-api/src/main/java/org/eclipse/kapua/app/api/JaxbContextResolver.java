@@ -88,17 +88,28 @@ import org.eclipse.kapua.service.datastore.model.ClientInfo;
 import org.eclipse.kapua.service.datastore.model.ClientInfoListResult;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricAggregation;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationListResult;
 import org.eclipse.kapua.service.datastore.model.MetricInfo;
 import org.eclipse.kapua.service.datastore.model.MetricInfoListResult;
 import org.eclipse.kapua.service.datastore.model.query.ChannelInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.ClientInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
 import org.eclipse.kapua.service.datastore.model.query.MetricInfoQuery;
 import org.eclipse.kapua.service.device.call.kura.model.bundle.KuraBundles;
 import org.eclipse.kapua.service.device.call.kura.model.configuration.KuraDeviceConfiguration;
 import org.eclipse.kapua.service.device.call.kura.model.deploy.KuraDeploymentPackage;
 import org.eclipse.kapua.service.device.call.kura.model.deploy.KuraDeploymentPackages;
 import org.eclipse.kapua.service.device.call.kura.model.snapshot.KuraSnapshotIds;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperation;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationCreator;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationListResult;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationQuery;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTarget;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetListResult;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetQuery;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationXmlRegistry;
 import org.eclipse.kapua.service.device.management.bundle.DeviceBundle;
 import org.eclipse.kapua.service.device.management.bundle.DeviceBundleXmlRegistry;
 import org.eclipse.kapua.service.device.management.bundle.DeviceBundles;
@@ -194,6 +205,9 @@ public class JaxbContextResolver implements ContextResolver<JAXBContext> {
                     DatastoreMessage.class,
                     MessageListResult.class,
                     MessageQuery.class,
+                    MetricAggregation.class,
+                    MetricAggregationListResult.class,
+                    MetricAggregationQuery.class,
                     DatastoreMessageXmlRegistry.class,
 
                     // Device
@@ -250,6 +264,16 @@ public class JaxbContextResolver implements ContextResolver<JAXBContext> {
                     DevicePackageUninstallRequest.class,
                     DevicePackageXmlRegistry.class,
 
+                    // Device Management Batch Operations
+                    DeviceBatchOperation.class,
+                    DeviceBatchOperationCreator.class,
+                    DeviceBatchOperationListResult.class,
+                    DeviceBatchOperationQuery.class,
+                    DeviceBatchOperationTarget.class,
+                    DeviceBatchOperationTargetListResult.class,
+                    DeviceBatchOperationTargetQuery.class,
+                    DeviceBatchOperationXmlRegistry.class,
+
                     AuthenticationCredentials.class,
                     AuthenticationXmlRegistry.class,
                     AccessToken.class,
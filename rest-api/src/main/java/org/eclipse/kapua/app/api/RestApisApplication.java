@@ -17,6 +17,7 @@ import javax.ws.rs.core.MediaType;
 import javax.xml.bind.JAXBException;
 
 import org.eclipse.kapua.commons.util.xml.XmlUtil;
+import org.eclipse.kapua.service.device.management.batch.internal.DeviceBatchOperationExecutor;
 import org.glassfish.hk2.api.ServiceLocator;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.server.ServerProperties;
@@ -54,6 +55,9 @@ public class RestApisApplication extends ResourceConfig {
 
                 RestApiJAXBContextProvider provider = serviceLocator.createAndInitialize(RestApiJAXBContextProvider.class);
                 XmlUtil.setContextProvider(provider);
+
+                // Fail the batch operations left queued or running by a stopped node
+                DeviceBatchOperationExecutor.getInstance().start();
             }
 
             @Override
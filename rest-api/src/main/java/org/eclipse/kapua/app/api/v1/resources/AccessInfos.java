@@ -38,6 +38,8 @@ import org.eclipse.kapua.service.authorization.access.AccessInfoQuery;
 import org.eclipse.kapua.service.authorization.access.AccessInfoService;
 import org.eclipse.kapua.service.user.User;
 
+import com.google.common.base.Strings;
+
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -58,10 +60,11 @@ public class AccessInfos extends AbstractKapuaResource {
     /**
      * Gets the {@link AccessInfo} list in the scope.
      *
-     * @param scopeId The {@link ScopeId} in which to search results.
-     * @param userId  The optional {@link User} id to filter results.
-     * @param offset  The result set offset.
-     * @param limit   The result set limit.
+     * @param scopeId   The {@link ScopeId} in which to search results.
+     * @param userId    The optional {@link User} id to filter results.
+     * @param offset    The result set offset.
+     * @param keyOffset The result set key offset (the nextKey of the previous result set). If set the offset is ignored.
+     * @param limit     The result set limit.
      * @return The {@link AccessInfoListResult} of all the {@link AccessInfo}s associated to the current selected scope.
      * @since 1.0.0
      */
@@ -75,6 +78,7 @@ public class AccessInfos extends AbstractKapuaResource {
             @ApiParam(value = "The ScopeId in which to search results", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId, //
             @ApiParam(value = "The optional User id to filter results") @QueryParam("userId") EntityId userId, //
             @ApiParam(value = "The result set offset", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset, //
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored") @QueryParam("keyOffset") String keyOffset, //
             @ApiParam(value = "The result set limit", defaultValue = "50") @QueryParam("limit") @DefaultValue("50") int limit) //
     {
         AccessInfoListResult accessInfoListResult = accessInfoFactory.newListResult();
@@ -88,6 +92,7 @@ public class AccessInfos extends AbstractKapuaResource {
             query.setPredicate(andPredicate);
 
             query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
             query.setLimit(limit);
 
             accessInfoListResult = query(scopeId, query);
@@ -39,6 +39,8 @@ import org.eclipse.kapua.service.authorization.access.AccessPermissionQuery;
 import org.eclipse.kapua.service.authorization.access.AccessPermissionService;
 import org.eclipse.kapua.service.authorization.access.shiro.AccessPermissionPredicates;
 
+import com.google.common.base.Strings;
+
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -62,6 +64,7 @@ public class AccessPermissions extends AbstractKapuaResource {
      * @param scopeId      The {@link ScopeId} in which to search results.
      * @param accessInfoId The optional {@link AccessInfo} id to filter results.
      * @param offset       The result set offset.
+     * @param keyOffset    The result set key offset (the nextKey of the previous result set). If set the offset is ignored.
      * @param limit        The result set limit.
      * @return The {@link AccessPermissionListResult} of all the {@link AccessPermission}s associated to the current selected scope.
      * @since 1.0.0
@@ -76,12 +79,14 @@ public class AccessPermissions extends AbstractKapuaResource {
             @ApiParam(value = "The ScopeId in which to search results.", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId,
             @ApiParam(value = "The optional id to filter results.") @PathParam("accessInfoId") EntityId accessInfoId,
             @ApiParam(value = "The result set offset.", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset,
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored.") @QueryParam("keyOffset") String keyOffset,
             @ApiParam(value = "The result set limit.", defaultValue = "50") @QueryParam("limit") @DefaultValue("50") int limit) {
         AccessPermissionListResult accessPermissionListResult = accessPermissionFactory.newListResult();
         try {
             AccessPermissionQuery query = accessPermissionFactory.newQuery(scopeId);
             query.setPredicate(new AttributePredicate<>(AccessPermissionPredicates.ACCESS_INFO_ID, accessInfoId));
             query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
             query.setLimit(limit);
 
             accessPermissionListResult = query(scopeId, accessInfoId, query);
@@ -38,6 +38,8 @@ import org.eclipse.kapua.service.authorization.access.AccessRoleQuery;
 import org.eclipse.kapua.service.authorization.access.AccessRoleService;
 import org.eclipse.kapua.service.authorization.access.shiro.AccessRolePredicates;
 
+import com.google.common.base.Strings;
+
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -53,9 +55,10 @@ public class AccessRoles extends AbstractKapuaResource {
     /**
      * Gets the {@link AccessRole} list in the scope.
      *
-     * @param scopeId The {@link ScopeId} in which to search results.
-     * @param offset  The result set offset.
-     * @param limit   The result set limit.
+     * @param scopeId   The {@link ScopeId} in which to search results.
+     * @param offset    The result set offset.
+     * @param keyOffset The result set key offset (the nextKey of the previous result set). If set the offset is ignored.
+     * @param limit     The result set limit.
      * @return The {@link AccessRoleListResult} of all the accessRoles associated to the current selected scope.
      * @since 1.0.0
      */
@@ -69,12 +72,14 @@ public class AccessRoles extends AbstractKapuaResource {
             @ApiParam(value = "The ScopeId in which to search results.", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId,
             @ApiParam(value = "The optional id to filter results.") @PathParam("accessInfoId") EntityId accessInfoId,
             @ApiParam(value = "The result set offset.", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset,
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored.") @QueryParam("keyOffset") String keyOffset,
             @ApiParam(value = "The result set limit.", defaultValue = "50", required = true) @QueryParam("limit") @DefaultValue("50") int limit) {
         AccessRoleListResult accessRoleListResult = accessRoleFactory.newListResult();
         try {
             AccessRoleQuery query = accessRoleFactory.newQuery(scopeId);
             query.setPredicate(new AttributePredicate<>(AccessRolePredicates.ACCESS_INFO_ID, accessInfoId));
             query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
             query.setLimit(limit);
 
             accessRoleListResult = query(scopeId, accessInfoId, query);
@@ -56,10 +56,11 @@ public class Accounts extends AbstractKapuaResource {
     /**
      * Gets the {@link Account} list in the scope.
      *
-     * @param scopeId The {@link ScopeId} in which to search results.
-     * @param name    The {@link Account} name in which to search results.
-     * @param offset  The result set offset.
-     * @param limit   The result set limit.
+     * @param scopeId   The {@link ScopeId} in which to search results.
+     * @param name      The {@link Account} name in which to search results.
+     * @param offset    The result set offset.
+     * @param keyOffset The result set key offset (the nextKey of the previous result set). If set the offset is ignored.
+     * @param limit     The result set limit.
      * @return The {@link AccountListResult} of all the accounts associated to the current selected scope.
      * @since 1.0.0
      */
@@ -73,6 +74,7 @@ public class Accounts extends AbstractKapuaResource {
             @ApiParam(value = "The ScopeId in which to search results.", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId, //
             @ApiParam(value = "The account name to filter results.") @QueryParam("name") String name, //
             @ApiParam(value = "The result set offset.", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset, //
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored.") @QueryParam("keyOffset") String keyOffset, //
             @ApiParam(value = "The result set limit.", defaultValue = "50") @QueryParam("limit") @DefaultValue("50") int limit) {
         AccountListResult accountListResult = accountFactory.newListResult();
         try {
@@ -85,6 +87,7 @@ public class Accounts extends AbstractKapuaResource {
             query.setPredicate(andPredicate);
 
             query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
             query.setLimit(limit);
 
             accountListResult = query(scopeId, query);
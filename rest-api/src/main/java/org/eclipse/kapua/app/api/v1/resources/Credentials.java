@@ -39,6 +39,8 @@ import org.eclipse.kapua.service.authentication.credential.CredentialQuery;
 import org.eclipse.kapua.service.authentication.credential.CredentialService;
 import org.eclipse.kapua.service.authentication.credential.shiro.CredentialImpl;
 
+import com.google.common.base.Strings;
+
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -54,9 +56,10 @@ public class Credentials extends AbstractKapuaResource {
     /**
      * Gets the {@link Credential} list in the scope.
      *
-     * @param scopeId The {@link ScopeId} in which to search results.
-     * @param offset  The result set offset.
-     * @param limit   The result set limit.
+     * @param scopeId   The {@link ScopeId} in which to search results.
+     * @param offset    The result set offset.
+     * @param keyOffset The result set key offset (the nextKey of the previous result set). If set the offset is ignored.
+     * @param limit     The result set limit.
      * @return The {@link CredentialListResult} of all the credentials associated to the current selected scope.
      * @since 1.0.0
      */
@@ -70,6 +73,7 @@ public class Credentials extends AbstractKapuaResource {
             @ApiParam(value = "The ScopeId in which to search results.", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId,
             @ApiParam(value = "The optional id to filter results.") @QueryParam("userId") EntityId userId,
             @ApiParam(value = "The result set offset.", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset,
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored.") @QueryParam("keyOffset") String keyOffset,
             @ApiParam(value = "The result set limit.", defaultValue = "50", required = true) @QueryParam("limit") @DefaultValue("50") int limit) {
         CredentialListResult credentialListResult = credentialFactory.newListResult();
         try {
@@ -82,6 +86,7 @@ public class Credentials extends AbstractKapuaResource {
             query.setPredicate(andPredicate);
 
             query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
             query.setLimit(limit);
 
             credentialListResult = query(scopeId, query);
@@ -58,6 +58,7 @@ public class DataChannels extends AbstractKapuaResource {
      * @param clientId The client id to filter results.
      * @param name     The channel name to filter results. It allows '#' wildcard in last channel level
      * @param offset   The result set offset.
+     * @param keyOffset The result set key offset (the next key of the previous result set). If set the offset is ignored.
      * @param limit    The result set limit.
      * @return The {@link ChannelInfoListResult} of all the channelInfos associated to the current selected scope.
      * @since 1.0.0
@@ -73,6 +74,7 @@ public class DataChannels extends AbstractKapuaResource {
             @ApiParam(value = "The client id to filter results") @QueryParam("clientId") String clientId, //
             @ApiParam(value = "The channel name to filter results. It allows '#' wildcard in last channel level") @QueryParam("name") String name, //
             @ApiParam(value = "The result set offset", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset,//
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored") @QueryParam("keyOffset") String keyOffset,//
             @ApiParam(value = "The result set limit", defaultValue = "50") @QueryParam("limit") @DefaultValue("50") int limit) //
     {
         ChannelInfoListResult channelInfoListResult = datastoreObjectFactory.newChannelInfoListResult();
@@ -91,6 +93,7 @@ public class DataChannels extends AbstractKapuaResource {
             ChannelInfoQuery query = datastoreObjectFactory.newChannelInfoQuery(scopeId);
             query.setPredicate(andPredicate);
             query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
             query.setLimit(limit);
 
             channelInfoListResult = query(scopeId, query);
@@ -55,6 +55,7 @@ public class DataClients extends AbstractKapuaResource {
      * @param scopeId  The {@link ScopeId} in which to search results.
      * @param clientId The client id to filter results
      * @param offset   The result set offset.
+     * @param keyOffset The result set key offset (the next key of the previous result set). If set the offset is ignored.
      * @param limit    The result set limit.
      * @return The {@link ClientInfoListResult} of all the clientInfos associated to the current selected scope.
      * @since 1.0.0
@@ -69,6 +70,7 @@ public class DataClients extends AbstractKapuaResource {
             @ApiParam(value = "The ScopeId in which to search results", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId,//
             @ApiParam(value = "The client id to filter results") @QueryParam("clientId") String clientId, //
             @ApiParam(value = "The result set offset", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset,//
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored") @QueryParam("keyOffset") String keyOffset,//
             @ApiParam(value = "The result set limit", defaultValue = "50") @QueryParam("limit") @DefaultValue("50") int limit) //
     {
         ClientInfoListResult clientInfoListResult = datastoreObjectFactory.newClientInfoListResult();
@@ -82,6 +84,7 @@ public class DataClients extends AbstractKapuaResource {
             ClientInfoQuery query = datastoreObjectFactory.newClientInfoQuery(scopeId);
             query.setPredicate(andPredicate);
             query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
             query.setLimit(limit);
 
             clientInfoListResult = query(scopeId, query);
@@ -11,7 +11,12 @@
  *******************************************************************************/
 package org.eclipse.kapua.app.api.v1.resources;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.List;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
@@ -21,8 +26,16 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.Providers;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
 
+import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.app.api.v1.resources.model.CountResult;
 import org.eclipse.kapua.app.api.v1.resources.model.DateParam;
 import org.eclipse.kapua.app.api.v1.resources.model.ScopeId;
@@ -37,13 +50,19 @@ import org.eclipse.kapua.service.datastore.internal.model.query.ChannelMatchPred
 import org.eclipse.kapua.service.datastore.internal.model.query.RangePredicateImpl;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricAggregation;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationListResult;
 import org.eclipse.kapua.service.datastore.model.query.AndPredicate;
 import org.eclipse.kapua.service.datastore.model.query.ChannelMatchPredicate;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationGroupBy;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
 import org.eclipse.kapua.service.datastore.model.query.RangePredicate;
 import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
 import org.eclipse.kapua.service.datastore.model.query.TermPredicate;
 
+import org.eclipse.persistence.jaxb.MarshallerProperties;
+
 import com.google.common.base.Strings;
 
 import io.swagger.annotations.Api;
@@ -54,10 +73,16 @@ import io.swagger.annotations.ApiParam;
 @Path("{scopeId}/data/messages")
 public class DataMessages extends AbstractKapuaResource {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
     private final KapuaLocator locator = KapuaLocator.getInstance();
     private final MessageStoreService messageRegistryService = locator.getService(MessageStoreService.class);
     private final DatastoreObjectFactory datastoreObjectFactory = locator.getFactory(DatastoreObjectFactory.class);
 
+    @Context
+    Providers providers;
+
     /**
      * Gets the {@link DatastoreMessage} list in the scope.
      *
@@ -67,6 +92,7 @@ public class DataMessages extends AbstractKapuaResource {
      * @param startDate The start date to filter the results. Must come before endDate parameter.
      * @param endDate   The end date to filter the results. Must come after startDate parameter
      * @param offset    The result set offset.
+     * @param keyOffset The result set key offset (the next key of the previous result set). If set the offset is ignored.
      * @param limit     The result set limit.
      * @return The {@link MessageListResult} of all the datastoreMessages associated to the current selected scope.
      * @since 1.0.0
@@ -88,33 +114,14 @@ public class DataMessages extends AbstractKapuaResource {
             // @ApiParam(value = "The min metric value to filter results") @QueryParam("metricValueMin") String metricMinValue, //
             // @ApiParam(value = "The max metric value to filter results") @QueryParam("metricValueMax") String metricMaxValue, //
             @ApiParam(value = "The result set offset", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset,//
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored") @QueryParam("keyOffset") String keyOffset,//
             @ApiParam(value = "The result set limit", defaultValue = "50") @QueryParam("limit") @DefaultValue("50") int limit) //
     {
         MessageListResult datastoreMessageListResult = datastoreObjectFactory.newDatastoreMessageListResult();
         try {
-            AndPredicate andPredicate = new AndPredicateImpl();
-            if (!Strings.isNullOrEmpty(clientId)) {
-                TermPredicate clientIdPredicate = datastoreObjectFactory.newTermPredicate(MessageField.CLIENT_ID, clientId);
-                andPredicate.getPredicates().add(clientIdPredicate);
-            }
-
-            if (!Strings.isNullOrEmpty(channel)) {
-                ChannelMatchPredicate channelPredicate = new ChannelMatchPredicateImpl(channel);
-                andPredicate.getPredicates().add(channelPredicate);
-            }
-
-            Date startDate = startDateParam != null ? startDateParam.getDate() : null;
-            Date endDate = endDateParam != null ? endDateParam.getDate() : null;
-            if (startDate != null || endDate != null) {
-                RangePredicate timestampPredicate = new RangePredicateImpl(ChannelInfoField.TIMESTAMP, startDate, endDate);
-                andPredicate.getPredicates().add(timestampPredicate);
-            }
-
-            // manageMetricValueFiltering(andPredicate, metricName, metricType, metricMinValue, metricMaxValue);
-
-            MessageQuery query = datastoreObjectFactory.newDatastoreMessageQuery(scopeId);
-            query.setPredicate(andPredicate);
+            MessageQuery query = newSimpleQuery(scopeId, clientId, channel, startDateParam, endDateParam);
             query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
             query.setLimit(limit);
 
             datastoreMessageListResult = query(scopeId, query);
@@ -124,6 +131,102 @@ public class DataMessages extends AbstractKapuaResource {
         return datastoreMessageListResult;
     }
 
+    /**
+     * Exports the {@link DatastoreMessage}s in the scope as newline delimited JSON.<br>
+     * The messages are read page by page (by key offset) while they are written, so the memory used doesn't depend on the number of exported messages.
+     *
+     * @param scopeId   The {@link ScopeId} in which to search results.
+     * @param clientId  The client id to filter results.
+     * @param channel   The channel id to filter results. It allows '#' wildcard in last channel level.
+     * @param startDate The start date to filter the results. Must come before endDate parameter.
+     * @param endDate   The end date to filter the results. Must come after startDate parameter
+     * @return The streamed {@link DatastoreMessage}s, one JSON object per line.
+     * @since 1.0.0
+     */
+    @ApiOperation(value = "Exports the DatastoreMessages in the scope", //
+            notes = "Exports all the datastoreMessages associated to the current selected scope as newline delimited JSON, one DatastoreMessage per line.")
+    @GET
+    @Path("_export")
+    @Produces(NDJSON)
+    public StreamingOutput export(  //
+            @ApiParam(value = "The ScopeId in which to search results", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId,//
+            @ApiParam(value = "The client id to filter results") @QueryParam("clientId") String clientId, //
+            @ApiParam(value = "The channel to filter results. It allows '#' wildcard in last channel level") @QueryParam("channel") String channel,
+            @ApiParam(value = "The start date to filter the results. Must come before endDate parameter") @QueryParam("startDate") DateParam startDateParam,
+            @ApiParam(value = "The end date to filter the results. Must come after startDate parameter") @QueryParam("endDate") DateParam endDateParam) //
+    {
+        StreamingOutput output = null;
+        try {
+            MessageQuery query = newSimpleQuery(scopeId, clientId, channel, startDateParam, endDateParam);
+            query.setLimit(EXPORT_PAGE_SIZE);
+
+            // the first page is read here so that the errors (such as the permission errors) are still returned as responses
+            MessageListResult firstPage = messageRegistryService.query(query);
+
+            Marshaller marshaller = providers.getContextResolver(JAXBContext.class, MediaType.APPLICATION_JSON_TYPE)
+                    .getContext(DatastoreMessage.class)
+                    .createMarshaller();
+            marshaller.setProperty(MarshallerProperties.MEDIA_TYPE, MediaType.APPLICATION_JSON);
+            marshaller.setProperty(MarshallerProperties.JSON_INCLUDE_ROOT, false);
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
+
+            output = outputStream -> {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+                try {
+                    MessageListResult page = firstPage;
+                    while (true) {
+                        for (DatastoreMessage message : page.getItems()) {
+                            marshaller.marshal(message, writer);
+                            writer.write('\n');
+                        }
+                        writer.flush();
+                        if (page.getNextKey() == null) {
+                            break;
+                        }
+                        query.setKeyOffset(page.getNextKey().toString());
+                        page = messageRegistryService.query(query);
+                    }
+                } catch (JAXBException | KapuaException e) {
+                    // the response is already committed, so the export is just truncated
+                    throw new WebApplicationException(e);
+                }
+            };
+        } catch (Throwable t) {
+            handleException(t);
+        }
+        return output;
+    }
+
+    private MessageQuery newSimpleQuery(ScopeId scopeId, String clientId, String channel, DateParam startDateParam, DateParam endDateParam) {
+        MessageQuery query = datastoreObjectFactory.newDatastoreMessageQuery(scopeId);
+        query.setPredicate(newSimplePredicate(clientId, channel, startDateParam, endDateParam));
+        return query;
+    }
+
+    private AndPredicate newSimplePredicate(String clientId, String channel, DateParam startDateParam, DateParam endDateParam) {
+        AndPredicate andPredicate = new AndPredicateImpl();
+        if (!Strings.isNullOrEmpty(clientId)) {
+            TermPredicate clientIdPredicate = datastoreObjectFactory.newTermPredicate(MessageField.CLIENT_ID, clientId);
+            andPredicate.getPredicates().add(clientIdPredicate);
+        }
+
+        if (!Strings.isNullOrEmpty(channel)) {
+            ChannelMatchPredicate channelPredicate = new ChannelMatchPredicateImpl(channel);
+            andPredicate.getPredicates().add(channelPredicate);
+        }
+
+        Date startDate = startDateParam != null ? startDateParam.getDate() : null;
+        Date endDate = endDateParam != null ? endDateParam.getDate() : null;
+        if (startDate != null || endDate != null) {
+            RangePredicate timestampPredicate = new RangePredicateImpl(ChannelInfoField.TIMESTAMP, startDate, endDate);
+            andPredicate.getPredicates().add(timestampPredicate);
+        }
+
+        // manageMetricValueFiltering(andPredicate, metricName, metricType, metricMinValue, metricMaxValue);
+
+        return andPredicate;
+    }
+
     /**
      * Queries the results with the given {@link DatastorMessageQuery} parameter.
      *
@@ -181,6 +284,84 @@ public class DataMessages extends AbstractKapuaResource {
         return returnNotNullEntity(countResult);
     }
 
+    /**
+     * Aggregates the metrics of the {@link DatastoreMessage}s in the scope by time interval.
+     *
+     * @param scopeId     The {@link ScopeId} in which to search results.
+     * @param clientId    The client id to filter results.
+     * @param channel     The channel id to filter results. It allows '#' wildcard in last channel level.
+     * @param startDate   The start date to filter the results. Must come before endDate parameter.
+     * @param endDate     The end date to filter the results. Must come after startDate parameter
+     * @param metricNames The names of the metrics to aggregate.
+     * @param interval    The aggregation interval in milliseconds.
+     * @param groupBy     The message field by which the aggregations are grouped.
+     * @param groupLimit  The maximum number of groups.
+     * @return The {@link MetricAggregationListResult} with the count, min, max, avg, sum and last value of every metric for every interval.
+     * @since 1.0.0
+     */
+    @ApiOperation(value = "Aggregates the metrics of the DatastoreMessages in the scope", //
+            notes = "Returns the count, min, max, avg, sum and last value of the given metrics for every time interval, optionally grouped by client id or channel.", //
+            response = MetricAggregation.class, //
+            responseContainer = "MetricAggregationListResult")
+    @GET
+    @Path("_aggregate")
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    public MetricAggregationListResult simpleAggregate( //
+            @ApiParam(value = "The ScopeId in which to search results", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId,//
+            @ApiParam(value = "The client id to filter results") @QueryParam("clientId") String clientId, //
+            @ApiParam(value = "The channel to filter results. It allows '#' wildcard in last channel level") @QueryParam("channel") String channel,
+            @ApiParam(value = "The start date to filter the results. Must come before endDate parameter") @QueryParam("startDate") DateParam startDateParam,
+            @ApiParam(value = "The end date to filter the results. Must come after startDate parameter") @QueryParam("endDate") DateParam endDateParam,
+            @ApiParam(value = "The names of the metrics to aggregate", required = true) @QueryParam("metricName") List<String> metricNames, //
+            @ApiParam(value = "The aggregation interval in milliseconds", defaultValue = "3600000") @QueryParam("interval") @DefaultValue("3600000") long interval, //
+            @ApiParam(value = "The message field by which the aggregations are grouped", defaultValue = "NONE") @QueryParam("groupBy") @DefaultValue("NONE") MetricAggregationGroupBy groupBy, //
+            @ApiParam(value = "The maximum number of groups", defaultValue = "50") @QueryParam("groupLimit") @DefaultValue("50") int groupLimit) //
+    {
+        MetricAggregationListResult metricAggregationListResult = null;
+        try {
+            MetricAggregationQuery query = datastoreObjectFactory.newMetricAggregationQuery(scopeId);
+            query.setPredicate(newSimplePredicate(clientId, channel, startDateParam, endDateParam));
+            query.setMetricNames(metricNames);
+            query.setInterval(interval);
+            query.setGroupBy(groupBy);
+            query.setGroupLimit(groupLimit);
+
+            metricAggregationListResult = aggregate(scopeId, query);
+        } catch (Throwable t) {
+            handleException(t);
+        }
+        return returnNotNullEntity(metricAggregationListResult);
+    }
+
+    /**
+     * Aggregates the metrics with the given {@link MetricAggregationQuery} parameter.
+     *
+     * @param scopeId The {@link ScopeId} in which to search results.
+     * @param query   The {@link MetricAggregationQuery} to use to aggregate the metrics.
+     * @return The {@link MetricAggregationListResult} with the count, min, max, avg, sum and last value of every metric for every interval.
+     * @since 1.0.0
+     */
+    @POST
+    @Path("_aggregate")
+    @Consumes({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
+    @Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
+    @ApiOperation(value = "Aggregates the metrics of the DatastoreMessages", //
+            notes = "Aggregates the metrics of the DatastoreMessages with the given MetricAggregationQuery parameter by time interval", //
+            response = MetricAggregation.class, //
+            responseContainer = "MetricAggregationListResult")
+    public MetricAggregationListResult aggregate( //
+            @ApiParam(value = "The ScopeId in which to search results", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId, //
+            @ApiParam(value = "The MetricAggregationQuery to use to aggregate the metrics", required = true) MetricAggregationQuery query) {
+        MetricAggregationListResult metricAggregationListResult = null;
+        try {
+            query.setScopeId(scopeId);
+            metricAggregationListResult = messageRegistryService.aggregate(query);
+        } catch (Throwable t) {
+            handleException(t);
+        }
+        return returnNotNullEntity(metricAggregationListResult);
+    }
+
     /**
      * Returns the DatastoreMessage specified by the "datastoreMessageId" path parameter.
      *
@@ -59,6 +59,7 @@ public class DataMetrics extends AbstractKapuaResource {
      * @param channel  The channel id to filter results. It allows '#' wildcard in last channel level
      * @param name     The metric name to filter results
      * @param offset   The result set offset.
+     * @param keyOffset The result set key offset (the next key of the previous result set). If set the offset is ignored.
      * @param limit    The result set limit.
      * @return The {@link MetricInfoListResult} of all the metricInfos associated to the current selected scope.
      * @since 1.0.0
@@ -75,6 +76,7 @@ public class DataMetrics extends AbstractKapuaResource {
             @ApiParam(value = "The channel to filter results. It allows '#' wildcard in last channel level") @QueryParam("channel") String channel,
             @ApiParam(value = "The metric name to filter results") @QueryParam("name") String name,
             @ApiParam(value = "The result set offset", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset,//
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored") @QueryParam("keyOffset") String keyOffset,//
             @ApiParam(value = "The result set limit", defaultValue = "50") @QueryParam("limit") @DefaultValue("50") int limit) //
     {
         MetricInfoListResult metricInfoListResult = datastoreObjectFactory.newMetricInfoListResult();
@@ -98,6 +100,7 @@ public class DataMetrics extends AbstractKapuaResource {
             MetricInfoQuery query = datastoreObjectFactory.newMetricInfoQuery(scopeId);
             query.setPredicate(andPredicate);
             query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
             query.setLimit(limit);
 
             metricInfoListResult = query(scopeId, query);
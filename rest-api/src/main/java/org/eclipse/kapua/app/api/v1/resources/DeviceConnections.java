@@ -53,11 +53,12 @@ public class DeviceConnections extends AbstractKapuaResource {
     /**
      * Gets the {@link DeviceConnection} list in the scope.
      *
-     * @param scopeId  The {@link ScopeId} in which to search results.
-     * @param clientId The id of the {@link Device} in which to search results
-     * @param status   The {@link DeviceConnectionStatus} in which to search results
-     * @param offset   The result set offset.
-     * @param limit    The result set limit.
+     * @param scopeId   The {@link ScopeId} in which to search results.
+     * @param clientId  The id of the {@link Device} in which to search results
+     * @param status    The {@link DeviceConnectionStatus} in which to search results
+     * @param offset    The result set offset.
+     * @param keyOffset The result set key offset (the nextKey of the previous result set). If set the offset is ignored.
+     * @param limit     The result set limit.
      * @return The {@link DeviceConnectionListResult} of all the deviceConnections associated to the current selected scope.
      * @since 1.0.0
      */
@@ -72,6 +73,7 @@ public class DeviceConnections extends AbstractKapuaResource {
             @ApiParam(value = "The client id to filter results.") String clientId,
             @ApiParam(value = "The connection status to filter results.") @QueryParam("status") DeviceConnectionStatus status,
             @ApiParam(value = "The result set offset.", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset,
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored.") @QueryParam("keyOffset") String keyOffset,
             @ApiParam(value = "The result set limit.", defaultValue = "50") @QueryParam("limit") @DefaultValue("50") int limit) {
         DeviceConnectionListResult deviceConnectionListResult = deviceConnectionFactory.newListResult();
         try {
@@ -87,6 +89,7 @@ public class DeviceConnections extends AbstractKapuaResource {
             query.setPredicate(andPredicate);
 
             query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
             query.setLimit(limit);
 
             deviceConnectionListResult = query(scopeId, query);
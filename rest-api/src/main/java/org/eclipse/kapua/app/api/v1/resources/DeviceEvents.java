@@ -58,11 +58,12 @@ public class DeviceEvents extends AbstractKapuaResource {
     /**
      * Gets the {@link DeviceEvent} list in the scope.
      *
-     * @param scopeId  The {@link ScopeId} in which to search results.
-     * @param deviceId The id of the {@link Device} in which to search results
-     * @param resource The resource of the {@link DeviceEvent} in which to search results
-     * @param offset   The result set offset.
-     * @param limit    The result set limit.
+     * @param scopeId   The {@link ScopeId} in which to search results.
+     * @param deviceId  The id of the {@link Device} in which to search results
+     * @param resource  The resource of the {@link DeviceEvent} in which to search results
+     * @param offset    The result set offset.
+     * @param keyOffset The result set key offset (the nextKey of the previous result set). If set the offset is ignored.
+     * @param limit     The result set limit.
      * @return The {@link DeviceEventListResult} of all the deviceEvents associated to the current selected scope.
      * @since 1.0.0
      */
@@ -77,6 +78,7 @@ public class DeviceEvents extends AbstractKapuaResource {
             @ApiParam(value = "The client id to filter results.") @PathParam("deviceId") EntityId deviceId,
             @ApiParam(value = "The resource of the DeviceEvent in which to search results") @QueryParam("resource") String resource,
             @ApiParam(value = "The result set offset.", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset,
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored.") @QueryParam("keyOffset") String keyOffset,
             @ApiParam(value = "The result set limit.", defaultValue = "50") @QueryParam("limit") @DefaultValue("50") int limit) {
         DeviceEventListResult deviceEventListResult = deviceEventFactory.newListResult();
         try {
@@ -90,6 +92,7 @@ public class DeviceEvents extends AbstractKapuaResource {
             query.setPredicate(andPredicate);
 
             query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
             query.setLimit(limit);
 
             deviceEventListResult = query(scopeId, deviceId, query);
@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.app.api.v1.resources;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.eclipse.kapua.app.api.v1.resources.model.EntityId;
+import org.eclipse.kapua.app.api.v1.resources.model.ScopeId;
+import org.eclipse.kapua.commons.model.query.predicate.AndPredicate;
+import org.eclipse.kapua.commons.model.query.predicate.AttributePredicate;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperation;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationCreator;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationFactory;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationListResult;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationPredicates;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationQuery;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationService;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationStatus;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTarget;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetListResult;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetPredicates;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetQuery;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetStatus;
+
+import com.google.common.base.Strings;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+
+@Api("Devices")
+@Path("{scopeId}/devicebatchoperations")
+public class DeviceManagementBatchOperations extends AbstractKapuaResource {
+
+    private final KapuaLocator locator = KapuaLocator.getInstance();
+    private final DeviceBatchOperationService batchOperationService = locator.getService(DeviceBatchOperationService.class);
+    private final DeviceBatchOperationFactory batchOperationFactory = locator.getFactory(DeviceBatchOperationFactory.class);
+
+    /**
+     * Gets the {@link DeviceBatchOperation} list in the scope.
+     *
+     * @param scopeId   The {@link ScopeId} in which to search results.
+     * @param status    The {@link DeviceBatchOperationStatus} in which to search results.
+     * @param offset    The result set offset.
+     * @param keyOffset The result set key offset (the nextKey of the previous result set). If set the offset is ignored.
+     * @param limit     The result set limit.
+     * @return The {@link DeviceBatchOperationListResult} of all the batch operations associated to the current selected scope.
+     * @since 1.0.0
+     */
+    @ApiOperation(value = "Gets the DeviceBatchOperation list in the scope",
+            notes = "Returns the list of all the device batch operations associated to the current selected scope.",
+            response = DeviceBatchOperation.class,
+            responseContainer = "DeviceBatchOperationListResult")
+    @GET
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    public DeviceBatchOperationListResult simpleQuery(
+            @ApiParam(value = "The ScopeId in which to search results.", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId,
+            @ApiParam(value = "The status of the DeviceBatchOperation in which to search results") @QueryParam("status") DeviceBatchOperationStatus status,
+            @ApiParam(value = "The result set offset.", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset,
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored.") @QueryParam("keyOffset") String keyOffset,
+            @ApiParam(value = "The result set limit.", defaultValue = "50") @QueryParam("limit") @DefaultValue("50") int limit) {
+        DeviceBatchOperationListResult batchOperationListResult = batchOperationFactory.newListResult();
+        try {
+            DeviceBatchOperationQuery query = batchOperationFactory.newQuery(scopeId);
+
+            AndPredicate andPredicate = new AndPredicate();
+            if (status != null) {
+                andPredicate.and(new AttributePredicate<>(DeviceBatchOperationPredicates.STATUS, status));
+            }
+            query.setPredicate(andPredicate);
+
+            query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
+            query.setLimit(limit);
+
+            batchOperationListResult = batchOperationService.query(query);
+        } catch (Throwable t) {
+            handleException(t);
+        }
+        return batchOperationListResult;
+    }
+
+    /**
+     * Submits a new {@link DeviceBatchOperation} based on the information provided in the {@link DeviceBatchOperationCreator} parameter.
+     * <p>
+     * The operation is executed asynchronously: the returned {@link DeviceBatchOperation} can be polled to track the progress.
+     *
+     * @param scopeId               The {@link ScopeId} in which to submit the {@link DeviceBatchOperation}.
+     * @param batchOperationCreator Provides the information for the new {@link DeviceBatchOperation} to be submitted.
+     * @return The newly submitted {@link DeviceBatchOperation} object.
+     * @since 1.0.0
+     */
+    @ApiOperation(value = "Submits a DeviceBatchOperation",
+            notes = "Submits a new DeviceBatchOperation based on the information provided in DeviceBatchOperationCreator parameter.",
+            response = DeviceBatchOperation.class)
+    @POST
+    @Consumes({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
+    @Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
+    public DeviceBatchOperation create(
+            @ApiParam(value = "The ScopeId in which to submit the DeviceBatchOperation", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId,
+            @ApiParam(value = "Provides the information for the new DeviceBatchOperation to be submitted", required = true) DeviceBatchOperationCreator batchOperationCreator) {
+        DeviceBatchOperation batchOperation = null;
+        try {
+            batchOperationCreator.setScopeId(scopeId);
+            batchOperation = batchOperationService.create(batchOperationCreator);
+        } catch (Throwable t) {
+            handleException(t);
+        }
+        return returnNotNullEntity(batchOperation);
+    }
+
+    /**
+     * Returns the {@link DeviceBatchOperation} specified by the "batchOperationId" path parameter.
+     *
+     * @param scopeId          The {@link ScopeId} of the requested {@link DeviceBatchOperation}.
+     * @param batchOperationId The id of the requested {@link DeviceBatchOperation}.
+     * @return The requested {@link DeviceBatchOperation} object.
+     * @since 1.0.0
+     */
+    @ApiOperation(value = "Get a DeviceBatchOperation", notes = "Returns the DeviceBatchOperation specified by the \"batchOperationId\" path parameter.", response = DeviceBatchOperation.class)
+    @GET
+    @Path("{batchOperationId}")
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    public DeviceBatchOperation find(
+            @ApiParam(value = "The ScopeId of the requested DeviceBatchOperation.", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId,
+            @ApiParam(value = "The id of the requested DeviceBatchOperation", required = true) @PathParam("batchOperationId") EntityId batchOperationId) {
+        DeviceBatchOperation batchOperation = null;
+        try {
+            batchOperation = batchOperationService.find(scopeId, batchOperationId);
+        } catch (Throwable t) {
+            handleException(t);
+        }
+        return returnNotNullEntity(batchOperation);
+    }
+
+    /**
+     * Cancels the {@link DeviceBatchOperation} specified by the "batchOperationId" path parameter.
+     * <p>
+     * Devices already processed keep their outcome, pending devices are marked as {@link DeviceBatchOperationTargetStatus#CANCELED}.
+     *
+     * @param scopeId          The {@link ScopeId} of the {@link DeviceBatchOperation} to cancel.
+     * @param batchOperationId The id of the {@link DeviceBatchOperation} to cancel.
+     * @return The updated {@link DeviceBatchOperation} object.
+     * @since 1.0.0
+     */
+    @ApiOperation(value = "Cancel a DeviceBatchOperation", notes = "Cancels the DeviceBatchOperation specified by the \"batchOperationId\" path parameter.", response = DeviceBatchOperation.class)
+    @POST
+    @Path("{batchOperationId}/_cancel")
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    public DeviceBatchOperation cancel(
+            @ApiParam(value = "The ScopeId of the DeviceBatchOperation to cancel.", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId,
+            @ApiParam(value = "The id of the DeviceBatchOperation to cancel", required = true) @PathParam("batchOperationId") EntityId batchOperationId) {
+        DeviceBatchOperation batchOperation = null;
+        try {
+            batchOperation = batchOperationService.cancel(scopeId, batchOperationId);
+        } catch (Throwable t) {
+            handleException(t);
+        }
+        return returnNotNullEntity(batchOperation);
+    }
+
+    /**
+     * Gets the per device outcomes of the {@link DeviceBatchOperation} specified by the "batchOperationId" path parameter.
+     *
+     * @param scopeId          The {@link ScopeId} in which to search results.
+     * @param batchOperationId The id of the {@link DeviceBatchOperation} in which to search results.
+     * @param status           The {@link DeviceBatchOperationTargetStatus} in which to search results.
+     * @param offset           The result set offset.
+     * @param keyOffset        The result set key offset (the nextKey of the previous result set). If set the offset is ignored.
+     * @param limit            The result set limit.
+     * @return The {@link DeviceBatchOperationTargetListResult} of the targets of the {@link DeviceBatchOperation}.
+     * @since 1.0.0
+     */
+    @ApiOperation(value = "Gets the DeviceBatchOperationTarget list of a DeviceBatchOperation",
+            notes = "Returns the list of the per device outcomes of the DeviceBatchOperation specified by the \"batchOperationId\" path parameter.",
+            response = DeviceBatchOperationTarget.class,
+            responseContainer = "DeviceBatchOperationTargetListResult")
+    @GET
+    @Path("{batchOperationId}/targets")
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    public DeviceBatchOperationTargetListResult queryTargets(
+            @ApiParam(value = "The ScopeId in which to search results.", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId,
+            @ApiParam(value = "The id of the DeviceBatchOperation in which to search results", required = true) @PathParam("batchOperationId") EntityId batchOperationId,
+            @ApiParam(value = "The status of the DeviceBatchOperationTarget in which to search results") @QueryParam("status") DeviceBatchOperationTargetStatus status,
+            @ApiParam(value = "The result set offset.", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset,
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored.") @QueryParam("keyOffset") String keyOffset,
+            @ApiParam(value = "The result set limit.", defaultValue = "50") @QueryParam("limit") @DefaultValue("50") int limit) {
+        DeviceBatchOperationTargetListResult targetListResult = null;
+        try {
+            DeviceBatchOperationTargetQuery query = batchOperationFactory.newTargetQuery(scopeId);
+
+            AndPredicate andPredicate = new AndPredicate();
+            andPredicate.and(new AttributePredicate<>(DeviceBatchOperationTargetPredicates.BATCH_OPERATION_ID, batchOperationId));
+            if (status != null) {
+                andPredicate.and(new AttributePredicate<>(DeviceBatchOperationTargetPredicates.STATUS, status));
+            }
+            query.setPredicate(andPredicate);
+
+            query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
+            query.setLimit(limit);
+
+            targetListResult = batchOperationService.queryTargets(query);
+        } catch (Throwable t) {
+            handleException(t);
+        }
+        return returnNotNullEntity(targetListResult);
+    }
+
+    /**
+     * Deletes the {@link DeviceBatchOperation} specified by the "batchOperationId" path parameter.
+     * <p>
+     * Only operations which are no longer running can be deleted.
+     *
+     * @param scopeId          The {@link ScopeId} of the {@link DeviceBatchOperation} to delete.
+     * @param batchOperationId The id of the {@link DeviceBatchOperation} to delete.
+     * @return HTTP 200 if operation has completed successfully.
+     * @since 1.0.0
+     */
+    @ApiOperation(value = "Delete a DeviceBatchOperation", notes = "Deletes the DeviceBatchOperation specified by the \"batchOperationId\" path parameter.")
+    @DELETE
+    @Path("{batchOperationId}")
+    public Response deleteBatchOperation(
+            @ApiParam(value = "The ScopeId of the DeviceBatchOperation to delete.", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId,
+            @ApiParam(value = "The id of the DeviceBatchOperation to delete", required = true) @PathParam("batchOperationId") EntityId batchOperationId) {
+        try {
+            batchOperationService.delete(scopeId, batchOperationId);
+        } catch (Throwable t) {
+            handleException(t);
+        }
+        return Response.ok().build();
+    }
+}
@@ -64,6 +64,7 @@ public class Devices extends AbstractKapuaResource {
      * @param connectionStatus The {@link DeviceConnectionStatus} in which to search results
      * @param fetchAttributes  Additional attributes to be returned. Allowed values: connection, lastEvent
      * @param offset           The result set offset.
+     * @param keyOffset        The result set key offset (the nextKey of the previous result set). If set the offset is ignored.
      * @param limit            The result set limit.
      * @return The {@link DeviceListResult} of all the devices associated to the current selected scope.
      * @since 1.0.0
@@ -80,6 +81,7 @@ public class Devices extends AbstractKapuaResource {
             @ApiParam(value = "The connection status to filter results.") @QueryParam("status") DeviceConnectionStatus connectionStatus,
             @ApiParam(value = "Additional attributes to be returned. Allowed values: connection, lastEvent", allowableValues = "connection, lastEvent", allowMultiple = true) @QueryParam("fetchAttributes") List<String> fetchAttributes,
             @ApiParam(value = "The result set offset.", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset,
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored.") @QueryParam("keyOffset") String keyOffset,
             @ApiParam(value = "The result set limit.", defaultValue = "50") @QueryParam("limit") @DefaultValue("50") int limit) {
         DeviceListResult deviceListResult = deviceFactory.newListResult();
         try {
@@ -95,6 +97,7 @@ public class Devices extends AbstractKapuaResource {
             query.setPredicate(andPredicate);
             query.setFetchAttributes(fetchAttributes);
             query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
             query.setLimit(limit);
 
             deviceListResult = query(scopeId, query);
@@ -57,12 +57,13 @@ public class RolesPermissions extends AbstractKapuaResource {
     /**
      * Gets the {@link RolePermission} list in the scope.
      *
-     * @param scopeId The {@link ScopeId} in which to search results.
-     * @param roleId  The id of the {@link Role} in which to search results.
-     * @param domain  The domain name to filter results.
-     * @param action  The action to filter results.
-     * @param offset  The result set offset.
-     * @param limit   The result set limit.
+     * @param scopeId   The {@link ScopeId} in which to search results.
+     * @param roleId    The id of the {@link Role} in which to search results.
+     * @param domain    The domain name to filter results.
+     * @param action    The action to filter results.
+     * @param offset    The result set offset.
+     * @param keyOffset The result set key offset (the nextKey of the previous result set). If set the offset is ignored.
+     * @param limit     The result set limit.
      * @return The {@link RolePermissionListResult} of all the rolePermissions associated to the current selected scope.
      * @since 1.0.0
      */
@@ -78,6 +79,7 @@ public class RolesPermissions extends AbstractKapuaResource {
             @ApiParam(value = "The domain name to filter results.") @QueryParam("name") String domain,
             @ApiParam(value = "The action to filter results.") @QueryParam("action") Actions action,
             @ApiParam(value = "The result set offset.", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset,
+            @ApiParam(value = "The result set key offset (the nextKey of the previous result set). If set the offset is ignored.") @QueryParam("keyOffset") String keyOffset,
             @ApiParam(value = "The result set limit.", defaultValue = "50") @QueryParam("limit") @DefaultValue("50") int limit) {
         RolePermissionListResult rolePermissionListResult = rolePermissionFactory.newListResult();
         try {
@@ -94,6 +96,7 @@ public class RolesPermissions extends AbstractKapuaResource {
             query.setPredicate(andPredicate);
 
             query.setOffset(offset);
+            query.setKeyOffset(Strings.emptyToNull(keyOffset));
             query.setLimit(limit);
 
             rolePermissionListResult = query(scopeId, roleId, query);
@@ -184,6 +184,9 @@ public class AccountServiceImpl extends AbstractKapuaConfigurableResourceLimited
 
             AccountDAO.delete(em, accountId);
         });
+
+        // the deleted account no longer takes up its allotment in the parent account
+        invalidateConfigValues(accountId);
     }
 
     @Override
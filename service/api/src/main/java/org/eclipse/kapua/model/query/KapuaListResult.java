@@ -35,7 +35,7 @@ import org.eclipse.kapua.model.KapuaEntity;
  */
 @XmlRootElement(name = "result")
 @XmlAccessorType(XmlAccessType.PROPERTY)
-@XmlType(propOrder = { "limitExceeded", "size", "items" })
+@XmlType(propOrder = { "limitExceeded", "size", "nextKey", "totalCount", "items" })
 public interface KapuaListResult<E extends KapuaEntity> extends KapuaSerializable {
 
     /**
@@ -54,6 +54,39 @@ public interface KapuaListResult<E extends KapuaEntity> extends KapuaSerializabl
      */
     public void setLimitExceeded(boolean limitExceeded);
 
+    /**
+     * Get the next key.<br>
+     * If the limit is exceeded, the next key is the opaque key of the last element of the result list.
+     * To get the next result list, set it as key offset of the same query ({@link KapuaQuery#setKeyOffset(String)}).
+     * 
+     * @return
+     */
+    @XmlElement(name = "nextKey")
+    public String getNextKey();
+
+    /**
+     * Set the next key
+     * 
+     * @param nextKey
+     */
+    public void setNextKey(String nextKey);
+
+    /**
+     * Get the total count of the elements matching the query.<br>
+     * It is set only if requested ({@link KapuaQuery#setAskTotalCount(Boolean)}).
+     * 
+     * @return
+     */
+    @XmlElement(name = "totalCount")
+    public Long getTotalCount();
+
+    /**
+     * Set the total count of the elements matching the query
+     * 
+     * @param totalCount
+     */
+    public void setTotalCount(Long totalCount);
+
     /**
      * Return the result list
      * 
@@ -160,4 +160,44 @@ public interface KapuaQuery<E extends KapuaEntity> {
      * @since 1.0.0
      */
     public void setLimit(Integer limit);
+
+    /**
+     * Gets the {@link KapuaQuery} key offset.
+     * 
+     * @return The {@link KapuaQuery} key offset.
+     * @since 1.0.0
+     */
+    @XmlElement(name = "keyOffset")
+    public String getKeyOffset();
+
+    /**
+     * Sets the {@link KapuaQuery} key offset.<br>
+     * The key offset is the next key ({@link KapuaListResult#getNextKey()}) returned with the previous result list.
+     * If set, the {@link KapuaQuery} returns the results following that result list and the offset is ignored,
+     * so every page costs as the first one regardless of how deep it is.
+     * 
+     * @param keyOffset
+     *            The {@link KapuaQuery} key offset.
+     * @since 1.0.0
+     */
+    public void setKeyOffset(String keyOffset);
+
+    /**
+     * Gets whether or not the {@link KapuaListResult#getTotalCount()} has to be computed.
+     * 
+     * @return {@code true} if the total count has to be computed, {@code false} otherwise.
+     * @since 1.0.0
+     */
+    @XmlElement(name = "askTotalCount")
+    public Boolean getAskTotalCount();
+
+    /**
+     * Sets whether or not the {@link KapuaListResult#getTotalCount()} has to be computed.<br>
+     * Counting the results matching the {@link KapuaQuery} costs as a full scan of them, so it is computed only if requested.
+     * 
+     * @param askTotalCount
+     *            {@code true} to compute the total count.
+     * @since 1.0.0
+     */
+    public void setAskTotalCount(Boolean askTotalCount);
 }
@@ -15,7 +15,9 @@ import javax.xml.bind.annotation.XmlRegistry;
 
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationListResult;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
 
 @XmlRegistry
 public class DatastoreMessageXmlRegistry {
@@ -40,4 +42,22 @@ public class DatastoreMessageXmlRegistry {
     public MessageQuery newQuery() {
         return factory.newDatastoreMessageQuery(null);
     }
+
+    /**
+     * Creates a {@link MetricAggregationListResult} instance
+     * 
+     * @return
+     */
+    public MetricAggregationListResult newMetricAggregationListResult() {
+        return factory.newMetricAggregationListResult();
+    }
+
+    /**
+     * Creates a {@link MetricAggregationQuery} instance.
+     * 
+     * @return
+     */
+    public MetricAggregationQuery newMetricAggregationQuery() {
+        return factory.newMetricAggregationQuery(null);
+    }
 }
@@ -17,10 +17,12 @@ import org.eclipse.kapua.service.datastore.model.ChannelInfoListResult;
 import org.eclipse.kapua.service.datastore.model.ClientInfoListResult;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
 import org.eclipse.kapua.service.datastore.model.Metric;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationListResult;
 import org.eclipse.kapua.service.datastore.model.MetricInfoListResult;
 import org.eclipse.kapua.service.datastore.model.query.ChannelInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.ClientInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
 import org.eclipse.kapua.service.datastore.model.query.MetricInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.StorableField;
 import org.eclipse.kapua.service.datastore.model.query.TermPredicate;
@@ -89,6 +91,25 @@ public interface DatastoreObjectFactory extends KapuaObjectFactory {
      */
     public MessageListResult newDatastoreMessageListResult();
 
+    /**
+     * Return a new metric aggregation query
+     * 
+     * @param scopeId
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    public MetricAggregationQuery newMetricAggregationQuery(KapuaId scopeId);
+
+    /**
+     * Return a new metric aggregation result list
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    public MetricAggregationListResult newMetricAggregationListResult();
+
     /**
      * Return a new metric information query
      * 
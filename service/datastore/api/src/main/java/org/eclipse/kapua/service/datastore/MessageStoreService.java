@@ -18,8 +18,10 @@ import org.eclipse.kapua.service.KapuaService;
 import org.eclipse.kapua.service.config.KapuaConfigurableService;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationListResult;
 import org.eclipse.kapua.service.datastore.model.StorableId;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
 import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
 
 /**
@@ -81,6 +83,18 @@ public interface MessageStoreService extends KapuaService, KapuaConfigurableServ
     long count(MessageQuery query)
             throws KapuaException;
 
+    /**
+     * Aggregate the metrics of the messages matching the given query by time interval
+     * 
+     * @param query
+     * @return
+     * @throws KapuaException
+     * 
+     * @since 1.0.0
+     */
+    MetricAggregationListResult aggregate(MetricAggregationQuery query)
+            throws KapuaException;
+
     /**
      * Delete message by identifier
      * 
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.model;
+
+import java.util.Date;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import org.eclipse.kapua.KapuaSerializable;
+import org.eclipse.kapua.model.xml.DateXmlAdapter;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
+
+/**
+ * Aggregated values of a metric in a time interval (of a group, if the query is grouped).
+ * 
+ * @since 1.0.0
+ */
+@XmlRootElement(name = "metricAggregation")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+@XmlType(propOrder = { //
+        "group", //
+        "name", //
+        "timestamp", //
+        "count", //
+        "min", //
+        "max", //
+        "avg", //
+        "sum", //
+        "last" })
+public interface MetricAggregation extends KapuaSerializable {
+
+    /**
+     * Get the group (the client identifier or the channel, as set by {@link MetricAggregationQuery#getGroupBy()}) or null if the query is not grouped
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "group")
+    public String getGroup();
+
+    /**
+     * Gets the metric name
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "name")
+    public String getName();
+
+    /**
+     * Get the interval start
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "timestamp")
+    @XmlJavaTypeAdapter(DateXmlAdapter.class)
+    public Date getTimestamp();
+
+    /**
+     * Get the count of the metric values
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "count")
+    public long getCount();
+
+    /**
+     * Get the minimum value
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "min")
+    public double getMin();
+
+    /**
+     * Get the maximum value
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "max")
+    public double getMax();
+
+    /**
+     * Get the average value
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "avg")
+    public double getAvg();
+
+    /**
+     * Get the sum of the values
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "sum")
+    public double getSum();
+
+    /**
+     * Get the value of the last message (by timestamp)
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "last")
+    public Double getLast();
+}
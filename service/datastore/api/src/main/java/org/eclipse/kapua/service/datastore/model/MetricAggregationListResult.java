@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.model;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+
+import org.eclipse.kapua.KapuaSerializable;
+import org.eclipse.kapua.service.datastore.DatastoreMessageXmlRegistry;
+
+/**
+ * Metric aggregation query result list definition.<br>
+ * The aggregations are ordered by group, by metric name (as listed by the query) and by time interval.
+ * 
+ * @since 1.0
+ *
+ */
+@XmlRootElement(name = "metricAggregations")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+@XmlType(propOrder = { "size", "items" }, factoryClass = DatastoreMessageXmlRegistry.class, factoryMethod = "newMetricAggregationListResult")
+public interface MetricAggregationListResult extends KapuaSerializable {
+
+    /**
+     * Return the result list
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElementWrapper(name = "items")
+    @XmlElement(name = "item")
+    public List<MetricAggregation> getItems();
+
+    /**
+     * Return the result list size
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "size")
+    public int getSize();
+
+    /**
+     * Add items to the result list
+     * 
+     * @param items
+     * 
+     * @since 1.0.0
+     */
+    public void addItems(Collection<? extends MetricAggregation> items);
+}
@@ -24,6 +24,7 @@ import javax.xml.bind.annotation.XmlType;
 import org.eclipse.kapua.KapuaSerializable;
 import org.eclipse.kapua.model.query.KapuaListResult;
 import org.eclipse.kapua.model.query.KapuaQuery;
+import org.eclipse.kapua.service.datastore.model.query.StorableQuery;
 
 /**
  * Storable object list definition
@@ -125,8 +126,9 @@ public interface StorableListResult<E extends Storable> extends KapuaSerializabl
 
     /**
      * Get the next key.<br>
-     * If a limit is set into the query parameters (limit) and the messages count matching the query is higher than the limit, so the next key is the key of the first next object not included in the
-     * result set.
+     * If a limit is set into the query parameters (limit) and the objects count matching the query is higher than the limit, the next key is the opaque key
+     * of the last object included in the result set. To get the next result set, set it as key offset of the same query
+     * ({@link StorableQuery#setKeyOffset(String)}).
      * 
      * @return
      * 
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.model.query;
+
+/**
+ * Metric aggregation grouping
+ * 
+ * @since 1.0
+ *
+ */
+public enum MetricAggregationGroupBy
+{
+    /**
+     * The metrics of all the messages are aggregated together
+     */
+    NONE,
+    /**
+     * The metrics are aggregated by client identifier
+     */
+    CLIENT_ID,
+    /**
+     * The metrics are aggregated by channel
+     */
+    CHANNEL;
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.model.query;
+
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.id.KapuaIdAdapter;
+import org.eclipse.kapua.service.datastore.DatastoreMessageXmlRegistry;
+
+/**
+ * Metric aggregation query definition.<br>
+ * The numeric metrics of the messages matching the predicate are aggregated (count, min, max, avg, sum and last value) by time interval and, optionally, by
+ * client identifier or by channel.
+ * 
+ * @since 1.0
+ *
+ */
+@XmlRootElement(name = "query")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+@XmlType(factoryClass = DatastoreMessageXmlRegistry.class, factoryMethod = "newMetricAggregationQuery")
+public interface MetricAggregationQuery {
+
+    /**
+     * Gets the scope id
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "scopeId")
+    @XmlJavaTypeAdapter(KapuaIdAdapter.class)
+    public KapuaId getScopeId();
+
+    /**
+     * Sets the scope id
+     * 
+     * @param scopeId
+     * 
+     * @since 1.0.0
+     */
+    public void setScopeId(KapuaId scopeId);
+
+    /**
+     * Get the predicate of the aggregated messages
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlTransient
+    public StorablePredicate getPredicate();
+
+    /**
+     * Set the predicate of the aggregated messages
+     * 
+     * @param predicate
+     * 
+     * @since 1.0.0
+     */
+    public void setPredicate(StorablePredicate predicate);
+
+    /**
+     * Get the names of the aggregated metrics
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElementWrapper(name = "metricNames")
+    @XmlElement(name = "metricName")
+    public List<String> getMetricNames();
+
+    /**
+     * Set the names of the aggregated metrics
+     * 
+     * @param metricNames
+     * 
+     * @since 1.0.0
+     */
+    public void setMetricNames(List<String> metricNames);
+
+    /**
+     * Get the aggregation interval (milliseconds)
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "interval")
+    public long getInterval();
+
+    /**
+     * Set the aggregation interval (milliseconds)
+     * 
+     * @param interval
+     * 
+     * @since 1.0.0
+     */
+    public void setInterval(long interval);
+
+    /**
+     * Get the aggregation grouping
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "groupBy")
+    public MetricAggregationGroupBy getGroupBy();
+
+    /**
+     * Set the aggregation grouping
+     * 
+     * @param groupBy
+     * 
+     * @since 1.0.0
+     */
+    public void setGroupBy(MetricAggregationGroupBy groupBy);
+
+    /**
+     * Get the maximum number of groups (the groups with more messages are returned)
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "groupLimit")
+    public int getGroupLimit();
+
+    /**
+     * Set the maximum number of groups (the groups with more messages are returned)
+     * 
+     * @param groupLimit
+     * 
+     * @since 1.0.0
+     */
+    public void setGroupLimit(int groupLimit);
+}
@@ -19,6 +19,7 @@ import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.id.KapuaIdAdapter;
+import org.eclipse.kapua.service.datastore.model.StorableListResult;
 
 /**
  * Storable query definition.<br>
@@ -89,6 +90,27 @@ public interface StorableQuery<S extends Object> {
      */
     public void setOffset(int offset);
 
+    /**
+     * Get the query result list key offset
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    @XmlElement(name = "keyOffset")
+    public String getKeyOffset();
+
+    /**
+     * Set the query result list key offset.<br>
+     * The key offset is the next key ({@link StorableListResult#getNextKey()}) returned with the previous result list. If set, the query returns the objects
+     * following that result list and the offset is ignored, so every page costs as the first one regardless of how deep it is.
+     * 
+     * @param keyOffset
+     * 
+     * @since 1.0.0
+     */
+    public void setKeyOffset(String keyOffset);
+
     /**
      * Get the result list limit count
      * 
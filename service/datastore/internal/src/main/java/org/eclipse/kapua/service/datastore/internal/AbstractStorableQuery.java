@@ -37,7 +37,7 @@ public abstract class AbstractStorableQuery<S extends Storable> implements Stora
 
     private KapuaId scopeId;
     private int limit;
-    private Object keyOffset;
+    private String keyOffset;
     private int indexOffset;
     private boolean askTotalCount;
     private List<SortField> sortFields;
@@ -90,12 +90,14 @@ public abstract class AbstractStorableQuery<S extends Storable> implements Stora
         this.predicate = predicate;
     }
 
-    public Object getKeyOffset() {
+    @Override
+    public String getKeyOffset() {
         return keyOffset;
     }
 
-    public void setKeyOffset(Object offset) {
-        this.keyOffset = offset;
+    @Override
+    public void setKeyOffset(String keyOffset) {
+        this.keyOffset = keyOffset;
     }
 
     @Override
@@ -158,6 +160,7 @@ public abstract class AbstractStorableQuery<S extends Storable> implements Stora
         this.setAskTotalCount(query.isAskTotalCount());
         this.setLimit(query.getLimit());
         this.setOffset(query.getOffset());
+        this.setKeyOffset(query.getKeyOffset());
         this.setPredicate(query.getPredicate());
         // TODO extend copy to predicate (not by ref as now)
         this.setPredicate(query.getPredicate());
@@ -12,12 +12,14 @@
 package org.eclipse.kapua.service.datastore.internal;
 
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.ChannelInfoRegistryMediator;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.ChannelInfoXContentBuilder;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsBulkIndexer;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsClientUnavailableException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsConfigurationException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsDocumentBuilderException;
@@ -36,6 +38,7 @@ import org.eclipse.kapua.service.datastore.model.ChannelInfo;
 import org.eclipse.kapua.service.datastore.model.ChannelInfoListResult;
 import org.eclipse.kapua.service.datastore.model.StorableId;
 import org.eclipse.kapua.service.datastore.model.query.ChannelInfoQuery;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.index.engine.DocumentAlreadyExistsException;
 import org.slf4j.Logger;
@@ -52,7 +55,7 @@ public class ChannelInfoRegistryFacade {
 
     private final ChannelInfoRegistryMediator mediator;
     private final ConfigurationProvider configProvider;
-    private final Object metadataUpdateSync;
+    private final RegistryUpsertTracker upsertTracker;
 
     /**
      * Constructs the channel info registry facade
@@ -65,7 +68,7 @@ public class ChannelInfoRegistryFacade {
     public ChannelInfoRegistryFacade(ConfigurationProvider configProvider, ChannelInfoRegistryMediator mediator) {
         this.configProvider = configProvider;
         this.mediator = mediator;
-        this.metadataUpdateSync = new Object();
+        this.upsertTracker = new RegistryUpsertTracker(DatastoreCacheManager.getInstance().getChannelsCache());
     }
 
     /**
@@ -96,40 +99,49 @@ public class ChannelInfoRegistryFacade {
 
         String channelInfoId = ChannelInfoXContentBuilder.getOrDeriveId(channelInfo.getId(), channelInfo);
 
-        // Store channel. Look up channel in the cache, and cache it if it doesn't exist
-        if (!DatastoreCacheManager.getInstance().getChannelsCache().get(channelInfoId)) {
-
-            // The code is safe even without the synchronized block
-            // Synchronize in order to let the first thread complete its
-            // update then the others of the same type will find the cache
-            // updated and skip the update.
-            synchronized (this.metadataUpdateSync) {
-                if (!DatastoreCacheManager.getInstance().getChannelsCache().get(channelInfoId)) {
-                    UpdateResponse response = null;
-                    try {
-                        Metadata metadata = this.mediator.getMetadata(channelInfo.getScopeId(),
-                                channelInfo.getFirstMessageOn().getTime());
-
-                        String kapuaIndexName = metadata.getKapuaIndexName();
-
-                        response = EsChannelInfoDAO.getInstance()
-                                .index(metadata.getKapuaIndexName())
-                                .upsert(channelInfo);
-
-                        channelInfoId = response.getId();
-
-                        logger.debug(String.format("Upsert on channel succesfully executed [%s.%s, %s]",
-                                kapuaIndexName, EsSchema.CHANNEL_TYPE_NAME, channelInfoId));
-
-                    } catch (DocumentAlreadyExistsException exc) {
-                        logger.trace(String.format("Upsert failed because channel already exists [%s, %s]",
-                                channelInfoId, exc.getMessage()));
-                    }
-                    // Update cache if channel update is completed successfully
-                    DatastoreCacheManager.getInstance().getChannelsCache().put(channelInfoId, true);
-                }
+        // Store channel. Look up channel in the cache, and cache it if it doesn't exist.
+        // Only the first thread storing a new channel performs the upsert, the other threads
+        // storing the same channel wait for it while the threads storing other channels go on.
+        CompletableFuture<String> upsert = this.upsertTracker.claim(channelInfoId);
+        if (upsert == null) {
+            if (!EsBulkIndexer.isEnabled()) {
+                this.upsertTracker.await(channelInfoId);
             }
+            return new StorableIdImpl(channelInfoId);
         }
+
+        try {
+            Metadata metadata = this.mediator.getMetadata(channelInfo.getScopeId(),
+                    channelInfo.getFirstMessageOn().getTime());
+
+            String kapuaIndexName = metadata.getKapuaIndexName();
+
+            if (EsBulkIndexer.isEnabled()) {
+                // The upsert is executed within the bulk request of the message
+                UpdateRequest request = EsChannelInfoDAO.getInstance()
+                        .index(kapuaIndexName)
+                        .getUpsertRequest(channelInfo);
+                this.upsertTracker.completeWhen(channelInfoId, upsert, EsBulkIndexer.getInstance().upsertAsync(request));
+                return new StorableIdImpl(channelInfoId);
+            }
+
+            UpdateResponse response = EsChannelInfoDAO.getInstance()
+                    .index(kapuaIndexName)
+                    .upsert(channelInfo);
+
+            logger.debug(String.format("Upsert on channel succesfully executed [%s.%s, %s]",
+                    kapuaIndexName, EsSchema.CHANNEL_TYPE_NAME, response.getId()));
+
+        } catch (DocumentAlreadyExistsException exc) {
+            logger.trace(String.format("Upsert failed because channel already exists [%s, %s]",
+                    channelInfoId, exc.getMessage()));
+        } catch (Exception exc) {
+            this.upsertTracker.failed(channelInfoId, upsert, exc);
+            throw exc;
+        }
+        // Update cache if channel update is completed successfully
+        this.upsertTracker.completed(channelInfoId, upsert);
+
         return new StorableIdImpl(channelInfoId);
     }
 
@@ -12,12 +12,14 @@
 package org.eclipse.kapua.service.datastore.internal;
 
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.ClientInfoRegistryMediator;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.ClientInfoXContentBuilder;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsBulkIndexer;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsClientUnavailableException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsConfigurationException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsDocumentBuilderException;
@@ -36,6 +38,7 @@ import org.eclipse.kapua.service.datastore.model.ClientInfo;
 import org.eclipse.kapua.service.datastore.model.ClientInfoListResult;
 import org.eclipse.kapua.service.datastore.model.StorableId;
 import org.eclipse.kapua.service.datastore.model.query.ClientInfoQuery;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.index.engine.DocumentAlreadyExistsException;
 import org.slf4j.Logger;
@@ -52,7 +55,7 @@ public class ClientInfoRegistryFacade {
 
     private final ClientInfoRegistryMediator mediator;
     private final ConfigurationProvider configProvider;
-    private final Object metadataUpdateSync;
+    private final RegistryUpsertTracker upsertTracker;
 
     /**
      * Constructs the client info registry facade
@@ -65,7 +68,7 @@ public class ClientInfoRegistryFacade {
     public ClientInfoRegistryFacade(ConfigurationProvider configProvider, ClientInfoRegistryMediator mediator) {
         this.configProvider = configProvider;
         this.mediator = mediator;
-        this.metadataUpdateSync = new Object();
+        this.upsertTracker = new RegistryUpsertTracker(DatastoreCacheManager.getInstance().getClientsCache());
     }
 
     /**
@@ -95,36 +98,46 @@ public class ClientInfoRegistryFacade {
 
         ClientInfoXContentBuilder docBuilder = new ClientInfoXContentBuilder();
         docBuilder.build(clientInfo);
+        String clientInfoId = docBuilder.getClientId();
+
+        // Save client. Only the first thread storing a new client performs the upsert, the other threads
+        // storing the same client wait for it while the threads storing other clients go on.
+        CompletableFuture<String> upsert = this.upsertTracker.claim(clientInfoId);
+        if (upsert == null) {
+            if (!EsBulkIndexer.isEnabled()) {
+                this.upsertTracker.await(clientInfoId);
+            }
+            return new StorableIdImpl(clientInfoId);
+        }
 
-        // Save client
-        if (!DatastoreCacheManager.getInstance().getClientsCache().get(docBuilder.getClientId())) {
-
-            // The code is safe even without the synchronized block
-            // Synchronize in order to let the first thread complete its update
-            // then the others of the same type will find the cache updated and
-            // skip the update.
-            synchronized (this.metadataUpdateSync) {
-                if (!DatastoreCacheManager.getInstance().getClientsCache().get(docBuilder.getClientId())) {
-                    UpdateResponse response = null;
-                    try {
-                        Metadata metadata = this.mediator.getMetadata(clientInfo.getScopeId(), clientInfo.getFirstMessageOn().getTime());
-                        String kapuaIndexName = metadata.getKapuaIndexName();
-
-                        response = EsClientInfoDAO.getInstance().index(kapuaIndexName)
-                                .upsert(docBuilder.getClientId(), docBuilder.getClientBuilder());
-                        logger.debug(String.format("Upsert on asset succesfully executed [%s.%s, %s]", kapuaIndexName,
-                                EsSchema.CHANNEL_TYPE_NAME, response.getId()));
-                    } catch (DocumentAlreadyExistsException exc) {
-                        logger.trace(String.format("Upsert failed because asset already exists [%s, %s]",
-                                docBuilder.getClientId(), exc.getMessage()));
-                    }
-                    // Update cache if asset update is completed successfully
-                    DatastoreCacheManager.getInstance().getClientsCache().put(docBuilder.getClientId(), true);
-                }
+        try {
+            Metadata metadata = this.mediator.getMetadata(clientInfo.getScopeId(), clientInfo.getFirstMessageOn().getTime());
+            String kapuaIndexName = metadata.getKapuaIndexName();
+
+            if (EsBulkIndexer.isEnabled()) {
+                // The upsert is executed within the bulk request of the message
+                UpdateRequest request = EsClientInfoDAO.getInstance()
+                        .index(kapuaIndexName)
+                        .getUpsertRequest(clientInfoId, docBuilder.getClientBuilder());
+                this.upsertTracker.completeWhen(clientInfoId, upsert, EsBulkIndexer.getInstance().upsertAsync(request));
+                return new StorableIdImpl(clientInfoId);
             }
+
+            UpdateResponse response = EsClientInfoDAO.getInstance().index(kapuaIndexName)
+                    .upsert(clientInfoId, docBuilder.getClientBuilder());
+            logger.debug(String.format("Upsert on asset succesfully executed [%s.%s, %s]", kapuaIndexName,
+                    EsSchema.CHANNEL_TYPE_NAME, response.getId()));
+        } catch (DocumentAlreadyExistsException exc) {
+            logger.trace(String.format("Upsert failed because asset already exists [%s, %s]",
+                    clientInfoId, exc.getMessage()));
+        } catch (Exception exc) {
+            this.upsertTracker.failed(clientInfoId, upsert, exc);
+            throw exc;
         }
+        // Update cache if asset update is completed successfully
+        this.upsertTracker.completed(clientInfoId, upsert);
 
-        return new StorableIdImpl(docBuilder.getClientId());
+        return new StorableIdImpl(clientInfoId);
     }
 
     /**
@@ -12,22 +12,36 @@
 package org.eclipse.kapua.service.datastore.internal;
 
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.cache.LocalCache;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.account.Account;
 import org.eclipse.kapua.service.account.AccountService;
+import org.eclipse.kapua.service.authorization.AuthorizationService;
+import org.eclipse.kapua.service.authorization.domain.Domain;
+import org.eclipse.kapua.service.authorization.permission.Actions;
+import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.config.KapuaConfigurableService;
+import org.eclipse.kapua.service.datastore.DatastoreDomain;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsConfigurationException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageInfo;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageStoreConfiguration;
 
 /**
- * Datastore configuration provider implementation.
+ * Datastore configuration provider implementation.<br>
+ * The configurations and the account informations are cached per scope (see {@link DatastoreCacheManager}). The read permission on the datastore domain is
+ * checked before reading the configuration, even when it is cached.
  * 
  * @since 1.0.0
  */
 public class ConfigurationProviderImpl implements ConfigurationProvider {
 
+    private static final Domain datastoreDomain = new DatastoreDomain();
+
+    private final AuthorizationService authorizationService = KapuaLocator.getInstance().getService(AuthorizationService.class);
+    private final PermissionFactory permissionFactory = KapuaLocator.getInstance().getFactory(PermissionFactory.class);
+
     private AccountService accountService;
     private KapuaConfigurableService configurableService;
 
@@ -41,13 +55,28 @@ public class ConfigurationProviderImpl implements ConfigurationProvider {
     public MessageStoreConfiguration getConfiguration(KapuaId scopeId)
             throws EsConfigurationException {
 
-        MessageStoreConfiguration messageStoreConfiguration = null;
+        // the cached configurations are read with the same permission as the configuration service
+        try {
+            authorizationService.checkPermission(permissionFactory.newPermission(datastoreDomain, Actions.read, scopeId));
+        } catch (KapuaException e) {
+            throw new EsConfigurationException(e);
+        }
+
+        LocalCache<KapuaId, MessageStoreConfiguration> configurationsCache = DatastoreCacheManager.getInstance().getConfigurationsCache();
+        MessageStoreConfiguration messageStoreConfiguration = scopeId != null ? configurationsCache.get(scopeId) : null;
+        if (messageStoreConfiguration != null) {
+            return messageStoreConfiguration;
+        }
+
         try {
             messageStoreConfiguration = new MessageStoreConfiguration(configurableService.getConfigValues(scopeId));
         } catch (KapuaException e) {
             throw new EsConfigurationException(e);
         }
 
+        if (scopeId != null) {
+            configurationsCache.put(scopeId, messageStoreConfiguration);
+        }
         return messageStoreConfiguration;
     }
 
@@ -55,18 +84,30 @@ public class ConfigurationProviderImpl implements ConfigurationProvider {
     public MessageInfo getInfo(KapuaId scopeId)
             throws EsConfigurationException {
 
+        if (scopeId == null) {
+            return new MessageInfo(null);
+        }
+
+        LocalCache<KapuaId, MessageInfo> messageInfosCache = DatastoreCacheManager.getInstance().getMessageInfosCache();
+        MessageInfo messageInfo = messageInfosCache.get(scopeId);
+        if (messageInfo != null) {
+            return messageInfo;
+        }
+
         Account account = null;
-        if (scopeId != null) {
-            try {
-                account = KapuaSecurityUtils.doPrivileged(() -> accountService.find(scopeId));
-            } catch (KapuaException exc) {
-                throw new EsConfigurationException(exc);
-            } catch (Exception exc) {
-                throw new EsConfigurationException(exc);
-            }
+        try {
+            account = KapuaSecurityUtils.doPrivileged(() -> accountService.find(scopeId));
+        } catch (KapuaException exc) {
+            throw new EsConfigurationException(exc);
+        } catch (Exception exc) {
+            throw new EsConfigurationException(exc);
         }
 
-        return new MessageInfo(account);
+        messageInfo = new MessageInfo(account);
+        if (account != null) {
+            messageInfosCache.put(scopeId, messageInfo);
+        }
+        return messageInfo;
     }
 
 }
@@ -0,0 +1,455 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaRuntimeException;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.util.KapuaDateUtils;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.account.AccountService;
+import org.eclipse.kapua.service.config.KapuaConfigurableService;
+import org.eclipse.kapua.service.datastore.MessageStoreService;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.DatastoreMediator;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.ElasticsearchClient;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsClientUnavailableException;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsQueryConversionException;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageField;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageStoreConfiguration;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageStoreMediator;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsMessageDAO;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsRollupDAO;
+import org.eclipse.kapua.service.datastore.internal.model.query.AndPredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.MessageQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.RangePredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.TermPredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.metric.MetricsService;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
+
+/**
+ * Datastore data retention manager.<br>
+ * It enforces the data time to live of the message store configuration of each scope:
+ * <ul>
+ * <li>the data indexes (weekly) entirely older than the time to live are deleted as a whole</li>
+ * <li>the expired messages are deleted (by scroll and bulk delete) only from the data indexes partially older than the time to live</li>
+ * <li>the registry entries (channels, metrics and clients) of the Kapua index (.{scope}) without messages left are deleted</li>
+ * </ul>
+ * If the {@link DataRollupManager} is enabled, the data indexes not rolled up yet are kept.<br>
+ * The retention can be scheduled inside the broker ({@link #start()}, if enabled by the datastore settings) or run once by a standalone process
+ * ({@link #main(String[])}). The progress is exposed through the {@link MetricsService} (if available).<br>
+ * <b>The retention should be enforced by a single process, since the deleted data indexes are removed from the schema cache of that process only.</b>
+ *
+ * @since 1.0.0
+ */
+public class DataRetentionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataRetentionManager.class);
+
+    private static final String METRIC_MODULE = "datastore";
+    private static final String METRIC_COMPONENT = "retention";
+
+    private static final int SCROLL_SIZE = 100;
+
+    private static DataRetentionManager instance;
+
+    private final ConfigurationProvider configProvider;
+    private final MessageStoreMediator mediator;
+
+    private final Counter metricRuns;
+    private final Counter metricFailures;
+    private final Counter metricScopes;
+    private final Counter metricIndexes;
+    private final Counter metricMessages;
+    private final Counter metricRegistryEntries;
+    private final Timer metricRunTime;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructs the retention manager
+     *
+     * @param configProvider
+     *            the provider of the message store configurations (time to live)
+     * @param mediator
+     *            the mediator notified of the deleted data indexes
+     *
+     * @since 1.0.0
+     */
+    DataRetentionManager(ConfigurationProvider configProvider, MessageStoreMediator mediator) {
+        this.configProvider = configProvider;
+        this.mediator = mediator;
+
+        MetricsService metricsService;
+        try {
+            metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
+        } catch (KapuaRuntimeException e) {
+            metricsService = null;
+        }
+        if (metricsService != null) {
+            metricRuns = metricsService.getCounter(METRIC_MODULE, METRIC_COMPONENT, "runs", "count");
+            metricFailures = metricsService.getCounter(METRIC_MODULE, METRIC_COMPONENT, "failures", "count");
+            metricScopes = metricsService.getCounter(METRIC_MODULE, METRIC_COMPONENT, "scopes", "count");
+            metricIndexes = metricsService.getCounter(METRIC_MODULE, METRIC_COMPONENT, "indexes", "deleted", "count");
+            metricMessages = metricsService.getCounter(METRIC_MODULE, METRIC_COMPONENT, "messages", "deleted", "count");
+            metricRegistryEntries = metricsService.getCounter(METRIC_MODULE, METRIC_COMPONENT, "registry", "deleted", "count");
+            metricRunTime = metricsService.getTimer(METRIC_MODULE, METRIC_COMPONENT, "run", "time", "s");
+        } else {
+            logger.info("Metrics service not available, the data retention metrics are not exposed");
+            metricRuns = new Counter();
+            metricFailures = new Counter();
+            metricScopes = new Counter();
+            metricIndexes = new Counter();
+            metricMessages = new Counter();
+            metricRegistryEntries = new Counter();
+            metricRunTime = new Timer();
+        }
+    }
+
+    /**
+     * Get the retention manager instance
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public static synchronized DataRetentionManager getInstance() {
+        if (instance == null) {
+            KapuaLocator locator = KapuaLocator.getInstance();
+            KapuaConfigurableService messageStoreService = (KapuaConfigurableService) locator.getService(MessageStoreService.class);
+            ConfigurationProvider configProvider = new ConfigurationProviderImpl(messageStoreService, locator.getService(AccountService.class));
+            instance = new DataRetentionManager(configProvider, DatastoreMediator.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Check if the scheduled retention is enabled by the datastore settings
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public static boolean isEnabled() {
+        return DatastoreSettings.getInstance().getBoolean(DatastoreSettingKey.DATA_RETENTION_ENABLED, false);
+    }
+
+    /**
+     * Schedule the retention enforcement (at the configured interval)
+     *
+     * @since 1.0.0
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        DatastoreSettings config = DatastoreSettings.getInstance();
+        long initialDelay = config.getLong(DatastoreSettingKey.DATA_RETENTION_INITIAL_DELAY, 5L);
+        long interval = config.getLong(DatastoreSettingKey.DATA_RETENTION_INTERVAL, 60L);
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kapua-datastore-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                run();
+            } catch (Exception e) {
+                // the next run is still scheduled
+                logger.warn("Cannot enforce the data retention", e);
+            }
+        }, initialDelay, interval, TimeUnit.MINUTES);
+        logger.info("Data retention scheduled every {} minutes", interval);
+    }
+
+    /**
+     * Stop the scheduled retention enforcement (a running enforcement is interrupted)
+     *
+     * @since 1.0.0
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Enforce the retention of all the scopes having a data index or a Kapua index.<br>
+     * The failure of a scope is logged and the next scopes are processed.
+     *
+     * @throws EsClientUnavailableException
+     *
+     * @since 1.0.0
+     */
+    public void run() throws EsClientUnavailableException {
+        Context runTime = metricRunTime.time();
+        try {
+            long now = KapuaDateUtils.getKapuaSysDate().toEpochMilli();
+
+            Map<KapuaId, List<String>> dataIndexes = getDataIndexes();
+            logger.info("Enforcing the data retention of {} scopes", dataIndexes.size());
+            for (Map.Entry<KapuaId, List<String>> entry : dataIndexes.entrySet()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    logger.info("Data retention interrupted");
+                    break;
+                }
+                try {
+                    enforce(entry.getKey(), entry.getValue(), now);
+                } catch (Exception e) {
+                    metricFailures.inc();
+                    logger.warn("Cannot enforce the data retention of the scope {}", entry.getKey(), e);
+                }
+                metricScopes.inc();
+            }
+        } finally {
+            metricRuns.inc();
+            runTime.stop();
+        }
+    }
+
+    /**
+     * Enforce the retention of a scope
+     *
+     * @param scopeId
+     * @param dataIndexes
+     *            the data indexes of the scope
+     * @param now
+     * @throws KapuaException
+     * @throws EsClientUnavailableException
+     * @throws EsQueryConversionException
+     *
+     * @since 1.0.0
+     */
+    void enforce(KapuaId scopeId, List<String> dataIndexes, long now)
+            throws KapuaException, EsClientUnavailableException, EsQueryConversionException {
+        MessageStoreConfiguration configuration = getConfiguration(scopeId);
+        long ttl = configuration.getDataTimeToLiveMilliseconds();
+        if (ttl == MessageStoreConfiguration.DISABLED) {
+            logger.debug("Data time to live not set for the scope {}, skipping the retention", scopeId);
+            return;
+        }
+        long expiredBefore = now - ttl;
+
+        // the data indexes must be rolled up before their messages are deleted
+        Set<String> rolledUpIndexes = DataRollupManager.isEnabled() ? EsRollupDAO.getInstance().getRolledUpIndexes(scopeId).keySet() : null;
+
+        List<String> expiredIndexes = new ArrayList<>();
+        List<String> boundaryIndexes = new ArrayList<>();
+        for (String dataIndex : dataIndexes) {
+            if (rolledUpIndexes != null && EsUtils.getDataIndexStart(dataIndex) < expiredBefore && !rolledUpIndexes.contains(dataIndex)) {
+                logger.info("The data index {} of the scope {} is not rolled up yet, skipping its retention", dataIndex, scopeId);
+            } else if (EsUtils.getDataIndexEnd(dataIndex) <= expiredBefore) {
+                expiredIndexes.add(dataIndex);
+            } else if (EsUtils.getDataIndexStart(dataIndex) < expiredBefore) {
+                boundaryIndexes.add(dataIndex);
+            }
+        }
+
+        if (!expiredIndexes.isEmpty()) {
+            deleteDataIndexes(expiredIndexes);
+            logger.info("Deleted the expired data indexes {} of the scope {}", expiredIndexes, scopeId);
+        }
+
+        if (!boundaryIndexes.isEmpty()) {
+            long deleted = deleteExpiredMessages(scopeId, boundaryIndexes, expiredBefore);
+            logger.info("Deleted {} expired messages from the data indexes {} of the scope {}", deleted, boundaryIndexes, scopeId);
+        }
+
+        long deleted = deleteExpiredRegistryEntries(scopeId, expiredBefore);
+        logger.info("Deleted {} expired registry entries of the scope {}", deleted, scopeId);
+    }
+
+    /**
+     * Get the data indexes by scope (the scopes having only the Kapua index have no data index)
+     *
+     * @return
+     * @throws EsClientUnavailableException
+     *
+     * @since 1.0.0
+     */
+    static Map<KapuaId, List<String>> getDataIndexes() throws EsClientUnavailableException {
+        String[] indexes = ElasticsearchClient.getInstance().admin().indices()
+                .prepareGetIndex()
+                .setIndices("*", ".*")
+                .setIndicesOptions(IndicesOptions.lenientExpandOpen())
+                .get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()))
+                .getIndices();
+
+        Map<KapuaId, List<String>> dataIndexes = new TreeMap<>((first, second) -> first.getId().compareTo(second.getId()));
+        for (String index : indexes) {
+            if (EsUtils.isDataIndexName(index)) {
+                dataIndexes.computeIfAbsent(EsUtils.getIndexScopeId(index), scopeId -> new ArrayList<>()).add(index);
+            } else if (EsUtils.isKapuaIndexName(index)) {
+                dataIndexes.computeIfAbsent(EsUtils.getIndexScopeId(index), scopeId -> new ArrayList<>());
+            }
+        }
+        return dataIndexes;
+    }
+
+    private MessageStoreConfiguration getConfiguration(KapuaId scopeId) throws KapuaException {
+        // the retention doesn't run on behalf of a user
+        return KapuaSecurityUtils.doPrivileged(() -> configProvider.getConfiguration(scopeId));
+    }
+
+    private void deleteDataIndexes(List<String> dataIndexes) throws EsClientUnavailableException {
+        ElasticsearchClient.getInstance().admin().indices()
+                .prepareDelete(dataIndexes.toArray(new String[dataIndexes.size()]))
+                .setIndicesOptions(IndicesOptions.lenientExpandOpen())
+                .get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
+        mediator.onAfterDataIndexesDelete(dataIndexes);
+        metricIndexes.inc(dataIndexes.size());
+    }
+
+    private long deleteExpiredMessages(KapuaId scopeId, List<String> dataIndexes, long expiredBefore)
+            throws EsClientUnavailableException, EsQueryConversionException {
+        MessageQueryImpl messageQuery = new MessageQueryImpl(scopeId);
+        messageQuery.setPredicate(new RangePredicateImpl(MessageField.TIMESTAMP, null, new Date(expiredBefore - 1)));
+
+        long deleted = EsMessageDAO.getInstance()
+                .index(String.join(",", dataIndexes))
+                .deleteByQuery(messageQuery);
+        metricMessages.inc(deleted);
+        return deleted;
+    }
+
+    /**
+     * Delete the registry entries not updated since the expiration time without messages left.<br>
+     * The registry entries are not updated by the messages while they are cached, so an entry of a client (or a channel) still publishing may look
+     * expired: the entries are removed from the registry caches, so the next message refreshes them.
+     */
+    private long deleteExpiredRegistryEntries(KapuaId scopeId, long expiredBefore)
+            throws EsClientUnavailableException, EsQueryConversionException {
+        DatastoreCacheManager cacheManager = DatastoreCacheManager.getInstance();
+        Map<String, Boolean> hasMessages = new HashMap<>();
+
+        // the metrics and the channels before their clients
+        long deleted = deleteExpiredRegistryEntries(scopeId, EsSchema.METRIC_TYPE_NAME, EsSchema.METRIC_MTR_TIMESTAMP_FULL, EsSchema.METRIC_CLIENT_ID,
+                EsSchema.METRIC_CHANNEL, expiredBefore, cacheManager.getMetricsCache(), hasMessages);
+        deleted += deleteExpiredRegistryEntries(scopeId, EsSchema.CHANNEL_TYPE_NAME, EsSchema.CHANNEL_TIMESTAMP, EsSchema.CHANNEL_CLIENT_ID,
+                EsSchema.CHANNEL_NAME, expiredBefore, cacheManager.getChannelsCache(), hasMessages);
+        deleted += deleteExpiredRegistryEntries(scopeId, EsSchema.CLIENT_TYPE_NAME, EsSchema.CLIENT_TIMESTAMP, EsSchema.CLIENT_ID,
+                null, expiredBefore, cacheManager.getClientsCache(), hasMessages);
+        metricRegistryEntries.inc(deleted);
+        return deleted;
+    }
+
+    private static long deleteExpiredRegistryEntries(KapuaId scopeId, String type, String timestampField, String clientIdField, String channelField,
+            long expiredBefore, RegistryCache cache, Map<String, Boolean> hasMessages)
+            throws EsClientUnavailableException, EsQueryConversionException {
+        Client client = ElasticsearchClient.getInstance();
+        TimeValue queryTimeout = TimeValue.timeValueMillis(EsUtils.getQueryTimeout());
+        TimeValue scrollTimeout = TimeValue.timeValueMillis(EsUtils.getScrollTimeout());
+        String[] includes = channelField != null ? new String[] { clientIdField, channelField } : new String[] { clientIdField };
+
+        SearchResponse scrollResponse = client.prepareSearch(EsSchema.getKapuaIndexName(scopeId))
+                .setIndicesOptions(IndicesOptions.lenientExpandOpen())
+                .setTypes(type)
+                .setFetchSource(includes, null)
+                .addSort("_doc", SortOrder.ASC)
+                .setScroll(scrollTimeout)
+                .setQuery(QueryBuilders.rangeQuery(timestampField).lt(expiredBefore))
+                .setSize(SCROLL_SIZE)
+                .get(queryTimeout);
+
+        long deleted = 0;
+        while (scrollResponse.getHits().getHits().length > 0) {
+            BulkRequest bulkRequest = new BulkRequest();
+            for (SearchHit hit : scrollResponse.getHits().getHits()) {
+                String clientId = (String) hit.getSource().get(clientIdField);
+                String channel = channelField != null ? (String) hit.getSource().get(channelField) : null;
+                String key = channel != null ? clientId + '/' + channel : clientId;
+
+                Boolean entryHasMessages = hasMessages.get(key);
+                if (entryHasMessages == null) {
+                    entryHasMessages = hasMessages(scopeId, clientId, channel, expiredBefore);
+                    hasMessages.put(key, entryHasMessages);
+                }
+                if (!entryHasMessages) {
+                    bulkRequest.add(new DeleteRequest(hit.getIndex(), hit.getType(), hit.getId()));
+                }
+                cache.remove(hit.getId());
+            }
+            if (bulkRequest.numberOfActions() > 0) {
+                client.bulk(bulkRequest).actionGet(queryTimeout);
+                deleted += bulkRequest.numberOfActions();
+            }
+
+            scrollResponse = client.prepareSearchScroll(scrollResponse.getScrollId())
+                    .setScroll(scrollTimeout)
+                    .get(queryTimeout);
+        }
+        return deleted;
+    }
+
+    private static boolean hasMessages(KapuaId scopeId, String clientId, String channel, long expiredBefore)
+            throws EsClientUnavailableException, EsQueryConversionException {
+        AndPredicateImpl predicate = new AndPredicateImpl();
+        predicate.addPredicate(new TermPredicateImpl(MessageField.CLIENT_ID, clientId));
+        if (channel != null) {
+            predicate.addPredicate(new TermPredicateImpl(MessageField.CHANNEL, channel));
+        }
+        // the expired messages may still be searchable until the data indexes are refreshed
+        predicate.addPredicate(new RangePredicateImpl(MessageField.TIMESTAMP, new Date(expiredBefore), null));
+
+        MessageQueryImpl messageQuery = new MessageQueryImpl(scopeId);
+        messageQuery.setPredicate(predicate);
+        messageQuery.setLimit(0);
+        return EsMessageDAO.getInstance()
+                .index(EsSchema.getDataIndexName(scopeId))
+                .count(messageQuery) > 0;
+    }
+
+    /**
+     * Enforce the data retention once, as a standalone process
+     *
+     * @param args
+     * @throws Exception
+     *
+     * @since 1.0.0
+     */
+    public static void main(String[] args) throws Exception {
+        getInstance().run();
+        // the Elasticsearch client threads are not daemon threads
+        System.exit(0);
+    }
+}
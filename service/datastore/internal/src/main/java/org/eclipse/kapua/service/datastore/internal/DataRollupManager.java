@@ -0,0 +1,396 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.KapuaRuntimeException;
+import org.eclipse.kapua.commons.util.KapuaDateUtils;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.ElasticsearchClient;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsClientUnavailableException;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsDocumentBuilderException;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsQueryConversionException;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageField;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricAggregationQueryConverter;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsMessageDAO;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsRollupDAO;
+import org.eclipse.kapua.service.datastore.internal.model.RollupInterval;
+import org.eclipse.kapua.service.datastore.internal.model.query.MetricAggregationQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.TermPredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationListResult;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationGroupBy;
+import org.eclipse.kapua.service.metric.MetricsService;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
+
+/**
+ * Datastore data rollup manager.<br>
+ * It aggregates the closed data indexes (weekly) into the rollup index of their scope: for every {@link RollupInterval} the statistics (count, min, max, sum
+ * and last value) of every numeric metric of every client channel are stored, so the long range metric aggregations are still available after the data time
+ * to live (the {@link DataRetentionManager} doesn't delete the data indexes not rolled up yet, if the rollup is enabled).<br>
+ * The data indexes of a scope are rolled up from the oldest once closed. The rolled up period is not contiguous (the data index of the first week of the year
+ * also stores the last days of the year, so it is closed only at the end of the year), so the metric aggregations read the rollups only for the periods of
+ * the rolled up data indexes. A data index is rolled up again if messages were stored into it since its rollup (e.g. messages indexed by device timestamp
+ * stored late).<br>
+ * The rollup can be scheduled inside the broker ({@link #start()}, if enabled by the datastore settings) or run once by a standalone process
+ * ({@link #main(String[])}). The progress is exposed through the {@link MetricsService} (if available).
+ *
+ * @since 1.0.0
+ */
+public class DataRollupManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataRollupManager.class);
+
+    private static final String METRIC_MODULE = "datastore";
+    private static final String METRIC_COMPONENT = "rollup";
+
+    private static final String CLIENTS_AGGREGATION = "clients";
+    private static final String RECEIVED_ON_AGGREGATION = "received_on";
+
+    /**
+     * Maximum number of metrics aggregated by a single request (every metric adds its statistics to every interval)
+     */
+    private static final int METRICS_PER_AGGREGATION = 20;
+
+    private static DataRollupManager instance;
+
+    private final int groupLimit;
+
+    private final Counter metricRuns;
+    private final Counter metricFailures;
+    private final Counter metricIndexes;
+    private final Counter metricRollups;
+    private final Timer metricRunTime;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructs the rollup manager
+     *
+     * @since 1.0.0
+     */
+    DataRollupManager() {
+        groupLimit = DatastoreSettings.getInstance().getInt(DatastoreSettingKey.DATA_ROLLUP_GROUP_LIMIT, 10000);
+
+        MetricsService metricsService;
+        try {
+            metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
+        } catch (KapuaRuntimeException e) {
+            metricsService = null;
+        }
+        if (metricsService != null) {
+            metricRuns = metricsService.getCounter(METRIC_MODULE, METRIC_COMPONENT, "runs", "count");
+            metricFailures = metricsService.getCounter(METRIC_MODULE, METRIC_COMPONENT, "failures", "count");
+            metricIndexes = metricsService.getCounter(METRIC_MODULE, METRIC_COMPONENT, "indexes", "count");
+            metricRollups = metricsService.getCounter(METRIC_MODULE, METRIC_COMPONENT, "rollups", "count");
+            metricRunTime = metricsService.getTimer(METRIC_MODULE, METRIC_COMPONENT, "run", "time", "s");
+        } else {
+            logger.info("Metrics service not available, the data rollup metrics are not exposed");
+            metricRuns = new Counter();
+            metricFailures = new Counter();
+            metricIndexes = new Counter();
+            metricRollups = new Counter();
+            metricRunTime = new Timer();
+        }
+    }
+
+    /**
+     * Get the rollup manager instance
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public static synchronized DataRollupManager getInstance() {
+        if (instance == null) {
+            instance = new DataRollupManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Check if the scheduled rollup is enabled by the datastore settings
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public static boolean isEnabled() {
+        return DatastoreSettings.getInstance().getBoolean(DatastoreSettingKey.DATA_ROLLUP_ENABLED, false);
+    }
+
+    /**
+     * Schedule the rollup (at the configured interval)
+     *
+     * @since 1.0.0
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        DatastoreSettings config = DatastoreSettings.getInstance();
+        long initialDelay = config.getLong(DatastoreSettingKey.DATA_ROLLUP_INITIAL_DELAY, 10L);
+        long interval = config.getLong(DatastoreSettingKey.DATA_ROLLUP_INTERVAL, 60L);
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kapua-datastore-rollup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                run();
+            } catch (Exception e) {
+                // the next run is still scheduled
+                logger.warn("Cannot roll up the data", e);
+            }
+        }, initialDelay, interval, TimeUnit.MINUTES);
+        logger.info("Data rollup scheduled every {} minutes", interval);
+    }
+
+    /**
+     * Stop the scheduled rollup (a running rollup is interrupted)
+     *
+     * @since 1.0.0
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Roll up the closed data indexes of all the scopes.<br>
+     * The failure of a scope is logged and the next scopes are processed.
+     *
+     * @throws EsClientUnavailableException
+     *
+     * @since 1.0.0
+     */
+    public void run() throws EsClientUnavailableException {
+        Context runTime = metricRunTime.time();
+        try {
+            long now = KapuaDateUtils.getKapuaSysDate().toEpochMilli();
+
+            Map<KapuaId, List<String>> dataIndexes = DataRetentionManager.getDataIndexes();
+            logger.info("Rolling up the data of {} scopes", dataIndexes.size());
+            for (Map.Entry<KapuaId, List<String>> entry : dataIndexes.entrySet()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    logger.info("Data rollup interrupted");
+                    break;
+                }
+                try {
+                    rollup(entry.getKey(), entry.getValue(), now);
+                } catch (Exception e) {
+                    metricFailures.inc();
+                    logger.warn("Cannot roll up the data of the scope {}", entry.getKey(), e);
+                }
+            }
+        } finally {
+            metricRuns.inc();
+            runTime.stop();
+        }
+    }
+
+    /**
+     * Roll up the closed data indexes of a scope (from the oldest), skipping the data indexes already rolled up.<br>
+     * The rollup of the scope stops at the first failure.
+     *
+     * @param scopeId
+     * @param dataIndexes
+     *            the data indexes of the scope
+     * @param now
+     * @throws EsClientUnavailableException
+     * @throws EsQueryConversionException
+     * @throws EsDocumentBuilderException
+     *
+     * @since 1.0.0
+     */
+    void rollup(KapuaId scopeId, List<String> dataIndexes, long now)
+            throws EsClientUnavailableException, EsQueryConversionException, EsDocumentBuilderException {
+        Map<String, Long> rolledUpIndexes = EsRollupDAO.getInstance().getRolledUpIndexes(scopeId);
+
+        List<String> closedIndexes = new ArrayList<>();
+        for (String dataIndex : dataIndexes) {
+            if (EsUtils.getDataIndexEnd(dataIndex) <= now) {
+                closedIndexes.add(dataIndex);
+            }
+        }
+        closedIndexes.sort(Comparator.comparingLong(EsUtils::getDataIndexStart));
+
+        for (String dataIndex : closedIndexes) {
+            long receivedOn = getLastReceivedOn(dataIndex);
+            Long rolledUpReceivedOn = rolledUpIndexes.get(dataIndex);
+            if (rolledUpReceivedOn != null && receivedOn <= rolledUpReceivedOn) {
+                continue;
+            }
+            int rollups = rollup(scopeId, dataIndex, receivedOn);
+            logger.info("Rolled up the data index {} of the scope {} into {} rollups", dataIndex, scopeId, rollups);
+        }
+    }
+
+    /**
+     * Roll up a data index
+     *
+     * @param scopeId
+     * @param dataIndex
+     * @param receivedOn
+     *            the receive timestamp of the last message of the data index (read before the rollup, so the messages stored meanwhile are rolled up by the
+     *            next run)
+     * @return the number of stored rollups
+     * @throws EsClientUnavailableException
+     * @throws EsQueryConversionException
+     * @throws EsDocumentBuilderException
+     *
+     * @since 1.0.0
+     */
+    int rollup(KapuaId scopeId, String dataIndex, long receivedOn)
+            throws EsClientUnavailableException, EsQueryConversionException, EsDocumentBuilderException {
+        EsRollupDAO rollupDAO = EsRollupDAO.getInstance();
+        List<String> metricNames = getMetricNames(dataIndex);
+
+        int rollups = 0;
+        for (String clientId : getClientIds(scopeId, dataIndex)) {
+            for (RollupInterval rollupInterval : RollupInterval.values()) {
+                for (int i = 0; i < metricNames.size(); i += METRICS_PER_AGGREGATION) {
+                    MetricAggregationQueryImpl query = new MetricAggregationQueryImpl(scopeId);
+                    query.setPredicate(new TermPredicateImpl(MessageField.CLIENT_ID, clientId));
+                    query.setMetricNames(new ArrayList<>(metricNames.subList(i, Math.min(i + METRICS_PER_AGGREGATION, metricNames.size()))));
+                    query.setInterval(rollupInterval.getMillis());
+                    query.setGroupBy(MetricAggregationGroupBy.CHANNEL);
+                    query.setGroupLimit(groupLimit);
+
+                    MetricAggregationListResult result = EsMessageDAO.getInstance()
+                            .index(dataIndex)
+                            .aggregate(query);
+                    rollups += rollupDAO.store(scopeId, rollupInterval, clientId, result.getItems());
+                }
+            }
+        }
+
+        rollupDAO.putRolledUpIndex(scopeId, dataIndex, receivedOn);
+        metricIndexes.inc();
+        metricRollups.inc(rollups);
+        return rollups;
+    }
+
+    private static long getLastReceivedOn(String dataIndex) throws EsClientUnavailableException {
+        SearchResponse response = ElasticsearchClient.getInstance().prepareSearch(dataIndex)
+                .setTypes(EsSchema.MESSAGE_TYPE_NAME)
+                .setSize(0)
+                .addAggregation(AggregationBuilders.max(RECEIVED_ON_AGGREGATION).field(EsSchema.MESSAGE_RECEIVED_ON))
+                .get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
+
+        // no message left
+        double receivedOn = ((Max) response.getAggregations().get(RECEIVED_ON_AGGREGATION)).getValue();
+        return Double.isInfinite(receivedOn) ? Long.MIN_VALUE : (long) receivedOn;
+    }
+
+    private List<String> getClientIds(KapuaId scopeId, String dataIndex) throws EsClientUnavailableException {
+        SearchResponse response = ElasticsearchClient.getInstance().prepareSearch(dataIndex)
+                .setTypes(EsSchema.MESSAGE_TYPE_NAME)
+                .setSize(0)
+                .addAggregation(AggregationBuilders.terms(CLIENTS_AGGREGATION)
+                        .field(EsSchema.MESSAGE_CLIENT_ID)
+                        .size(groupLimit))
+                .get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
+
+        Terms clients = response.getAggregations().get(CLIENTS_AGGREGATION);
+        if (clients.getSumOfOtherDocCounts() > 0) {
+            logger.warn("The data index {} of the scope {} has more than {} clients, only the first ones are rolled up", dataIndex, scopeId, groupLimit);
+        }
+        List<String> clientIds = new ArrayList<>();
+        for (Terms.Bucket client : clients.getBuckets()) {
+            clientIds.add(client.getKeyAsString());
+        }
+        return clientIds;
+    }
+
+    /**
+     * Get the names of the numeric metrics mapped by the data index
+     */
+    @SuppressWarnings("unchecked")
+    private static List<String> getMetricNames(String dataIndex) throws EsClientUnavailableException {
+        MappingMetaData mapping = ElasticsearchClient.getInstance().admin().indices()
+                .prepareGetMappings(dataIndex)
+                .setTypes(EsSchema.MESSAGE_TYPE_NAME)
+                .get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()))
+                .getMappings()
+                .get(dataIndex)
+                .get(EsSchema.MESSAGE_TYPE_NAME);
+
+        List<String> metricNames = new ArrayList<>();
+        if (mapping == null) {
+            return metricNames;
+        }
+        Map<String, Object> metrics;
+        try {
+            Map<String, Object> properties = (Map<String, Object>) mapping.sourceAsMap().get("properties");
+            metrics = properties != null ? (Map<String, Object>) properties.get(EsSchema.MESSAGE_METRICS) : null;
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Cannot read the mapping of the data index %s", dataIndex), e);
+        }
+        if (metrics == null || !(metrics.get("properties") instanceof Map)) {
+            return metricNames;
+        }
+        for (Map.Entry<String, Object> metric : ((Map<String, Object>) metrics.get("properties")).entrySet()) {
+            Object typedFields = ((Map<String, Object>) metric.getValue()).get("properties");
+            if (typedFields instanceof Map) {
+                for (String typeAcronym : MetricAggregationQueryConverter.NUMERIC_TYPE_ACRONYMS) {
+                    if (((Map<String, Object>) typedFields).containsKey(typeAcronym)) {
+                        metricNames.add(EsUtils.restoreMetricName(metric.getKey()));
+                        break;
+                    }
+                }
+            }
+        }
+        return metricNames;
+    }
+
+    /**
+     * Roll up the data once, as a standalone process
+     *
+     * @param args
+     * @throws Exception
+     *
+     * @since 1.0.0
+     */
+    public static void main(String[] args) throws Exception {
+        getInstance().run();
+        // the Elasticsearch client threads are not daemon threads
+        System.exit(0);
+    }
+}
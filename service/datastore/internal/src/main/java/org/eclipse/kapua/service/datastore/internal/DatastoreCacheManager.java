@@ -11,35 +11,89 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal;
 
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaRuntimeException;
 import org.eclipse.kapua.commons.cache.LocalCache;
+import org.eclipse.kapua.commons.configuration.ServiceConfigCache;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.MessageStoreService;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.ElasticsearchClient;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageInfo;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageStoreConfiguration;
 import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
 import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.metric.MetricsService;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Datastore cache manager.<br>
- * It keeps informations about channels, metrics and clients to speed up the store operation and avoid time consuming unnecessary operations.
+ * It keeps informations about channels, metrics and clients to speed up the store operation and avoid time consuming unnecessary operations.<br>
+ * The caches are sized by the configured memory budget (shared between channels, metrics and clients) and their hits, misses and evictions are exposed through the
+ * {@link MetricsService} (if available).<br>
+ * If the warm up is enabled, the ids of the registry entries recently updated are preloaded from the Kapua indexes (.{scope}) when the cache manager is created.<br>
+ * The message store configuration and the account informations are also cached per scope, so the store operation doesn't query the database for each message.
  * 
  * @since 1.0.0
  */
 public class DatastoreCacheManager {
 
+    private static final Logger logger = LoggerFactory.getLogger(DatastoreCacheManager.class);
+
+    private static final String METRIC_MODULE = "datastore";
+    private static final String METRIC_COMPONENT = "cache";
+
+    // memory budget share (percentage) of each registry cache
+    private static final int CHANNELS_BUDGET_SHARE = 30;
+    private static final int METRICS_BUDGET_SHARE = 60;
+    private static final int CLIENTS_BUDGET_SHARE = 10;
+
     private static final DatastoreCacheManager instance = new DatastoreCacheManager();
 
-    private final LocalCache<String, Boolean> channelsCache;
-    private final LocalCache<String, Boolean> metricsCache;
-    private final LocalCache<String, Boolean> clientsCache;
+    private final RegistryCache channelsCache;
+    private final RegistryCache metricsCache;
+    private final RegistryCache clientsCache;
+
+    private final LocalCache<KapuaId, MessageStoreConfiguration> configurationsCache;
+    private final LocalCache<KapuaId, MessageInfo> messageInfosCache;
 
     private DatastoreCacheManager() {
         DatastoreSettings config = DatastoreSettings.getInstance();
         int expireAfter = config.getInt(DatastoreSettingKey.CONFIG_CACHE_LOCAL_EXPIRE_AFTER);
         int sizeMax = config.getInt(DatastoreSettingKey.CONFIG_CACHE_LOCAL_SIZE_MAXIMUM);
+        long memoryBudget = config.getLong(DatastoreSettingKey.CONFIG_CACHE_LOCAL_MEMORY_BUDGET, 0L);
+        int concurrencyLevel = config.getInt(DatastoreSettingKey.CONFIG_CACHE_LOCAL_CONCURRENCY_LEVEL, 16);
+
+        channelsCache = new RegistryCache("channels", getSizeMax(memoryBudget, CHANNELS_BUDGET_SHARE, sizeMax), expireAfter, concurrencyLevel);
+        metricsCache = new RegistryCache("metrics", getSizeMax(memoryBudget, METRICS_BUDGET_SHARE, sizeMax), expireAfter, concurrencyLevel);
+        clientsCache = new RegistryCache("clients", getSizeMax(memoryBudget, CLIENTS_BUDGET_SHARE, sizeMax), expireAfter, concurrencyLevel);
+
+        int configurationExpireAfter = config.getInt(DatastoreSettingKey.CONFIG_CACHE_CONFIGURATION_EXPIRE_AFTER, 60);
+        int configurationSizeMax = config.getInt(DatastoreSettingKey.CONFIG_CACHE_CONFIGURATION_SIZE_MAXIMUM, 1000);
+        configurationsCache = new LocalCache<>(configurationSizeMax, configurationExpireAfter, null);
+        messageInfosCache = new LocalCache<>(configurationSizeMax, configurationExpireAfter, null);
+        registerConfigurationListener();
 
-        // TODO set expiration to happen frequently because the reset cache method will not get
-        // called from service clients any more
-        // TODO wrap the caches into a Statically accessible method
-        channelsCache = new LocalCache<>(sizeMax, expireAfter, false);
-        metricsCache = new LocalCache<>(sizeMax, expireAfter, false);
-        clientsCache = new LocalCache<>(sizeMax, expireAfter, false);
+        registerMetrics();
+
+        if (config.getBoolean(DatastoreSettingKey.CONFIG_CACHE_WARMUP_ENABLED, false)) {
+            int warmUpSize = config.getInt(DatastoreSettingKey.CONFIG_CACHE_WARMUP_SIZE, 10000);
+            long warmUpPeriod = config.getLong(DatastoreSettingKey.CONFIG_CACHE_WARMUP_PERIOD, 24L);
+
+            // don't delay the startup, the store operations fall back to the datastore until the caches are loaded
+            Thread warmUpThread = new Thread(() -> warmUp(warmUpSize, warmUpPeriod), "kapua-datastore-cache-warmup");
+            warmUpThread.setDaemon(true);
+            warmUpThread.start();
+        }
     }
 
     /**
@@ -60,7 +114,7 @@ public class DatastoreCacheManager {
      * 
      * @since 1.0.0
      */
-    public LocalCache<String, Boolean> getChannelsCache() {
+    public RegistryCache getChannelsCache() {
         return channelsCache;
     }
 
@@ -71,7 +125,7 @@ public class DatastoreCacheManager {
      * 
      * @since 1.0.0
      */
-    public LocalCache<String, Boolean> getMetricsCache() {
+    public RegistryCache getMetricsCache() {
         return metricsCache;
     }
 
@@ -82,7 +136,121 @@ public class DatastoreCacheManager {
      * 
      * @since 1.0.0
      */
-    public LocalCache<String, Boolean> getClientsCache() {
+    public RegistryCache getClientsCache() {
         return clientsCache;
     }
+
+    /**
+     * Get the message store configurations cache
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    public LocalCache<KapuaId, MessageStoreConfiguration> getConfigurationsCache() {
+        return configurationsCache;
+    }
+
+    /**
+     * Get the account informations cache
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    public LocalCache<KapuaId, MessageInfo> getMessageInfosCache() {
+        return messageInfosCache;
+    }
+
+    /**
+     * Remove the message store configuration and the account informations of the scope from the cache
+     * 
+     * @param scopeId
+     * 
+     * @since 1.0.0
+     */
+    public void invalidateConfiguration(KapuaId scopeId) {
+        configurationsCache.remove(scopeId);
+        messageInfosCache.remove(scopeId);
+    }
+
+    private static long getSizeMax(long memoryBudget, int budgetShare, int defaultSizeMax) {
+        if (memoryBudget <= 0) {
+            return defaultSizeMax;
+        }
+        return Math.max(1, memoryBudget * budgetShare / 100 / RegistryCache.ENTRY_SIZE_ESTIMATE);
+    }
+
+    private void registerConfigurationListener() {
+        String messageStorePid = MessageStoreService.class.getName();
+        try {
+            // the store operations must use the changed configuration (on any node)
+            ServiceConfigCache.getInstance().addInvalidationListener((pid, scopeId) -> {
+                if (messageStorePid.equals(pid)) {
+                    invalidateConfiguration(scopeId);
+                }
+            });
+        } catch (KapuaException e) {
+            logger.warn("Cannot listen to the configuration changes, the cached configurations are refreshed when they expire", e);
+        }
+    }
+
+    private void registerMetrics() {
+        MetricsService metricsService;
+        try {
+            metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
+        } catch (KapuaRuntimeException e) {
+            metricsService = null;
+        }
+        if (metricsService == null) {
+            logger.info("Metrics service not available, the datastore cache metrics are not exposed");
+            return;
+        }
+
+        for (RegistryCache cache : new RegistryCache[] { channelsCache, metricsCache, clientsCache }) {
+            try {
+                cache.registerMetrics(metricsService, METRIC_MODULE, METRIC_COMPONENT);
+            } catch (KapuaException e) {
+                logger.warn("Cannot register the metrics of the {} cache", cache.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Preload the ids of the registry entries updated in the last period
+     * 
+     * @param size
+     *            the maximum number of entries loaded into each cache
+     * @param period
+     *            the period in hours
+     */
+    private void warmUp(int size, long period) {
+        long fromTimestamp = System.currentTimeMillis() - period * 3600000L;
+        warmUp(channelsCache, EsSchema.CHANNEL_TYPE_NAME, EsSchema.CHANNEL_TIMESTAMP, fromTimestamp, size);
+        warmUp(metricsCache, EsSchema.METRIC_TYPE_NAME, EsSchema.METRIC_MTR_TIMESTAMP_FULL, fromTimestamp, size);
+        warmUp(clientsCache, EsSchema.CLIENT_TYPE_NAME, EsSchema.CLIENT_TIMESTAMP, fromTimestamp, size);
+    }
+
+    private static void warmUp(RegistryCache cache, String type, String timestampField, long fromTimestamp, int size) {
+        try {
+            TimeValue queryTimeout = TimeValue.timeValueMillis(EsUtils.getQueryTimeout());
+
+            // the Kapua indexes (one per scope) are the only indexes with a leading dot containing the registry types
+            SearchResponse response = ElasticsearchClient.getInstance().prepareSearch(".*")
+                    .setIndicesOptions(IndicesOptions.lenientExpandOpen())
+                    .setTypes(type)
+                    .setFetchSource(false)
+                    .setQuery(QueryBuilders.rangeQuery(timestampField).gte(fromTimestamp))
+                    .addSort(timestampField, SortOrder.DESC)
+                    .setSize(size)
+                    .get(queryTimeout);
+
+            for (SearchHit hit : response.getHits().getHits()) {
+                cache.put(hit.getId());
+            }
+            logger.info("Loaded {} entries into the {} cache", response.getHits().getHits().length, cache.getName());
+        } catch (Exception e) {
+            logger.warn("Cannot warm up the {} cache", cache.getName(), e);
+        }
+    }
 }
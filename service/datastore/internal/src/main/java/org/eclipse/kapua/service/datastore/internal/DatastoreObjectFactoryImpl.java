@@ -26,21 +26,25 @@ import org.eclipse.kapua.service.datastore.internal.model.FloatMetric;
 import org.eclipse.kapua.service.datastore.internal.model.IntMetric;
 import org.eclipse.kapua.service.datastore.internal.model.LongMetric;
 import org.eclipse.kapua.service.datastore.internal.model.MessageListResultImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricAggregationListResultImpl;
 import org.eclipse.kapua.service.datastore.internal.model.MetricInfoListResultImpl;
 import org.eclipse.kapua.service.datastore.internal.model.StringMetric;
 import org.eclipse.kapua.service.datastore.internal.model.query.ChannelInfoQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ClientInfoQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.MessageQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.MetricAggregationQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.MetricInfoQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.TermPredicateImpl;
 import org.eclipse.kapua.service.datastore.model.ChannelInfoListResult;
 import org.eclipse.kapua.service.datastore.model.ClientInfoListResult;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
 import org.eclipse.kapua.service.datastore.model.Metric;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationListResult;
 import org.eclipse.kapua.service.datastore.model.MetricInfoListResult;
 import org.eclipse.kapua.service.datastore.model.query.ChannelInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.ClientInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
 import org.eclipse.kapua.service.datastore.model.query.MetricInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.StorableField;
 import org.eclipse.kapua.service.datastore.model.query.TermPredicate;
@@ -83,6 +87,16 @@ public class DatastoreObjectFactoryImpl implements DatastoreObjectFactory {
         return new MessageListResultImpl();
     }
 
+    @Override
+    public MetricAggregationQuery newMetricAggregationQuery(KapuaId scopeId) {
+        return new MetricAggregationQueryImpl(scopeId);
+    }
+
+    @Override
+    public MetricAggregationListResult newMetricAggregationListResult() {
+        return new MetricAggregationListResultImpl();
+    }
+
     @Override
     public MetricInfoQuery newMetricInfoQuery(KapuaId scopeId) {
         return new MetricInfoQueryImpl(scopeId);
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.service.datastore.MessageStoreService;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageRecord;
+import org.eclipse.kapua.service.datastore.model.StorableId;
+
+/**
+ * Internal store of the message records, filled by a device protocol reader straight from the raw message (without building a Kapua message).<br>
+ * It is implemented by the {@link MessageStoreService} implementations supporting the data fast path.
+ * 
+ * @since 1.0
+ *
+ */
+public interface MessageRecordStore
+{
+
+    /**
+     * Store a message record
+     * 
+     * @param record
+     * @return
+     * @throws KapuaException
+     */
+    public StorableId store(MessageRecord record)
+        throws KapuaException;
+
+    /**
+     * Store a message record without waiting for the message to be indexed (if the bulk indexing is enabled).<br>
+     * The checks on the caller (permission, data storage enabled) are done before returning.
+     * 
+     * @param record
+     * @return the future completed with the message id once the message is stored, or completed exceptionally if the message cannot be stored
+     * @throws KapuaException
+     */
+    public CompletableFuture<StorableId> storeAsync(MessageRecord record)
+        throws KapuaException;
+}
@@ -11,47 +11,74 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.kapua.KapuaIllegalArgumentException;
-import org.eclipse.kapua.commons.cache.LocalCache;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.commons.util.KapuaDateUtils;
 import org.eclipse.kapua.message.KapuaMessage;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.DatastoreChannel;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsBulkIndexer;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsClientUnavailableException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsConfigurationException;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsDatastoreException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsDocumentBuilderException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsMetric;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsObjectBuilderException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsQueryConversionException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageField;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageInfo;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageRecord;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageStoreConfiguration;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageStoreMediator;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageXContentBuilder;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.RollupQueryConverter;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsChannelInfoDAO;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsClientInfoDAO;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsMessageDAO;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsMetricInfoDAO;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsRollupDAO;
 import org.eclipse.kapua.service.datastore.internal.model.DataIndexBy;
 import org.eclipse.kapua.service.datastore.internal.model.MessageListResultImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricAggregationImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricAggregationListResultImpl;
+import org.eclipse.kapua.service.datastore.internal.model.RollupInterval;
+import org.eclipse.kapua.service.datastore.internal.model.query.AndPredicateImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ChannelInfoQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ChannelMatchPredicateImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ClientInfoQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.IdsPredicateImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.MessageQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.MetricAggregationQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.MetricInfoQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.RangePredicateImpl;
 import org.eclipse.kapua.service.datastore.model.ChannelInfoListResult;
 import org.eclipse.kapua.service.datastore.model.ClientInfoListResult;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricAggregation;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationListResult;
 import org.eclipse.kapua.service.datastore.model.MetricInfoListResult;
 import org.eclipse.kapua.service.datastore.model.StorableId;
+import org.eclipse.kapua.service.datastore.model.query.AndPredicate;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
+import org.eclipse.kapua.service.datastore.model.query.RangePredicate;
 import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
+import org.eclipse.kapua.service.datastore.model.query.StorablePredicate;
+import org.elasticsearch.action.index.IndexRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -90,6 +117,7 @@ public final class MessageStoreFacade {
      * @throws EsConfigurationException
      * @throws EsClientUnavailableException
      * @throws EsDocumentBuilderException
+     * @throws EsDatastoreException
      * 
      * @since 1.0.0
      */
@@ -97,16 +125,73 @@ public final class MessageStoreFacade {
             throws KapuaIllegalArgumentException,
             EsConfigurationException,
             EsClientUnavailableException,
-            EsDocumentBuilderException {
+            EsDocumentBuilderException,
+            EsDatastoreException {
         //
         // Argument Validation
         ArgumentValidator.notNull(message, "message");
-        ArgumentValidator.notNull(message.getScopeId(), "scopeId");
-        ArgumentValidator.notNull(message.getReceivedOn(), "receivedOn");
+
+        return store(new MessageRecord(message));
+    }
+
+    /**
+     * Store a message record
+     * 
+     * @param record
+     * @return
+     * @throws KapuaIllegalArgumentException
+     * @throws EsConfigurationException
+     * @throws EsClientUnavailableException
+     * @throws EsDocumentBuilderException
+     * @throws EsDatastoreException
+     * 
+     * @since 1.0.0
+     */
+    public StorableId store(MessageRecord record)
+            throws KapuaIllegalArgumentException,
+            EsConfigurationException,
+            EsClientUnavailableException,
+            EsDocumentBuilderException,
+            EsDatastoreException {
+        CompletableFuture<StorableId> messageStored = storeAsync(record);
+        if (!EsBulkIndexer.isEnabled()) {
+            // already stored
+            return messageStored.join();
+        }
+        // Wait for the outcome so a failed message is still reported to the caller
+        return EsBulkIndexer.getInstance().await(messageStored);
+    }
+
+    /**
+     * Store a message record without waiting for the message to be indexed.<br>
+     * If the bulk indexing is enabled the message is grouped with the concurrently stored ones into a bulk request and the returned future is completed
+     * once the bulk request is executed, otherwise the message is stored before returning.
+     * 
+     * @param record
+     * @return the future completed with the message id once the message is stored, or completed exceptionally if the message cannot be stored
+     * @throws KapuaIllegalArgumentException
+     * @throws EsConfigurationException
+     * @throws EsClientUnavailableException
+     * @throws EsDocumentBuilderException
+     * @throws EsDatastoreException
+     * 
+     * @since 1.0.0
+     */
+    public CompletableFuture<StorableId> storeAsync(MessageRecord record)
+            throws KapuaIllegalArgumentException,
+            EsConfigurationException,
+            EsClientUnavailableException,
+            EsDocumentBuilderException,
+            EsDatastoreException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(record, "record");
+        ArgumentValidator.notNull(record.getScopeId(), "scopeId");
+        ArgumentValidator.notNull(record.getReceivedOn(), "receivedOn");
 
         // Collect context data
-        MessageStoreConfiguration accountServicePlan = this.configProvider.getConfiguration(message.getScopeId());
-        MessageInfo accountInfo = this.configProvider.getInfo(message.getScopeId());
+        MessageStoreConfiguration accountServicePlan = this.configProvider.getConfiguration(record.getScopeId());
+        MessageInfo accountInfo = this.configProvider.getInfo(record.getScopeId());
 
         // Define data TTL
         long ttlSecs = accountServicePlan.getDataTimeToLiveMilliseconds();
@@ -116,7 +201,7 @@ public final class MessageStoreFacade {
             throw new EsConfigurationException(msg);
         }
 
-        Date capturedOn = message.getCapturedOn();
+        Date capturedOn = record.getCapturedOn();
         long currentDate = KapuaDateUtils.getKapuaSysDate().toEpochMilli();
 
         // Overwrite timestamp if necessary
@@ -132,30 +217,43 @@ public final class MessageStoreFacade {
         }
 
         // Extract schema metadata
-        EsSchema.Metadata schemaMetadata = mediator.getMetadata(message.getScopeId(), indexedOn);
+        EsSchema.Metadata schemaMetadata = mediator.getMetadata(record.getScopeId(), indexedOn);
 
         Date indexedOnDt = new Date(indexedOn);
 
         // Parse document
-        MessageInfo messageInfo = configProvider.getInfo(message.getScopeId());
         MessageXContentBuilder docBuilder = new MessageXContentBuilder();
-        docBuilder.build(messageInfo.getAccount().getId(), message, indexedOnDt, message.getReceivedOn());
+        docBuilder.build(accountInfo.getAccount().getId(), record, indexedOnDt, record.getReceivedOn());
 
         // Possibly update the schema with new metric mappings
         Map<String, EsMetric> esMetrics = docBuilder.getMetricMappings();
-        mediator.onUpdatedMappings(message.getScopeId(), indexedOn, esMetrics);
+        mediator.onUpdatedMappings(record.getScopeId(), indexedOn, esMetrics);
 
         String indexName = schemaMetadata.getDataIndexName();
 
         // Save message (the big one)
-        // TODO check response
-        EsMessageDAO.getInstance()
-                .index(indexName)
-                .upsert(docBuilder.getMessageId().toString(), docBuilder.getBuilder());
+        StorableId messageId = docBuilder.getMessageId();
+        if (EsBulkIndexer.isEnabled()) {
+            // The message is grouped with the concurrently stored ones into a bulk request,
+            // together with the registry upserts produced by the message.
+            IndexRequest indexRequest = EsMessageDAO.getInstance()
+                    .index(indexName)
+                    .getIndexRequest(messageId.toString(), docBuilder.getBuilder());
+            CompletableFuture<String> messageIndexed = EsBulkIndexer.getInstance().indexAsync(indexRequest);
+
+            mediator.onAfterMessageStore(docBuilder, record);
+
+            return messageIndexed.thenApply(id -> messageId);
+        } else {
+            // TODO check response
+            EsMessageDAO.getInstance()
+                    .index(indexName)
+                    .upsert(messageId.toString(), docBuilder.getBuilder());
 
-        mediator.onAfterMessageStore(docBuilder, message);
+            mediator.onAfterMessageStore(docBuilder, record);
 
-        return docBuilder.getMessageId();
+            return CompletableFuture.completedFuture(messageId);
+        }
     }
 
     /**
@@ -268,7 +366,7 @@ public final class MessageStoreFacade {
             return new MessageListResultImpl();
         }
 
-        String dataIndexName = EsSchema.getDataIndexName(query.getScopeId());
+        String dataIndexName = getDataIndexName(query.getScopeId(), query.getPredicate());
         return EsMessageDAO.getInstance()
                 .index(dataIndexName)
                 .query(query);
@@ -307,7 +405,7 @@ public final class MessageStoreFacade {
             return 0;
         }
 
-        String dataIndexName = EsSchema.getDataIndexName(query.getScopeId());
+        String dataIndexName = getDataIndexName(query.getScopeId(), query.getPredicate());
         return EsMessageDAO.getInstance()
                 .index(dataIndexName)
                 .count(query);
@@ -345,12 +443,243 @@ public final class MessageStoreFacade {
             return;
         }
 
-        String dataIndexName = EsSchema.getDataIndexName(query.getScopeId());
+        String dataIndexName = getDataIndexName(query.getScopeId(), query.getPredicate());
         EsMessageDAO.getInstance()
                 .index(dataIndexName)
                 .deleteByQuery(query);
     }
 
+    /**
+     * Get the statistics of the metrics, for every time interval, of the messages matching the given query
+     * 
+     * @param query
+     * @return
+     * @throws KapuaIllegalArgumentException
+     * @throws EsConfigurationException
+     * @throws EsQueryConversionException
+     * @throws EsClientUnavailableException
+     * 
+     * @since 1.0.0
+     */
+    public MetricAggregationListResult aggregate(MetricAggregationQuery query)
+            throws KapuaIllegalArgumentException,
+            EsConfigurationException,
+            EsQueryConversionException,
+            EsClientUnavailableException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(query, "query");
+        ArgumentValidator.notNull(query.getScopeId(), "query.scopeId");
+
+        //
+        // Do the aggregation
+        MessageStoreConfiguration accountServicePlan = this.configProvider.getConfiguration(query.getScopeId());
+        long ttl = accountServicePlan.getDataTimeToLiveMilliseconds();
+
+        if (!accountServicePlan.getDataStorageEnabled() || ttl == MessageStoreConfiguration.DISABLED) {
+            logger.debug("Storage not enabled for account {}, returning empty result", query.getScopeId());
+            return new MetricAggregationListResultImpl();
+        }
+
+        // the periods of the rolled up data indexes are read from the rollups (if the query can be answered by them), the other periods from the data
+        // indexes: the rolled up periods may have holes (e.g. the data index of the first week of the year is closed only at the end of the year)
+        RollupInterval rollupInterval = RollupInterval.forInterval(query.getInterval());
+        if (rollupInterval != null && RollupQueryConverter.isRollupPredicate(query.getPredicate())) {
+            long[] range = getTimestampRange(query.getPredicate());
+            List<long[]> rolledUpPeriods = getRolledUpPeriods(EsRollupDAO.getInstance().getRolledUpIndexes(query.getScopeId()).keySet(), range[0], range[1]);
+            if (range[0] <= range[1] && !rolledUpPeriods.isEmpty()) {
+                MetricAggregationListResult result = new MetricAggregationListResultImpl();
+                long from = range[0];
+                for (long[] rolledUpPeriod : rolledUpPeriods) {
+                    if (from < rolledUpPeriod[0]) {
+                        result = mergeMetricAggregations(query.getMetricNames(), result, aggregateDataIndexes(query, from, rolledUpPeriod[0] - 1));
+                    }
+                    MetricAggregationQuery rolledUpQuery = newMetricAggregationQuery(query, toDate(rolledUpPeriod[0]), toDate(rolledUpPeriod[1] - 1));
+                    result = mergeMetricAggregations(query.getMetricNames(), result, EsRollupDAO.getInstance().aggregate(rolledUpQuery, rollupInterval));
+                    from = rolledUpPeriod[1];
+                }
+                if (from <= range[1]) {
+                    result = mergeMetricAggregations(query.getMetricNames(), result, aggregateDataIndexes(query, from, range[1]));
+                }
+                return result;
+            }
+        }
+
+        String dataIndexName = getDataIndexName(query.getScopeId(), query.getPredicate());
+        return EsMessageDAO.getInstance()
+                .index(dataIndexName)
+                .aggregate(query);
+    }
+
+    /**
+     * Aggregate the messages of the data indexes in the timestamp range (bounds included)
+     */
+    private static MetricAggregationListResult aggregateDataIndexes(MetricAggregationQuery query, long start, long end)
+            throws EsClientUnavailableException,
+            EsQueryConversionException {
+        MetricAggregationQuery dataQuery = newMetricAggregationQuery(query, toDate(start), toDate(end));
+        return EsMessageDAO.getInstance()
+                .index(getDataIndexName(dataQuery.getScopeId(), dataQuery.getPredicate()))
+                .aggregate(dataQuery);
+    }
+
+    /**
+     * Get the periods of the rolled up data indexes intersecting the timestamp range (bounds included), as [start, end) pairs sorted by start.<br>
+     * The adjacent periods are merged, so the periods are separated by the periods not rolled up yet.
+     *
+     * @param rolledUpIndexes
+     * @param start
+     * @param end
+     * @return
+     */
+    static List<long[]> getRolledUpPeriods(Collection<String> rolledUpIndexes, long start, long end) {
+        List<long[]> periods = new ArrayList<>();
+        for (String rolledUpIndex : rolledUpIndexes) {
+            for (long[] period : EsUtils.getDataIndexPeriods(rolledUpIndex)) {
+                if (period[0] <= end && period[1] > start) {
+                    periods.add(period);
+                }
+            }
+        }
+        periods.sort(Comparator.comparingLong(period -> period[0]));
+
+        List<long[]> mergedPeriods = new ArrayList<>();
+        for (long[] period : periods) {
+            long[] last = mergedPeriods.isEmpty() ? null : mergedPeriods.get(mergedPeriods.size() - 1);
+            if (last != null && period[0] <= last[1]) {
+                last[1] = Math.max(last[1], period[1]);
+            } else {
+                mergedPeriods.add(new long[] { period[0], period[1] });
+            }
+        }
+        return mergedPeriods;
+    }
+
+    private static Date toDate(long timestamp) {
+        // the missing bounds are not added to the query
+        return timestamp == Long.MIN_VALUE || timestamp == Long.MAX_VALUE ? null : new Date(timestamp);
+    }
+
+    /**
+     * Copy the metric aggregation query restricting its timestamp range
+     */
+    private static MetricAggregationQuery newMetricAggregationQuery(MetricAggregationQuery query, Date start, Date end) {
+        AndPredicate predicate = new AndPredicateImpl();
+        if (query.getPredicate() != null) {
+            predicate.getPredicates().add(query.getPredicate());
+        }
+        predicate.getPredicates().add(new RangePredicateImpl(MessageField.TIMESTAMP, start, end));
+
+        MetricAggregationQuery newQuery = new MetricAggregationQueryImpl(query.getScopeId());
+        newQuery.setPredicate(predicate);
+        newQuery.setMetricNames(query.getMetricNames());
+        newQuery.setInterval(query.getInterval());
+        newQuery.setGroupBy(query.getGroupBy());
+        newQuery.setGroupLimit(query.getGroupLimit());
+        return newQuery;
+    }
+
+    /**
+     * Merge the metric aggregations of a period with the ones of the following period (the interval including the end of the first period may have
+     * both).<br>
+     * The merged aggregations are sorted by group (in order of appearance), metric (in query order) and timestamp.
+     */
+    private static MetricAggregationListResult mergeMetricAggregations(List<String> metricNames, MetricAggregationListResult previousResult,
+            MetricAggregationListResult recentResult) {
+        Map<List<Object>, MetricAggregation> merged = new LinkedHashMap<>();
+        for (MetricAggregation metricAggregation : previousResult.getItems()) {
+            merged.put(Arrays.asList(metricAggregation.getGroup(), metricAggregation.getName(), metricAggregation.getTimestamp()), metricAggregation);
+        }
+        for (MetricAggregation recent : recentResult.getItems()) {
+            List<Object> key = Arrays.asList(recent.getGroup(), recent.getName(), recent.getTimestamp());
+            MetricAggregation previous = merged.get(key);
+            if (previous == null) {
+                merged.put(key, recent);
+            } else {
+                merged.put(key, new MetricAggregationImpl(recent.getGroup(), recent.getName(), recent.getTimestamp(),
+                        previous.getCount() + recent.getCount(),
+                        Math.min(previous.getMin(), recent.getMin()),
+                        Math.max(previous.getMax(), recent.getMax()),
+                        previous.getSum() + recent.getSum(),
+                        recent.getLast() != null ? recent.getLast() : previous.getLast()));
+            }
+        }
+
+        Map<String, Integer> groupOrder = new HashMap<>();
+        for (MetricAggregation metricAggregation : merged.values()) {
+            groupOrder.putIfAbsent(metricAggregation.getGroup(), groupOrder.size());
+        }
+        List<MetricAggregation> metricAggregations = new ArrayList<>(merged.values());
+        metricAggregations.sort(Comparator.<MetricAggregation> comparingInt(metricAggregation -> groupOrder.get(metricAggregation.getGroup()))
+                .thenComparingInt(metricAggregation -> metricNames.indexOf(metricAggregation.getName()))
+                .thenComparing(MetricAggregation::getTimestamp));
+
+        MetricAggregationListResult result = new MetricAggregationListResultImpl();
+        result.addItems(metricAggregations);
+        return result;
+    }
+
+    /**
+     * Get the data indexes to be searched by the query.<br>
+     * The messages are stored in weekly indexes by their timestamp, so if the query predicate bounds the timestamp only the indexes covering the range are
+     * searched, otherwise all the data indexes of the scope are searched.
+     *
+     * @param scopeId
+     * @param predicate
+     * @return
+     */
+    private static String getDataIndexName(KapuaId scopeId, StorablePredicate predicate) {
+        long[] range = getTimestampRange(predicate);
+        if (range[0] == Long.MIN_VALUE || range[1] == Long.MAX_VALUE) {
+            return EsSchema.getDataIndexName(scopeId);
+        }
+        if (range[0] > range[1]) {
+            // no message can match, but the query is still run against an index so the result is well formed
+            range[1] = range[0];
+        }
+        return EsUtils.getDataIndexName(scopeId, range[0], range[1]);
+    }
+
+    /**
+     * Get the timestamp range (bounds included) matched by the predicate, {@link Long#MIN_VALUE} and {@link Long#MAX_VALUE} stand for the missing bounds
+     *
+     * @param predicate
+     * @return
+     */
+    static long[] getTimestampRange(StorablePredicate predicate) {
+        long[] range = new long[] { Long.MIN_VALUE, Long.MAX_VALUE };
+        if (predicate instanceof RangePredicate) {
+            RangePredicate rangePredicate = (RangePredicate) predicate;
+            if (rangePredicate.getField() != null && EsSchema.MESSAGE_TIMESTAMP.equals(rangePredicate.getField().field())) {
+                Long min = toEpochMillis(rangePredicate.getMinValue());
+                Long max = toEpochMillis(rangePredicate.getMaxValue());
+                if (min != null) {
+                    range[0] = min;
+                }
+                if (max != null) {
+                    range[1] = max;
+                }
+            }
+        } else if (predicate instanceof AndPredicate) {
+            // all the predicates must match, so the range is the intersection of the ranges
+            for (StorablePredicate andPredicate : ((AndPredicate) predicate).getPredicates()) {
+                long[] andRange = getTimestampRange(andPredicate);
+                range[0] = Math.max(range[0], andRange[0]);
+                range[1] = Math.min(range[1], andRange[1]);
+            }
+        }
+        return range;
+    }
+
+    private static Long toEpochMillis(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        } else if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return null;
+    }
+
     // TODO cache will not be reset from the client code it should be automatically reset
     // after some time.
     @SuppressWarnings("unused")
@@ -394,13 +723,12 @@ public final class MessageStoreFacade {
                     .index(dataIndexName).query(metricQuery);
 
             totalHits = metrics.getSize();
-            LocalCache<String, Boolean> metricsCache = DatastoreCacheManager.getInstance().getMetricsCache();
+            RegistryCache metricsCache = DatastoreCacheManager.getInstance().getMetricsCache();
             long toBeProcessed = totalHits > pageSize ? pageSize : totalHits;
 
             for (int i = 0; i < toBeProcessed; i++) {
                 String id = metrics.getItem(i).getId().toString();
-                if (metricsCache.get(id))
-                    metricsCache.remove(id);
+                metricsCache.remove(id);
             }
 
             if (totalHits > pageSize)
@@ -431,13 +759,12 @@ public final class MessageStoreFacade {
                     .index(dataIndexName).query(channelQuery);
 
             totalHits = channels.getSize();
-            LocalCache<String, Boolean> channelsCache = DatastoreCacheManager.getInstance().getChannelsCache();
+            RegistryCache channelsCache = DatastoreCacheManager.getInstance().getChannelsCache();
             long toBeProcessed = totalHits > pageSize ? pageSize : totalHits;
 
             for (int i = 0; i < toBeProcessed; i++) {
-                String id = channels.getItem(0).getId().toString();
-                if (channelsCache.get(id))
-                    channelsCache.remove(id);
+                String id = channels.getItem(i).getId().toString();
+                channelsCache.remove(id);
             }
             if (totalHits > pageSize)
                 offset += (pageSize + 1);
@@ -470,13 +797,12 @@ public final class MessageStoreFacade {
                         .query(clientInfoQuery);
 
                 totalHits = clients.getSize();
-                LocalCache<String, Boolean> clientsCache = DatastoreCacheManager.getInstance().getClientsCache();
+                RegistryCache clientsCache = DatastoreCacheManager.getInstance().getClientsCache();
                 long toBeProcessed = totalHits > pageSize ? pageSize : totalHits;
 
                 for (int i = 0; i < toBeProcessed; i++) {
                     String id = clients.getItem(i).getId().toString();
-                    if (clientsCache.get(id))
-                        clientsCache.remove(id);
+                    clientsCache.remove(id);
                 }
                 if (totalHits > pageSize)
                     offset += (pageSize + 1);
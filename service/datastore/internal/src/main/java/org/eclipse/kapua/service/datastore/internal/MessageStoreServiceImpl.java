@@ -11,7 +11,10 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.configuration.AbstractKapuaConfigurableService;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.locator.KapuaLocator;
@@ -27,10 +30,16 @@ import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.datastore.DatastoreDomain;
 import org.eclipse.kapua.service.datastore.MessageStoreService;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.DatastoreMediator;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageRecord;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationListResult;
 import org.eclipse.kapua.service.datastore.model.StorableId;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationGroupBy;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
 import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,7 +50,7 @@ import org.slf4j.LoggerFactory;
  * @since 1.0.0
  */
 @KapuaProvider
-public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService implements MessageStoreService {
+public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService implements MessageStoreService, MessageRecordStore {
 
     private static final Domain datastoreDomain = new DatastoreDomain();
 
@@ -56,6 +65,9 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
 
     private final MessageStoreFacade esMessageStoreFacade;
 
+    private final long aggregationMaxBuckets;
+    private final long aggregationUnboundedMinInterval;
+
     /**
      * Default constructor
      * 
@@ -67,6 +79,10 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
         ConfigurationProviderImpl configurationProvider = new ConfigurationProviderImpl(this, accountService);
         this.esMessageStoreFacade = new MessageStoreFacade(configurationProvider, DatastoreMediator.getInstance());
         DatastoreMediator.getInstance().setMessageStoreFacade(esMessageStoreFacade);
+
+        DatastoreSettings settings = DatastoreSettings.getInstance();
+        aggregationMaxBuckets = settings.getLong(DatastoreSettingKey.DATA_AGGREGATION_MAX_BUCKETS, 10000L);
+        aggregationUnboundedMinInterval = settings.getLong(DatastoreSettingKey.DATA_AGGREGATION_UNBOUNDED_MIN_INTERVAL, 86400000L);
     }
 
     @Override
@@ -84,6 +100,36 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
         }
     }
 
+    @Override
+    public StorableId store(MessageRecord record)
+            throws KapuaException {
+        ArgumentValidator.notNull(record, "record");
+        ArgumentValidator.notNull(record.getScopeId(), "record.scopeId");
+
+        checkDataAccess(record.getScopeId(), Actions.write);
+
+        try {
+            return esMessageStoreFacade.store(record);
+        } catch (Exception e) {
+            throw KapuaException.internalError(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<StorableId> storeAsync(MessageRecord record)
+            throws KapuaException {
+        ArgumentValidator.notNull(record, "record");
+        ArgumentValidator.notNull(record.getScopeId(), "record.scopeId");
+
+        checkDataAccess(record.getScopeId(), Actions.write);
+
+        try {
+            return esMessageStoreFacade.storeAsync(record);
+        } catch (Exception e) {
+            throw KapuaException.internalError(e);
+        }
+    }
+
     @Override
     public void delete(KapuaId scopeId, StorableId id)
             throws KapuaException {
@@ -145,6 +191,25 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
         }
     }
 
+    @Override
+    public MetricAggregationListResult aggregate(MetricAggregationQuery query)
+            throws KapuaException {
+        ArgumentValidator.notNull(query, "query");
+        ArgumentValidator.notNull(query.getScopeId(), "query.scopeId");
+        ArgumentValidator.notEmptyOrNull(query.getMetricNames(), "query.metricNames");
+        ArgumentValidator.numRange(query.getInterval(), 1, Long.MAX_VALUE, "query.interval");
+        ArgumentValidator.numRange(query.getGroupLimit(), 1, Integer.MAX_VALUE, "query.groupLimit");
+        checkAggregationBuckets(query);
+
+        checkDataAccess(query.getScopeId(), Actions.read);
+
+        try {
+            return esMessageStoreFacade.aggregate(query);
+        } catch (Exception e) {
+            throw KapuaException.internalError(e);
+        }
+    }
+
     @Override
     public void delete(MessageQuery query)
             throws KapuaException {
@@ -160,6 +225,33 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
         }
     }
 
+    /**
+     * Check that the metric aggregation query doesn't build more buckets (intervals times groups) than allowed.<br>
+     * The number of intervals of a query without a bounded timestamp range is only limited by the data stored, so a short interval is allowed only with a
+     * bounded range.
+     * 
+     * @param query
+     * @throws KapuaIllegalArgumentException
+     */
+    private void checkAggregationBuckets(MetricAggregationQuery query)
+            throws KapuaIllegalArgumentException {
+        long[] range = MessageStoreFacade.getTimestampRange(query.getPredicate());
+        if (range[0] == Long.MIN_VALUE || range[1] == Long.MAX_VALUE) {
+            if (query.getInterval() < aggregationUnboundedMinInterval) {
+                throw new KapuaIllegalArgumentException("query.interval",
+                        String.format("%d (a bounded timestamp range is required for the intervals shorter than %d)", query.getInterval(), aggregationUnboundedMinInterval));
+            }
+            return;
+        }
+
+        long intervals = Math.max(0L, range[1] - range[0]) / query.getInterval() + 1;
+        long groups = query.getGroupBy() == null || MetricAggregationGroupBy.NONE.equals(query.getGroupBy()) ? 1 : query.getGroupLimit();
+        if (intervals > aggregationMaxBuckets / groups) {
+            throw new KapuaIllegalArgumentException("query.interval",
+                    String.format("%d (%d intervals by %d groups exceed the maximum number of buckets %d)", query.getInterval(), intervals, groups, aggregationMaxBuckets));
+        }
+    }
+
     private void checkDataAccess(KapuaId scopeId, Actions action)
             throws KapuaException {
         //
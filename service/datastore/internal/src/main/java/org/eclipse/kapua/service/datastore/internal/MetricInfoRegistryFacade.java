@@ -12,12 +12,16 @@
 package org.eclipse.kapua.service.datastore.internal;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsBulkIndexer;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsClientUnavailableException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsConfigurationException;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsDatastoreException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsDocumentBuilderException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsObjectBuilderException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsQueryConversionException;
@@ -39,6 +43,7 @@ import org.eclipse.kapua.service.datastore.model.query.MetricInfoQuery;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.index.engine.DocumentAlreadyExistsException;
 import org.slf4j.Logger;
@@ -55,7 +60,7 @@ public class MetricInfoRegistryFacade {
 
     private final MetricInfoRegistryMediator mediator;
     private final ConfigurationProvider configProvider;
-    private final Object metadataUpdateSync;
+    private final RegistryUpsertTracker upsertTracker;
 
     /**
      * Constructs the metric info registry facade
@@ -68,7 +73,7 @@ public class MetricInfoRegistryFacade {
     public MetricInfoRegistryFacade(ConfigurationProvider configProvider, MetricInfoRegistryMediator mediator) {
         this.configProvider = configProvider;
         this.mediator = mediator;
-        this.metadataUpdateSync = new Object();
+        this.upsertTracker = new RegistryUpsertTracker(DatastoreCacheManager.getInstance().getMetricsCache());
     }
 
     /**
@@ -98,38 +103,47 @@ public class MetricInfoRegistryFacade {
 
         String metricInfoId = MetricInfoXContentBuilder.getOrDeriveId(metricInfo.getId(), metricInfo);
 
-        // Store channel. Look up channel in the cache, and cache it if it doesn't exist
-        if (!DatastoreCacheManager.getInstance().getMetricsCache().get(metricInfoId)) {
-
-            // The code is safe even without the synchronized block
-            // Synchronize in order to let the first thread complete its
-            // update then the others of the same type will find the cache
-            // updated and skip the update.
-            synchronized (this.metadataUpdateSync) {
-                if (!DatastoreCacheManager.getInstance().getChannelsCache().get(metricInfoId)) {
-                    UpdateResponse response = null;
-                    try {
-                        Metadata metadata = this.mediator.getMetadata(metricInfo.getScopeId(), metricInfo.getFirstMessageOn().getTime());
-                        String kapuaIndexName = metadata.getKapuaIndexName();
-
-                        response = EsMetricInfoDAO.getInstance()
-                                .index(metadata.getKapuaIndexName())
-                                .upsert(metricInfo);
-
-                        metricInfoId = response.getId();
-
-                        logger.debug(String.format("Upsert on metric succesfully executed [%s.%s, %s]",
-                                kapuaIndexName, EsSchema.METRIC_TYPE_NAME, metricInfoId));
-
-                    } catch (DocumentAlreadyExistsException exc) {
-                        logger.trace(String.format("Upsert failed because metric already exists [%s, %s]",
-                                metricInfoId, exc.getMessage()));
-                    }
-                    // Update cache if channel update is completed successfully
-                    DatastoreCacheManager.getInstance().getChannelsCache().put(metricInfoId, true);
-                }
+        // Store metric. Look up metric in the cache, and cache it if it doesn't exist.
+        // Only the first thread storing a new metric performs the upsert, the other threads
+        // storing the same metric wait for it while the threads storing other metrics go on.
+        CompletableFuture<String> upsert = this.upsertTracker.claim(metricInfoId);
+        if (upsert == null) {
+            if (!EsBulkIndexer.isEnabled()) {
+                this.upsertTracker.await(metricInfoId);
+            }
+            return new StorableIdImpl(metricInfoId);
+        }
+
+        try {
+            Metadata metadata = this.mediator.getMetadata(metricInfo.getScopeId(), metricInfo.getFirstMessageOn().getTime());
+            String kapuaIndexName = metadata.getKapuaIndexName();
+
+            if (EsBulkIndexer.isEnabled()) {
+                // The upsert is executed within the bulk request of the message
+                UpdateRequest request = EsMetricInfoDAO.getInstance()
+                        .index(kapuaIndexName)
+                        .getUpsertRequest(metricInfo);
+                this.upsertTracker.completeWhen(metricInfoId, upsert, EsBulkIndexer.getInstance().upsertAsync(request));
+                return new StorableIdImpl(metricInfoId);
             }
+
+            UpdateResponse response = EsMetricInfoDAO.getInstance()
+                    .index(kapuaIndexName)
+                    .upsert(metricInfo);
+
+            logger.debug(String.format("Upsert on metric succesfully executed [%s.%s, %s]",
+                    kapuaIndexName, EsSchema.METRIC_TYPE_NAME, response.getId()));
+
+        } catch (DocumentAlreadyExistsException exc) {
+            logger.trace(String.format("Upsert failed because metric already exists [%s, %s]",
+                    metricInfoId, exc.getMessage()));
+        } catch (Exception exc) {
+            this.upsertTracker.failed(metricInfoId, upsert, exc);
+            throw exc;
         }
+        // Update cache if metric update is completed successfully
+        this.upsertTracker.completed(metricInfoId, upsert);
+
         return new StorableIdImpl(metricInfoId);
     }
 
@@ -155,22 +169,42 @@ public class MetricInfoRegistryFacade {
         // Argument Validation
         ArgumentValidator.notNull(metricInfos, "metricInfoCreator");
 
-        // Create a bulk request
+        // Claim the upserts of the new metrics. The metrics already stored, or being stored
+        // by other threads, are skipped.
+        boolean bulkIndexerEnabled = EsBulkIndexer.isEnabled();
+        List<String> upsertIds = new ArrayList<>();
+        List<CompletableFuture<String>> upserts = new ArrayList<>();
         BulkRequest bulkRequest = new BulkRequest();
-        for (MetricInfo metricInfo : metricInfos) {
-            String metricInfoId = MetricInfoXContentBuilder.getOrDeriveId(metricInfo.getId(), metricInfo);
-
-            if (DatastoreCacheManager.getInstance().getMetricsCache().get(metricInfoId))
-                continue;
-
-            Metadata metadata = mediator.getMetadata(metricInfo.getScopeId(), metricInfo.getFirstMessageOn().getTime());
-            String kapuaIndexName = metadata.getKapuaIndexName();
-
-            EsMetricInfoDAO.getInstance().index(kapuaIndexName);
-
-            bulkRequest.add(EsMetricInfoDAO.getInstance()
-                    .index(kapuaIndexName)
-                    .getUpsertRequest(metricInfo));
+        try {
+            for (MetricInfo metricInfo : metricInfos) {
+                String metricInfoId = MetricInfoXContentBuilder.getOrDeriveId(metricInfo.getId(), metricInfo);
+
+                CompletableFuture<String> upsert = this.upsertTracker.claim(metricInfoId);
+                if (upsert == null)
+                    continue;
+
+                upsertIds.add(metricInfoId);
+                upserts.add(upsert);
+
+                Metadata metadata = mediator.getMetadata(metricInfo.getScopeId(), metricInfo.getFirstMessageOn().getTime());
+                String kapuaIndexName = metadata.getKapuaIndexName();
+
+                UpdateRequest request = EsMetricInfoDAO.getInstance()
+                        .index(kapuaIndexName)
+                        .getUpsertRequest(metricInfo);
+
+                if (bulkIndexerEnabled) {
+                    // The upsert is executed within the bulk request of the message
+                    this.upsertTracker.completeWhen(metricInfoId, upsert, EsBulkIndexer.getInstance().upsertAsync(request));
+                    upsertIds.remove(upsertIds.size() - 1);
+                    upserts.remove(upserts.size() - 1);
+                } else {
+                    bulkRequest.add(request);
+                }
+            }
+        } catch (Exception exc) {
+            failUpserts(upsertIds, upserts, exc);
+            throw exc;
         }
 
         StorableId[] idResults = null;
@@ -178,45 +212,49 @@ public class MetricInfoRegistryFacade {
         if (bulkRequest.numberOfActions() <= 0)
             return idResults;
 
-        // The code is safe even without the synchronized block
-        // Synchronize in order to let the first thread complete its update
-        // then the others of the same type will find the cache updated and
-        // skip the update.
-        synchronized (this.metadataUpdateSync) {
-            BulkResponse response = EsMetricInfoDAO.getInstance().bulk(bulkRequest);
-            BulkItemResponse[] itemResponses = response.getItems();
-            idResults = new StorableId[itemResponses.length];
-
-            if (itemResponses != null) {
-                for (BulkItemResponse bulkItemResponse : itemResponses) {
-                    if (bulkItemResponse.isFailed()) {
-                        MetricInfo failedMetricInfoCreator = metricInfos[bulkItemResponse.getItemId()];
-                        String failureMessage = bulkItemResponse.getFailureMessage();
-                        logger.trace(String.format("Upsert failed [%s, %s, %s]",
-                                failedMetricInfoCreator.getChannel(), failedMetricInfoCreator.getName(), failureMessage));
-                        continue;
-                    }
-
-                    String channelMetricId = ((UpdateResponse) bulkItemResponse.getResponse()).getId();
-                    idResults[bulkItemResponse.getItemId()] = new StorableIdImpl(channelMetricId);
-
-                    String kapuaIndexName = bulkItemResponse.getIndex();
-                    String channelTypeName = bulkItemResponse.getType();
-                    logger.debug(String.format("Upsert on channel metric succesfully executed [%s.%s, %s]",
-                            kapuaIndexName, channelTypeName, channelMetricId));
-
-                    if (DatastoreCacheManager.getInstance().getMetricsCache().get(channelMetricId))
-                        continue;
-
-                    // Update cache if channel metric update is completed
-                    // successfully
-                    DatastoreCacheManager.getInstance().getMetricsCache().put(channelMetricId, true);
-                }
+        BulkResponse response;
+        try {
+            response = EsMetricInfoDAO.getInstance().bulk(bulkRequest);
+        } catch (Exception exc) {
+            failUpserts(upsertIds, upserts, exc);
+            throw exc;
+        }
+
+        BulkItemResponse[] itemResponses = response.getItems();
+        idResults = new StorableId[itemResponses.length];
+
+        for (BulkItemResponse bulkItemResponse : itemResponses) {
+            String metricInfoId = upsertIds.get(bulkItemResponse.getItemId());
+            CompletableFuture<String> upsert = upserts.get(bulkItemResponse.getItemId());
+
+            if (bulkItemResponse.isFailed()) {
+                String failureMessage = bulkItemResponse.getFailureMessage();
+                logger.trace(String.format("Upsert failed [%s, %s]", metricInfoId, failureMessage));
+                this.upsertTracker.failed(metricInfoId, upsert, new EsDatastoreException(failureMessage));
+                continue;
             }
+
+            String channelMetricId = ((UpdateResponse) bulkItemResponse.getResponse()).getId();
+            idResults[bulkItemResponse.getItemId()] = new StorableIdImpl(channelMetricId);
+
+            String kapuaIndexName = bulkItemResponse.getIndex();
+            String channelTypeName = bulkItemResponse.getType();
+            logger.debug(String.format("Upsert on channel metric succesfully executed [%s.%s, %s]",
+                    kapuaIndexName, channelTypeName, channelMetricId));
+
+            // Update cache if channel metric update is completed
+            // successfully
+            this.upsertTracker.completed(metricInfoId, upsert);
         }
         return idResults;
     }
 
+    private void failUpserts(List<String> upsertIds, List<CompletableFuture<String>> upserts, Throwable cause) {
+        for (int i = 0; i < upsertIds.size(); i++) {
+            this.upsertTracker.failed(upsertIds.get(i), upserts.get(i), cause);
+        }
+    }
+
     /**
      * Delete metric information by identifier
      * 
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.service.metric.MetricsService;
+
+import com.codahale.metrics.Gauge;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+
+/**
+ * Registry cache.<br>
+ * It keeps the ids of the registry entries (channels, metrics or clients) already stored.<br>
+ * The registry ids are kept as compact 128 bit keys instead of strings: the ids derived from the registry entry fields (sha256 base64 encoded) are decoded and
+ * truncated, any other id is hashed.<br>
+ * The entries expire after a configurable time without being accessed.
+ *
+ * @since 1.0.0
+ */
+public class RegistryCache {
+
+    /**
+     * Estimated memory footprint in bytes of a single cache entry (cache entry, key and hash table slot).<br>
+     * It is used to convert the cache memory budget into a maximum number of entries.
+     */
+    public static final int ENTRY_SIZE_ESTIMATE = 96;
+
+    private static final int DERIVED_ID_LENGTH = 43;
+
+    private final String name;
+    private final Cache<Key, Boolean> cache;
+
+    /**
+     * Constructs the registry cache
+     *
+     * @param name
+     *            the cache name (used to name the cache metrics)
+     * @param sizeMax
+     *            the maximum number of entries
+     * @param expireAfterAccess
+     *            the entry time to live since its last access, in seconds
+     * @param concurrencyLevel
+     *            the number of cache segments that can be updated concurrently
+     *
+     * @since 1.0.0
+     */
+    public RegistryCache(String name, long sizeMax, long expireAfterAccess, int concurrencyLevel) {
+        this.name = name;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(sizeMax)
+                .expireAfterAccess(expireAfterAccess, TimeUnit.SECONDS)
+                .concurrencyLevel(concurrencyLevel)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get the cache name
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Check if the registry entry is stored
+     *
+     * @param id
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public boolean contains(String id) {
+        return cache.getIfPresent(new Key(id)) != null;
+    }
+
+    /**
+     * Mark the registry entry as stored
+     *
+     * @param id
+     *
+     * @since 1.0.0
+     */
+    public void put(String id) {
+        cache.put(new Key(id), Boolean.TRUE);
+    }
+
+    /**
+     * Remove the registry entry from the cache
+     *
+     * @param id
+     *
+     * @since 1.0.0
+     */
+    public void remove(String id) {
+        cache.invalidate(new Key(id));
+    }
+
+    /**
+     * Remove all the registry entries from the cache
+     *
+     * @since 1.0.0
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Get the approximate number of entries in the cache
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Get the cache statistics (hits, misses and evictions)
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Expose the cache hits, misses, evictions and size as gauges
+     *
+     * @param metricsService
+     * @param module
+     * @param component
+     * @throws KapuaException
+     *             if the cache metrics are already registered
+     *
+     * @since 1.0.0
+     */
+    public void registerMetrics(MetricsService metricsService, String module, String component) throws KapuaException {
+        metricsService.registerGauge((Gauge<Long>) () -> stats().hitCount(), module, component, name, "hit");
+        metricsService.registerGauge((Gauge<Long>) () -> stats().missCount(), module, component, name, "miss");
+        metricsService.registerGauge((Gauge<Long>) () -> stats().evictionCount(), module, component, name, "eviction");
+        metricsService.registerGauge((Gauge<Long>) this::size, module, component, name, "size");
+    }
+
+    /**
+     * Compact registry cache key (128 bit)
+     */
+    private static final class Key {
+
+        private final long high;
+        private final long low;
+
+        private Key(String id) {
+            ByteBuffer bytes = ByteBuffer.wrap(toBytes(id));
+            high = bytes.getLong();
+            low = bytes.getLong();
+        }
+
+        private static byte[] toBytes(String id) {
+            if (id.length() == DERIVED_ID_LENGTH) {
+                try {
+                    return Base64.getUrlDecoder().decode(id);
+                } catch (IllegalArgumentException e) {
+                    // not a derived id
+                }
+            }
+            return Hashing.murmur3_128().hashString(id, StandardCharsets.UTF_8).asBytes();
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (high ^ (high >>> 32) ^ low ^ (low >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return high == other.high && low == other.low;
+        }
+    }
+}
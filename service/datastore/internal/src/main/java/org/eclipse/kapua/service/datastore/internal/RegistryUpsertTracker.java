@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Registry upsert tracker.<br>
+ * It keeps track of the registry entries (channels, metrics, clients) already stored and of the upsert operations in progress, keyed by the registry entry id.<br>
+ * Only the first thread storing a new entry performs the upsert, the concurrent threads storing the same entry share its outcome, while threads storing different entries
+ * never wait for each other.
+ *
+ * @since 1.0.0
+ */
+public class RegistryUpsertTracker {
+
+    private final RegistryCache storedCache;
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlightUpserts;
+
+    /**
+     * Constructs the tracker
+     *
+     * @param storedCache
+     *            the cache of the registry entries already stored
+     *
+     * @since 1.0.0
+     */
+    public RegistryUpsertTracker(RegistryCache storedCache) {
+        this.storedCache = storedCache;
+        this.inFlightUpserts = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Check if the registry entry is already stored
+     *
+     * @param id
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public boolean isStored(String id) {
+        return storedCache.contains(id);
+    }
+
+    /**
+     * Claim the upsert of the registry entry.<br>
+     * If the returned future is not {@code null} the caller owns the upsert and must complete it by calling {@link #completed(String, CompletableFuture)} or
+     * {@link #failed(String, CompletableFuture, Throwable)}.
+     *
+     * @param id
+     * @return the upsert future if the caller owns the upsert, {@code null} if the entry is already stored or another thread is storing it
+     *
+     * @since 1.0.0
+     */
+    public CompletableFuture<String> claim(String id) {
+        if (isStored(id)) {
+            return null;
+        }
+
+        CompletableFuture<String> upsert = new CompletableFuture<>();
+        if (inFlightUpserts.putIfAbsent(id, upsert) != null) {
+            return null;
+        }
+
+        // the entry may have been stored between the cache check and the claim
+        if (isStored(id)) {
+            inFlightUpserts.remove(id, upsert);
+            upsert.complete(id);
+            return null;
+        }
+        return upsert;
+    }
+
+    /**
+     * Get the upsert in progress for the registry entry
+     *
+     * @param id
+     * @return the upsert future or {@code null} if no upsert is in progress
+     *
+     * @since 1.0.0
+     */
+    public CompletableFuture<String> getInFlight(String id) {
+        return inFlightUpserts.get(id);
+    }
+
+    /**
+     * Wait for the upsert in progress (if any) for the registry entry.<br>
+     * The upsert failure is not reported to the waiting threads since it is already reported to the upsert owner.
+     *
+     * @param id
+     * @return {@code true} if the registry entry is stored
+     *
+     * @since 1.0.0
+     */
+    public boolean await(String id) {
+        CompletableFuture<String> upsert = getInFlight(id);
+        if (upsert != null) {
+            try {
+                upsert.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // reported to the upsert owner
+            }
+        }
+        return isStored(id);
+    }
+
+    /**
+     * Complete the claimed upsert when the asynchronous upsert operation completes
+     *
+     * @param id
+     * @param upsert
+     * @param operation
+     *
+     * @since 1.0.0
+     */
+    public void completeWhen(String id, CompletableFuture<String> upsert, CompletableFuture<?> operation) {
+        operation.whenComplete((result, cause) -> {
+            if (cause == null) {
+                completed(id, upsert);
+            } else {
+                failed(id, upsert, cause);
+            }
+        });
+    }
+
+    /**
+     * Mark the claimed upsert as completed and the registry entry as stored
+     *
+     * @param id
+     * @param upsert
+     *
+     * @since 1.0.0
+     */
+    public void completed(String id, CompletableFuture<String> upsert) {
+        storedCache.put(id);
+        inFlightUpserts.remove(id, upsert);
+        upsert.complete(id);
+    }
+
+    /**
+     * Mark the claimed upsert as failed (the registry entry is not marked as stored so the next store operation retries the upsert)
+     *
+     * @param id
+     * @param upsert
+     * @param cause
+     *
+     * @since 1.0.0
+     */
+    public void failed(String id, CompletableFuture<String> upsert, Throwable cause) {
+        inFlightUpserts.remove(id, upsert);
+        upsert.completeExceptionally(cause);
+    }
+}
@@ -11,12 +11,20 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal.elasticsearch;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.kapua.service.datastore.internal.model.query.SortFieldImpl;
 import org.eclipse.kapua.service.datastore.model.Storable;
 import org.eclipse.kapua.service.datastore.model.query.SortDirection;
 import org.eclipse.kapua.service.datastore.model.query.SortField;
 import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
 import org.eclipse.kapua.service.datastore.model.query.StorableQuery;
 import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
@@ -35,6 +43,7 @@ public abstract class AbstractStorableQueryConverter<S extends Storable, Q exten
      * Convert to a count query
      *
      * @param indices
+     *            comma separated list of indexes (the missing indexes are ignored)
      * @param type
      * @param query
      * @return
@@ -47,7 +56,9 @@ public abstract class AbstractStorableQueryConverter<S extends Storable, Q exten
         if (query == null)
             throw new NullPointerException(String.format("Query parameter is undefined"));
 
-        SearchRequestBuilder searchReqBuilder = ElasticsearchClient.getInstance().prepareSearch(indices);
+        SearchRequestBuilder searchReqBuilder = ElasticsearchClient.getInstance().prepareSearch(Strings.splitStringByCommaToArray(indices));
+        // some of the listed data indexes may not exist (no message stored in the period)
+        searchReqBuilder.setIndicesOptions(IndicesOptions.lenientExpandOpen());
         searchReqBuilder.setTypes(type)
                 .setQuery(PredicateConverter.convertQueryPredicates(query))
                 .setSize(0);
@@ -56,9 +67,12 @@ public abstract class AbstractStorableQueryConverter<S extends Storable, Q exten
     }
 
     /**
-     * Convert to a search query
+     * Convert to a search query.<br>
+     * The hits are always sorted by the {@value KeyOffsetConverter#ID_FIELD} field too (as last sort field), so that the sort values of the last hit can
+     * be used as key offset of the next search. If the query key offset is set, the query offset is ignored.
      *
      * @param indices
+     *            comma separated list of indexes (the missing indexes are ignored)
      * @param type
      * @param query
      * @return
@@ -71,26 +85,51 @@ public abstract class AbstractStorableQueryConverter<S extends Storable, Q exten
         if (query == null)
             throw new NullPointerException(String.format("Query parameter is undefined"));
 
-        SearchRequestBuilder searchReqBuilder = ElasticsearchClient.getInstance().prepareSearch(indices);
-        searchReqBuilder.setTypes(type)
-                .setQuery(PredicateConverter.convertQueryPredicates(query));
+        SearchRequestBuilder searchReqBuilder = ElasticsearchClient.getInstance().prepareSearch(Strings.splitStringByCommaToArray(indices));
+        // some of the listed data indexes may not exist (no message stored in the period)
+        searchReqBuilder.setIndicesOptions(IndicesOptions.lenientExpandOpen());
+        searchReqBuilder.setTypes(type);
 
+        List<SortField> sortFields = new ArrayList<>();
         if (query.getSortFields() != null) {
-            for (SortField sf : query.getSortFields()) {
-                if (sf.getSortDirection() == null) {
-                    throw new NullPointerException(String.format("The order for the field [%s] is undefined!", sf.getField()));
-                }
-                FieldSortBuilder fsb = SortBuilders.fieldSort(sf.getField());
-                if (SortDirection.ASC.equals(sf.getSortDirection())) {
-                    fsb.order(SortOrder.ASC);
-                } else {
-                    fsb.order(SortOrder.DESC);
-                }
-                searchReqBuilder.addSort(fsb);
+            sortFields.addAll(query.getSortFields());
+        }
+        // the unique field makes the sort order (and so the key offset) deterministic
+        SortField idSortField = new SortFieldImpl();
+        idSortField.setField(KeyOffsetConverter.ID_FIELD);
+        idSortField.setSortDirection(SortDirection.ASC);
+        sortFields.add(idSortField);
+        for (SortField sf : sortFields) {
+            if (sf.getSortDirection() == null) {
+                throw new NullPointerException(String.format("The order for the field [%s] is undefined!", sf.getField()));
+            }
+            FieldSortBuilder fsb = SortBuilders.fieldSort(sf.getField());
+            if (KeyOffsetConverter.ID_FIELD.equals(sf.getField())) {
+                // the indexes created before the field was introduced may not have its mapping yet
+                fsb.unmappedType("string");
             }
+            if (SortDirection.ASC.equals(sf.getSortDirection())) {
+                fsb.order(SortOrder.ASC);
+            } else {
+                fsb.order(SortOrder.DESC);
+            }
+            searchReqBuilder.addSort(fsb);
         }
 
-        searchReqBuilder.setFrom(query.getOffset())
+        QueryBuilder queryBuilder = PredicateConverter.convertQueryPredicates(query);
+        if (query.getKeyOffset() != null) {
+            Object[] sortValues = KeyOffsetConverter.fromKeyOffset(query.getKeyOffset());
+            if (sortValues.length != sortFields.size()) {
+                throw new EsQueryConversionException(String.format("The key offset [%s] doesn't match the query sort fields", query.getKeyOffset()));
+            }
+            queryBuilder = QueryBuilders.boolQuery()
+                    .must(queryBuilder)
+                    .filter(KeyOffsetConverter.toAfterQuery(sortFields, sortValues));
+            searchReqBuilder.setFrom(0);
+        } else {
+            searchReqBuilder.setFrom(query.getOffset());
+        }
+        searchReqBuilder.setQuery(queryBuilder)
                 .setSize(query.getLimit());
 
         String[] includes = this.getIncludes(query.getFetchStyle());
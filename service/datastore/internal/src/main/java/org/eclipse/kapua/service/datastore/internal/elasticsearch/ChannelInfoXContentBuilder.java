@@ -69,11 +69,12 @@ public class ChannelInfoXContentBuilder {
         return getHashCode(scopeId, clientId, channel);
     }
 
-    private XContentBuilder build(String semChannel, String msgId, Date msgTimestamp, String clientId, KapuaId scopeId)
+    private XContentBuilder build(String channelId, String semChannel, String msgId, Date msgTimestamp, String clientId, KapuaId scopeId)
             throws EsDocumentBuilderException {
         try {
             return XContentFactory.jsonBuilder()
                     .startObject()
+                    .field(EsSchema.DOCUMENT_ID, channelId)
                     .field(EsSchema.CHANNEL_NAME, semChannel)
                     .field(EsSchema.CHANNEL_TIMESTAMP, msgTimestamp)
                     .field(EsSchema.CHANNEL_CLIENT_ID, clientId)
@@ -186,12 +187,14 @@ public class ChannelInfoXContentBuilder {
         StorableId msgId = channelInfo.getFirstMessageId();
         Date msgTimestamp = channelInfo.getFirstMessageOn();
 
+        String channelId = getOrDeriveId(channelInfo.getId(), channelInfo.getScopeId(),
+                channelInfo.getClientId(),
+                channelInfo.getName());
+
         XContentBuilder channelBuilder;
-        channelBuilder = this.build(channel, msgId.toString(), msgTimestamp, clientId, scopeId);
+        channelBuilder = this.build(channelId, channel, msgId.toString(), msgTimestamp, clientId, scopeId);
 
-        this.setChannelId(getOrDeriveId(channelInfo.getId(), channelInfo.getScopeId(),
-                channelInfo.getClientId(),
-                channelInfo.getName()));
+        this.setChannelId(channelId);
 
         this.setBuilder(channelBuilder);
         return this;
@@ -88,6 +88,7 @@ public class ClientInfoXContentBuilder {
     /**
      * Get the {@link XContentBuilder} initialized with the provided parameters
      *
+     * @param clientKey
      * @param clientId
      * @param msgId
      * @param msgTimestamp
@@ -96,11 +97,12 @@ public class ClientInfoXContentBuilder {
      * @throws EsDocumentBuilderException
      * @since 1.0.0
      */
-    private XContentBuilder getClientBuilder(String clientId, String msgId, Date msgTimestamp, KapuaId scopeId)
+    private XContentBuilder getClientBuilder(String clientKey, String clientId, String msgId, Date msgTimestamp, KapuaId scopeId)
             throws EsDocumentBuilderException {
         try {
             return XContentFactory.jsonBuilder()
                     .startObject()
+                    .field(EsSchema.DOCUMENT_ID, clientKey)
                     .field(EsSchema.CLIENT_ID, clientId)
                     .field(EsSchema.CLIENT_MESSAGE_ID, msgId)
                     .field(EsSchema.CLIENT_TIMESTAMP, msgTimestamp)
@@ -137,9 +139,10 @@ public class ClientInfoXContentBuilder {
         StorableId msgId = clientInfo.getMessageId();
         Date msgTimestamp = clientInfo.getMessageTimestamp();
 
-        XContentBuilder clientBuilder = this.getClientBuilder(clientId, msgId.toString(), msgTimestamp, scopeId);
+        String clientKey = getClientKey(scopeId, clientId);
+        XContentBuilder clientBuilder = this.getClientBuilder(clientKey, clientId, msgId.toString(), msgTimestamp, scopeId);
 
-        this.setClientId(getClientKey(scopeId, clientId));
+        this.setClientId(clientKey);
         this.setClientBuilder(clientBuilder);
 
         return this;
@@ -160,9 +163,10 @@ public class ClientInfoXContentBuilder {
         StorableId msgId = clientInfo.getFirstMessageId();
         Date msgTimestamp = clientInfo.getFirstMessageOn();
 
-        clientBuilder = this.getClientBuilder(clientId, msgId.toString(), msgTimestamp, scopeId);
+        String clientKey = getOrDeriveId(clientInfo.getId(), scopeId, clientId);
+        clientBuilder = this.getClientBuilder(clientKey, clientId, msgId.toString(), msgTimestamp, scopeId);
 
-        this.setClientId(getOrDeriveId(clientInfo.getId(), scopeId, clientId));
+        this.setClientId(clientKey);
         this.setClientBuilder(clientBuilder);
 
         return this;
@@ -11,12 +11,12 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal.elasticsearch;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.locator.KapuaLocator;
-import org.eclipse.kapua.message.KapuaMessage;
-import org.eclipse.kapua.message.KapuaPayload;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.ChannelInfoRegistryService;
 import org.eclipse.kapua.service.datastore.ClientInfoRegistryService;
@@ -136,7 +136,7 @@ public class DatastoreMediator implements MessageStoreMediator,
     }
 
     @Override
-    public void onAfterMessageStore(MessageXContentBuilder docBuilder, KapuaMessage<?, ?> message)
+    public void onAfterMessageStore(MessageXContentBuilder docBuilder, MessageRecord record)
             throws KapuaIllegalArgumentException,
             EsDocumentBuilderException,
             EsClientUnavailableException,
@@ -157,23 +157,24 @@ public class DatastoreMediator implements MessageStoreMediator,
         channelInfo.setId(new StorableIdImpl(ChannelInfoXContentBuilder.getOrDeriveId(null, channelInfo)));
         this.channelInfoStoreFacade.upstore(channelInfo);
 
-        KapuaPayload payload = message.getPayload();
-        if (payload == null)
+        if (!record.hasMetrics())
             return;
 
-        Map<String, Object> metrics = payload.getProperties();
-        if (metrics == null)
-            return;
+        // a metric added more times has the type of the last value
+        Map<String, Class<?>> metrics = new LinkedHashMap<>();
+        for (int i = 0; i < record.getMetricCount(); i++) {
+            metrics.put(record.getMetricName(i), record.getMetricType(i));
+        }
 
         int i = 0;
         MetricInfoImpl[] messageMetrics = new MetricInfoImpl[metrics.size()];
-        for (Map.Entry<String, Object> entry : metrics.entrySet()) {
+        for (Map.Entry<String, Class<?>> entry : metrics.entrySet()) {
 
             MetricInfoImpl metricInfo = new MetricInfoImpl(docBuilder.getScopeId());
             metricInfo.setClientId(docBuilder.getClientId());
             metricInfo.setChannel(docBuilder.getChannel());
             metricInfo.setName(entry.getKey());
-            metricInfo.setMetricType(entry.getValue().getClass());
+            metricInfo.setMetricType(entry.getValue());
             metricInfo.setFirstMessageId(docBuilder.getMessageId());
             metricInfo.setFirstMessageOn(docBuilder.getTimestamp());
             metricInfo.setId(new StorableIdImpl(MetricInfoXContentBuilder.getOrDeriveId(null, metricInfo)));
@@ -184,6 +185,11 @@ public class DatastoreMediator implements MessageStoreMediator,
         this.metricInfoStoreFacade.upstore(messageMetrics);
     }
 
+    @Override
+    public void onAfterDataIndexesDelete(Collection<String> dataIndexNames) {
+        this.esSchema.removeDataIndexes(dataIndexNames);
+    }
+
     /*
      * ClientInfo Store Mediator methods
      */
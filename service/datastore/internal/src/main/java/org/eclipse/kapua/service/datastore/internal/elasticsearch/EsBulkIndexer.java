@@ -0,0 +1,335 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.kapua.KapuaRuntimeException;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.metric.MetricsService;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+
+/**
+ * Elasticsearch bulk indexer.<br>
+ * It collects the index requests coming from the concurrent store operations into bulk requests bounded by number of actions, size in bytes and flush interval.<br>
+ * When the configured number of concurrent bulk requests is in flight, new index requests block the caller (backpressure) until a bulk request completes.<br>
+ * The outcome of each single index request is reported back to its caller, so a failed item can still be handled (e.g. dead lettered) by the caller.<br>
+ * The bulk requests fill up only if the callers don't wait for the outcome of each request before adding the next one: high throughput callers should
+ * react to the completion of the returned futures instead of waiting for them. The futures are completed by the Elasticsearch client threads, so the
+ * completion callbacks must not block.
+ *
+ * @since 1.0.0
+ */
+public class EsBulkIndexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsBulkIndexer.class);
+
+    private static final String METRIC_MODULE = "datastore";
+    private static final String METRIC_COMPONENT = "bulk";
+
+    private static EsBulkIndexer instance;
+
+    private final BulkProcessor bulkProcessor;
+    private final long waitTimeout;
+
+    private final Counter metricBulkRequests;
+    private final Counter metricBulkItems;
+    private final Counter metricBulkFailedItems;
+
+    private EsBulkIndexer() throws EsClientUnavailableException {
+        this(ElasticsearchClient.getInstance(),
+                DatastoreSettings.getInstance().getInt(DatastoreSettingKey.ELASTICSEARCH_BULK_ACTIONS, 1000),
+                DatastoreSettings.getInstance().getLong(DatastoreSettingKey.ELASTICSEARCH_BULK_SIZE, 5L * 1024 * 1024),
+                DatastoreSettings.getInstance().getLong(DatastoreSettingKey.ELASTICSEARCH_BULK_FLUSH_INTERVAL, 50L),
+                DatastoreSettings.getInstance().getInt(DatastoreSettingKey.ELASTICSEARCH_BULK_CONCURRENT_REQUESTS, 2));
+    }
+
+    /**
+     * Constructs the bulk indexer
+     *
+     * @param client
+     * @param bulkActions
+     *            the maximum number of requests in a single bulk request
+     * @param bulkSize
+     *            the maximum size in bytes of a single bulk request
+     * @param flushInterval
+     *            the maximum time in milliseconds a request waits before the pending bulk request is executed
+     * @param concurrentRequests
+     *            the maximum number of bulk requests in flight
+     */
+    EsBulkIndexer(Client client, int bulkActions, long bulkSize, long flushInterval, int concurrentRequests) {
+        // an item can wait for the flush interval, plus the bulk requests already in flight, plus its own bulk request
+        waitTimeout = flushInterval + (concurrentRequests + 1) * EsUtils.getQueryTimeout();
+
+        MetricsService metricsService;
+        try {
+            metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
+        } catch (KapuaRuntimeException e) {
+            metricsService = null;
+        }
+        if (metricsService != null) {
+            metricBulkRequests = metricsService.getCounter(METRIC_MODULE, METRIC_COMPONENT, "requests", "count");
+            metricBulkItems = metricsService.getCounter(METRIC_MODULE, METRIC_COMPONENT, "items", "count");
+            metricBulkFailedItems = metricsService.getCounter(METRIC_MODULE, METRIC_COMPONENT, "items", "failed", "count");
+        } else {
+            logger.info("Metrics service not available, the bulk indexer metrics are not exposed");
+            metricBulkRequests = new Counter();
+            metricBulkItems = new Counter();
+            metricBulkFailedItems = new Counter();
+        }
+
+        // Items are not retried by the processor: the retried bulk request would lose the item payloads.
+        // Failed items are reported back to the caller instead.
+        bulkProcessor = BulkProcessor.builder(client, new BulkListener())
+                .setName("kapua-datastore-bulk-indexer")
+                .setBulkActions(bulkActions)
+                .setBulkSize(new ByteSizeValue(bulkSize))
+                .setFlushInterval(TimeValue.timeValueMillis(flushInterval))
+                .setConcurrentRequests(concurrentRequests)
+                .setBackoffPolicy(BackoffPolicy.noBackoff())
+                .build();
+    }
+
+    /**
+     * Get the bulk indexer instance (singleton)
+     *
+     * @return
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public synchronized static EsBulkIndexer getInstance() throws EsClientUnavailableException {
+        if (instance == null) {
+            instance = new EsBulkIndexer();
+        }
+        return instance;
+    }
+
+    /**
+     * Check if the bulk indexing of the messages is enabled
+     *
+     * @return
+     * @since 1.0.0
+     */
+    public static boolean isEnabled() {
+        return DatastoreSettings.getInstance().getBoolean(DatastoreSettingKey.ELASTICSEARCH_BULK_ENABLED, false);
+    }
+
+    /**
+     * Add the index request to the current bulk request.<br>
+     * The caller may be blocked if the maximum number of concurrent bulk requests is reached.
+     *
+     * @param indexRequest
+     * @return the future completed with the document id once the bulk request containing the index request is executed
+     * @since 1.0.0
+     */
+    public CompletableFuture<String> indexAsync(IndexRequest indexRequest) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        bulkProcessor.add(indexRequest, future);
+        return future;
+    }
+
+    /**
+     * Add the upsert request to the current bulk request.<br>
+     * The caller may be blocked if the maximum number of concurrent bulk requests is reached.
+     *
+     * @param updateRequest
+     * @return the future completed with the document id once the bulk request containing the upsert request is executed
+     * @since 1.0.0
+     */
+    public CompletableFuture<String> upsertAsync(UpdateRequest updateRequest) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        bulkProcessor.add(updateRequest, future);
+        return future;
+    }
+
+    /**
+     * Add the index request to the current bulk request and wait for its outcome
+     *
+     * @param indexRequest
+     * @return the document id
+     * @throws EsDatastoreException
+     *             if the document cannot be indexed
+     * @since 1.0.0
+     */
+    public String index(IndexRequest indexRequest)
+            throws EsDatastoreException {
+        return await(indexAsync(indexRequest));
+    }
+
+    /**
+     * Wait for the outcome of a request previously added to the bulk request.<br>
+     * The wait is bounded by the flush interval plus the timeout of the bulk requests that can be executed before the one containing the request.
+     * If this bound elapses the outcome of the request is unknown: the request is still part of its bulk request and may be executed successfully later.
+     * So a caller handling the timeout as a failure (e.g. dead lettering the message) may handle a request that is eventually stored.
+     *
+     * @param future
+     *            the future returned when the request was added
+     * @return the value the future completed with
+     * @throws EsDatastoreException
+     *             if the request failed or its outcome is not known before the timeout elapsed
+     * @since 1.0.0
+     */
+    public <T> T await(CompletableFuture<T> future)
+            throws EsDatastoreException {
+        try {
+            return future.get(waitTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EsDatastoreException("Interrupted while waiting for the bulk request", e);
+        } catch (ExecutionException e) {
+            throw new EsDatastoreException("Cannot store document", e.getCause());
+        } catch (TimeoutException e) {
+            throw new EsDatastoreException("Timeout while waiting for the bulk request, the document may still be stored later", e);
+        }
+    }
+
+    /**
+     * Flush the pending index requests
+     *
+     * @since 1.0.0
+     */
+    public void flush() {
+        bulkProcessor.flush();
+    }
+
+    /**
+     * Flush the pending index requests and wait for the in flight bulk requests to complete
+     *
+     * @param timeout
+     * @param unit
+     * @return {@code true} if all the bulk requests completed before the timeout elapsed
+     * @throws InterruptedException
+     * @since 1.0.0
+     */
+    public boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+        return bulkProcessor.awaitClose(timeout, unit);
+    }
+
+    /**
+     * Close the bulk indexer instance (if it was created), executing the pending index requests
+     *
+     * @param timeout
+     * @param unit
+     * @return {@code true} if all the bulk requests completed before the timeout elapsed
+     * @throws InterruptedException
+     * @since 1.0.0
+     */
+    public synchronized static boolean closeInstance(long timeout, TimeUnit unit) throws InterruptedException {
+        if (instance == null) {
+            return true;
+        }
+        try {
+            return instance.close(timeout, unit);
+        } finally {
+            instance = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<String> getItemFuture(List<Object> payloads, int itemId) {
+        if (payloads == null || itemId >= payloads.size()) {
+            return null;
+        }
+        return (CompletableFuture<String>) payloads.get(itemId);
+    }
+
+    /**
+     * Get the number of executed bulk requests
+     *
+     * @return
+     */
+    long getBulkRequestCount() {
+        return metricBulkRequests.getCount();
+    }
+
+    /**
+     * Get the number of requests executed in bulk requests
+     *
+     * @return
+     */
+    long getBulkItemCount() {
+        return metricBulkItems.getCount();
+    }
+
+    /**
+     * Bulk listener that dispatches the bulk item outcomes to the item futures
+     */
+    private class BulkListener implements BulkProcessor.Listener {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            logger.trace("Executing bulk request {} with {} actions ({} bytes)", executionId, request.numberOfActions(), request.estimatedSizeInBytes());
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            metricBulkRequests.inc();
+            metricBulkItems.inc(request.numberOfActions());
+            if (response.hasFailures()) {
+                logger.warn("Bulk request {} completed with failures: {}", executionId, response.buildFailureMessage());
+            }
+
+            List<Object> payloads = request.payloads();
+            for (BulkItemResponse itemResponse : response.getItems()) {
+                CompletableFuture<String> future = getItemFuture(payloads, itemResponse.getItemId());
+                if (future == null) {
+                    continue;
+                }
+
+                if (itemResponse.isFailed()) {
+                    metricBulkFailedItems.inc();
+                    future.completeExceptionally(new EsDatastoreException(String.format("Bulk item failed [%s, %s]",
+                            itemResponse.getId(), itemResponse.getFailureMessage())));
+                } else {
+                    future.complete(itemResponse.getId());
+                }
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            logger.error("Bulk request {} failed", executionId, failure);
+            metricBulkRequests.inc();
+            metricBulkItems.inc(request.numberOfActions());
+            metricBulkFailedItems.inc(request.numberOfActions());
+
+            List<Object> payloads = request.payloads();
+            List<ActionRequest> requests = request.requests();
+            for (int i = 0; i < requests.size(); i++) {
+                CompletableFuture<String> future = getItemFuture(payloads, i);
+                if (future != null) {
+                    future.completeExceptionally(failure);
+                }
+            }
+        }
+    }
+}
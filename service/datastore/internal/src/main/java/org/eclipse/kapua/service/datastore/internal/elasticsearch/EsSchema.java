@@ -12,11 +12,24 @@
 package org.eclipse.kapua.service.datastore.internal.elasticsearch;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 
 import org.eclipse.kapua.model.id.KapuaId;
@@ -31,6 +44,7 @@ import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.indices.IndexAlreadyExistsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +59,11 @@ public class EsSchema {
     //
     private static final Logger s_logger = LoggerFactory.getLogger(EsSchema.class);
 
+    /**
+     * Document identifier (the same as the document id) of every type.<br>
+     * Not analyzed, so it is stored with doc values and can be sorted without loading the {@code _uid} field data in memory
+     */
+    public static final String DOCUMENT_ID = "datastore_id";
     /**
      * Message schema name
      */
@@ -273,17 +292,87 @@ public class EsSchema {
      */
     public static final String CLIENT_MESSAGE_ID = "message_id";
 
-    private Map<String, Metadata> schemaCache;
-    private Object schemaCacheSync;
-    private Object mappingsSync;
+    /**
+     * Rollup schema name
+     */
+    public static final String ROLLUP_TYPE_NAME = "rollup";
+    /**
+     * Rollup - scope id
+     */
+    public static final String ROLLUP_SCOPE_ID = "scope_id";
+    /**
+     * Rollup - client identifier
+     */
+    public static final String ROLLUP_CLIENT_ID = "client_id";
+    /**
+     * Rollup - channel
+     */
+    public static final String ROLLUP_CHANNEL = "channel";
+    /**
+     * Rollup - metric name
+     */
+    public static final String ROLLUP_NAME = "name";
+    /**
+     * Rollup - rollup interval (in milliseconds)
+     */
+    public static final String ROLLUP_INTERVAL = "interval";
+    /**
+     * Rollup - interval start
+     */
+    public static final String ROLLUP_TIMESTAMP = "timestamp";
+    /**
+     * Rollup - number of metric values
+     */
+    public static final String ROLLUP_COUNT = "count";
+    /**
+     * Rollup - minimum metric value
+     */
+    public static final String ROLLUP_MIN = "min";
+    /**
+     * Rollup - maximum metric value
+     */
+    public static final String ROLLUP_MAX = "max";
+    /**
+     * Rollup - sum of the metric values
+     */
+    public static final String ROLLUP_SUM = "sum";
+    /**
+     * Rollup - last metric value
+     */
+    public static final String ROLLUP_LAST = "last";
+
+    /**
+     * Rolled up data index schema name
+     */
+    public static final String ROLLED_UP_INDEX_TYPE_NAME = "rolled_up_index";
+    /**
+     * Rolled up data index - end (excluded) of the period stored in the data index
+     */
+    public static final String ROLLED_UP_INDEX_END = "end";
+    /**
+     * Rolled up data index - receive timestamp of the last message of the data index when rolled up
+     */
+    public static final String ROLLED_UP_INDEX_RECEIVED_ON = "received_on";
+
+    private static final long DATA_INDEX_PERIOD = TimeUnit.DAYS.toMillis(7);
+
+    private final ConcurrentMap<String, CompletableFuture<Metadata>> schemaCache;
+    private final Set<String> kapuaIndexesCache;
+    private final ExecutorService preCreateExecutor;
+    private final boolean preCreateEnabled;
 
     /**
      * Construct the Elasticsearch schema
      */
     public EsSchema() {
-        schemaCache = new HashMap<String, Metadata>();
-        schemaCacheSync = new Object();
-        mappingsSync = new Object();
+        schemaCache = new ConcurrentHashMap<>();
+        kapuaIndexesCache = ConcurrentHashMap.newKeySet();
+        preCreateEnabled = DatastoreSettings.getInstance().getBoolean(DatastoreSettingKey.ELASTICSEARCH_IDX_PRECREATE_ENABLED, true);
+        preCreateExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kapua-datastore-index-precreate");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
@@ -307,7 +396,20 @@ public class EsSchema {
     }
 
     /**
-     * Synchronize metadata
+     * Get the rollup index name
+     *
+     * @param scopeId
+     * @return
+     */
+    public static String getRollupIndexName(KapuaId scopeId) {
+        return EsUtils.getRollupIndexName(scopeId);
+    }
+
+    /**
+     * Synchronize metadata.<br>
+     * Only the first call for a data index creates the index and its mappings (if needed), the concurrent calls for the same index wait for its outcome
+     * while the calls for the indexes already known never block.<br>
+     * The first time the data index of the current period is used, the data index of the next period is created in background.
      *
      * @param scopeId
      * @param time
@@ -319,19 +421,28 @@ public class EsSchema {
             throws EsDocumentBuilderException, EsClientUnavailableException {
         String newIndex = EsUtils.getDataIndexName(scopeId, time);
 
-        synchronized (schemaCacheSync) {
-            if (schemaCache.containsKey(newIndex)) {
-                Metadata currentMetadata = schemaCache.get(newIndex);
-                return currentMetadata;
+        CompletableFuture<Metadata> metadataFuture = schemaCache.get(newIndex);
+        if (metadataFuture == null) {
+            CompletableFuture<Metadata> newMetadataFuture = new CompletableFuture<>();
+            metadataFuture = schemaCache.putIfAbsent(newIndex, newMetadataFuture);
+            if (metadataFuture == null) {
+                metadataFuture = newMetadataFuture;
+                initIndexes(scopeId, newIndex, newMetadataFuture);
             }
         }
 
-        s_logger.info("Before entering updating metadata");
+        Metadata currentMetadata = getResult(metadataFuture);
+        if (preCreateEnabled && currentMetadata.nextPeriodScheduled.compareAndSet(false, true)) {
+            preCreateNextPeriod(scopeId, time, newIndex);
+        }
+        return currentMetadata;
+    }
 
-        Metadata currentMetadata = null;
-        synchronized (mappingsSync) {
-            s_logger.info("Entered updating metadata");
-            currentMetadata = new Metadata();
+    private void initIndexes(KapuaId scopeId, String newIndex, CompletableFuture<Metadata> metadataFuture)
+            throws EsDocumentBuilderException, EsClientUnavailableException {
+        s_logger.info("Initializing metadata for index {}", newIndex);
+        try {
+            Metadata currentMetadata = new Metadata();
 
             IndicesExistsResponse existsResponse = null;
             Client esClient = ElasticsearchClient.getInstance();
@@ -343,60 +454,101 @@ public class EsSchema {
 
             boolean indexExists = existsResponse.isExists();
             if (!indexExists) {
-                esClient.admin().indices()
-                        .prepareCreate(newIndex)
-                        .setSettings(this.getIndexSettings())
-                        .execute()
-                        .actionGet();
-
-                s_logger.info("Data index created: " + newIndex);
+                try {
+                    esClient.admin().indices()
+                            .prepareCreate(newIndex)
+                            .setSettings(this.getIndexSettings())
+                            .execute()
+                            .actionGet();
+
+                    s_logger.info("Data index created: " + newIndex);
+                } catch (IndexAlreadyExistsException e) {
+                    // created by another node
+                    s_logger.debug("Data index already created: " + newIndex);
+                }
             }
 
             boolean enableAllField = false;
             boolean enableSourceField = true;
 
-            this.initMessageMappings(newIndex, enableAllField, enableSourceField);
+            currentMetadata.messageMappingsCache.addAll(this.initMessageMappings(newIndex, enableAllField, enableSourceField));
 
             // Check existence of the kapua internal index
             String newKapuaMetadataIdx = EsUtils.getKapuaIndexName(scopeId);
-            existsResponse = esClient.admin().indices()
-                    .exists(new IndicesExistsRequest(newKapuaMetadataIdx))
-                    .actionGet();
-
-            indexExists = existsResponse.isExists();
-            if (!indexExists) {
-                esClient.admin()
-                        .indices()
-                        .prepareCreate(newKapuaMetadataIdx)
-                        .setSettings(this.getIndexSettings())
-                        .execute()
+            if (!kapuaIndexesCache.contains(newKapuaMetadataIdx)) {
+                existsResponse = esClient.admin().indices()
+                        .exists(new IndicesExistsRequest(newKapuaMetadataIdx))
                         .actionGet();
 
-                s_logger.info("Metadata index created: " + newKapuaMetadataIdx);
+                indexExists = existsResponse.isExists();
+                if (!indexExists) {
+                    esClient.admin()
+                            .indices()
+                            .prepareCreate(newKapuaMetadataIdx)
+                            .setSettings(this.getIndexSettings())
+                            .execute()
+                            .actionGet();
 
-                this.initTopicMappings(newKapuaMetadataIdx, enableAllField, enableSourceField);
-                this.initMetricMappings(newKapuaMetadataIdx, enableAllField, enableSourceField);
-                this.initClientMappings(newKapuaMetadataIdx, enableAllField, enableSourceField);
+                    s_logger.info("Metadata index created: " + newKapuaMetadataIdx);
+
+                    this.initTopicMappings(newKapuaMetadataIdx, enableAllField, enableSourceField);
+                    this.initMetricMappings(newKapuaMetadataIdx, enableAllField, enableSourceField);
+                    this.initClientMappings(newKapuaMetadataIdx, enableAllField, enableSourceField);
+                }
+                kapuaIndexesCache.add(newKapuaMetadataIdx);
             }
 
             currentMetadata.dataIndexName = newIndex;
             currentMetadata.kapuaIndexName = newKapuaMetadataIdx;
-            s_logger.info("Leaving updating metadata");
+            s_logger.info("Initialized metadata for index {}", newIndex);
+
+            metadataFuture.complete(currentMetadata);
+        } catch (EsDocumentBuilderException | EsClientUnavailableException | RuntimeException e) {
+            // the next call retries the initialization
+            schemaCache.remove(newIndex, metadataFuture);
+            metadataFuture.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void preCreateNextPeriod(KapuaId scopeId, long time, String index) {
+        long now = System.currentTimeMillis();
+        // don't create indexes for past periods (e.g. messages indexed by device timestamp)
+        if (!index.equals(EsUtils.getDataIndexName(scopeId, now))) {
+            return;
         }
 
-        synchronized (schemaCacheSync) {
-            // Current metadata can only increase the custom mappings
-            // other fields does not change within the same account id
-            // and custom mappings are not and must not be exposed to
-            // outside this class to preserve thread safetyness
-            schemaCache.put(newIndex, currentMetadata);
+        long nextPeriodTime = now + DATA_INDEX_PERIOD;
+        String nextIndex = EsUtils.getDataIndexName(scopeId, nextPeriodTime);
+        if (nextIndex.equals(index) || schemaCache.containsKey(nextIndex)) {
+            return;
         }
 
-        return currentMetadata;
+        preCreateExecutor.execute(() -> {
+            try {
+                synch(scopeId, nextPeriodTime);
+            } catch (Exception e) {
+                s_logger.warn("Cannot create the data index {} of the next period", nextIndex, e);
+            }
+        });
     }
 
     /**
-     * Update metric mappings
+     * Forget the metadata of the deleted data indexes.<br>
+     * If a message of the period of a deleted index is stored again, the index is created again with its mappings.
+     *
+     * @param dataIndexNames
+     */
+    public void removeDataIndexes(Collection<String> dataIndexNames) {
+        for (String dataIndexName : dataIndexNames) {
+            schemaCache.remove(dataIndexName);
+        }
+    }
+
+    /**
+     * Update metric mappings.<br>
+     * The metrics already mapped are skipped without any synchronization, the new metrics added concurrently to the same index are sent to Elasticsearch
+     * with a single put mapping request.
      *
      * @param scopeId
      * @param time
@@ -409,35 +561,98 @@ public class EsSchema {
         if (esMetrics == null || esMetrics.size() == 0)
             return;
 
-        Metadata currentMetadata = null;
-        synchronized (schemaCacheSync) {
-            String newIndex = EsUtils.getDataIndexName(scopeId, time);
-            currentMetadata = schemaCache.get(newIndex);
+        Metadata currentMetadata = synch(scopeId, time);
+
+        // Update mappings only if a metric is new (not in cache)
+        List<CompletableFuture<Void>> pendingMappings = null;
+        for (Entry<String, EsMetric> esMetric : esMetrics.entrySet()) {
+            if (currentMetadata.messageMappingsCache.contains(esMetric.getKey())) {
+                continue;
+            }
+
+            CompletableFuture<Void> pendingMapping = currentMetadata.pendingMappings.get(esMetric.getKey());
+            if (pendingMapping == null) {
+                CompletableFuture<Void> newPendingMapping = new CompletableFuture<>();
+                pendingMapping = currentMetadata.pendingMappings.putIfAbsent(esMetric.getKey(), newPendingMapping);
+                if (pendingMapping == null) {
+                    pendingMapping = newPendingMapping;
+                    currentMetadata.mappingsQueue.add(esMetric.getValue());
+                }
+            }
+
+            if (pendingMappings == null)
+                pendingMappings = new ArrayList<>();
+            pendingMappings.add(pendingMapping);
         }
 
-        XContentBuilder builder = null;
-        Map<String, EsMetric> diffs = null;
+        if (pendingMappings == null)
+            return;
 
-        synchronized (mappingsSync) {
+        // The mappings queued by any thread are sent by the thread holding the index lock,
+        // so once the lock is acquired the mappings of this call are already sent
+        synchronized (currentMetadata.mappingsSync) {
+            sendMessageMappings(currentMetadata);
+        }
 
-            // Update mappings only if a metric is new (not in cache)
-            diffs = this.getMessageMappingDiffs(currentMetadata, esMetrics);
-            if (diffs == null || diffs.size() == 0)
-                return;
+        for (CompletableFuture<Void> pendingMapping : pendingMappings) {
+            getResult(pendingMapping);
+        }
+    }
 
-            builder = this.getNewMessageMappingsBuilder(diffs);
+    private void sendMessageMappings(Metadata currentMetadata)
+            throws EsDocumentBuilderException, EsClientUnavailableException {
+        Map<String, EsMetric> diffs = new TreeMap<>();
+        EsMetric esMetric;
+        while ((esMetric = currentMetadata.mappingsQueue.poll()) != null) {
+            diffs.put(esMetric.getName(), esMetric);
         }
+        if (diffs.isEmpty())
+            return;
 
         try {
-            s_logger.trace("Sending dynamic message mappings: " + builder.string());
-        } catch (IOException e) {
+            XContentBuilder builder = this.getNewMessageMappingsBuilder(diffs);
+
+            try {
+                s_logger.trace("Sending dynamic message mappings: " + builder.string());
+            } catch (IOException e) {
+            }
+
+            Client esClient = ElasticsearchClient.getInstance();
+            esClient.admin().indices().preparePutMapping(currentMetadata.dataIndexName)
+                    .setType(MESSAGE_TYPE_NAME)
+                    .setSource(builder)
+                    .execute().actionGet();
+
+            for (String metricName : diffs.keySet()) {
+                currentMetadata.messageMappingsCache.add(metricName);
+                currentMetadata.pendingMappings.remove(metricName).complete(null);
+            }
+        } catch (EsDocumentBuilderException | EsClientUnavailableException | RuntimeException e) {
+            // the next message carrying the metrics retries the mapping update
+            for (String metricName : diffs.keySet()) {
+                currentMetadata.pendingMappings.remove(metricName).completeExceptionally(e);
+            }
+            throw e;
         }
+    }
 
-        Client esClient = ElasticsearchClient.getInstance();
-        esClient.admin().indices().preparePutMapping(currentMetadata.dataIndexName)
-                .setType(MESSAGE_TYPE_NAME)
-                .setSource(builder)
-                .execute().actionGet();
+    private static <T> T getResult(CompletableFuture<T> future)
+            throws EsDocumentBuilderException, EsClientUnavailableException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EsClientUnavailableException("Interrupted while waiting for the index metadata", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof EsDocumentBuilderException)
+                throw (EsDocumentBuilderException) cause;
+            if (cause instanceof EsClientUnavailableException)
+                throw (EsClientUnavailableException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new EsDocumentBuilderException("Cannot initialize the index metadata", cause);
+        }
     }
 
     private XContentBuilder getIndexSettings()
@@ -470,6 +685,10 @@ public class EsSchema {
                     .field("enabled", allEnable)
                     .endObject()
                     .startObject("properties")
+                    .startObject(DOCUMENT_ID)
+                    .field("type", "string")
+                    .field("index", "not_analyzed")
+                    .endObject()
                     .startObject(CLIENT_ID)
                     .field("type", "string")
                     .field("index", "not_analyzed")
@@ -507,6 +726,10 @@ public class EsSchema {
                     .field("enabled", allEnable)
                     .endObject()
                     .startObject("properties")
+                    .startObject(DOCUMENT_ID)
+                    .field("type", "string")
+                    .field("index", "not_analyzed")
+                    .endObject()
                     .startObject(METRIC_SCOPE_ID)
                     .field("type", "string")
                     .field("index", "not_analyzed")
@@ -567,6 +790,10 @@ public class EsSchema {
                     .field("enabled", allEnable)
                     .endObject()
                     .startObject("properties")
+                    .startObject(DOCUMENT_ID)
+                    .field("type", "string")
+                    .field("index", "not_analyzed")
+                    .endObject()
                     .startObject(CHANNEL_SCOPE_ID)
                     .field("type", "string")
                     .field("index", "not_analyzed")
@@ -608,6 +835,10 @@ public class EsSchema {
                     .field("enabled", allEnable)
                     .endObject()
                     .startObject("properties")
+                    .startObject(DOCUMENT_ID)
+                    .field("type", "string")
+                    .field("index", "not_analyzed")
+                    .endObject()
                     .startObject(EsSchema.MESSAGE_TIMESTAMP)
                     .field("type", "date")
                     // .field("format", "basic_date_time||basic_date_time_no_millis||epoch_millis")
@@ -763,7 +994,7 @@ public class EsSchema {
         }
     }
 
-    private void initMessageMappings(String indexName, boolean allEnable, boolean sourceEnable)
+    private Set<String> initMessageMappings(String indexName, boolean allEnable, boolean sourceEnable)
             throws EsDocumentBuilderException, EsClientUnavailableException {
 
         Client esClient = ElasticsearchClient.getInstance();
@@ -783,6 +1014,59 @@ public class EsSchema {
             } catch (IOException e) {
                 s_logger.trace("Message mapping created: (content unavailable)");
             }
+            return Collections.emptySet();
+        }
+
+        this.initDocumentIdMapping(indexName, MESSAGE_TYPE_NAME, metadata);
+        return getMappedMetrics(metadata);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> getMappedMetrics(MappingMetaData metadata)
+            throws EsDocumentBuilderException {
+        try {
+            Map<String, Object> properties = (Map<String, Object>) metadata.sourceAsMap().get("properties");
+            Map<String, Object> metrics = properties != null ? (Map<String, Object>) properties.get(MESSAGE_METRICS) : null;
+            Map<String, Object> metricsProperties = metrics != null ? (Map<String, Object>) metrics.get("properties") : null;
+            return metricsProperties != null ? metricsProperties.keySet() : Collections.<String> emptySet();
+        } catch (IOException e) {
+            throw new EsDocumentBuilderException("Unable to read the message mappings", e);
+        }
+    }
+
+    /**
+     * Add the {@value #DOCUMENT_ID} field to the mapping of a type created before it was introduced (the documents already stored don't have it)
+     *
+     * @param indexName
+     * @param typeName
+     * @param metadata
+     * @throws EsDocumentBuilderException
+     * @throws EsClientUnavailableException
+     */
+    @SuppressWarnings("unchecked")
+    private void initDocumentIdMapping(String indexName, String typeName, MappingMetaData metadata)
+            throws EsDocumentBuilderException, EsClientUnavailableException {
+        try {
+            Map<String, Object> properties = (Map<String, Object>) metadata.sourceAsMap().get("properties");
+            if (properties != null && properties.containsKey(DOCUMENT_ID)) {
+                return;
+            }
+
+            XContentBuilder builder = XContentFactory.jsonBuilder()
+                    .startObject()
+                    .startObject(typeName)
+                    .startObject("properties")
+                    .startObject(DOCUMENT_ID)
+                    .field("type", "string")
+                    .field("index", "not_analyzed")
+                    .endObject()
+                    .endObject() // End Of Properties
+                    .endObject() // End of type
+                    .endObject();
+            ElasticsearchClient.getInstance().admin().indices().preparePutMapping(indexName).setType(typeName).setSource(builder).execute().actionGet();
+            s_logger.trace("Document id mapping added to type {} of index {}", typeName, indexName);
+        } catch (IOException e) {
+            throw new EsDocumentBuilderException(String.format("Unable to build the document id mapping for type %s", typeName), e);
         }
     }
 
@@ -806,6 +1090,8 @@ public class EsSchema {
             } catch (IOException e) {
                 s_logger.trace("Topic mapping created: (content unavailable)");
             }
+        } else {
+            this.initDocumentIdMapping(indexName, CHANNEL_TYPE_NAME, metadata);
         }
     }
 
@@ -829,6 +1115,8 @@ public class EsSchema {
             } catch (IOException e) {
                 s_logger.trace("Topic_metric mapping created: (content unavailable)");
             }
+        } else {
+            this.initDocumentIdMapping(indexName, METRIC_TYPE_NAME, metadata);
         }
     }
 
@@ -852,33 +1140,11 @@ public class EsSchema {
             } catch (IOException e) {
                 s_logger.trace("Asset mapping created: (content unavailable)");
             }
+        } else {
+            this.initDocumentIdMapping(indexName, CLIENT_TYPE_NAME, metadata);
         }
     }
 
-    private Map<String, EsMetric> getMessageMappingDiffs(Metadata currentMetadata, Map<String, EsMetric> esMetrics) {
-
-        if (esMetrics == null || esMetrics.size() == 0)
-            return null;
-
-        Entry<String, EsMetric> el;
-        Map<String, EsMetric> diffs = null;
-        Iterator<Entry<String, EsMetric>> iter = esMetrics.entrySet().iterator();
-        while (iter.hasNext()) {
-
-            el = iter.next();
-            if (!currentMetadata.getMessageMappingsCache().containsKey(el.getKey())) {
-
-                if (diffs == null)
-                    diffs = new HashMap<String, EsMetric>(100);
-
-                currentMetadata.getMessageMappingsCache().put(el.getKey(), el.getValue());
-                diffs.put(el.getKey(), el.getValue());
-            }
-        }
-
-        return diffs;
-    }
-
     /**
      * Metadata object
      *
@@ -894,18 +1160,25 @@ public class EsSchema {
         // Custom mappings can only increase within the same account
         // No removal of existing cached mappings or changes in the
         // existing mappings.
-        private Map<String, EsMetric> messageMappingsCache;
+        private final Set<String> messageMappingsCache;
         //
 
-        private Map<String, EsMetric> getMessageMappingsCache() {
-            return messageMappingsCache;
-        }
+        // Mappings not yet sent to Elasticsearch
+        private final ConcurrentMap<String, CompletableFuture<Void>> pendingMappings;
+        private final Queue<EsMetric> mappingsQueue;
+        private final Object mappingsSync;
+
+        private final AtomicBoolean nextPeriodScheduled;
 
         /**
          * Contruct metadata
          */
         public Metadata() {
-            messageMappingsCache = new HashMap<String, EsMetric>(100);
+            messageMappingsCache = ConcurrentHashMap.newKeySet();
+            pendingMappings = new ConcurrentHashMap<>();
+            mappingsQueue = new ConcurrentLinkedQueue<>();
+            mappingsSync = new Object();
+            nextPeriodScheduled = new AtomicBoolean();
         }
 
         /**
@@ -12,15 +12,23 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal.elasticsearch;
 
+import java.math.BigInteger;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.eclipse.kapua.commons.model.id.KapuaEid;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,6 +69,9 @@ public class EsUtils {
     public static final String ES_TYPE_SHORT_BINARY = "bin";
 
     private static final DateTimeFormatter DATA_INDEX_FORMATTER = DateTimeFormatter.ofPattern("yyyy-ww");
+    private static final int MAX_DATA_INDEXES = 100;
+    private static final Pattern DATA_INDEX_NAME_PATTERN = Pattern.compile("(\\d+)-((\\d{4})-\\d{2})");
+    private static final Pattern KAPUA_INDEX_NAME_PATTERN = Pattern.compile("\\.(\\d+)");
     
     private static final DateTimeFormatter FORMAT_1 = new DateTimeFormatterBuilder()
             .appendPattern("yyyy-MM-dd'T'HH:mm:ss.SSS")
@@ -201,6 +212,165 @@ public class EsUtils {
         return sb.toString();
     }
 
+    /**
+     * Get the data indexes covering the specified time range (bounds included), as a comma separated list.<br>
+     * If the range is covered by more than {@value #MAX_DATA_INDEXES} indexes the wildcard name of all the data indexes is returned.
+     *
+     * @param scopeId
+     * @param start
+     * @param end
+     * @return
+     */
+    public static String getDataIndexName(KapuaId scopeId, long start, long end) {
+        if (start > end) {
+            throw new IllegalArgumentException("The range start must not be after the range end");
+        }
+        final String actualName = EsUtils.normalizedIndexName(scopeId.toStringId());
+
+        // the week of year is not aligned to the days of the week, so all the days are checked
+        LocalDate startDate = Instant.ofEpochMilli(start).atOffset(ZoneOffset.UTC).toLocalDate();
+        LocalDate endDate = Instant.ofEpochMilli(end).atOffset(ZoneOffset.UTC).toLocalDate();
+        Set<String> indexNames = new LinkedHashSet<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            final StringBuilder sb = new StringBuilder(actualName).append('-');
+            DATA_INDEX_FORMATTER.formatTo(date, sb);
+            if (indexNames.add(sb.toString()) && indexNames.size() > MAX_DATA_INDEXES) {
+                return getDataIndexName(scopeId);
+            }
+        }
+        return String.join(",", indexNames);
+    }
+
+    /**
+     * Check if the index is a data index (named by {@link #getDataIndexName(KapuaId, long)})
+     *
+     * @param indexName
+     * @return
+     */
+    public static boolean isDataIndexName(String indexName) {
+        return DATA_INDEX_NAME_PATTERN.matcher(indexName).matches();
+    }
+
+    /**
+     * Check if the index is a Kapua index (named by {@link #getKapuaIndexName(KapuaId)})
+     *
+     * @param indexName
+     * @return
+     */
+    public static boolean isKapuaIndexName(String indexName) {
+        return KAPUA_INDEX_NAME_PATTERN.matcher(indexName).matches();
+    }
+
+    /**
+     * Get the scope of a data index or of a Kapua index
+     *
+     * @param indexName
+     * @return
+     * @throws IllegalArgumentException
+     *             if the index is neither a data index nor a Kapua index
+     */
+    public static KapuaId getIndexScopeId(String indexName) {
+        Matcher matcher = DATA_INDEX_NAME_PATTERN.matcher(indexName);
+        if (!matcher.matches()) {
+            matcher = KAPUA_INDEX_NAME_PATTERN.matcher(indexName);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException(String.format("Not a data or Kapua index name [%s]", indexName));
+            }
+        }
+        return new KapuaEid(new BigInteger(matcher.group(1)));
+    }
+
+    /**
+     * Get the start of the period stored in the data index (the beginning of its first day)
+     *
+     * @param dataIndexName
+     * @return
+     * @throws IllegalArgumentException
+     *             if the index is not a data index
+     */
+    public static long getDataIndexStart(String dataIndexName) {
+        return getDataIndexDay(dataIndexName, false).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Get the end (excluded) of the period stored in the data index (the beginning of the day after its last day)
+     *
+     * @param dataIndexName
+     * @return
+     * @throws IllegalArgumentException
+     *             if the index is not a data index
+     */
+    public static long getDataIndexEnd(String dataIndexName) {
+        return getDataIndexDay(dataIndexName, true).plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Get the periods stored in the data index, as [start, end) pairs sorted by start.<br>
+     * A data index stores a single week, but the days of the first week at the end of the year share the index of the first days of the year, so that data
+     * index stores two periods (e.g. the data index 2017-01 stores the first days of January 2017 and the 31st of December 2017).
+     *
+     * @param dataIndexName
+     * @return
+     * @throws IllegalArgumentException
+     *             if the index is not a data index
+     */
+    public static List<long[]> getDataIndexPeriods(String dataIndexName) {
+        Matcher matcher = DATA_INDEX_NAME_PATTERN.matcher(dataIndexName);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(String.format("Not a data index name [%s]", dataIndexName));
+        }
+        String period = matcher.group(2);
+        int year = Integer.parseInt(matcher.group(3));
+        List<long[]> periods = new ArrayList<>();
+        LocalDate periodStart = null;
+        for (LocalDate date = LocalDate.of(year, 1, 1); date.getYear() == year; date = date.plusDays(1)) {
+            boolean matches = period.equals(DATA_INDEX_FORMATTER.format(date));
+            if (matches && periodStart == null) {
+                periodStart = date;
+            } else if (!matches && periodStart != null) {
+                periods.add(new long[] { toEpochMilli(periodStart), toEpochMilli(date) });
+                periodStart = null;
+            }
+        }
+        if (periodStart != null) {
+            periods.add(new long[] { toEpochMilli(periodStart), toEpochMilli(LocalDate.of(year + 1, 1, 1)) });
+        }
+        if (periods.isEmpty()) {
+            throw new IllegalArgumentException(String.format("Not a data index period [%s]", dataIndexName));
+        }
+        return periods;
+    }
+
+    private static long toEpochMilli(LocalDate date) {
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    private static LocalDate getDataIndexDay(String dataIndexName, boolean last) {
+        Matcher matcher = DATA_INDEX_NAME_PATTERN.matcher(dataIndexName);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(String.format("Not a data index name [%s]", dataIndexName));
+        }
+        // the index name has the year and the week of the week based year, so the days of the first week
+        // at the end of the year share the index of the first days of the year: all the days of the year are checked
+        String period = matcher.group(2);
+        int year = Integer.parseInt(matcher.group(3));
+        LocalDate firstDay = LocalDate.of(year, 1, 1);
+        LocalDate lastDay = LocalDate.of(year, 12, 31);
+        LocalDate found = null;
+        for (LocalDate date = firstDay; !date.isAfter(lastDay); date = date.plusDays(1)) {
+            if (period.equals(DATA_INDEX_FORMATTER.format(date))) {
+                found = date;
+                if (!last) {
+                    break;
+                }
+            }
+        }
+        if (found == null) {
+            throw new IllegalArgumentException(String.format("Not a data index period [%s]", dataIndexName));
+        }
+        return found;
+    }
+
     /**
      * Get the Kapua index name for the specified base name
      *
@@ -214,6 +384,19 @@ public class EsUtils {
         return actualName;
     }
 
+    /**
+     * Get the rollup index name for the specified scope (it matches neither the data index names nor the Kapua index name)
+     *
+     * @param scopeId
+     * @return
+     * @since 1.0.0
+     */
+    public static String getRollupIndexName(KapuaId scopeId) {
+        String actualName = EsUtils.normalizedIndexName(scopeId.toStringId());
+        actualName = String.format(".%s-rollup", actualName);
+        return actualName;
+    }
+
     /**
      * Normalize the index ({@link EsUtils#normalizeIndexName(String index)}
      *
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.lucene.util.BytesRef;
+import org.eclipse.kapua.service.datastore.model.query.SortDirection;
+import org.eclipse.kapua.service.datastore.model.query.SortField;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+
+/**
+ * Key offset converter from Kapua abstraction layer to Elasticsearch domain.<br>
+ * The key offset (as the next key of the result lists) is the opaque encoding of the sort values of the last object of a result list. The following result list
+ * is selected by a filter matching the objects sorted after these values, so, unlike the offset, the previous objects are not collected (and discarded) by
+ * every shard for every page.<br>
+ * The sort order is made unique by the {@value #ID_FIELD} field, always appended as last sort field. It is used instead of the {@code _uid} field since it is
+ * stored with doc values, while sorting by {@code _uid} loads its field data in the heap of every node. The documents stored before the field was introduced
+ * don't have it, so the order of those with the same values of the other sort fields is not guaranteed across the pages.
+ *
+ * @since 1.0.0
+ */
+public class KeyOffsetConverter {
+
+    /**
+     * Unique document field used as last sort field
+     */
+    public static final String ID_FIELD = EsSchema.DOCUMENT_ID;
+
+    private static final String VALUE_SEPARATOR = ".";
+    private static final Pattern VALUE_SEPARATOR_PATTERN = Pattern.compile(Pattern.quote(VALUE_SEPARATOR));
+
+    private static final char NULL_VALUE = 'n';
+    private static final char STRING_VALUE = 's';
+    private static final char LONG_VALUE = 'l';
+    private static final char INTEGER_VALUE = 'i';
+    private static final char DOUBLE_VALUE = 'd';
+    private static final char FLOAT_VALUE = 'f';
+    private static final char BOOLEAN_VALUE = 'b';
+
+    private KeyOffsetConverter() {
+    }
+
+    /**
+     * Encode the sort values of a search hit to a key offset
+     *
+     * @param sortValues
+     * @return
+     * @since 1.0.0
+     */
+    public static String toKeyOffset(Object[] sortValues) {
+        StringBuilder keyOffset = new StringBuilder();
+        for (int i = 0; i < sortValues.length; i++) {
+            if (i > 0) {
+                keyOffset.append(VALUE_SEPARATOR);
+            }
+            Object value = sortValues[i];
+            char type;
+            if (value == null) {
+                type = NULL_VALUE;
+            } else if (value instanceof Long) {
+                type = LONG_VALUE;
+            } else if (value instanceof Integer) {
+                type = INTEGER_VALUE;
+            } else if (value instanceof Double) {
+                type = DOUBLE_VALUE;
+            } else if (value instanceof Float) {
+                type = FLOAT_VALUE;
+            } else if (value instanceof Boolean) {
+                type = BOOLEAN_VALUE;
+            } else {
+                // the string sort values are returned as text
+                type = STRING_VALUE;
+                if (value instanceof BytesRef) {
+                    value = ((BytesRef) value).utf8ToString();
+                }
+            }
+            keyOffset.append(type);
+            if (value != null) {
+                keyOffset.append(Base64.getUrlEncoder().withoutPadding().encodeToString(value.toString().getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        return keyOffset.toString();
+    }
+
+    /**
+     * Decode the sort values from a key offset
+     *
+     * @param keyOffset
+     * @return
+     * @throws EsQueryConversionException
+     *             if the key offset is not valid
+     * @since 1.0.0
+     */
+    public static Object[] fromKeyOffset(String keyOffset)
+            throws EsQueryConversionException {
+        String[] encodedValues = VALUE_SEPARATOR_PATTERN.split(keyOffset, -1);
+        Object[] sortValues = new Object[encodedValues.length];
+        try {
+            for (int i = 0; i < encodedValues.length; i++) {
+                if (encodedValues[i].isEmpty()) {
+                    throw new EsQueryConversionException(String.format("Invalid key offset [%s]", keyOffset));
+                }
+                char type = encodedValues[i].charAt(0);
+                String value = new String(Base64.getUrlDecoder().decode(encodedValues[i].substring(1)), StandardCharsets.UTF_8);
+                switch (type) {
+                case NULL_VALUE:
+                    sortValues[i] = null;
+                    break;
+                case STRING_VALUE:
+                    sortValues[i] = value;
+                    break;
+                case LONG_VALUE:
+                    sortValues[i] = Long.valueOf(value);
+                    break;
+                case INTEGER_VALUE:
+                    sortValues[i] = Integer.valueOf(value);
+                    break;
+                case DOUBLE_VALUE:
+                    sortValues[i] = Double.valueOf(value);
+                    break;
+                case FLOAT_VALUE:
+                    sortValues[i] = Float.valueOf(value);
+                    break;
+                case BOOLEAN_VALUE:
+                    sortValues[i] = Boolean.valueOf(value);
+                    break;
+                default:
+                    throw new EsQueryConversionException(String.format("Invalid key offset [%s]", keyOffset));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new EsQueryConversionException(e);
+        }
+        return sortValues;
+    }
+
+    /**
+     * Convert the sort values of the last object of a result list to the Elasticsearch {@link QueryBuilder} matching the objects sorted after it
+     *
+     * @param sortFields
+     *            the sort fields (the {@value #ID_FIELD} field included)
+     * @param sortValues
+     *            the sort values of the last object
+     * @return
+     * @since 1.0.0
+     */
+    public static QueryBuilder toAfterQuery(List<SortField> sortFields, Object[] sortValues) {
+        // (f1 after v1) or (f1 = v1 and f2 after v2) or ...
+        BoolQueryBuilder afterQuery = QueryBuilders.boolQuery().minimumNumberShouldMatch(1);
+        for (int i = 0; i < sortFields.size(); i++) {
+            QueryBuilder afterValueQuery = toAfterValueQuery(sortFields.get(i), sortValues[i]);
+            if (afterValueQuery != null) {
+                BoolQueryBuilder clause = QueryBuilders.boolQuery();
+                for (int j = 0; j < i; j++) {
+                    clause.filter(toEqualValueQuery(sortFields.get(j), sortValues[j]));
+                }
+                clause.filter(afterValueQuery);
+                afterQuery.should(clause);
+            }
+        }
+        return afterQuery;
+    }
+
+    private static QueryBuilder toEqualValueQuery(SortField sortField, Object value) {
+        if (isMissing(value)) {
+            return QueryBuilders.boolQuery().mustNot(QueryBuilders.existsQuery(sortField.getField()));
+        }
+        return QueryBuilders.termQuery(sortField.getField(), value);
+    }
+
+    private static QueryBuilder toAfterValueQuery(SortField sortField, Object value) {
+        // the objects without the field are sorted last, so nothing follows them but other objects without the field
+        if (isMissing(value)) {
+            return null;
+        }
+        RangeQueryBuilder rangeQuery = QueryBuilders.rangeQuery(sortField.getField());
+        if (SortDirection.ASC.equals(sortField.getSortDirection())) {
+            rangeQuery.gt(value);
+        } else {
+            rangeQuery.lt(value);
+        }
+        return QueryBuilders.boolQuery()
+                .should(rangeQuery)
+                .should(QueryBuilders.boolQuery().mustNot(QueryBuilders.existsQuery(sortField.getField())))
+                .minimumNumberShouldMatch(1);
+    }
+
+    /**
+     * Check if the sort value is the one given to the objects without the sort field
+     */
+    private static boolean isMissing(Object value) {
+        if (value == null) {
+            return true;
+        } else if (value instanceof Long) {
+            return (Long) value == Long.MAX_VALUE || (Long) value == Long.MIN_VALUE;
+        } else if (value instanceof Integer) {
+            return (Integer) value == Integer.MAX_VALUE || (Integer) value == Integer.MIN_VALUE;
+        } else if (value instanceof Double) {
+            return ((Double) value).isInfinite();
+        } else if (value instanceof Float) {
+            return ((Float) value).isInfinite();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,511 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kapua.message.KapuaMessage;
+import org.eclipse.kapua.message.KapuaPayload;
+import org.eclipse.kapua.message.KapuaPosition;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+/**
+ * Flat record of the message fields written by the {@link MessageXContentBuilder}.<br>
+ * The record can be filled from a {@link KapuaMessage} or straight from the raw message by a device protocol reader, so the message can be stored without
+ * building the device and the Kapua message objects: the position fields and the primitive metric values are not boxed and the body can be a slice of the
+ * raw message.
+ *
+ * @since 1.0.0
+ */
+public class MessageRecord {
+
+    private static final int INITIAL_METRIC_CAPACITY = 8;
+
+    private static final int POSITION_LONGITUDE = 1;
+    private static final int POSITION_LATITUDE = 1 << 1;
+    private static final int POSITION_ALTITUDE = 1 << 2;
+    private static final int POSITION_PRECISION = 1 << 3;
+    private static final int POSITION_HEADING = 1 << 4;
+    private static final int POSITION_SPEED = 1 << 5;
+    private static final int POSITION_SATELLITES = 1 << 6;
+    private static final int POSITION_STATUS = 1 << 7;
+    private static final int POSITION_LOCATION = POSITION_LONGITUDE | POSITION_LATITUDE;
+
+    private KapuaId scopeId;
+    private KapuaId deviceId;
+    private String clientId;
+    private List<String> semanticParts;
+    private Date capturedOn;
+    private Date sentOn;
+    private Date receivedOn;
+
+    private boolean hasPosition;
+    private int positionFields;
+    private double longitude;
+    private double latitude;
+    private double altitude;
+    private double precision;
+    private double heading;
+    private double speed;
+    private Date positionTimestamp;
+    private int satellites;
+    private int status;
+
+    private boolean hasPayload;
+    private byte[] body;
+    private int bodyOffset;
+    private int bodyLength;
+
+    private boolean hasMetrics;
+    private int metricCount;
+    private String[] metricNames;
+    private Class<?>[] metricTypes;
+    // values of the primitive metrics (double and float as raw bits)
+    private long[] metricBits;
+    // values of the other metrics
+    private Object[] metricObjects;
+
+    /**
+     * Construct an empty record
+     *
+     * @since 1.0.0
+     */
+    public MessageRecord() {
+    }
+
+    /**
+     * Construct a record with the fields of the message
+     *
+     * @param message
+     * @since 1.0.0
+     */
+    public MessageRecord(KapuaMessage<?, ?> message) {
+        scopeId = message.getScopeId();
+        deviceId = message.getDeviceId();
+        clientId = message.getClientId();
+        semanticParts = message.getChannel().getSemanticParts();
+        capturedOn = message.getCapturedOn();
+        sentOn = message.getSentOn();
+        receivedOn = message.getReceivedOn();
+
+        KapuaPosition position = message.getPosition();
+        if (position != null) {
+            hasPosition = true;
+            if (position.getLongitude() != null) {
+                setPositionLongitude(position.getLongitude());
+            }
+            if (position.getLatitude() != null) {
+                setPositionLatitude(position.getLatitude());
+            }
+            if (position.getAltitude() != null) {
+                setPositionAltitude(position.getAltitude());
+            }
+            if (position.getPrecision() != null) {
+                setPositionPrecision(position.getPrecision());
+            }
+            if (position.getHeading() != null) {
+                setPositionHeading(position.getHeading());
+            }
+            if (position.getSpeed() != null) {
+                setPositionSpeed(position.getSpeed());
+            }
+            positionTimestamp = position.getTimestamp();
+            if (position.getSatellites() != null) {
+                setPositionSatellites(position.getSatellites());
+            }
+            if (position.getStatus() != null) {
+                setPositionStatus(position.getStatus());
+            }
+        }
+
+        KapuaPayload payload = message.getPayload();
+        if (payload != null) {
+            hasPayload = true;
+            if (payload.getBody() != null) {
+                setBody(payload.getBody());
+            }
+            Map<String, Object> properties = payload.getProperties();
+            if (properties != null) {
+                hasMetrics = true;
+                for (Map.Entry<String, Object> property : properties.entrySet()) {
+                    addMetric(property.getKey(), property.getValue());
+                }
+            }
+        }
+    }
+
+    public KapuaId getScopeId() {
+        return scopeId;
+    }
+
+    public void setScopeId(KapuaId scopeId) {
+        this.scopeId = scopeId;
+    }
+
+    public KapuaId getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(KapuaId deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public List<String> getSemanticParts() {
+        return semanticParts;
+    }
+
+    public void setSemanticParts(List<String> semanticParts) {
+        this.semanticParts = semanticParts;
+    }
+
+    public Date getCapturedOn() {
+        return capturedOn;
+    }
+
+    public void setCapturedOn(Date capturedOn) {
+        this.capturedOn = capturedOn;
+    }
+
+    public Date getSentOn() {
+        return sentOn;
+    }
+
+    public void setSentOn(Date sentOn) {
+        this.sentOn = sentOn;
+    }
+
+    public Date getReceivedOn() {
+        return receivedOn;
+    }
+
+    public void setReceivedOn(Date receivedOn) {
+        this.receivedOn = receivedOn;
+    }
+
+    /**
+     * Return true if the message has a position (even if none of the position fields is set)
+     *
+     * @return
+     * @since 1.0.0
+     */
+    public boolean hasPosition() {
+        return hasPosition;
+    }
+
+    /**
+     * Set if the message has a position. Setting a position field sets also the position.
+     *
+     * @param hasPosition
+     * @since 1.0.0
+     */
+    public void setHasPosition(boolean hasPosition) {
+        this.hasPosition = hasPosition;
+    }
+
+    /**
+     * Return true if both the latitude and the longitude of the position are set
+     *
+     * @return
+     * @since 1.0.0
+     */
+    public boolean hasPositionLocation() {
+        return (positionFields & POSITION_LOCATION) == POSITION_LOCATION;
+    }
+
+    public void setPositionLongitude(double longitude) {
+        this.longitude = longitude;
+        setPositionField(POSITION_LONGITUDE);
+    }
+
+    public void setPositionLatitude(double latitude) {
+        this.latitude = latitude;
+        setPositionField(POSITION_LATITUDE);
+    }
+
+    public void setPositionAltitude(double altitude) {
+        this.altitude = altitude;
+        setPositionField(POSITION_ALTITUDE);
+    }
+
+    public void setPositionPrecision(double precision) {
+        this.precision = precision;
+        setPositionField(POSITION_PRECISION);
+    }
+
+    public void setPositionHeading(double heading) {
+        this.heading = heading;
+        setPositionField(POSITION_HEADING);
+    }
+
+    public void setPositionSpeed(double speed) {
+        this.speed = speed;
+        setPositionField(POSITION_SPEED);
+    }
+
+    public void setPositionTimestamp(Date positionTimestamp) {
+        this.positionTimestamp = positionTimestamp;
+        hasPosition = true;
+    }
+
+    public void setPositionSatellites(int satellites) {
+        this.satellites = satellites;
+        setPositionField(POSITION_SATELLITES);
+    }
+
+    public void setPositionStatus(int status) {
+        this.status = status;
+        setPositionField(POSITION_STATUS);
+    }
+
+    private void setPositionField(int positionField) {
+        positionFields |= positionField;
+        hasPosition = true;
+    }
+
+    /**
+     * Return true if the message has a payload
+     *
+     * @return
+     * @since 1.0.0
+     */
+    public boolean hasPayload() {
+        return hasPayload;
+    }
+
+    /**
+     * Set if the message has a payload. Setting the body or the metrics sets also the payload.
+     *
+     * @param hasPayload
+     * @since 1.0.0
+     */
+    public void setHasPayload(boolean hasPayload) {
+        this.hasPayload = hasPayload;
+    }
+
+    /**
+     * Set the message body
+     *
+     * @param body
+     * @since 1.0.0
+     */
+    public void setBody(byte[] body) {
+        setBody(body, 0, body != null ? body.length : 0);
+    }
+
+    /**
+     * Set the message body as a slice of the buffer (the buffer is not copied)
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @since 1.0.0
+     */
+    public void setBody(byte[] buffer, int offset, int length) {
+        body = buffer;
+        bodyOffset = offset;
+        bodyLength = length;
+        hasPayload = true;
+    }
+
+    /**
+     * Return true if the payload has the metrics (even if empty)
+     *
+     * @return
+     * @since 1.0.0
+     */
+    public boolean hasMetrics() {
+        return hasMetrics;
+    }
+
+    /**
+     * Set if the payload has the metrics. Adding a metric sets also the metrics.
+     *
+     * @param hasMetrics
+     * @since 1.0.0
+     */
+    public void setHasMetrics(boolean hasMetrics) {
+        this.hasMetrics = hasMetrics;
+        hasPayload |= hasMetrics;
+    }
+
+    public void addMetric(String name, double value) {
+        addMetric(name, Double.class, Double.doubleToRawLongBits(value), null);
+    }
+
+    public void addMetric(String name, float value) {
+        addMetric(name, Float.class, Float.floatToRawIntBits(value), null);
+    }
+
+    public void addMetric(String name, long value) {
+        addMetric(name, Long.class, value, null);
+    }
+
+    public void addMetric(String name, int value) {
+        addMetric(name, Integer.class, value, null);
+    }
+
+    public void addMetric(String name, boolean value) {
+        addMetric(name, Boolean.class, value ? 1 : 0, null);
+    }
+
+    public void addMetric(String name, String value) {
+        addMetric(name, String.class, 0, value);
+    }
+
+    public void addMetric(String name, byte[] value) {
+        addMetric(name, byte[].class, 0, value);
+    }
+
+    /**
+     * Add a metric.<br>
+     * If more metrics with the same name are added, the last one is stored.
+     *
+     * @param name
+     * @param value
+     *            the value (not null)
+     * @since 1.0.0
+     */
+    public void addMetric(String name, Object value) {
+        if (value instanceof Double) {
+            addMetric(name, ((Double) value).doubleValue());
+        } else if (value instanceof Float) {
+            addMetric(name, ((Float) value).floatValue());
+        } else if (value instanceof Long) {
+            addMetric(name, ((Long) value).longValue());
+        } else if (value instanceof Integer) {
+            addMetric(name, ((Integer) value).intValue());
+        } else if (value instanceof Boolean) {
+            addMetric(name, ((Boolean) value).booleanValue());
+        } else {
+            addMetric(name, value.getClass(), 0, value);
+        }
+    }
+
+    private void addMetric(String name, Class<?> type, long bits, Object object) {
+        if (metricNames == null) {
+            metricNames = new String[INITIAL_METRIC_CAPACITY];
+            metricTypes = new Class<?>[INITIAL_METRIC_CAPACITY];
+            metricBits = new long[INITIAL_METRIC_CAPACITY];
+            metricObjects = new Object[INITIAL_METRIC_CAPACITY];
+        } else if (metricCount == metricNames.length) {
+            int capacity = metricCount * 2;
+            metricNames = Arrays.copyOf(metricNames, capacity);
+            metricTypes = Arrays.copyOf(metricTypes, capacity);
+            metricBits = Arrays.copyOf(metricBits, capacity);
+            metricObjects = Arrays.copyOf(metricObjects, capacity);
+        }
+        metricNames[metricCount] = name;
+        metricTypes[metricCount] = type;
+        metricBits[metricCount] = bits;
+        metricObjects[metricCount] = object;
+        metricCount++;
+        hasMetrics = true;
+        hasPayload = true;
+    }
+
+    /**
+     * Get the number of the added metrics
+     *
+     * @return
+     * @since 1.0.0
+     */
+    public int getMetricCount() {
+        return metricCount;
+    }
+
+    public String getMetricName(int index) {
+        return metricNames[index];
+    }
+
+    public Class<?> getMetricType(int index) {
+        return metricTypes[index];
+    }
+
+    void writePosition(XContentBuilder builder) throws IOException {
+        builder.startObject(EsSchema.MESSAGE_POSITION);
+        if (hasPositionLocation()) {
+            builder.startObject(EsSchema.MESSAGE_POS_LOCATION)
+                    .field("lon", longitude)
+                    .field("lat", latitude)
+                    .endObject();
+        } else {
+            builder.nullField(EsSchema.MESSAGE_POS_LOCATION);
+        }
+        writePositionField(builder, EsSchema.MESSAGE_POS_ALT, POSITION_ALTITUDE, altitude);
+        writePositionField(builder, EsSchema.MESSAGE_POS_PRECISION, POSITION_PRECISION, precision);
+        writePositionField(builder, EsSchema.MESSAGE_POS_HEADING, POSITION_HEADING, heading);
+        writePositionField(builder, EsSchema.MESSAGE_POS_SPEED, POSITION_SPEED, speed);
+        if (positionTimestamp != null) {
+            builder.field(EsSchema.MESSAGE_POS_TIMESTAMP, positionTimestamp);
+        } else {
+            builder.nullField(EsSchema.MESSAGE_POS_TIMESTAMP);
+        }
+        writePositionField(builder, EsSchema.MESSAGE_POS_SATELLITES, POSITION_SATELLITES, satellites);
+        writePositionField(builder, EsSchema.MESSAGE_POS_STATUS, POSITION_STATUS, status);
+        builder.endObject();
+    }
+
+    private void writePositionField(XContentBuilder builder, String name, int positionField, double value) throws IOException {
+        if ((positionFields & positionField) != 0) {
+            builder.field(name, value);
+        } else {
+            builder.nullField(name);
+        }
+    }
+
+    private void writePositionField(XContentBuilder builder, String name, int positionField, int value) throws IOException {
+        if ((positionFields & positionField) != 0) {
+            builder.field(name, value);
+        } else {
+            builder.nullField(name);
+        }
+    }
+
+    void writeBody(XContentBuilder builder) throws IOException {
+        if (body != null) {
+            builder.field(EsSchema.MESSAGE_BODY, body, bodyOffset, bodyLength);
+        } else {
+            builder.nullField(EsSchema.MESSAGE_BODY);
+        }
+    }
+
+    void writeMetricValue(XContentBuilder builder, String name, int index) throws IOException {
+        Class<?> type = metricTypes[index];
+        long bits = metricBits[index];
+        if (type == Double.class) {
+            builder.field(name, Double.longBitsToDouble(bits));
+        } else if (type == Float.class) {
+            builder.field(name, Float.intBitsToFloat((int) bits));
+        } else if (type == Long.class) {
+            builder.field(name, bits);
+        } else if (type == Integer.class) {
+            builder.field(name, (int) bits);
+        } else if (type == Boolean.class) {
+            builder.field(name, bits != 0);
+        } else {
+            builder.field(name, metricObjects[index]);
+        }
+    }
+}
@@ -11,10 +11,10 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal.elasticsearch;
 
+import java.util.Collection;
 import java.util.Map;
 
 import org.eclipse.kapua.KapuaIllegalArgumentException;
-import org.eclipse.kapua.message.KapuaMessage;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema.Metadata;
 
@@ -54,18 +54,25 @@ public interface MessageStoreMediator {
     /**
      * On after message store event handler
      *
-     * @param scopeId
      * @param docBuilder
-     * @param message
+     * @param record
      * @throws KapuaIllegalArgumentException
      * @throws EsDocumentBuilderException
      * @throws EsClientUnavailableException
      * @throws EsConfigurationException
      * @since 1.0.0
      */
-    public void onAfterMessageStore(MessageXContentBuilder docBuilder, KapuaMessage<?, ?> message)
+    public void onAfterMessageStore(MessageXContentBuilder docBuilder, MessageRecord record)
             throws KapuaIllegalArgumentException,
             EsDocumentBuilderException,
             EsClientUnavailableException,
             EsConfigurationException;
+
+    /**
+     * On after data indexes delete event handler
+     *
+     * @param dataIndexNames
+     * @since 1.0.0
+     */
+    public void onAfterDataIndexesDelete(Collection<String> dataIndexNames);
 }
@@ -19,8 +19,6 @@ import java.util.Map;
 import java.util.UUID;
 
 import org.eclipse.kapua.message.KapuaMessage;
-import org.eclipse.kapua.message.KapuaPayload;
-import org.eclipse.kapua.message.KapuaPosition;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.internal.model.StorableIdImpl;
 import org.eclipse.kapua.service.datastore.model.StorableId;
@@ -31,7 +29,7 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Message object content builder.<br>
- * This object creates an ElasticSearch {@link XContentBuilder} from the Kapua message object (marshal).
+ * This object creates an ElasticSearch {@link XContentBuilder} from the Kapua message object or from the {@link MessageRecord} (marshal).
  *
  * @since 1.0.0
  */
@@ -61,14 +59,15 @@ public class MessageXContentBuilder {
         metricMappings = null;
     }
 
-    private XContentBuilder build(KapuaMessage<?, ?> message, String messageId, Date timestamp, Date indexedOn, Date receivedOn)
+    private XContentBuilder build(MessageRecord record, Date timestamp, Date receivedOn)
             throws EsDocumentBuilderException {
         try {
-            String accountIdStr = message.getScopeId() == null ? null : message.getScopeId().toCompactId();
-            String deviceIdStr = message.getDeviceId() == null ? null : message.getDeviceId().toCompactId();
+            String accountIdStr = record.getScopeId() == null ? null : record.getScopeId().toCompactId();
+            String deviceIdStr = record.getDeviceId() == null ? null : record.getDeviceId().toCompactId();
 
             XContentBuilder messageBuilder = XContentFactory.jsonBuilder()
                     .startObject()
+                    .field(EsSchema.DOCUMENT_ID, this.getMessageId().toString())
                     .field(EsSchema.MESSAGE_TIMESTAMP, timestamp)
                     .field(EsSchema.MESSAGE_RECEIVED_ON, receivedOn) // TODO Which field ??
                     .field(EsSchema.MESSAGE_IP_ADDRESS, "127.0.0.1")
@@ -77,66 +76,56 @@ public class MessageXContentBuilder {
                     .field(EsSchema.MESSAGE_CLIENT_ID, this.getClientId())
                     .field(EsSchema.MESSAGE_CHANNEL, this.getChannel())
                     .field(EsSchema.MESSAGE_CHANNEL_PARTS, this.getChannelParts())
-                    .field(EsSchema.MESSAGE_CAPTURED_ON, message.getCapturedOn())
-                    .field(EsSchema.MESSAGE_SENT_ON, message.getSentOn());
+                    .field(EsSchema.MESSAGE_CAPTURED_ON, record.getCapturedOn())
+                    .field(EsSchema.MESSAGE_SENT_ON, record.getSentOn());
 
-            KapuaPosition kapuaPosition = message.getPosition();
-            if (kapuaPosition != null) {
-
-                Map<String, Object> location = null;
-                if (kapuaPosition.getLongitude() != null && kapuaPosition.getLatitude() != null) {
-                    location = new HashMap<>();
-                    location.put("lon", kapuaPosition.getLongitude());
-                    location.put("lat", kapuaPosition.getLatitude());
-                }
-
-                Map<String, Object> position = new HashMap<>();
-                position.put(EsSchema.MESSAGE_POS_LOCATION, location);
-                position.put(EsSchema.MESSAGE_POS_ALT, kapuaPosition.getAltitude());
-                position.put(EsSchema.MESSAGE_POS_PRECISION, kapuaPosition.getPrecision());
-                position.put(EsSchema.MESSAGE_POS_HEADING, kapuaPosition.getHeading());
-                position.put(EsSchema.MESSAGE_POS_SPEED, kapuaPosition.getSpeed());
-                position.put(EsSchema.MESSAGE_POS_TIMESTAMP, kapuaPosition.getTimestamp());
-                position.put(EsSchema.MESSAGE_POS_SATELLITES, kapuaPosition.getSatellites());
-                position.put(EsSchema.MESSAGE_POS_STATUS, kapuaPosition.getStatus());
-                messageBuilder.field(EsSchema.MESSAGE_POSITION, position);
+            if (record.hasPosition()) {
+                record.writePosition(messageBuilder);
             }
 
-            KapuaPayload payload = message.getPayload();
-            if (payload == null) {
+            if (!record.hasPayload()) {
                 messageBuilder.endObject();
                 return messageBuilder;
             }
 
-            messageBuilder.field(EsSchema.MESSAGE_BODY, payload.getBody());
+            record.writeBody(messageBuilder);
 
             Map<String, EsMetric> metricMappings = new HashMap<>();
 
-            Map<String, Object> kapuaMetrics = payload.getProperties();
-            if (kapuaMetrics != null) {
-
-                Map<String, Object> metrics = new HashMap<>();
-                String[] metricNames = kapuaMetrics.keySet().toArray(new String[] {});
-                for (String kapuaMetricName : metricNames) {
-
-                    Object metricValue = kapuaMetrics.get(kapuaMetricName);
+            if (record.hasMetrics()) {
 
+                // The metrics are written ordered by name, so the document doesn't depend on the order the record was filled in
+                int metricCount = record.getMetricCount();
+                String[] esMetricNames = new String[metricCount];
+                for (int i = 0; i < metricCount; i++) {
                     // Sanitize field names: '.' is not allowed
-                    String esMetricName = EsUtils.normalizeMetricName(kapuaMetricName);
-                    String esType = EsUtils.getEsTypeFromClass(metricValue.getClass());
+                    esMetricNames[i] = EsUtils.normalizeMetricName(record.getMetricName(i));
+                }
+                int[] metricOrder = sortMetrics(record, esMetricNames);
+
+                messageBuilder.startObject(EsSchema.MESSAGE_METRICS);
+                for (int i = 0; i < metricCount; i++) {
+                    int metric = metricOrder[i];
+                    String esMetricName = esMetricNames[metric];
+                    if (i + 1 < metricCount && esMetricName.equals(esMetricNames[metricOrder[i + 1]])) {
+                        // the field is written once, with the last of the metrics having the same name
+                        continue;
+                    }
+
+                    String esType = EsUtils.getEsTypeFromClass(record.getMetricType(metric));
                     String esTypeAcronim = EsUtils.getEsTypeAcronym(esType);
                     EsMetric esMetric = new EsMetric();
                     esMetric.setName(esMetricName);
                     esMetric.setType(esType);
 
-                    Map<String, Object> field = new HashMap<>();
-                    field.put(esTypeAcronim, metricValue);
-                    metrics.put(esMetricName, field);
+                    messageBuilder.startObject(esMetricName);
+                    record.writeMetricValue(messageBuilder, esTypeAcronim, metric);
+                    messageBuilder.endObject();
 
                     // each metric is potentially a dynamic field so report it a new mapping
                     metricMappings.put(esMetricName, esMetric);
                 }
-                messageBuilder.field(EsSchema.MESSAGE_METRICS, metrics);
+                messageBuilder.endObject();
             }
 
             messageBuilder.endObject();
@@ -148,6 +137,54 @@ public class MessageXContentBuilder {
         }
     }
 
+    /**
+     * Sort the metric indexes by normalized name, then by name, then by index (stable merge sort)
+     *
+     * @param record
+     * @param esMetricNames
+     * @return
+     */
+    private static int[] sortMetrics(MessageRecord record, String[] esMetricNames) {
+        int[] order = new int[esMetricNames.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        if (order.length > 1) {
+            mergeSort(record, esMetricNames, order, new int[order.length], 0, order.length);
+        }
+        return order;
+    }
+
+    private static void mergeSort(MessageRecord record, String[] esMetricNames, int[] order, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(record, esMetricNames, order, buffer, from, middle);
+        mergeSort(record, esMetricNames, order, buffer, middle, to);
+        if (compareMetrics(record, esMetricNames, order[middle - 1], order[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(order, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && compareMetrics(record, esMetricNames, buffer[left], buffer[right]) <= 0)) {
+                order[i] = buffer[left++];
+            } else {
+                order[i] = buffer[right++];
+            }
+        }
+    }
+
+    private static int compareMetrics(MessageRecord record, String[] esMetricNames, int metric1, int metric2) {
+        int comparison = esMetricNames[metric1].compareTo(esMetricNames[metric2]);
+        if (comparison == 0) {
+            comparison = record.getMetricName(metric1).compareTo(record.getMetricName(metric2));
+        }
+        return comparison;
+    }
+
     /**
      * Initialize (clean all the instance field) and return the {@link ClientInfoXContentBuilder}
      *
@@ -171,26 +208,42 @@ public class MessageXContentBuilder {
      */
     public MessageXContentBuilder build(KapuaId scopeId, KapuaMessage<?, ?> message, Date indexedOn, Date receivedOn)
             throws EsDocumentBuilderException {
+        return this.build(scopeId, new MessageRecord(message), indexedOn, receivedOn);
+    }
+
+    /**
+     * Get the {@link MessageXContentBuilder} initialized with the provided parameters
+     *
+     * @param scopeId
+     * @param record
+     * @param indexedOn
+     * @param receivedOn
+     * @return
+     * @throws EsDocumentBuilderException
+     * @since 1.0.0
+     */
+    public MessageXContentBuilder build(KapuaId scopeId, MessageRecord record, Date indexedOn, Date receivedOn)
+            throws EsDocumentBuilderException {
         StorableId messageId;
         UUID uuid = UUID.randomUUID();
         messageId = new StorableIdImpl(uuid.toString());
 
         this.setScopeId(scopeId);
-        this.setClientId(message.getClientId());
+        this.setClientId(record.getClientId());
 
-        List<String> parts = message.getChannel().getSemanticParts();
+        List<String> parts = record.getSemanticParts();
         this.setChannel(DatastoreChannel.getChannel(parts));
         this.setChannelParts(parts.toArray(new String[] {}));
+        this.setMessageId(messageId);
 
-        XContentBuilder messageBuilder = this.build(message, messageId.toString(), indexedOn, indexedOn, receivedOn);
+        XContentBuilder messageBuilder = this.build(record, indexedOn, receivedOn);
 
         this.setTimestamp(indexedOn);
         this.setIndexedOn(indexedOn);
         this.setReceivedOn(receivedOn);
-        this.setSentOn(message.getSentOn());
-        this.setCapturedOn(message.getCapturedOn());
+        this.setSentOn(record.getSentOn());
+        this.setCapturedOn(record.getCapturedOn());
 
-        this.setMessageId(messageId);
         this.setBuilder(messageBuilder);
         return this;
     }
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationGroupBy;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * Metric aggregation query converter.<br>
+ * The query is converted to a date histogram aggregation (optionally nested in a terms aggregation by client identifier or by channel). For each metric, every
+ * interval holds a filter aggregation (the messages having the metric) with a stats aggregation of each numeric typed field of the metric and a top hits
+ * aggregation fetching the metric of the last message.
+ *
+ * @since 1.0.0
+ */
+public class MetricAggregationQueryConverter {
+
+    public static final String GROUP_AGGREGATION = "group";
+    public static final String INTERVAL_AGGREGATION = "interval";
+    public static final String METRIC_AGGREGATION_PREFIX = "metric_";
+    public static final String STATS_AGGREGATION_PREFIX = "stats_";
+    public static final String LAST_AGGREGATION = "last";
+
+    /**
+     * Type acronyms of the aggregated metric fields
+     */
+    public static final String[] NUMERIC_TYPE_ACRONYMS = new String[] {
+            EsUtils.ES_TYPE_SHORT_INTEGER,
+            EsUtils.ES_TYPE_SHORT_LONG,
+            EsUtils.ES_TYPE_SHORT_FLOAT,
+            EsUtils.ES_TYPE_SHORT_DOUBLE };
+
+    /**
+     * Convert to a search query
+     *
+     * @param indices
+     *            comma separated list of indexes (the missing indexes are ignored)
+     * @param type
+     * @param query
+     * @return
+     * @throws EsQueryConversionException
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public SearchRequestBuilder toSearchRequestBuilder(String indices, String type, MetricAggregationQuery query)
+            throws EsQueryConversionException, EsClientUnavailableException {
+        if (query == null)
+            throw new NullPointerException(String.format("Query parameter is undefined"));
+
+        // only the messages having at least one of the metrics are aggregated
+        BoolQueryBuilder hasMetrics = QueryBuilders.boolQuery().minimumNumberShouldMatch(1);
+        DateHistogramBuilder intervals = AggregationBuilders.dateHistogram(INTERVAL_AGGREGATION)
+                .field(EsSchema.MESSAGE_TIMESTAMP)
+                .interval(query.getInterval())
+                .minDocCount(1);
+        for (int i = 0; i < query.getMetricNames().size(); i++) {
+            String metricField = getMetricField(query.getMetricNames().get(i));
+            BoolQueryBuilder hasMetric = QueryBuilders.boolQuery().minimumNumberShouldMatch(1);
+            FilterAggregationBuilder metric = AggregationBuilders.filter(METRIC_AGGREGATION_PREFIX + i);
+            for (String typeAcronym : NUMERIC_TYPE_ACRONYMS) {
+                String typedMetricField = metricField + "." + typeAcronym;
+                hasMetric.should(QueryBuilders.existsQuery(typedMetricField));
+                metric.subAggregation(AggregationBuilders.stats(STATS_AGGREGATION_PREFIX + typeAcronym).field(typedMetricField));
+            }
+            metric.filter(hasMetric)
+                    .subAggregation(AggregationBuilders.topHits(LAST_AGGREGATION)
+                            .setSize(1)
+                            .addSort(EsSchema.MESSAGE_TIMESTAMP, SortOrder.DESC)
+                            .setFetchSource(metricField, null));
+            hasMetrics.should(hasMetric);
+            intervals.subAggregation(metric);
+        }
+
+        AggregationBuilder<?> aggregation = intervals;
+        MetricAggregationGroupBy groupBy = query.getGroupBy();
+        if (MetricAggregationGroupBy.CLIENT_ID.equals(groupBy)) {
+            aggregation = AggregationBuilders.terms(GROUP_AGGREGATION)
+                    .field(EsSchema.MESSAGE_CLIENT_ID)
+                    .size(query.getGroupLimit())
+                    .subAggregation(intervals);
+        } else if (MetricAggregationGroupBy.CHANNEL.equals(groupBy)) {
+            aggregation = AggregationBuilders.terms(GROUP_AGGREGATION)
+                    .field(EsSchema.MESSAGE_CHANNEL)
+                    .size(query.getGroupLimit())
+                    .subAggregation(intervals);
+        }
+
+        SearchRequestBuilder searchReqBuilder = ElasticsearchClient.getInstance().prepareSearch(Strings.splitStringByCommaToArray(indices));
+        // some of the listed data indexes may not exist (no message stored in the period)
+        searchReqBuilder.setIndicesOptions(IndicesOptions.lenientExpandOpen());
+        searchReqBuilder.setTypes(type)
+                .setQuery(QueryBuilders.boolQuery()
+                        .must(PredicateConverter.convertQueryPredicates(query.getScopeId(), query.getPredicate()))
+                        .filter(hasMetrics))
+                .setSize(0)
+                .addAggregation(aggregation);
+
+        return searchReqBuilder;
+    }
+
+    /**
+     * Get the message field of the metric (the typed values are its sub fields)
+     *
+     * @param metricName
+     * @return
+     * @since 1.0.0
+     */
+    public static String getMetricField(String metricName) {
+        return EsSchema.MESSAGE_METRICS + "." + EsUtils.normalizeMetricName(metricName);
+    }
+}
@@ -138,6 +138,7 @@ public class MetricInfoXContentBuilder {
     /**
      * Get the {@link XContentBuilder} initialized with the provided parameters
      *
+     * @param metricId
      * @param account
      * @param clientId
      * @param channel
@@ -149,11 +150,12 @@ public class MetricInfoXContentBuilder {
      * @throws EsDocumentBuilderException
      * @since 1.0.0
      */
-    private XContentBuilder build(KapuaId scopeId, String clientId, String channel, String metricName, Class<?> metricType, Date msgTimestamp, String msgId)
+    private XContentBuilder build(String metricId, KapuaId scopeId, String clientId, String channel, String metricName, Class<?> metricType, Date msgTimestamp, String msgId)
             throws EsDocumentBuilderException {
         try {
             return XContentFactory.jsonBuilder()
                     .startObject()
+                    .field(EsSchema.DOCUMENT_ID, metricId)
                     .field(EsSchema.METRIC_SCOPE_ID, scopeId.toCompactId())
                     .field(EsSchema.METRIC_CLIENT_ID, clientId)
                     .field(EsSchema.METRIC_CHANNEL, channel)
@@ -204,7 +206,8 @@ public class MetricInfoXContentBuilder {
                 metricBuilder.setId(metricId);
 
                 // TODO retrieve the uuid field
-                metricBuilder.setContent(this.build(scopeId,
+                metricBuilder.setContent(this.build(metricId,
+                        scopeId,
                         clientId,
                         channel,
                         esMetricName,
@@ -266,8 +269,10 @@ public class MetricInfoXContentBuilder {
         StorableId msgId = metricInfo.getFirstMessageId();
         Date msgTimestamp = metricInfo.getFirstMessageOn();
 
+        String metricId = getOrDeriveId(metricInfo.getId(), metricInfo);
         XContentBuilder metricContentBuilder;
-        metricContentBuilder = this.build(metricInfo.getScopeId(),
+        metricContentBuilder = this.build(metricId,
+                metricInfo.getScopeId(),
                 metricInfo.getClientId(),
                 metricInfo.getChannel(),
                 metricInfo.getName(),
@@ -276,7 +281,7 @@ public class MetricInfoXContentBuilder {
                 msgId.toString());
 
         MetricXContentBuilder metricBuilder = new MetricXContentBuilder();
-        metricBuilder.setId(getOrDeriveId(metricInfo.getId(), metricInfo));
+        metricBuilder.setId(metricId);
         metricBuilder.setContent(metricContentBuilder);
         List<MetricXContentBuilder> metricBuilders = new ArrayList<>();
         metricBuilders.add(metricBuilder);
@@ -15,6 +15,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.DatastoreObjectFactory;
 import org.eclipse.kapua.service.datastore.internal.model.query.AndPredicateImpl;
 import org.eclipse.kapua.service.datastore.model.StorableId;
@@ -56,13 +57,29 @@ public class PredicateConverter {
      */
     public static QueryBuilder convertQueryPredicates(StorableQuery<?> query)
             throws EsQueryConversionException {
+        return convertQueryPredicates(query.getScopeId(), query.getPredicate());
+    }
+
+    /**
+     * Converts the Kapua {@link StorablePredicate} of the scope in Elasticsearch {@link QueryBuilder}.
+     *
+     * @param scopeId
+     *            The scope of the matched objects.
+     * @param predicate
+     *            The {@link StorablePredicate} to convert (may be null).
+     * @return The converted {@link QueryBuilder}.
+     * @throws EsQueryConversionException
+     * @since 1.0.0
+     */
+    public static QueryBuilder convertQueryPredicates(KapuaId scopeId, StorablePredicate predicate)
+            throws EsQueryConversionException {
 
         //
         // Force the ScopeId predicate in order to partition data by it.
         AndPredicate andPredicate = new AndPredicateImpl();
-        andPredicate.getPredicates().add(datastoreObjectFactory.newTermPredicate(ChannelInfoField.SCOPE_ID, query.getScopeId().toCompactId()));
-        if(query.getPredicate() != null){
-            andPredicate.getPredicates().add(query.getPredicate());
+        andPredicate.getPredicates().add(datastoreObjectFactory.newTermPredicate(ChannelInfoField.SCOPE_ID, scopeId.toCompactId()));
+        if(predicate != null){
+            andPredicate.getPredicates().add(predicate);
         }
         return toElasticsearchQuery(andPredicate);
     }
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.kapua.service.datastore.internal.model.RollupInterval;
+import org.eclipse.kapua.service.datastore.model.query.AndPredicate;
+import org.eclipse.kapua.service.datastore.model.query.ChannelMatchPredicate;
+import org.eclipse.kapua.service.datastore.model.query.ExistsPredicate;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationGroupBy;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
+import org.eclipse.kapua.service.datastore.model.query.RangePredicate;
+import org.eclipse.kapua.service.datastore.model.query.StorablePredicate;
+import org.eclipse.kapua.service.datastore.model.query.TermPredicate;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * Metric aggregation query converter to the rollup domain.<br>
+ * The query is converted to the same aggregations of the {@link MetricAggregationQueryConverter} over the rollups of a {@link RollupInterval} (the statistics of
+ * every interval are merged from the statistics of its rollup intervals).<br>
+ * Only the queries whose predicate is about the message fields kept by the rollups (client identifier, channel and timestamp) can be converted. The timestamp
+ * range is matched by the rollup interval start, so the rollup intervals partially in the range are either wholly included or wholly excluded.
+ *
+ * @since 1.0.0
+ */
+public class RollupQueryConverter {
+
+    public static final String MIN_AGGREGATION = "min";
+    public static final String MAX_AGGREGATION = "max";
+    public static final String SUM_AGGREGATION = "sum";
+    public static final String COUNT_AGGREGATION = "count";
+
+    private static final Set<String> ROLLUP_FIELDS = new HashSet<>(Arrays.asList(
+            EsSchema.ROLLUP_SCOPE_ID,
+            EsSchema.ROLLUP_CLIENT_ID,
+            EsSchema.ROLLUP_CHANNEL,
+            EsSchema.ROLLUP_TIMESTAMP));
+
+    /**
+     * Check if the predicate can be evaluated against the rollups (it is only about the client identifier, the channel and the timestamp)
+     *
+     * @param predicate
+     * @return
+     * @since 1.0.0
+     */
+    public static boolean isRollupPredicate(StorablePredicate predicate) {
+        if (predicate == null || predicate instanceof ChannelMatchPredicate)
+            return true;
+
+        if (predicate instanceof AndPredicate) {
+            for (StorablePredicate andPredicate : ((AndPredicate) predicate).getPredicates()) {
+                if (!isRollupPredicate(andPredicate))
+                    return false;
+            }
+            return true;
+        }
+
+        if (predicate instanceof TermPredicate)
+            return ((TermPredicate) predicate).getField() != null && ROLLUP_FIELDS.contains(((TermPredicate) predicate).getField().field());
+
+        if (predicate instanceof RangePredicate)
+            return ((RangePredicate) predicate).getField() != null && ROLLUP_FIELDS.contains(((RangePredicate) predicate).getField().field());
+
+        if (predicate instanceof ExistsPredicate)
+            return ROLLUP_FIELDS.contains(((ExistsPredicate) predicate).getName());
+
+        return false;
+    }
+
+    /**
+     * Convert to a search query over the rollups
+     *
+     * @param index
+     *            the rollup index (a missing index is ignored)
+     * @param type
+     * @param query
+     * @param rollupInterval
+     * @return
+     * @throws EsQueryConversionException
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public SearchRequestBuilder toSearchRequestBuilder(String index, String type, MetricAggregationQuery query, RollupInterval rollupInterval)
+            throws EsQueryConversionException, EsClientUnavailableException {
+        if (query == null)
+            throw new NullPointerException(String.format("Query parameter is undefined"));
+        if (!isRollupPredicate(query.getPredicate()))
+            throw new EsQueryConversionException("The query predicate is not about the fields of the rollups");
+
+        DateHistogramBuilder intervals = AggregationBuilders.dateHistogram(MetricAggregationQueryConverter.INTERVAL_AGGREGATION)
+                .field(EsSchema.ROLLUP_TIMESTAMP)
+                .interval(query.getInterval())
+                .minDocCount(1);
+        for (int i = 0; i < query.getMetricNames().size(); i++) {
+            intervals.subAggregation(AggregationBuilders.filter(MetricAggregationQueryConverter.METRIC_AGGREGATION_PREFIX + i)
+                    .filter(QueryBuilders.termQuery(EsSchema.ROLLUP_NAME, query.getMetricNames().get(i)))
+                    .subAggregation(AggregationBuilders.min(MIN_AGGREGATION).field(EsSchema.ROLLUP_MIN))
+                    .subAggregation(AggregationBuilders.max(MAX_AGGREGATION).field(EsSchema.ROLLUP_MAX))
+                    .subAggregation(AggregationBuilders.sum(SUM_AGGREGATION).field(EsSchema.ROLLUP_SUM))
+                    .subAggregation(AggregationBuilders.sum(COUNT_AGGREGATION).field(EsSchema.ROLLUP_COUNT))
+                    .subAggregation(AggregationBuilders.topHits(MetricAggregationQueryConverter.LAST_AGGREGATION)
+                            .setSize(1)
+                            .addSort(EsSchema.ROLLUP_TIMESTAMP, SortOrder.DESC)
+                            .setFetchSource(EsSchema.ROLLUP_LAST, null)));
+        }
+
+        AggregationBuilder<?> aggregation = intervals;
+        MetricAggregationGroupBy groupBy = query.getGroupBy();
+        if (MetricAggregationGroupBy.CLIENT_ID.equals(groupBy)) {
+            aggregation = AggregationBuilders.terms(MetricAggregationQueryConverter.GROUP_AGGREGATION)
+                    .field(EsSchema.ROLLUP_CLIENT_ID)
+                    .size(query.getGroupLimit())
+                    .subAggregation(intervals);
+        } else if (MetricAggregationGroupBy.CHANNEL.equals(groupBy)) {
+            aggregation = AggregationBuilders.terms(MetricAggregationQueryConverter.GROUP_AGGREGATION)
+                    .field(EsSchema.ROLLUP_CHANNEL)
+                    .size(query.getGroupLimit())
+                    .subAggregation(intervals);
+        }
+
+        SearchRequestBuilder searchReqBuilder = ElasticsearchClient.getInstance().prepareSearch(index);
+        // the rollup index is created by the first rollup
+        searchReqBuilder.setIndicesOptions(IndicesOptions.lenientExpandOpen());
+        searchReqBuilder.setTypes(type)
+                .setQuery(QueryBuilders.boolQuery()
+                        .must(PredicateConverter.convertQueryPredicates(query.getScopeId(), query.getPredicate()))
+                        .filter(QueryBuilders.termQuery(EsSchema.ROLLUP_INTERVAL, rollupInterval.getMillis()))
+                        .filter(QueryBuilders.termsQuery(EsSchema.ROLLUP_NAME, query.getMetricNames())))
+                .setSize(0)
+                .addAggregation(aggregation);
+
+        return searchReqBuilder;
+    }
+}
@@ -25,6 +25,7 @@ import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsObjectBuilde
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsQueryConversionException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.KeyOffsetConverter;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.PredicateConverter;
 import org.eclipse.kapua.service.datastore.internal.model.ChannelInfoListResultImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ChannelInfoQueryImpl;
@@ -34,6 +35,7 @@ import org.eclipse.kapua.service.datastore.model.ChannelInfoListResult;
 import org.eclipse.kapua.service.datastore.model.query.ChannelInfoQuery;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -110,6 +112,20 @@ public class EsChannelInfoDAO {
         return this;
     }
 
+    /**
+     * Build the upsert request
+     *
+     * @param channelInfo
+     * @return
+     * @throws EsDocumentBuilderException
+     * @since 1.0.0
+     */
+    public UpdateRequest getUpsertRequest(ChannelInfo channelInfo)
+            throws EsDocumentBuilderException {
+        ChannelInfoXContentBuilder documentBuilder = new ChannelInfoXContentBuilder().build(channelInfo);
+        return this.esTypeDAO.getUpsertRequest(documentBuilder.getChannelId(), documentBuilder.getBuilder());
+    }
+
     /**
      * Upsert action (insert the document (if not present) or update the document (if present) into the database)
      *
@@ -244,11 +260,10 @@ public class EsChannelInfoDAO {
             i++;
         }
 
-        // TODO check equivalence with CX with Pierantonio
-        // TODO what is this nextKey
+        // the sort values of the last returned hit select the next page
         Object nextKey = null;
-        if (searchHits.getTotalHits() > query.getLimit()) {
-            nextKey = query.getLimit();
+        if (query.getLimit() > 0 && searchHitsSize > query.getLimit()) {
+            nextKey = KeyOffsetConverter.toKeyOffset(searchHits.getHits()[query.getLimit() - 1].getSortValues());
         }
 
         ChannelInfoListResult result = new ChannelInfoListResultImpl(nextKey, searchHitsSize);
@@ -270,7 +285,7 @@ public class EsChannelInfoDAO {
             throws EsQueryConversionException,
             EsClientUnavailableException {
         ChannelInfoQueryConverter converter = new ChannelInfoQueryConverter();
-        SearchRequestBuilder builder = converter.toSearchRequestBuilder(esTypeDAO.getIndexName(), esTypeDAO.getTypeName(), query);
+        SearchRequestBuilder builder = converter.toCountRequestBuilder(esTypeDAO.getIndexName(), esTypeDAO.getTypeName(), query);
         SearchResponse response = builder.get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
         SearchHits searchHits = response.getHits();
 
@@ -25,6 +25,7 @@ import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsObjectBuilde
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsQueryConversionException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.KeyOffsetConverter;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.PredicateConverter;
 import org.eclipse.kapua.service.datastore.internal.model.ClientInfoListResultImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ClientInfoQueryImpl;
@@ -33,6 +34,7 @@ import org.eclipse.kapua.service.datastore.model.ClientInfoListResult;
 import org.eclipse.kapua.service.datastore.model.query.ClientInfoQuery;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -109,6 +111,32 @@ public class EsClientInfoDAO {
         return this;
     }
 
+    /**
+     * Build the upsert request
+     *
+     * @param clientInfo
+     * @return
+     * @throws EsDocumentBuilderException
+     * @since 1.0.0
+     */
+    public UpdateRequest getUpsertRequest(ClientInfo clientInfo)
+            throws EsDocumentBuilderException {
+        ClientInfoXContentBuilder clientInfoBuilder = new ClientInfoXContentBuilder().build(clientInfo);
+        return this.esTypeDAO.getUpsertRequest(clientInfoBuilder.getClientId(), clientInfoBuilder.getClientBuilder());
+    }
+
+    /**
+     * Build the upsert request
+     *
+     * @param id
+     * @param esClient
+     * @return
+     * @since 1.0.0
+     */
+    public UpdateRequest getUpsertRequest(String id, XContentBuilder esClient) {
+        return this.esTypeDAO.getUpsertRequest(id, esClient);
+    }
+
     /**
      * Upsert action (insert the document (if not present) or update the document (if present) into the database)
      *
@@ -229,11 +257,10 @@ public class EsClientInfoDAO {
             i++;
         }
 
-        // TODO check equivalence with CX
-        // TODO what is this nextKey
+        // the sort values of the last returned hit select the next page
         Object nextKey = null;
-        if (searchHits.getTotalHits() > query.getLimit()) {
-            nextKey = query.getLimit();
+        if (query.getLimit() > 0 && searchHitsSize > query.getLimit()) {
+            nextKey = KeyOffsetConverter.toKeyOffset(searchHits.getHits()[query.getLimit() - 1].getSortValues());
         }
 
         ClientInfoListResult result = new ClientInfoListResultImpl(nextKey, searchHitsSize);
@@ -254,7 +281,7 @@ public class EsClientInfoDAO {
     public long count(ClientInfoQuery query)
             throws EsQueryConversionException, EsClientUnavailableException {
         ClientInfoQueryConverter converter = new ClientInfoQueryConverter();
-        SearchRequestBuilder builder = converter.toSearchRequestBuilder(esTypeDAO.getIndexName(), esTypeDAO.getTypeName(), query);
+        SearchRequestBuilder builder = converter.toCountRequestBuilder(esTypeDAO.getIndexName(), esTypeDAO.getTypeName(), query);
         SearchResponse response = builder.get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
         SearchHits searchHits = response.getHits();
 
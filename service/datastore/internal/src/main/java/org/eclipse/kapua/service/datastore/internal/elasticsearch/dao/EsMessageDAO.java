@@ -12,7 +12,9 @@
 package org.eclipse.kapua.service.datastore.internal.elasticsearch.dao;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.ElasticsearchClient;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsClientUnavailableException;
@@ -21,14 +23,22 @@ import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsObjectBuilde
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsQueryConversionException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.KeyOffsetConverter;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageObjectBuilder;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageQueryConverter;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricAggregationQueryConverter;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.PredicateConverter;
 import org.eclipse.kapua.service.datastore.internal.model.MessageListResultImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricAggregationImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricAggregationListResultImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.MessageQueryImpl;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricAggregation;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationListResult;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.update.UpdateRequest;
@@ -37,6 +47,14 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.filter.Filter;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.stats.Stats;
+import org.elasticsearch.search.aggregations.metrics.tophits.TopHits;
+import org.joda.time.ReadableInstant;
 
 /**
  * Message DAO
@@ -108,6 +126,18 @@ public class EsMessageDAO {
         return this;
     }
 
+    /**
+     * Build the index request (since the message identifiers are always new, the message can be indexed without an upsert)
+     *
+     * @param id
+     * @param esClient
+     * @return
+     * @since 1.0.0
+     */
+    public IndexRequest getIndexRequest(String id, XContentBuilder esClient) {
+        return this.esTypeDAO.getIndexRequest(id, esClient);
+    }
+
     /**
      * Build the upsert request
      *
@@ -136,12 +166,13 @@ public class EsMessageDAO {
      * Delete query action (delete documents from the database)
      *
      * @param query
+     * @return the number of deleted messages
      * @throws EsQueryConversionException
      * @since 1.0.0
      */
-    public void deleteByQuery(MessageQuery query)
+    public long deleteByQuery(MessageQuery query)
             throws EsQueryConversionException {
-        this.esTypeDAO.deleteByQuery(PredicateConverter.convertQueryPredicates(query));
+        return this.esTypeDAO.deleteByQuery(PredicateConverter.convertQueryPredicates(query));
     }
 
     /**
@@ -182,12 +213,10 @@ public class EsMessageDAO {
             i++;
         }
 
-        // TODO check equivalence with CX
-        // TODO what is this nextKey
+        // the sort values of the last returned hit select the next page
         Object nextKey = null;
-        if (searchHitsSize > query.getLimit()) {
-            DatastoreMessage lastMessage = msgBuilder.build(searchHits.getHits()[searchHitsSize - 1], query.getFetchStyle()).getMessage();
-            nextKey = lastMessage.getTimestamp().getTime();
+        if (query.getLimit() > 0 && searchHitsSize > query.getLimit()) {
+            nextKey = KeyOffsetConverter.toKeyOffset(searchHits.getHits()[query.getLimit() - 1].getSortValues());
         }
 
         // TODO verifiy total count
@@ -218,7 +247,7 @@ public class EsMessageDAO {
             throws EsQueryConversionException,
             EsClientUnavailableException {
         MessageQueryConverter converter = new MessageQueryConverter();
-        SearchRequestBuilder builder = converter.toSearchRequestBuilder(esTypeDAO.getIndexName(), esTypeDAO.getTypeName(), query);
+        SearchRequestBuilder builder = converter.toCountRequestBuilder(esTypeDAO.getIndexName(), esTypeDAO.getTypeName(), query);
         SearchResponse response = builder.get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
         SearchHits searchHits = response.getHits();
 
@@ -228,6 +257,106 @@ public class EsMessageDAO {
         return searchHits.getTotalHits();
     }
 
+    /**
+     * Metric aggregation action (return the statistics of the metrics for every time interval)
+     *
+     * @param query
+     * @return
+     * @throws EsQueryConversionException
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public MetricAggregationListResult aggregate(MetricAggregationQuery query)
+            throws EsQueryConversionException,
+            EsClientUnavailableException {
+        MetricAggregationQueryConverter converter = new MetricAggregationQueryConverter();
+        SearchRequestBuilder builder = converter.toSearchRequestBuilder(esTypeDAO.getIndexName(), esTypeDAO.getTypeName(), query);
+        SearchResponse response = builder.get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
+
+        MetricAggregationListResult result = new MetricAggregationListResultImpl();
+        if (response.getAggregations() == null)
+            return result;
+
+        Aggregation aggregation = response.getAggregations().get(MetricAggregationQueryConverter.GROUP_AGGREGATION);
+        if (aggregation instanceof Terms) {
+            for (Terms.Bucket group : ((Terms) aggregation).getBuckets()) {
+                result.addItems(buildMetricAggregations(group.getKeyAsString(), query.getMetricNames(), group.getAggregations()));
+            }
+        } else {
+            result.addItems(buildMetricAggregations(null, query.getMetricNames(), response.getAggregations()));
+        }
+        return result;
+    }
+
+    private static List<MetricAggregation> buildMetricAggregations(String group, List<String> metricNames, Aggregations aggregations) {
+        List<MetricAggregation> metricAggregations = new ArrayList<>();
+        Histogram intervals = aggregations.get(MetricAggregationQueryConverter.INTERVAL_AGGREGATION);
+        if (intervals == null)
+            return metricAggregations;
+
+        for (int i = 0; i < metricNames.size(); i++) {
+            String metricName = metricNames.get(i);
+            for (Histogram.Bucket interval : intervals.getBuckets()) {
+                Filter metric = interval.getAggregations().get(MetricAggregationQueryConverter.METRIC_AGGREGATION_PREFIX + i);
+                if (metric == null || metric.getDocCount() == 0)
+                    continue;
+
+                // the values of the metric may be stored in more than one numeric type
+                long count = 0;
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                double sum = 0;
+                for (String typeAcronym : MetricAggregationQueryConverter.NUMERIC_TYPE_ACRONYMS) {
+                    Stats stats = metric.getAggregations().get(MetricAggregationQueryConverter.STATS_AGGREGATION_PREFIX + typeAcronym);
+                    if (stats != null && stats.getCount() > 0) {
+                        count += stats.getCount();
+                        min = Math.min(min, stats.getMin());
+                        max = Math.max(max, stats.getMax());
+                        sum += stats.getSum();
+                    }
+                }
+                if (count == 0)
+                    continue;
+
+                TopHits last = metric.getAggregations().get(MetricAggregationQueryConverter.LAST_AGGREGATION);
+                Double lastValue = null;
+                if (last != null && last.getHits().getHits().length > 0) {
+                    lastValue = getMetricValue(last.getHits().getAt(0), metricName);
+                }
+
+                metricAggregations.add(new MetricAggregationImpl(group, metricName, getIntervalStart(interval), count, min, max, sum, lastValue));
+            }
+        }
+        return metricAggregations;
+    }
+
+    private static Date getIntervalStart(Histogram.Bucket interval) {
+        Object key = interval.getKey();
+        if (key instanceof ReadableInstant) {
+            return new Date(((ReadableInstant) key).getMillis());
+        }
+        return new Date(((Number) key).longValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Double getMetricValue(SearchHit searchHit, String metricName) {
+        Map<String, Object> source = searchHit.getSource();
+        if (source == null || !(source.get(EsSchema.MESSAGE_METRICS) instanceof Map))
+            return null;
+
+        Object metric = ((Map<String, Object>) source.get(EsSchema.MESSAGE_METRICS)).get(EsUtils.normalizeMetricName(metricName));
+        if (!(metric instanceof Map))
+            return null;
+
+        for (String typeAcronym : MetricAggregationQueryConverter.NUMERIC_TYPE_ACRONYMS) {
+            Object value = ((Map<String, Object>) metric).get(typeAcronym);
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+        }
+        return null;
+    }
+
     /**
      * Deletes by message id
      *
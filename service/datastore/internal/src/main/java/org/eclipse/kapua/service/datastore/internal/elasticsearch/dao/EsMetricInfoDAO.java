@@ -22,6 +22,7 @@ import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsObjectBuilde
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsQueryConversionException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.KeyOffsetConverter;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricInfoObjectBuilder;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricInfoQueryConverter;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricInfoXContentBuilder;
@@ -290,11 +291,10 @@ public class EsMetricInfoDAO {
             i++;
         }
 
-        // TODO check equivalence with CX
-        // TODO what is this nextKey
+        // the sort values of the last returned hit select the next page
         Object nextKey = null;
-        if (searchHitsSize > query.getLimit()) {
-            nextKey = query.getLimit();
+        if (query.getLimit() > 0 && searchHitsSize > query.getLimit()) {
+            nextKey = KeyOffsetConverter.toKeyOffset(searchHits.getHits()[query.getLimit() - 1].getSortValues());
         }
 
         MetricInfoListResult result = new MetricInfoListResultImpl(nextKey, (long) metricInfos.size());
@@ -316,7 +316,7 @@ public class EsMetricInfoDAO {
             throws EsQueryConversionException,
             EsClientUnavailableException {
         MetricInfoQueryConverter converter = new MetricInfoQueryConverter();
-        SearchRequestBuilder builder = converter.toSearchRequestBuilder(esTypeDAO.getIndexName(), esTypeDAO.getTypeName(), query);
+        SearchRequestBuilder builder = converter.toCountRequestBuilder(esTypeDAO.getIndexName(), esTypeDAO.getTypeName(), query);
         SearchResponse response = builder.get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
         SearchHits searchHits = response.getHits();
 
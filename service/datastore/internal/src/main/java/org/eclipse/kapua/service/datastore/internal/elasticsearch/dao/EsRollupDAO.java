@@ -0,0 +1,351 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch.dao;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.ElasticsearchClient;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsClientUnavailableException;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsDocumentBuilderException;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsQueryConversionException;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricAggregationQueryConverter;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.RollupQueryConverter;
+import org.eclipse.kapua.service.datastore.internal.model.MetricAggregationImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricAggregationListResultImpl;
+import org.eclipse.kapua.service.datastore.internal.model.RollupInterval;
+import org.eclipse.kapua.service.datastore.model.MetricAggregation;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationListResult;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.indices.IndexAlreadyExistsException;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.filter.Filter;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
+import org.elasticsearch.search.aggregations.metrics.min.Min;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.search.aggregations.metrics.tophits.TopHits;
+import org.joda.time.ReadableInstant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rollup DAO.<br>
+ * The rollups of a scope are stored in its rollup index ({@link EsSchema#getRollupIndexName(KapuaId)}): a rollup holds the statistics of a metric of a client
+ * channel for a {@link RollupInterval}, together with the rolled up data indexes.<br>
+ * The rollup identifiers are derived from the rolled up interval, so rolling up a data index again overwrites its rollups.
+ *
+ * @since 1.0.0
+ */
+public class EsRollupDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsRollupDAO.class);
+
+    private static final int MAX_ROLLED_UP_INDEXES = 10000;
+
+    private static final Set<String> initializedIndexes = ConcurrentHashMap.newKeySet();
+
+    private final Client client;
+
+    /**
+     * Default constructor
+     *
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public EsRollupDAO() throws EsClientUnavailableException {
+        client = ElasticsearchClient.getInstance();
+    }
+
+    /**
+     * Rollup DAO instance factory
+     *
+     * @return
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public static EsRollupDAO getInstance() throws EsClientUnavailableException {
+        return new EsRollupDAO();
+    }
+
+    /**
+     * Store the rollups of a client (the metric aggregations must be grouped by channel)
+     *
+     * @param scopeId
+     * @param rollupInterval
+     * @param clientId
+     * @param metricAggregations
+     * @return the number of stored rollups
+     * @throws EsDocumentBuilderException
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public int store(KapuaId scopeId, RollupInterval rollupInterval, String clientId, Collection<? extends MetricAggregation> metricAggregations)
+            throws EsDocumentBuilderException, EsClientUnavailableException {
+        if (metricAggregations.isEmpty())
+            return 0;
+
+        String indexName = initIndex(scopeId);
+        BulkRequest bulkRequest = new BulkRequest();
+        for (MetricAggregation metricAggregation : metricAggregations) {
+            long timestamp = metricAggregation.getTimestamp().getTime();
+            String id = UUID.nameUUIDFromBytes(String.join("/", Long.toString(rollupInterval.getMillis()), clientId, metricAggregation.getGroup(),
+                    metricAggregation.getName(), Long.toString(timestamp)).getBytes(StandardCharsets.UTF_8)).toString();
+            try {
+                XContentBuilder builder = XContentFactory.jsonBuilder()
+                        .startObject()
+                        .field(EsSchema.ROLLUP_SCOPE_ID, scopeId.toCompactId())
+                        .field(EsSchema.ROLLUP_CLIENT_ID, clientId)
+                        .field(EsSchema.ROLLUP_CHANNEL, metricAggregation.getGroup())
+                        .field(EsSchema.ROLLUP_NAME, metricAggregation.getName())
+                        .field(EsSchema.ROLLUP_INTERVAL, rollupInterval.getMillis())
+                        .field(EsSchema.ROLLUP_TIMESTAMP, timestamp)
+                        .field(EsSchema.ROLLUP_COUNT, metricAggregation.getCount())
+                        .field(EsSchema.ROLLUP_MIN, metricAggregation.getMin())
+                        .field(EsSchema.ROLLUP_MAX, metricAggregation.getMax())
+                        .field(EsSchema.ROLLUP_SUM, metricAggregation.getSum())
+                        .field(EsSchema.ROLLUP_LAST, metricAggregation.getLast())
+                        .endObject();
+                bulkRequest.add(new IndexRequest(indexName, EsSchema.ROLLUP_TYPE_NAME, id).source(builder));
+            } catch (IOException e) {
+                throw new EsDocumentBuilderException(String.format("Unable to build the rollup of the metric %s", metricAggregation.getName()), e);
+            }
+        }
+
+        BulkResponse bulkResponse = client.bulk(bulkRequest).actionGet(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
+        if (bulkResponse.hasFailures()) {
+            throw new EsDocumentBuilderException(String.format("Unable to store the rollups of the client %s: %s", clientId, bulkResponse.buildFailureMessage()));
+        }
+        return bulkRequest.numberOfActions();
+    }
+
+    /**
+     * Record the data index as rolled up
+     *
+     * @param scopeId
+     * @param dataIndexName
+     * @param receivedOn
+     *            the receive timestamp of the last message of the data index when rolled up
+     * @throws EsDocumentBuilderException
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public void putRolledUpIndex(KapuaId scopeId, String dataIndexName, long receivedOn)
+            throws EsDocumentBuilderException, EsClientUnavailableException {
+        String indexName = initIndex(scopeId);
+        try {
+            XContentBuilder builder = XContentFactory.jsonBuilder()
+                    .startObject()
+                    .field(EsSchema.ROLLED_UP_INDEX_END, EsUtils.getDataIndexEnd(dataIndexName))
+                    .field(EsSchema.ROLLED_UP_INDEX_RECEIVED_ON, receivedOn)
+                    .endObject();
+            client.prepareIndex(indexName, EsSchema.ROLLED_UP_INDEX_TYPE_NAME, dataIndexName)
+                    .setSource(builder)
+                    .get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
+        } catch (IOException e) {
+            throw new EsDocumentBuilderException(String.format("Unable to build the rolled up index %s", dataIndexName), e);
+        }
+    }
+
+    /**
+     * Get the rolled up data indexes of the scope
+     *
+     * @param scopeId
+     * @return the receive timestamp of the last message of each rolled up data index when rolled up
+     * @since 1.0.0
+     */
+    public Map<String, Long> getRolledUpIndexes(KapuaId scopeId) {
+        SearchResponse response = client.prepareSearch(EsSchema.getRollupIndexName(scopeId))
+                .setIndicesOptions(IndicesOptions.lenientExpandOpen())
+                .setTypes(EsSchema.ROLLED_UP_INDEX_TYPE_NAME)
+                .setSize(MAX_ROLLED_UP_INDEXES)
+                .get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
+
+        Map<String, Long> rolledUpIndexes = new HashMap<>();
+        for (SearchHit searchHit : response.getHits().getHits()) {
+            Object receivedOn = searchHit.getSource().get(EsSchema.ROLLED_UP_INDEX_RECEIVED_ON);
+            rolledUpIndexes.put(searchHit.getId(), receivedOn instanceof Number ? ((Number) receivedOn).longValue() : Long.MIN_VALUE);
+        }
+        return rolledUpIndexes;
+    }
+
+    /**
+     * Metric aggregation action over the rollups (return the statistics of the metrics for every time interval)
+     *
+     * @param query
+     * @param rollupInterval
+     *            the rollups to be aggregated (the query interval must be a multiple of the rollup interval)
+     * @return
+     * @throws EsQueryConversionException
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public MetricAggregationListResult aggregate(MetricAggregationQuery query, RollupInterval rollupInterval)
+            throws EsQueryConversionException,
+            EsClientUnavailableException {
+        RollupQueryConverter converter = new RollupQueryConverter();
+        SearchResponse response = converter.toSearchRequestBuilder(EsSchema.getRollupIndexName(query.getScopeId()), EsSchema.ROLLUP_TYPE_NAME, query, rollupInterval)
+                .get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
+
+        MetricAggregationListResult result = new MetricAggregationListResultImpl();
+        if (response.getAggregations() == null)
+            return result;
+
+        Aggregation aggregation = response.getAggregations().get(MetricAggregationQueryConverter.GROUP_AGGREGATION);
+        if (aggregation instanceof Terms) {
+            for (Terms.Bucket group : ((Terms) aggregation).getBuckets()) {
+                result.addItems(buildMetricAggregations(group.getKeyAsString(), query.getMetricNames(), group.getAggregations()));
+            }
+        } else {
+            result.addItems(buildMetricAggregations(null, query.getMetricNames(), response.getAggregations()));
+        }
+        return result;
+    }
+
+    private static List<MetricAggregation> buildMetricAggregations(String group, List<String> metricNames, Aggregations aggregations) {
+        List<MetricAggregation> metricAggregations = new ArrayList<>();
+        Histogram intervals = aggregations.get(MetricAggregationQueryConverter.INTERVAL_AGGREGATION);
+        if (intervals == null)
+            return metricAggregations;
+
+        for (int i = 0; i < metricNames.size(); i++) {
+            for (Histogram.Bucket interval : intervals.getBuckets()) {
+                Filter metric = interval.getAggregations().get(MetricAggregationQueryConverter.METRIC_AGGREGATION_PREFIX + i);
+                if (metric == null || metric.getDocCount() == 0)
+                    continue;
+
+                Aggregations stats = metric.getAggregations();
+                long count = (long) ((Sum) stats.get(RollupQueryConverter.COUNT_AGGREGATION)).getValue();
+                if (count == 0)
+                    continue;
+
+                TopHits last = stats.get(MetricAggregationQueryConverter.LAST_AGGREGATION);
+                Double lastValue = null;
+                if (last != null && last.getHits().getHits().length > 0 && last.getHits().getAt(0).getSource().get(EsSchema.ROLLUP_LAST) instanceof Number) {
+                    lastValue = ((Number) last.getHits().getAt(0).getSource().get(EsSchema.ROLLUP_LAST)).doubleValue();
+                }
+
+                metricAggregations.add(new MetricAggregationImpl(group, metricNames.get(i), getIntervalStart(interval), count,
+                        ((Min) stats.get(RollupQueryConverter.MIN_AGGREGATION)).getValue(),
+                        ((Max) stats.get(RollupQueryConverter.MAX_AGGREGATION)).getValue(),
+                        ((Sum) stats.get(RollupQueryConverter.SUM_AGGREGATION)).getValue(),
+                        lastValue));
+            }
+        }
+        return metricAggregations;
+    }
+
+    private static Date getIntervalStart(Histogram.Bucket interval) {
+        Object key = interval.getKey();
+        if (key instanceof ReadableInstant) {
+            return new Date(((ReadableInstant) key).getMillis());
+        }
+        return new Date(((Number) key).longValue());
+    }
+
+    /**
+     * Create the rollup index of the scope with its mappings (if needed)
+     */
+    private String initIndex(KapuaId scopeId)
+            throws EsDocumentBuilderException {
+        String indexName = EsSchema.getRollupIndexName(scopeId);
+        if (initializedIndexes.contains(indexName))
+            return indexName;
+
+        if (!client.admin().indices().prepareExists(indexName).get().isExists()) {
+            try {
+                client.admin().indices()
+                        .prepareCreate(indexName)
+                        .addMapping(EsSchema.ROLLUP_TYPE_NAME, getRollupTypeBuilder())
+                        .addMapping(EsSchema.ROLLED_UP_INDEX_TYPE_NAME, getRolledUpIndexTypeBuilder())
+                        .get();
+                logger.info("Rollup index created: {}", indexName);
+            } catch (IndexAlreadyExistsException e) {
+                // created by another node
+                logger.debug("Rollup index already created: {}", indexName);
+            }
+        }
+        initializedIndexes.add(indexName);
+        return indexName;
+    }
+
+    private static XContentBuilder getRollupTypeBuilder()
+            throws EsDocumentBuilderException {
+        try {
+            return XContentFactory.jsonBuilder()
+                    .startObject()
+                    .startObject(EsSchema.ROLLUP_TYPE_NAME)
+                    .startObject("_all")
+                    .field("enabled", false)
+                    .endObject()
+                    .startObject("properties")
+                    .startObject(EsSchema.ROLLUP_SCOPE_ID).field("type", "string").field("index", "not_analyzed").endObject()
+                    .startObject(EsSchema.ROLLUP_CLIENT_ID).field("type", "string").field("index", "not_analyzed").endObject()
+                    .startObject(EsSchema.ROLLUP_CHANNEL).field("type", "string").field("index", "not_analyzed").endObject()
+                    .startObject(EsSchema.ROLLUP_NAME).field("type", "string").field("index", "not_analyzed").endObject()
+                    .startObject(EsSchema.ROLLUP_INTERVAL).field("type", "long").endObject()
+                    .startObject(EsSchema.ROLLUP_TIMESTAMP).field("type", "date").endObject()
+                    .startObject(EsSchema.ROLLUP_COUNT).field("type", "long").endObject()
+                    .startObject(EsSchema.ROLLUP_MIN).field("type", "double").endObject()
+                    .startObject(EsSchema.ROLLUP_MAX).field("type", "double").endObject()
+                    .startObject(EsSchema.ROLLUP_SUM).field("type", "double").endObject()
+                    .startObject(EsSchema.ROLLUP_LAST).field("type", "double").field("index", "no").endObject()
+                    .endObject()
+                    .endObject()
+                    .endObject();
+        } catch (IOException e) {
+            throw new EsDocumentBuilderException(String.format("Unable to build the rollup mapping"), e);
+        }
+    }
+
+    private static XContentBuilder getRolledUpIndexTypeBuilder()
+            throws EsDocumentBuilderException {
+        try {
+            return XContentFactory.jsonBuilder()
+                    .startObject()
+                    .startObject(EsSchema.ROLLED_UP_INDEX_TYPE_NAME)
+                    .startObject("properties")
+                    .startObject(EsSchema.ROLLED_UP_INDEX_END).field("type", "date").endObject()
+                    .startObject(EsSchema.ROLLED_UP_INDEX_RECEIVED_ON).field("type", "date").endObject()
+                    .endObject()
+                    .endObject()
+                    .endObject();
+        } catch (IOException e) {
+            throw new EsDocumentBuilderException(String.format("Unable to build the rolled up index mapping"), e);
+        }
+    }
+}
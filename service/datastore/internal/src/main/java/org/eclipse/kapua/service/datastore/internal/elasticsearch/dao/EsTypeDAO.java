@@ -19,9 +19,11 @@ import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
@@ -141,6 +143,17 @@ public class EsTypeDAO {
         return response;
     }
 
+    /**
+     * Build the index request (insert the document with the provided id, without checking if it's already present)
+     *
+     * @param id
+     * @param esClient
+     * @return
+     */
+    public IndexRequest getIndexRequest(String id, XContentBuilder esClient) {
+        return new IndexRequest(this.indexName, this.typeName, id).source(esClient);
+    }
+
     /**
      * Build the upsert request
      *
@@ -181,13 +194,15 @@ public class EsTypeDAO {
      * Delete query action (delete documents from the database)
      *
      * @param query
+     * @return the number of deleted documents
      */
-    public void deleteByQuery(QueryBuilder query) {
+    public long deleteByQuery(QueryBuilder query) {
         TimeValue queryTimeout = TimeValue.timeValueMillis(EsUtils.getQueryTimeout());
         TimeValue scrollTimeout = TimeValue.timeValueMillis(EsUtils.getScrollTimeout());
 
         // delete by query API is deprecated, scroll with bulk delete must be used
-        SearchResponse scrollResponse = this.client.prepareSearch(this.getIndexName())
+        SearchResponse scrollResponse = this.client.prepareSearch(Strings.splitStringByCommaToArray(this.getIndexName()))
+                .setIndicesOptions(IndicesOptions.lenientExpandOpen())
                 .setTypes(this.getTypeName())
                 .setFetchSource(false)
                 .addSort("_doc", SortOrder.ASC)
@@ -197,6 +212,7 @@ public class EsTypeDAO {
                 .setSize(100)
                 .get(queryTimeout);
 
+        long deleted = 0;
         // Scroll until no hits are returned
         while (true) {
 
@@ -214,6 +230,7 @@ public class EsTypeDAO {
             }
 
             this.getClient().bulk(bulkRequest).actionGet(queryTimeout);
+            deleted += bulkRequest.numberOfActions();
 
             // TODO manage events
             if (eventListener != null)
@@ -224,6 +241,7 @@ public class EsTypeDAO {
                     .execute()
                     .actionGet(queryTimeout);
         }
+        return deleted;
     }
 
     /**
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.model;
+
+import java.util.Date;
+
+import org.eclipse.kapua.service.datastore.model.MetricAggregation;
+
+/**
+ * Metric aggregation implementation
+ * 
+ * @since 1.0.0
+ *
+ */
+public class MetricAggregationImpl implements MetricAggregation {
+
+    private static final long serialVersionUID = 5413962174512689323L;
+
+    private String group;
+    private String name;
+    private Date timestamp;
+    private long count;
+    private double min;
+    private double max;
+    private double sum;
+    private Double last;
+
+    /**
+     * Construct a metric aggregation
+     * 
+     * @param group
+     * @param name
+     * @param timestamp
+     *            the interval start
+     * @param count
+     * @param min
+     * @param max
+     * @param sum
+     * @param last
+     * 
+     * @since 1.0.0
+     */
+    public MetricAggregationImpl(String group, String name, Date timestamp, long count, double min, double max, double sum, Double last) {
+        this.group = group;
+        this.name = name;
+        this.timestamp = timestamp;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+        this.last = last;
+    }
+
+    @Override
+    public String getGroup() {
+        return group;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public double getMin() {
+        return min;
+    }
+
+    @Override
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public double getAvg() {
+        return count > 0 ? sum / count : 0;
+    }
+
+    @Override
+    public double getSum() {
+        return sum;
+    }
+
+    @Override
+    public Double getLast() {
+        return last;
+    }
+}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.kapua.service.datastore.model.MetricAggregation;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationListResult;
+
+/**
+ * Metric aggregation query result list implementation
+ * 
+ * @since 1.0
+ *
+ */
+public class MetricAggregationListResultImpl implements MetricAggregationListResult {
+
+    private static final long serialVersionUID = -2017932185462373549L;
+
+    private ArrayList<MetricAggregation> items;
+
+    /**
+     * Construct a metric aggregation result list
+     */
+    public MetricAggregationListResultImpl() {
+        items = new ArrayList<>();
+    }
+
+    @Override
+    public List<MetricAggregation> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    @Override
+    public int getSize() {
+        return items.size();
+    }
+
+    @Override
+    public void addItems(Collection<? extends MetricAggregation> items) {
+        this.items.addAll(items);
+    }
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.model;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rollup interval options (the metric statistics of the closed data indexes are kept for each interval)
+ * 
+ * @since 1.0.0
+ */
+public enum RollupInterval {
+    /**
+     * Hourly metric statistics
+     */
+    HOUR(TimeUnit.HOURS.toMillis(1)),
+    /**
+     * Daily metric statistics
+     */
+    DAY(TimeUnit.DAYS.toMillis(1));
+
+    private final long millis;
+
+    private RollupInterval(long millis) {
+        this.millis = millis;
+    }
+
+    /**
+     * Get the interval length in milliseconds
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Get the longest rollup interval the aggregation interval is a multiple of (so every aggregation interval is made of whole rollup intervals)
+     * 
+     * @param interval
+     *            the aggregation interval in milliseconds
+     * @return the rollup interval or null if the aggregation interval is not a multiple of any rollup interval
+     * @since 1.0.0
+     */
+    public static RollupInterval forInterval(long interval) {
+        RollupInterval[] values = values();
+        for (int i = values.length - 1; i >= 0; i--) {
+            if (interval > 0 && interval % values[i].getMillis() == 0) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+}
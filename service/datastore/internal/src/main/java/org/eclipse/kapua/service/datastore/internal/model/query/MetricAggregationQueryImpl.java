@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.model.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationGroupBy;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
+import org.eclipse.kapua.service.datastore.model.query.StorablePredicate;
+
+/**
+ * Metric aggregation query implementation
+ * 
+ * @since 1.0.0
+ *
+ */
+public class MetricAggregationQueryImpl implements MetricAggregationQuery {
+
+    private KapuaId scopeId;
+    private StorablePredicate predicate;
+    private List<String> metricNames;
+    private long interval;
+    private MetricAggregationGroupBy groupBy;
+    private int groupLimit;
+
+    /**
+     * Constructor.
+     * 
+     * @param scopeId
+     * 
+     * @since 1.0.0
+     */
+    public MetricAggregationQueryImpl(KapuaId scopeId) {
+        setScopeId(scopeId);
+        metricNames = new ArrayList<>();
+        groupBy = MetricAggregationGroupBy.NONE;
+        groupLimit = 50;
+    }
+
+    @Override
+    public KapuaId getScopeId() {
+        return scopeId;
+    }
+
+    @Override
+    public void setScopeId(KapuaId scopeId) {
+        this.scopeId = scopeId != null ? (scopeId instanceof KapuaEid ? (KapuaEid) scopeId : new KapuaEid(scopeId)) : null;
+    }
+
+    @Override
+    public StorablePredicate getPredicate() {
+        return predicate;
+    }
+
+    @Override
+    public void setPredicate(StorablePredicate predicate) {
+        this.predicate = predicate;
+    }
+
+    @Override
+    public List<String> getMetricNames() {
+        return metricNames;
+    }
+
+    @Override
+    public void setMetricNames(List<String> metricNames) {
+        this.metricNames = metricNames;
+    }
+
+    @Override
+    public long getInterval() {
+        return interval;
+    }
+
+    @Override
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    @Override
+    public MetricAggregationGroupBy getGroupBy() {
+        return groupBy;
+    }
+
+    @Override
+    public void setGroupBy(MetricAggregationGroupBy groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    @Override
+    public int getGroupLimit() {
+        return groupLimit;
+    }
+
+    @Override
+    public void setGroupLimit(int groupLimit) {
+        this.groupLimit = groupLimit;
+    }
+}
@@ -55,15 +55,103 @@ public enum DatastoreSettingKey implements SettingKey
      * Elasticsearch index refresh interval (the data is available for a search operation only if it is indexed)
      */
     ELASTICSEARCH_IDX_REFRESH_INTERVAL("datastore.elasticsearch.index.refresh_interval"),
+    /**
+     * Create the data index of the next period before it is needed (to avoid creating it on the message path at the period rollover)
+     */
+    ELASTICSEARCH_IDX_PRECREATE_ENABLED("datastore.elasticsearch.index.precreate.enabled"),
+    /**
+     * Enable the bulk indexing of the messages
+     */
+    ELASTICSEARCH_BULK_ENABLED("datastore.elasticsearch.bulk.enabled"),
+    /**
+     * Maximum number of messages in a single bulk request
+     */
+    ELASTICSEARCH_BULK_ACTIONS("datastore.elasticsearch.bulk.actions"),
+    /**
+     * Maximum size (in bytes) of a single bulk request
+     */
+    ELASTICSEARCH_BULK_SIZE("datastore.elasticsearch.bulk.size"),
+    /**
+     * Maximum time (in milliseconds) a message waits before the pending bulk request is executed
+     */
+    ELASTICSEARCH_BULK_FLUSH_INTERVAL("datastore.elasticsearch.bulk.flush_interval"),
+    /**
+     * Maximum number of bulk requests in flight (further store operations are blocked until a bulk request completes)
+     */
+    ELASTICSEARCH_BULK_CONCURRENT_REQUESTS("datastore.elasticsearch.bulk.concurrent_requests"),
 
     /**
-     * Local cache expire time
+     * Local cache expire time (since the last access to the entry)
      */
     CONFIG_CACHE_LOCAL_EXPIRE_AFTER("datastore.cache.local.expire.after"),
     /**
      * Local cache maximum size
      */
     CONFIG_CACHE_LOCAL_SIZE_MAXIMUM("datastore.cache.local.size.maximum"),
+    /**
+     * Local cache memory budget (in bytes) shared by the registry caches (if set it overrides the local cache maximum size)
+     */
+    CONFIG_CACHE_LOCAL_MEMORY_BUDGET("datastore.cache.local.memory_budget"),
+    /**
+     * Local cache concurrency level (number of cache segments that can be updated concurrently)
+     */
+    CONFIG_CACHE_LOCAL_CONCURRENCY_LEVEL("datastore.cache.local.concurrency_level"),
+    /**
+     * Enable the preload of the registry caches at startup
+     */
+    CONFIG_CACHE_WARMUP_ENABLED("datastore.cache.warmup.enabled"),
+    /**
+     * Maximum number of entries preloaded into each registry cache
+     */
+    CONFIG_CACHE_WARMUP_SIZE("datastore.cache.warmup.size"),
+    /**
+     * Period (in hours) of the registry entries preloaded into the registry caches
+     */
+    CONFIG_CACHE_WARMUP_PERIOD("datastore.cache.warmup.period"),
+    /**
+     * Message store configuration and account informations cache expire time
+     */
+    CONFIG_CACHE_CONFIGURATION_EXPIRE_AFTER("datastore.cache.configuration.expire.after"),
+    /**
+     * Message store configuration and account informations cache maximum size
+     */
+    CONFIG_CACHE_CONFIGURATION_SIZE_MAXIMUM("datastore.cache.configuration.size.maximum"),
+    /**
+     * Enable the scheduled enforcement of the data time to live (expired data indexes, messages and registry entries deletion)
+     */
+    DATA_RETENTION_ENABLED("datastore.retention.enabled"),
+    /**
+     * Delay (in minutes) of the first data retention enforcement since the startup
+     */
+    DATA_RETENTION_INITIAL_DELAY("datastore.retention.initial_delay"),
+    /**
+     * Interval (in minutes) between the data retention enforcements
+     */
+    DATA_RETENTION_INTERVAL("datastore.retention.interval"),
+    /**
+     * Enable the scheduled rollup of the closed data indexes (hourly and daily metric statistics kept after the data time to live)
+     */
+    DATA_ROLLUP_ENABLED("datastore.rollup.enabled"),
+    /**
+     * Delay (in minutes) of the first data rollup since the startup
+     */
+    DATA_ROLLUP_INITIAL_DELAY("datastore.rollup.initial_delay"),
+    /**
+     * Interval (in minutes) between the data rollups
+     */
+    DATA_ROLLUP_INTERVAL("datastore.rollup.interval"),
+    /**
+     * Maximum number of clients of a data index (and of channels of a client) rolled up
+     */
+    DATA_ROLLUP_GROUP_LIMIT("datastore.rollup.group_limit"),
+    /**
+     * Maximum number of buckets (intervals times groups) of a metric aggregation query
+     */
+    DATA_AGGREGATION_MAX_BUCKETS("datastore.aggregation.max_buckets"),
+    /**
+     * Minimum interval (in milliseconds) of the metric aggregation queries without a bounded timestamp range
+     */
+    DATA_AGGREGATION_UNBOUNDED_MIN_INTERVAL("datastore.aggregation.unbounded_min_interval"),
     /**
      * Enable datastore timing profile
      */
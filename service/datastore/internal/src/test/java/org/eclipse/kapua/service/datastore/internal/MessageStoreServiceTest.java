@@ -16,6 +16,8 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -27,10 +29,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.message.KapuaChannel;
 import org.eclipse.kapua.message.KapuaPosition;
@@ -48,12 +53,16 @@ import org.eclipse.kapua.service.datastore.ClientInfoRegistryService;
 import org.eclipse.kapua.service.datastore.DatastoreObjectFactory;
 import org.eclipse.kapua.service.datastore.MessageStoreService;
 import org.eclipse.kapua.service.datastore.MetricInfoRegistryService;
+import org.eclipse.kapua.service.config.KapuaConfigurableService;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.ChannelInfoField;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.ClientInfoField;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.DatastoreMediator;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageField;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageStoreConfiguration;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricInfoField;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsRollupDAO;
 import org.eclipse.kapua.service.datastore.internal.model.DataIndexBy;
 import org.eclipse.kapua.service.datastore.internal.model.MetricsIndexBy;
 import org.eclipse.kapua.service.datastore.internal.model.query.AndPredicateImpl;
@@ -72,6 +81,8 @@ import org.eclipse.kapua.service.datastore.model.ClientInfo;
 import org.eclipse.kapua.service.datastore.model.ClientInfoListResult;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricAggregation;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationListResult;
 import org.eclipse.kapua.service.datastore.model.MetricInfo;
 import org.eclipse.kapua.service.datastore.model.MetricInfoListResult;
 import org.eclipse.kapua.service.datastore.model.StorableId;
@@ -81,6 +92,8 @@ import org.eclipse.kapua.service.datastore.model.query.ChannelInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.ChannelMatchPredicate;
 import org.eclipse.kapua.service.datastore.model.query.ClientInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationGroupBy;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
 import org.eclipse.kapua.service.datastore.model.query.MetricInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.RangePredicate;
 import org.eclipse.kapua.service.datastore.model.query.SortDirection;
@@ -320,6 +333,424 @@ public class MessageStoreServiceTest extends AbstractMessageStoreServiceTest {
                 new Range<Date>("receivedOn", messageTime));
     }
 
+    @Test
+    /**
+     * Check that the messages stored in different weekly indexes are found by the time range queries (searching only the indexes covering the range)
+     *
+     * @throws Exception
+     */
+    public void testMessageQueryByTimestampRangeOnWeeklyIndexes()
+            throws Exception {
+        Account account = createAccount(null, null);
+        Date messageTime = new Date();
+        String clientId = String.format("device-%d", messageTime.getTime());
+        DeviceCreator deviceCreator = deviceFactory.newCreator(account.getId(), clientId);
+        Device device = deviceRegistryService.create(deviceCreator);
+
+        String topicSemanticPart = "testQueryByTimestampRange/testQueryByTimestampRange/" + Calendar.getInstance().getTimeInMillis();
+        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Date firstCapturedOn = dateFormat.parse("06/01/2016 12:00");
+        Date secondCapturedOn = dateFormat.parse("01/03/2016 12:00");
+        KapuaDataMessage firstMessage = getMessage(clientId, account.getId(), device.getId(), messageTime, firstCapturedOn, firstCapturedOn);
+        updateChannel(firstMessage, topicSemanticPart);
+        updatePayload(firstMessage, null);
+        KapuaDataMessage secondMessage = getMessage(clientId, account.getId(), device.getId(), messageTime, secondCapturedOn, secondCapturedOn);
+        updateChannel(secondMessage, topicSemanticPart);
+        updatePayload(secondMessage, null);
+
+        updateConfiguration(messageStoreService, account.getId(), account.getScopeId(), DataIndexBy.DEVICE_TIMESTAMP, MetricsIndexBy.TIMESTAMP, 30, true);
+        insertMessages(true, firstMessage, secondMessage);
+
+        MessageQuery messageQuery = getBaseMessageQuery(account.getId());
+        setMessageQueryBaseCriteria(messageQuery, new DateRange(dateFormat.parse("05/01/2016 00:00"), dateFormat.parse("07/01/2016 00:00")));
+        checkMessagesCount(messageStoreService.query(messageQuery), 1);
+        assertEquals(1, messageStoreService.count(messageQuery));
+
+        // the range covers weeks without any index
+        setMessageQueryBaseCriteria(messageQuery, new DateRange(dateFormat.parse("05/01/2016 00:00"), dateFormat.parse("02/03/2016 00:00")));
+        checkMessagesCount(messageStoreService.query(messageQuery), 2);
+        assertEquals(2, messageStoreService.count(messageQuery));
+
+        setMessageQueryBaseCriteria(messageQuery, new DateRange(dateFormat.parse("01/02/2016 00:00"), dateFormat.parse("02/02/2016 00:00")));
+        checkMessagesCount(messageStoreService.query(messageQuery), 0);
+    }
+
+    @Test
+    /**
+     * Check that the pages selected by key offset (also with messages with the same timestamp) return all the messages once and in the same order of a
+     * single query
+     *
+     * @throws Exception
+     */
+    public void testMessageQueryByKeyOffset()
+            throws Exception {
+        Account account = createAccount(null, null);
+        Date messageTime = new Date();
+        String clientId = String.format("device-%d", messageTime.getTime());
+        DeviceCreator deviceCreator = deviceFactory.newCreator(account.getId(), clientId);
+        Device device = deviceRegistryService.create(deviceCreator);
+
+        String topicSemanticPart = "testQueryByKeyOffset/testQueryByKeyOffset/" + messageTime.getTime();
+        KapuaDataMessage[] messages = new KapuaDataMessage[7];
+        for (int i = 0; i < messages.length; i++) {
+            // pairs of messages with the same timestamp
+            Date capturedOn = new Date(messageTime.getTime() - (i / 2) * 1000);
+            messages[i] = getMessage(clientId, account.getId(), device.getId(), messageTime, capturedOn, capturedOn);
+            updateChannel(messages[i], topicSemanticPart);
+            updatePayload(messages[i], null);
+        }
+
+        updateConfiguration(messageStoreService, account.getId(), account.getScopeId(), DataIndexBy.DEVICE_TIMESTAMP, MetricsIndexBy.TIMESTAMP, 30, true);
+        insertMessages(true, messages);
+
+        MessageQuery messageQuery = getBaseMessageQuery(account.getId());
+        setMessageQueryBaseCriteria(messageQuery, clientId, null);
+        MessageListResult result = messageStoreService.query(messageQuery);
+        checkMessagesCount(result, messages.length);
+        assertNull(result.getNextKey());
+        List<StorableId> expectedIds = new ArrayList<>();
+        for (DatastoreMessage message : result.getItems()) {
+            expectedIds.add(message.getDatastoreId());
+        }
+
+        List<StorableId> pagedIds = new ArrayList<>();
+        messageQuery.setLimit(2);
+        Object nextKey;
+        do {
+            result = messageStoreService.query(messageQuery);
+            assertTrue(result.getSize() <= 2);
+            for (DatastoreMessage message : result.getItems()) {
+                pagedIds.add(message.getDatastoreId());
+            }
+            nextKey = result.getNextKey();
+            messageQuery.setKeyOffset(nextKey != null ? nextKey.toString() : null);
+            // the offset is ignored once the key offset is set
+            messageQuery.setOffset(1);
+        } while (nextKey != null);
+        assertEquals(expectedIds.size(), pagedIds.size());
+        for (int i = 0; i < expectedIds.size(); i++) {
+            assertEquals(expectedIds.get(i).toString(), pagedIds.get(i).toString());
+        }
+    }
+
+    @Test
+    /**
+     * Check the count, min, max, avg, sum and last value of the metrics for every interval, whatever the numeric type of the metric values
+     *
+     * @throws Exception
+     */
+    public void testMetricAggregation()
+            throws Exception {
+        Account account = createAccount(null, null);
+        Date messageTime = new Date();
+        String clientId = String.format("device-%d", messageTime.getTime());
+        DeviceCreator deviceCreator = deviceFactory.newCreator(account.getId(), clientId);
+        Device device = deviceRegistryService.create(deviceCreator);
+
+        long interval = TimeUnit.MINUTES.toMillis(1);
+        // the intervals start at the multiples of the interval
+        long intervalStart = (messageTime.getTime() / interval) * interval - TimeUnit.MINUTES.toMillis(10);
+        String[] clientIds = new String[] { "aggregation_client1_" + messageTime.getTime(), "aggregation_client2_" + messageTime.getTime() };
+        String topicSemanticPart = "testMetricAggregation/" + messageTime.getTime();
+        String[] messageClientIds = new String[] { clientIds[0], clientIds[0], clientIds[0], clientIds[1] };
+        long[] capturedOnOffsets = new long[] { 1000, 2000, interval + 1000, 1000 };
+        Object[] temperatures = new Object[] { 10, 20.5d, 30L, 100 };
+        KapuaDataMessage[] messages = new KapuaDataMessage[messageClientIds.length];
+        for (int i = 0; i < messages.length; i++) {
+            Date capturedOn = new Date(intervalStart + capturedOnOffsets[i]);
+            messages[i] = getMessage(messageClientIds[i], account.getId(), device.getId(), messageTime, capturedOn, capturedOn);
+            updateChannel(messages[i], topicSemanticPart);
+            Map<String, Object> metrics = new HashMap<String, Object>();
+            metrics.put("temperature", temperatures[i]);
+            if (i == 0) {
+                metrics.put("humidity", 5.5f);
+            }
+            KapuaDataPayloadImpl messagePayload = new KapuaDataPayloadImpl();
+            messagePayload.setProperties(metrics);
+            updatePayload(messages[i], messagePayload);
+        }
+
+        updateConfiguration(messageStoreService, account.getId(), account.getScopeId(), DataIndexBy.DEVICE_TIMESTAMP, MetricsIndexBy.TIMESTAMP, 30, true);
+        insertMessages(true, messages);
+
+        AndPredicate andPredicate = new AndPredicateImpl();
+        andPredicate.getPredicates().add(new ChannelMatchPredicateImpl(topicSemanticPart));
+        andPredicate.getPredicates().add(new RangePredicateImpl(MessageField.TIMESTAMP, new Date(intervalStart), new Date(intervalStart + 2 * interval)));
+        MetricAggregationQuery aggregationQuery = datastoreObjectFactory.newMetricAggregationQuery(account.getId());
+        aggregationQuery.setPredicate(andPredicate);
+        aggregationQuery.setMetricNames(Arrays.asList("temperature", "humidity"));
+        aggregationQuery.setInterval(interval);
+
+        MetricAggregationListResult result = messageStoreService.aggregate(aggregationQuery);
+        assertEquals(3, result.getSize());
+        checkMetricAggregation(result.getItems().get(0), null, "temperature", intervalStart, 3, 10, 100, 130.5, 20.5);
+        checkMetricAggregation(result.getItems().get(1), null, "temperature", intervalStart + interval, 1, 30, 30, 30, 30d);
+        checkMetricAggregation(result.getItems().get(2), null, "humidity", intervalStart, 1, 5.5, 5.5, 5.5, 5.5);
+
+        aggregationQuery.setGroupBy(MetricAggregationGroupBy.CLIENT_ID);
+        result = messageStoreService.aggregate(aggregationQuery);
+        assertEquals(4, result.getSize());
+        // the groups are sorted by number of messages
+        checkMetricAggregation(result.getItems().get(0), clientIds[0], "temperature", intervalStart, 2, 10, 20.5, 30.5, 20.5);
+        checkMetricAggregation(result.getItems().get(1), clientIds[0], "temperature", intervalStart + interval, 1, 30, 30, 30, 30d);
+        checkMetricAggregation(result.getItems().get(2), clientIds[0], "humidity", intervalStart, 1, 5.5, 5.5, 5.5, 5.5);
+        checkMetricAggregation(result.getItems().get(3), clientIds[1], "temperature", intervalStart, 1, 100, 100, 100, 100d);
+    }
+
+    @Test
+    /**
+     * Check that the metric aggregations building too many buckets, or with a short interval and no bounded timestamp range, are rejected
+     *
+     * @throws Exception
+     */
+    public void testMetricAggregationBuckets()
+            throws Exception {
+        Account account = createAccount(null, null);
+        long hour = TimeUnit.HOURS.toMillis(1);
+        long rangeStart = (System.currentTimeMillis() / hour) * hour - TimeUnit.DAYS.toMillis(14);
+        MetricAggregationQuery aggregationQuery = datastoreObjectFactory.newMetricAggregationQuery(account.getId());
+        aggregationQuery.setMetricNames(Arrays.asList("temperature"));
+
+        // no timestamp range
+        aggregationQuery.setInterval(hour);
+        checkMetricAggregationRejected(aggregationQuery);
+        aggregationQuery.setInterval(TimeUnit.DAYS.toMillis(1));
+        messageStoreService.aggregate(aggregationQuery);
+
+        // two weeks by the second
+        aggregationQuery.setPredicate(new RangePredicateImpl(MessageField.TIMESTAMP, new Date(rangeStart), new Date(rangeStart + TimeUnit.DAYS.toMillis(14) - 1)));
+        aggregationQuery.setInterval(TimeUnit.SECONDS.toMillis(1));
+        checkMetricAggregationRejected(aggregationQuery);
+
+        // two weeks by the hour, 336 intervals by 50 groups
+        aggregationQuery.setInterval(hour);
+        messageStoreService.aggregate(aggregationQuery);
+        aggregationQuery.setGroupBy(MetricAggregationGroupBy.CLIENT_ID);
+        checkMetricAggregationRejected(aggregationQuery);
+        aggregationQuery.setGroupLimit(10);
+        messageStoreService.aggregate(aggregationQuery);
+    }
+
+    private void checkMetricAggregationRejected(MetricAggregationQuery aggregationQuery)
+            throws KapuaException {
+        try {
+            messageStoreService.aggregate(aggregationQuery);
+            fail("The metric aggregation should have been rejected");
+        } catch (KapuaIllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    /**
+     * Check that the metric aggregations read the rolled up period from the rollups and the following period from the data indexes
+     *
+     * @throws Exception
+     */
+    public void testMetricAggregationRollup()
+            throws Exception {
+        Account account = createAccount(null, null);
+        Date messageTime = new Date();
+        String clientId = "rollup_client_" + messageTime.getTime();
+        DeviceCreator deviceCreator = deviceFactory.newCreator(account.getId(), clientId);
+        Device device = deviceRegistryService.create(deviceCreator);
+
+        long hour = TimeUnit.HOURS.toMillis(1);
+        long day = TimeUnit.DAYS.toMillis(1);
+        // a day of a closed data index and the current day
+        long dayStart = ((messageTime.getTime() - TimeUnit.DAYS.toMillis(21)) / day) * day;
+        long currentDayStart = (messageTime.getTime() / day) * day;
+        String topicSemanticPart = "testMetricAggregationRollup/" + messageTime.getTime();
+        long[] capturedOn = new long[] { dayStart + hour + 1000, dayStart + hour + 2000, dayStart + 2 * hour + 1000, messageTime.getTime() - 1000 };
+        Object[] temperatures = new Object[] { 10, 20L, 30.5d, 40 };
+        KapuaDataMessage[] messages = new KapuaDataMessage[capturedOn.length];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = getMessage(clientId, account.getId(), device.getId(), messageTime, new Date(capturedOn[i]), new Date(capturedOn[i]));
+            updateChannel(messages[i], topicSemanticPart);
+            Map<String, Object> metrics = new HashMap<String, Object>();
+            metrics.put("temperature", temperatures[i]);
+            KapuaDataPayloadImpl messagePayload = new KapuaDataPayloadImpl();
+            messagePayload.setProperties(metrics);
+            updatePayload(messages[i], messagePayload);
+        }
+
+        updateConfiguration(messageStoreService, account.getId(), account.getScopeId(), DataIndexBy.DEVICE_TIMESTAMP, MetricsIndexBy.TIMESTAMP, 30, true);
+        insertMessages(true, messages);
+
+        String dataIndex = EsUtils.getDataIndexName(account.getId(), dayStart);
+        new DataRollupManager().rollup(account.getId(), Arrays.asList(dataIndex), messageTime.getTime());
+        waitEsRefresh();
+        assertTrue("The data index should be rolled up!", EsRollupDAO.getInstance().getRolledUpIndexes(account.getId()).containsKey(dataIndex));
+
+        // the messages of the rolled up period are not read anymore
+        MessageQuery messageQuery = getBaseMessageQuery(account.getId());
+        setMessageQueryBaseCriteria(messageQuery, clientId, new DateRange(new Date(dayStart), new Date(dayStart + day - 1)));
+        messageStoreService.delete(messageQuery);
+        waitEsRefresh();
+
+        AndPredicate andPredicate = new AndPredicateImpl();
+        andPredicate.getPredicates().add(new ChannelMatchPredicateImpl(topicSemanticPart));
+        andPredicate.getPredicates().add(new RangePredicateImpl(MessageField.TIMESTAMP, new Date(dayStart), new Date(dayStart + day - 1)));
+        MetricAggregationQuery aggregationQuery = datastoreObjectFactory.newMetricAggregationQuery(account.getId());
+        aggregationQuery.setPredicate(andPredicate);
+        aggregationQuery.setMetricNames(Arrays.asList("temperature"));
+        aggregationQuery.setInterval(hour);
+
+        MetricAggregationListResult result = messageStoreService.aggregate(aggregationQuery);
+        assertEquals(2, result.getSize());
+        checkMetricAggregation(result.getItems().get(0), null, "temperature", dayStart + hour, 2, 10, 20, 30, 20d);
+        checkMetricAggregation(result.getItems().get(1), null, "temperature", dayStart + 2 * hour, 1, 30.5, 30.5, 30.5, 30.5);
+
+        andPredicate = new AndPredicateImpl();
+        andPredicate.getPredicates().add(new ChannelMatchPredicateImpl(topicSemanticPart));
+        andPredicate.getPredicates().add(new RangePredicateImpl(MessageField.TIMESTAMP, new Date(dayStart), messageTime));
+        aggregationQuery.setPredicate(andPredicate);
+        aggregationQuery.setInterval(day);
+        aggregationQuery.setGroupBy(MetricAggregationGroupBy.CLIENT_ID);
+
+        result = messageStoreService.aggregate(aggregationQuery);
+        assertEquals(2, result.getSize());
+        checkMetricAggregation(result.getItems().get(0), clientId, "temperature", dayStart, 3, 10, 30.5, 60.5, 30.5);
+        checkMetricAggregation(result.getItems().get(1), clientId, "temperature", currentDayStart, 1, 40, 40, 40, 40d);
+    }
+
+    @Test
+    /**
+     * Check that the metric aggregations read the period of the data index of the first week of the year from the data index, while the data indexes of the
+     * following weeks are already rolled up (that data index also stores the last days of the year, so it is closed only at the end of the year)
+     *
+     * @throws Exception
+     */
+    public void testMetricAggregationRollupFirstWeek()
+            throws Exception {
+        Account account = createAccount(null, null);
+        Date messageTime = new Date();
+        String clientId = "rollup_first_week_client_" + messageTime.getTime();
+        DeviceCreator deviceCreator = deviceFactory.newCreator(account.getId(), clientId);
+        Device device = deviceRegistryService.create(deviceCreator);
+
+        // a year whose last day is stored in the data index of its first week
+        int year = 2017;
+        while (!EsUtils.getDataIndexName(account.getId(), ZonedDateTime.of(year, 12, 31, 0, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli()).endsWith("-01")) {
+            year++;
+        }
+        long hour = TimeUnit.HOURS.toMillis(1);
+        long day = TimeUnit.DAYS.toMillis(1);
+        long firstDayStart = ZonedDateTime.of(year, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+        String firstWeekIndex = EsUtils.getDataIndexName(account.getId(), firstDayStart);
+        long secondWeekDayStart = EsUtils.getDataIndexPeriods(firstWeekIndex).get(0)[1];
+        String secondWeekIndex = EsUtils.getDataIndexName(account.getId(), secondWeekDayStart);
+
+        String topicSemanticPart = "testMetricAggregationRollupFirstWeek/" + messageTime.getTime();
+        long[] capturedOn = new long[] { firstDayStart + 10 * hour, secondWeekDayStart + 10 * hour };
+        Object[] temperatures = new Object[] { 10, 20 };
+        KapuaDataMessage[] messages = new KapuaDataMessage[capturedOn.length];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = getMessage(clientId, account.getId(), device.getId(), messageTime, new Date(capturedOn[i]), new Date(capturedOn[i]));
+            updateChannel(messages[i], topicSemanticPart);
+            Map<String, Object> metrics = new HashMap<String, Object>();
+            metrics.put("temperature", temperatures[i]);
+            KapuaDataPayloadImpl messagePayload = new KapuaDataPayloadImpl();
+            messagePayload.setProperties(metrics);
+            updatePayload(messages[i], messagePayload);
+        }
+
+        updateConfiguration(messageStoreService, account.getId(), account.getScopeId(), DataIndexBy.DEVICE_TIMESTAMP, MetricsIndexBy.TIMESTAMP, 30, true);
+        insertMessages(true, messages);
+
+        // in the second week only the second week data index is closed
+        new DataRollupManager().rollup(account.getId(), Arrays.asList(firstWeekIndex, secondWeekIndex), EsUtils.getDataIndexEnd(secondWeekIndex) + day);
+        waitEsRefresh();
+        Map<String, Long> rolledUpIndexes = EsRollupDAO.getInstance().getRolledUpIndexes(account.getId());
+        assertTrue("The second week data index should be rolled up!", rolledUpIndexes.containsKey(secondWeekIndex));
+        assertFalse("The first week data index should not be rolled up!", rolledUpIndexes.containsKey(firstWeekIndex));
+
+        // the messages of the rolled up data index are not read anymore
+        MessageQuery messageQuery = getBaseMessageQuery(account.getId());
+        setMessageQueryBaseCriteria(messageQuery, clientId, new DateRange(new Date(secondWeekDayStart), new Date(secondWeekDayStart + day - 1)));
+        messageStoreService.delete(messageQuery);
+        waitEsRefresh();
+
+        AndPredicate andPredicate = new AndPredicateImpl();
+        andPredicate.getPredicates().add(new ChannelMatchPredicateImpl(topicSemanticPart));
+        andPredicate.getPredicates().add(new RangePredicateImpl(MessageField.TIMESTAMP, new Date(firstDayStart), new Date(secondWeekDayStart + day - 1)));
+        MetricAggregationQuery aggregationQuery = datastoreObjectFactory.newMetricAggregationQuery(account.getId());
+        aggregationQuery.setPredicate(andPredicate);
+        aggregationQuery.setMetricNames(Arrays.asList("temperature"));
+        aggregationQuery.setInterval(day);
+
+        MetricAggregationListResult result = messageStoreService.aggregate(aggregationQuery);
+        assertEquals(2, result.getSize());
+        checkMetricAggregation(result.getItems().get(0), null, "temperature", firstDayStart, 1, 10, 10, 10, 10d);
+        checkMetricAggregation(result.getItems().get(1), null, "temperature", secondWeekDayStart, 1, 20, 20, 20, 20d);
+    }
+
+    @Test
+    /**
+     * Check that the data retention deletes the expired data indexes, the expired messages of the partially expired data indexes and the registry entries
+     * without messages left
+     *
+     * @throws Exception
+     */
+    public void testDataRetention()
+            throws Exception {
+        Account account = createAccount(null, null);
+        Date messageTime = new Date();
+        String clientId = String.format("device-%d", messageTime.getTime());
+        DeviceCreator deviceCreator = deviceFactory.newCreator(account.getId(), clientId);
+        Device device = deviceRegistryService.create(deviceCreator);
+
+        long now = messageTime.getTime();
+        String[] clientIds = new String[] { "retention_client1_" + now, "retention_client2_" + now };
+        String[] semanticTopic = new String[] { "retention/1/2/3", "retention/1/2/4" };
+        // a message of an expired index, an expired message (of a partially expired index, unless the expiration falls on the first day of a week)
+        // and a message to be retained
+        Date[] capturedOn = new Date[] { new Date(now - TimeUnit.DAYS.toMillis(100)), new Date(now - TimeUnit.DAYS.toMillis(30) - TimeUnit.HOURS.toMillis(1)),
+                new Date(now - TimeUnit.DAYS.toMillis(1)) };
+        KapuaDataMessage message1 = getMessage(clientIds[1], account.getId(), device.getId(), messageTime, capturedOn[0], capturedOn[0]);
+        updateChannel(message1, semanticTopic[1]);
+        updatePayload(message1, null);
+        KapuaDataMessage message2 = getMessage(clientIds[0], account.getId(), device.getId(), messageTime, capturedOn[1], capturedOn[1]);
+        updateChannel(message2, semanticTopic[0]);
+        updatePayload(message2, null);
+        KapuaDataMessage message3 = getMessage(clientIds[0], account.getId(), device.getId(), messageTime, capturedOn[2], capturedOn[2]);
+        updateChannel(message3, semanticTopic[0]);
+        updatePayload(message3, null);
+
+        updateConfiguration(messageStoreService, account.getId(), account.getScopeId(), DataIndexBy.DEVICE_TIMESTAMP, MetricsIndexBy.TIMESTAMP, 30, true);
+        insertMessages(true, message1, message2, message3);
+
+        String expiredIndex = EsUtils.getDataIndexName(account.getId(), capturedOn[0].getTime());
+        List<String> dataIndexes = DataRetentionManager.getDataIndexes().get(account.getId());
+        assertTrue("The expired data index should exist!", dataIndexes.contains(expiredIndex));
+
+        ConfigurationProviderImpl configurationProvider = new ConfigurationProviderImpl((KapuaConfigurableService) messageStoreService,
+                KapuaLocator.getInstance().getService(AccountService.class));
+        DataRetentionManager retentionManager = new DataRetentionManager(configurationProvider, DatastoreMediator.getInstance());
+        retentionManager.enforce(account.getId(), dataIndexes, now);
+        waitEsRefresh();
+
+        assertFalse("The expired data index should be deleted!", DataRetentionManager.getDataIndexes().get(account.getId()).contains(expiredIndex));
+        MessageQuery messageQuery = getBaseMessageQuery(account.getId());
+        setMessageQueryBaseCriteria(messageQuery, clientIds[0], null);
+        DatastoreMessage messageQueried = checkMessagesCount(messageStoreService.query(messageQuery), 1);
+        assertEquals(capturedOn[2], messageQueried.getCapturedOn());
+        setMessageQueryBaseCriteria(messageQuery, clientIds[1], null);
+        checkMessagesCount(messageStoreService.query(messageQuery), 0);
+
+        // the registry entries of the client (and of its channel) without messages left are deleted
+        for (int i = 0; i < clientIds.length; i++) {
+            ClientInfoQuery clientInfoQuery = getBaseClientInfoQuery(account.getId());
+            setClientInfoQueryBaseCriteria(clientInfoQuery, clientIds[i], null);
+            ChannelInfoQuery channelInfoQuery = getBaseChannelInfoQuery(account.getId());
+            setChannelInfoQueryBaseCriteria(channelInfoQuery, clientIds[i], null);
+            int count = i == 0 ? 1 : 0;
+            checkClientInfoCount(clientInfoRegistryService.query(clientInfoQuery), count);
+            assertEquals(count, channelInfoRegistryService.query(channelInfoQuery).getSize());
+        }
+    }
+
     @Test
     /**
      * Test the correctness of the storage process with a basic message (no metrics, payload and position) indexing message date by server timestamp
@@ -1098,6 +1529,32 @@ public class MessageStoreServiceTest extends AbstractMessageStoreServiceTest {
         message.getChannel().setSemanticParts(new ArrayList<String>(Arrays.asList(semanticPart.split("/"))));
     }
 
+    /**
+     * Check the metric aggregation values
+     *
+     * @param metricAggregation
+     * @param group
+     * @param name
+     * @param timestamp
+     * @param count
+     * @param min
+     * @param max
+     * @param sum
+     * @param last
+     */
+    private void checkMetricAggregation(MetricAggregation metricAggregation, String group, String name, long timestamp, long count, double min, double max, double sum,
+            Double last) {
+        assertEquals(group, metricAggregation.getGroup());
+        assertEquals(name, metricAggregation.getName());
+        assertEquals(timestamp, metricAggregation.getTimestamp().getTime());
+        assertEquals(count, metricAggregation.getCount());
+        assertEquals(min, metricAggregation.getMin(), 0.0001);
+        assertEquals(max, metricAggregation.getMax(), 0.0001);
+        assertEquals(sum, metricAggregation.getSum(), 0.0001);
+        assertEquals(sum / count, metricAggregation.getAvg(), 0.0001);
+        assertEquals(last, metricAggregation.getLast(), 0.0001);
+    }
+
     /**
      * Update the KapuaMessage payload with the provided payload
      *
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import java.math.BigInteger;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.ClientInfoXContentBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RegistryCacheTest {
+
+    @Test
+    public void testDerivedIds() {
+        RegistryCache cache = new RegistryCache("test", 100, 60, 1);
+
+        String id = ClientInfoXContentBuilder.getOrDeriveId(null, new KapuaEid(BigInteger.ONE), "client-1");
+        String otherId = ClientInfoXContentBuilder.getOrDeriveId(null, new KapuaEid(BigInteger.ONE), "client-2");
+        cache.put(id);
+
+        Assert.assertTrue(cache.contains(id));
+        Assert.assertFalse(cache.contains(otherId));
+
+        cache.remove(id);
+        Assert.assertFalse(cache.contains(id));
+    }
+
+    @Test
+    public void testOtherIds() {
+        RegistryCache cache = new RegistryCache("test", 100, 60, 1);
+
+        cache.put("channel-1");
+        Assert.assertTrue(cache.contains("channel-1"));
+        Assert.assertFalse(cache.contains("channel-2"));
+        Assert.assertEquals(1, cache.stats().hitCount());
+        Assert.assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    public void testSizeMaximum() {
+        RegistryCache cache = new RegistryCache("test", 10, 60, 1);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put("metric-" + i);
+        }
+        Assert.assertTrue(cache.size() <= 10);
+        Assert.assertTrue(cache.stats().evictionCount() >= 90);
+    }
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RegistryUpsertTrackerTest {
+
+    @Test
+    public void testClaimOnlyOnce() {
+        RegistryUpsertTracker tracker = new RegistryUpsertTracker(new RegistryCache("test", 100, 60, 1));
+
+        CompletableFuture<String> upsert = tracker.claim("channel-1");
+        Assert.assertNotNull(upsert);
+        Assert.assertNull(tracker.claim("channel-1"));
+
+        // unrelated entries are not affected by the upsert in progress
+        Assert.assertNotNull(tracker.claim("channel-2"));
+
+        tracker.completed("channel-1", upsert);
+        Assert.assertTrue(upsert.isDone());
+        Assert.assertTrue(tracker.isStored("channel-1"));
+        Assert.assertTrue(tracker.await("channel-1"));
+        Assert.assertNull(tracker.getInFlight("channel-1"));
+        Assert.assertNull(tracker.claim("channel-1"));
+    }
+
+    @Test
+    public void testFailedUpsertIsRetried() {
+        RegistryUpsertTracker tracker = new RegistryUpsertTracker(new RegistryCache("test", 100, 60, 1));
+
+        CompletableFuture<String> upsert = tracker.claim("metric-1");
+        tracker.failed("metric-1", upsert, new RuntimeException("failure"));
+
+        Assert.assertTrue(upsert.isCompletedExceptionally());
+        Assert.assertFalse(tracker.isStored("metric-1"));
+        Assert.assertFalse(tracker.await("metric-1"));
+        Assert.assertNotNull(tracker.claim("metric-1"));
+    }
+
+    @Test
+    public void testCompleteWhen() {
+        RegistryUpsertTracker tracker = new RegistryUpsertTracker(new RegistryCache("test", 100, 60, 1));
+
+        CompletableFuture<String> upsert = tracker.claim("client-1");
+        CompletableFuture<String> operation = new CompletableFuture<>();
+        tracker.completeWhen("client-1", upsert, operation);
+        Assert.assertFalse(tracker.isStored("client-1"));
+
+        operation.complete("client-1");
+        Assert.assertTrue(tracker.isStored("client-1"));
+        Assert.assertNull(tracker.getInFlight("client-1"));
+    }
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class EsBulkIndexerTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsBulkIndexerTest.class);
+
+    private static final String INDEX_NAME = "kapua-bulk-indexer-test";
+    private static final String TYPE_NAME = "message";
+
+    /**
+     * A caller not waiting for the outcome of each request fills the bulk requests up to the number of actions.<br>
+     * The flush interval is longer than the test, so the requests can only be executed by full bulk requests.
+     */
+    @Test
+    public void testBulkRequestsFillUp() throws Exception {
+        int bulkActions = 100;
+        int documents = 2000;
+
+        Client client = ElasticsearchClient.getInstance();
+        EsBulkIndexer bulkIndexer = new EsBulkIndexer(client, bulkActions, 100L * 1024 * 1024, TimeUnit.MINUTES.toMillis(10), 2);
+        // the counters may be shared through the metrics service
+        long bulkItemCount = bulkIndexer.getBulkItemCount();
+        long bulkRequestCount = bulkIndexer.getBulkRequestCount();
+        try {
+            List<CompletableFuture<String>> indexed = new ArrayList<>(documents);
+            long start = System.nanoTime();
+            for (int i = 0; i < documents; i++) {
+                IndexRequest indexRequest = new IndexRequest(INDEX_NAME, TYPE_NAME, "document-" + i)
+                        .source(Collections.singletonMap("value", i));
+                indexed.add(bulkIndexer.indexAsync(indexRequest));
+            }
+            CompletableFuture.allOf(indexed.toArray(new CompletableFuture<?>[documents])).get(1, TimeUnit.MINUTES);
+            long elapsed = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            logger.info("Indexed {} documents in {} ms ({} documents/s)", documents, elapsed, documents * 1000L / elapsed);
+
+            Assert.assertEquals("document-0", indexed.get(0).get());
+            Assert.assertEquals(documents, bulkIndexer.getBulkItemCount() - bulkItemCount);
+            Assert.assertEquals(documents / bulkActions, bulkIndexer.getBulkRequestCount() - bulkRequestCount);
+        } finally {
+            bulkIndexer.close(1, TimeUnit.MINUTES);
+            client.admin().indices().prepareDelete(INDEX_NAME).get();
+        }
+    }
+
+}
@@ -15,6 +15,8 @@ import java.math.BigInteger;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.kapua.commons.model.id.KapuaEid;
 import org.eclipse.kapua.model.id.KapuaId;
@@ -38,4 +40,86 @@ public class EsUtilsIndexNameTest {
         final String name = EsUtils.getDataIndexName(ONE, instant.toEpochMilli());
         Assert.assertEquals("1-2017-02", name);
     }
+
+    @Test
+    public void testRangeInOneWeek() {
+        final Instant start = ZonedDateTime.of(2017, 1, 8, 0, 0, 0, 0, ZoneOffset.UTC).toInstant();
+        final Instant end = ZonedDateTime.of(2017, 1, 14, 23, 59, 59, 0, ZoneOffset.UTC).toInstant();
+        Assert.assertEquals("1-2017-02", EsUtils.getDataIndexName(ONE, start.toEpochMilli(), end.toEpochMilli()));
+        Assert.assertEquals("1-2017-02", EsUtils.getDataIndexName(ONE, start.toEpochMilli(), start.toEpochMilli()));
+    }
+
+    @Test
+    public void testRangeOnFewWeeks() {
+        final Instant start = ZonedDateTime.of(2016, 12, 30, 0, 0, 0, 0, ZoneOffset.UTC).toInstant();
+        final Instant end = ZonedDateTime.of(2017, 1, 8, 0, 0, 0, 0, ZoneOffset.UTC).toInstant();
+        final String expected = EsUtils.getDataIndexName(ONE, start.toEpochMilli()) + ",1-2017-01,1-2017-02";
+        Assert.assertEquals(expected, EsUtils.getDataIndexName(ONE, start.toEpochMilli(), end.toEpochMilli()));
+    }
+
+    @Test
+    public void testLongRange() {
+        final Instant start = ZonedDateTime.of(2010, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant();
+        final Instant end = ZonedDateTime.of(2017, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant();
+        Assert.assertEquals(EsUtils.getDataIndexName(ONE), EsUtils.getDataIndexName(ONE, start.toEpochMilli(), end.toEpochMilli()));
+    }
+
+    @Test
+    public void testDataIndexPeriod() {
+        final Instant instant = ZonedDateTime.of(2017, 6, 14, 10, 0, 0, 0, ZoneOffset.UTC).toInstant();
+        final String name = EsUtils.getDataIndexName(ONE, instant.toEpochMilli());
+        final long start = EsUtils.getDataIndexStart(name);
+        final long end = EsUtils.getDataIndexEnd(name);
+
+        Assert.assertEquals(TimeUnit.DAYS.toMillis(7), end - start);
+        Assert.assertEquals(name, EsUtils.getDataIndexName(ONE, start));
+        Assert.assertEquals(name, EsUtils.getDataIndexName(ONE, end - 1));
+        Assert.assertNotEquals(name, EsUtils.getDataIndexName(ONE, start - 1));
+        Assert.assertNotEquals(name, EsUtils.getDataIndexName(ONE, end));
+    }
+
+    @Test
+    public void testFirstWeekDataIndexPeriods() {
+        // find a year whose last day falls in the first week of the next year (it depends on the week definition of the locale)
+        int year = 2017;
+        while (!EsUtils.getDataIndexName(ONE, ZonedDateTime.of(year, 12, 31, 0, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli()).endsWith("-01")) {
+            year++;
+        }
+        final long lastDay = ZonedDateTime.of(year, 12, 31, 0, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+        final long nextYear = ZonedDateTime.of(year + 1, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+        final String name = EsUtils.getDataIndexName(ONE, lastDay);
+        Assert.assertEquals(name, EsUtils.getDataIndexName(ONE, ZonedDateTime.of(year, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli()));
+
+        final List<long[]> periods = EsUtils.getDataIndexPeriods(name);
+        Assert.assertEquals(2, periods.size());
+        Assert.assertEquals(EsUtils.getDataIndexStart(name), periods.get(0)[0]);
+        Assert.assertEquals(name, EsUtils.getDataIndexName(ONE, periods.get(0)[1] - 1));
+        Assert.assertNotEquals(name, EsUtils.getDataIndexName(ONE, periods.get(0)[1]));
+        Assert.assertEquals(nextYear, periods.get(1)[1]);
+        Assert.assertEquals(EsUtils.getDataIndexEnd(name), periods.get(1)[1]);
+        Assert.assertTrue(periods.get(1)[0] <= lastDay);
+        Assert.assertNotEquals(name, EsUtils.getDataIndexName(ONE, periods.get(1)[0] - 1));
+
+        final Instant instant = ZonedDateTime.of(2017, 6, 14, 10, 0, 0, 0, ZoneOffset.UTC).toInstant();
+        final String weekName = EsUtils.getDataIndexName(ONE, instant.toEpochMilli());
+        final List<long[]> weekPeriods = EsUtils.getDataIndexPeriods(weekName);
+        Assert.assertEquals(1, weekPeriods.size());
+        Assert.assertEquals(EsUtils.getDataIndexStart(weekName), weekPeriods.get(0)[0]);
+        Assert.assertEquals(EsUtils.getDataIndexEnd(weekName), weekPeriods.get(0)[1]);
+    }
+
+    @Test
+    public void testIndexScope() {
+        final String name = EsUtils.getDataIndexName(ONE, System.currentTimeMillis());
+        Assert.assertTrue(EsUtils.isDataIndexName(name));
+        Assert.assertFalse(EsUtils.isKapuaIndexName(name));
+        Assert.assertEquals(ONE, EsUtils.getIndexScopeId(name));
+
+        final String kapuaName = EsUtils.getKapuaIndexName(ONE);
+        Assert.assertTrue(EsUtils.isKapuaIndexName(kapuaName));
+        Assert.assertFalse(EsUtils.isDataIndexName(kapuaName));
+        Assert.assertEquals(ONE, EsUtils.getIndexScopeId(kapuaName));
+
+        Assert.assertFalse(EsUtils.isDataIndexName(EsUtils.getDataIndexName(ONE)));
+    }
 }
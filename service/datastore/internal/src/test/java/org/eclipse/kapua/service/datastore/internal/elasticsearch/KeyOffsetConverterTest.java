@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import org.apache.lucene.util.BytesRef;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeyOffsetConverterTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Object[] sortValues = new Object[] { 1483228800000L, 12, 1.5d, 2.5f, true, null, "a.b/c#d", "message#AVr-_x9" };
+        String keyOffset = KeyOffsetConverter.toKeyOffset(sortValues);
+
+        Assert.assertArrayEquals(sortValues, KeyOffsetConverter.fromKeyOffset(keyOffset));
+    }
+
+    @Test
+    public void testStringSortValues() throws Exception {
+        String keyOffset = KeyOffsetConverter.toKeyOffset(new Object[] { new BytesRef("client-1") });
+
+        Assert.assertArrayEquals(new Object[] { "client-1" }, KeyOffsetConverter.fromKeyOffset(keyOffset));
+    }
+
+    @Test(expected = EsQueryConversionException.class)
+    public void testInvalidType() throws Exception {
+        KeyOffsetConverter.fromKeyOffset("xMTI");
+    }
+
+    @Test(expected = EsQueryConversionException.class)
+    public void testInvalidValue() throws Exception {
+        KeyOffsetConverter.fromKeyOffset("lYWJj");
+    }
+
+    @Test(expected = EsQueryConversionException.class)
+    public void testEmptyValue() throws Exception {
+        KeyOffsetConverter.fromKeyOffset("lMTI..");
+    }
+}
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch;
+
+import java.util.Date;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import org.eclipse.kapua.model.KapuaUpdatableEntity;
+import org.eclipse.kapua.model.xml.DateXmlAdapter;
+
+/**
+ * {@link DeviceBatchOperation} entity definition.<br>
+ * A batch operation executes the same device management operation on a set of devices and keeps track of the overall progress.
+ * The outcome of the operation on each device is available as {@link DeviceBatchOperationTarget}.
+ * 
+ * @since 1.0.0
+ */
+@XmlRootElement(name = "deviceBatchOperation")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+@XmlType(propOrder = { //
+        "operationType", //
+        "status", //
+        "timeout", //
+        "targetCount", //
+        "succeededCount", //
+        "failedCount", //
+        "canceledCount", //
+        "startedOn", //
+        "endedOn" //
+}, //
+        factoryClass = DeviceBatchOperationXmlRegistry.class, //
+        factoryMethod = "newDeviceBatchOperation")
+public interface DeviceBatchOperation extends KapuaUpdatableEntity {
+
+    public static final String TYPE = "deviceBatchOperation";
+
+    public default String getType() {
+        return TYPE;
+    }
+
+    /**
+     * Get the operation executed on the devices
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "operationType")
+    public DeviceBatchOperationType getOperationType();
+
+    /**
+     * Set the operation executed on the devices
+     * 
+     * @param operationType
+     * @since 1.0.0
+     */
+    public void setOperationType(DeviceBatchOperationType operationType);
+
+    /**
+     * Get the status
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "status")
+    public DeviceBatchOperationStatus getStatus();
+
+    /**
+     * Set the status
+     * 
+     * @param status
+     * @since 1.0.0
+     */
+    public void setStatus(DeviceBatchOperationStatus status);
+
+    /**
+     * Get the timeout of the operation on each device
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "timeout")
+    public Long getTimeout();
+
+    /**
+     * Set the timeout of the operation on each device
+     * 
+     * @param timeout
+     * @since 1.0.0
+     */
+    public void setTimeout(Long timeout);
+
+    /**
+     * Get the number of target devices
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "targetCount")
+    public int getTargetCount();
+
+    /**
+     * Set the number of target devices
+     * 
+     * @param targetCount
+     * @since 1.0.0
+     */
+    public void setTargetCount(int targetCount);
+
+    /**
+     * Get the number of devices that executed the operation successfully
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "succeededCount")
+    public int getSucceededCount();
+
+    /**
+     * Set the number of devices that executed the operation successfully
+     * 
+     * @param succeededCount
+     * @since 1.0.0
+     */
+    public void setSucceededCount(int succeededCount);
+
+    /**
+     * Get the number of devices on which the operation failed
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "failedCount")
+    public int getFailedCount();
+
+    /**
+     * Set the number of devices on which the operation failed
+     * 
+     * @param failedCount
+     * @since 1.0.0
+     */
+    public void setFailedCount(int failedCount);
+
+    /**
+     * Get the number of devices skipped because the batch operation has been canceled
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "canceledCount")
+    public int getCanceledCount();
+
+    /**
+     * Set the number of devices skipped because the batch operation has been canceled
+     * 
+     * @param canceledCount
+     * @since 1.0.0
+     */
+    public void setCanceledCount(int canceledCount);
+
+    /**
+     * Get the start date
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "startedOn")
+    @XmlJavaTypeAdapter(DateXmlAdapter.class)
+    public Date getStartedOn();
+
+    /**
+     * Set the start date
+     * 
+     * @param startedOn
+     * @since 1.0.0
+     */
+    public void setStartedOn(Date startedOn);
+
+    /**
+     * Get the end date
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "endedOn")
+    @XmlJavaTypeAdapter(DateXmlAdapter.class)
+    public Date getEndedOn();
+
+    /**
+     * Set the end date
+     * 
+     * @param endedOn
+     * @since 1.0.0
+     */
+    public void setEndedOn(Date endedOn);
+}
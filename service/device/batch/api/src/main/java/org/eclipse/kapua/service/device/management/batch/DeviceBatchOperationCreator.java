@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch;
+
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import org.eclipse.kapua.model.KapuaEntityCreator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.id.KapuaIdAdapter;
+import org.eclipse.kapua.service.device.management.command.DeviceCommandInput;
+import org.eclipse.kapua.service.device.management.configuration.DeviceConfiguration;
+import org.eclipse.kapua.service.device.management.packages.model.download.DevicePackageDownloadRequest;
+import org.eclipse.kapua.service.device.registry.DeviceQuery;
+
+/**
+ * {@link DeviceBatchOperationCreator} encapsulates all the information needed to submit a new {@link DeviceBatchOperation}.<br>
+ * The target devices are given either as a list of device identifiers or as a {@link DeviceQuery}: when both are set, the device identifiers take precedence.<br>
+ * Only the request matching the {@link DeviceBatchOperationType} needs to be set.
+ * 
+ * @since 1.0.0
+ */
+@XmlRootElement(name = "deviceBatchOperationCreator")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+@XmlType(propOrder = { //
+        "operationType", //
+        "timeout", //
+        "deviceIds", //
+        "deviceQuery", //
+        "commandInput", //
+        "configuration", //
+        "packageDownloadRequest" //
+}, //
+        factoryClass = DeviceBatchOperationXmlRegistry.class, //
+        factoryMethod = "newDeviceBatchOperationCreator")
+public interface DeviceBatchOperationCreator extends KapuaEntityCreator<DeviceBatchOperation> {
+
+    /**
+     * Get the operation to execute on the devices
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "operationType")
+    public DeviceBatchOperationType getOperationType();
+
+    /**
+     * Set the operation to execute on the devices
+     * 
+     * @param operationType
+     * @since 1.0.0
+     */
+    public void setOperationType(DeviceBatchOperationType operationType);
+
+    /**
+     * Get the timeout of the operation on each device
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "timeout")
+    public Long getTimeout();
+
+    /**
+     * Set the timeout of the operation on each device
+     * 
+     * @param timeout
+     * @since 1.0.0
+     */
+    public void setTimeout(Long timeout);
+
+    /**
+     * Get the target device identifiers
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElementWrapper(name = "deviceIds")
+    @XmlElement(name = "deviceId")
+    @XmlJavaTypeAdapter(KapuaIdAdapter.class)
+    public List<KapuaId> getDeviceIds();
+
+    /**
+     * Set the target device identifiers
+     * 
+     * @param deviceIds
+     * @since 1.0.0
+     */
+    public void setDeviceIds(List<KapuaId> deviceIds);
+
+    /**
+     * Get the query selecting the target devices
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "deviceQuery")
+    public DeviceQuery getDeviceQuery();
+
+    /**
+     * Set the query selecting the target devices
+     * 
+     * @param deviceQuery
+     * @since 1.0.0
+     */
+    public void setDeviceQuery(DeviceQuery deviceQuery);
+
+    /**
+     * Get the command to execute, for {@link DeviceBatchOperationType#COMMAND_EXEC}
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "commandInput")
+    public DeviceCommandInput getCommandInput();
+
+    /**
+     * Set the command to execute, for {@link DeviceBatchOperationType#COMMAND_EXEC}
+     * 
+     * @param commandInput
+     * @since 1.0.0
+     */
+    public void setCommandInput(DeviceCommandInput commandInput);
+
+    /**
+     * Get the configuration to apply, for {@link DeviceBatchOperationType#CONFIGURATION_PUT}
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "configuration")
+    public DeviceConfiguration getConfiguration();
+
+    /**
+     * Set the configuration to apply, for {@link DeviceBatchOperationType#CONFIGURATION_PUT}
+     * 
+     * @param configuration
+     * @since 1.0.0
+     */
+    public void setConfiguration(DeviceConfiguration configuration);
+
+    /**
+     * Get the package to download, for {@link DeviceBatchOperationType#PACKAGE_DOWNLOAD}
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "packageDownloadRequest")
+    public DevicePackageDownloadRequest getPackageDownloadRequest();
+
+    /**
+     * Set the package to download, for {@link DeviceBatchOperationType#PACKAGE_DOWNLOAD}
+     * 
+     * @param packageDownloadRequest
+     * @since 1.0.0
+     */
+    public void setPackageDownloadRequest(DevicePackageDownloadRequest packageDownloadRequest);
+}
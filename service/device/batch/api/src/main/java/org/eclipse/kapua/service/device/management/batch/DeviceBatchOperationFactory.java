@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch;
+
+import org.eclipse.kapua.model.KapuaEntityFactory;
+import org.eclipse.kapua.model.id.KapuaId;
+
+/**
+ * {@link DeviceBatchOperation} factory definition.
+ * 
+ * @since 1.0.0
+ *
+ */
+public interface DeviceBatchOperationFactory extends KapuaEntityFactory<DeviceBatchOperation, DeviceBatchOperationCreator, DeviceBatchOperationQuery, DeviceBatchOperationListResult> {
+
+    /**
+     * Creates a new {@link DeviceBatchOperationCreator}
+     * 
+     * @param scopeId
+     * @param operationType
+     * @return
+     * @since 1.0.0
+     */
+    public DeviceBatchOperationCreator newCreator(KapuaId scopeId, DeviceBatchOperationType operationType);
+
+    /**
+     * Creates a new {@link DeviceBatchOperationTarget}
+     * 
+     * @param scopeId
+     * @return
+     * @since 1.0.0
+     */
+    public DeviceBatchOperationTarget newTarget(KapuaId scopeId);
+
+    /**
+     * Creates a new {@link DeviceBatchOperationTargetQuery}
+     * 
+     * @param scopeId
+     * @return
+     * @since 1.0.0
+     */
+    public DeviceBatchOperationTargetQuery newTargetQuery(KapuaId scopeId);
+
+    /**
+     * Creates a new {@link DeviceBatchOperationTargetListResult}
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    public DeviceBatchOperationTargetListResult newTargetListResult();
+}
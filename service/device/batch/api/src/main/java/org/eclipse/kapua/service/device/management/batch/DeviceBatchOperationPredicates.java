@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch;
+
+import org.eclipse.kapua.model.KapuaUpdatableEntityPredicates;
+
+/**
+ * {@link DeviceBatchOperation} predicates.
+ * 
+ * @since 1.0.0
+ *
+ */
+public interface DeviceBatchOperationPredicates extends KapuaUpdatableEntityPredicates {
+
+    /**
+     * Operation type
+     */
+    public static final String OPERATION_TYPE = "operationType";
+
+    /**
+     * Status
+     */
+    public static final String STATUS = "status";
+
+    /**
+     * Started on
+     */
+    public static final String STARTED_ON = "startedOn";
+}
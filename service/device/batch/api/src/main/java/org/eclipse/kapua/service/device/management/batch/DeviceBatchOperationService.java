@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.query.KapuaQuery;
+import org.eclipse.kapua.service.KapuaEntityService;
+
+/**
+ * {@link DeviceBatchOperationService} definition.<br>
+ * {@link #create(org.eclipse.kapua.model.KapuaEntityCreator)} submits the {@link DeviceBatchOperation} and returns immediately: the requests are then
+ * sent to the target devices in background, with a bounded number of devices processed at the same time.
+ * The progress can be polled with {@link #find(KapuaId, KapuaId)} and the outcome on each device with {@link #queryTargets(KapuaQuery)}.
+ * 
+ * @since 1.0.0
+ *
+ */
+public interface DeviceBatchOperationService extends KapuaEntityService<DeviceBatchOperation, DeviceBatchOperationCreator> {
+
+    /**
+     * Returns the {@link DeviceBatchOperationListResult} with elements matching the provided query.
+     * 
+     * @param query
+     *            The {@link DeviceBatchOperationQuery} used to filter results.
+     * @return The {@link DeviceBatchOperationListResult} with elements matching the query parameter.
+     * @throws KapuaException
+     * @since 1.0.0
+     */
+    public DeviceBatchOperationListResult query(KapuaQuery<DeviceBatchOperation> query)
+            throws KapuaException;
+
+    /**
+     * Cancels the {@link DeviceBatchOperation}.<br>
+     * The requests already sent to the devices are not interrupted, the devices not processed yet are marked as {@link DeviceBatchOperationTargetStatus#CANCELED}.
+     * 
+     * @param scopeId
+     *            The scope of the {@link DeviceBatchOperation}.
+     * @param batchOperationId
+     *            The {@link DeviceBatchOperation} identifier.
+     * @return The canceled {@link DeviceBatchOperation}.
+     * @throws KapuaException
+     * @since 1.0.0
+     */
+    public DeviceBatchOperation cancel(KapuaId scopeId, KapuaId batchOperationId)
+            throws KapuaException;
+
+    /**
+     * Returns the {@link DeviceBatchOperationTargetListResult} with elements matching the provided query.
+     * 
+     * @param query
+     *            The {@link DeviceBatchOperationTargetQuery} used to filter results.
+     * @return The {@link DeviceBatchOperationTargetListResult} with elements matching the query parameter.
+     * @throws KapuaException
+     * @since 1.0.0
+     */
+    public DeviceBatchOperationTargetListResult queryTargets(KapuaQuery<DeviceBatchOperationTarget> query)
+            throws KapuaException;
+
+    /**
+     * Returns the count of the {@link DeviceBatchOperationTarget}s matching the provided query.
+     * 
+     * @param query
+     *            The {@link DeviceBatchOperationTargetQuery} used to filter results.
+     * @return The count of the {@link DeviceBatchOperationTarget}s matching the query parameter.
+     * @throws KapuaException
+     * @since 1.0.0
+     */
+    public long countTargets(KapuaQuery<DeviceBatchOperationTarget> query)
+            throws KapuaException;
+}
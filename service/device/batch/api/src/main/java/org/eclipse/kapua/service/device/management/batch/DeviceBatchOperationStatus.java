@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch;
+
+/**
+ * {@link DeviceBatchOperation} status.
+ * 
+ * @since 1.0.0
+ *
+ */
+public enum DeviceBatchOperationStatus {
+    /**
+     * Waiting to be started
+     */
+    QUEUED,
+    /**
+     * Sending the requests to the devices
+     */
+    RUNNING,
+    /**
+     * All the devices have been processed
+     */
+    COMPLETED,
+    /**
+     * Canceled before all the devices have been processed
+     */
+    CANCELED,
+    /**
+     * Failed before all the devices have been processed, or not updated anymore by the node running it
+     */
+    FAILED
+}
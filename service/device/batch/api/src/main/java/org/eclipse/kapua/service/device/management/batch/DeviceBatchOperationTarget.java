@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch;
+
+import java.util.Date;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import org.eclipse.kapua.model.KapuaUpdatableEntity;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.id.KapuaIdAdapter;
+import org.eclipse.kapua.model.xml.DateXmlAdapter;
+
+/**
+ * {@link DeviceBatchOperationTarget} entity definition.<br>
+ * It holds the outcome of a {@link DeviceBatchOperation} on a single device.
+ * 
+ * @since 1.0.0
+ */
+@XmlRootElement(name = "deviceBatchOperationTarget")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+@XmlType(propOrder = { //
+        "batchOperationId", //
+        "deviceId", //
+        "status", //
+        "errorMessage", //
+        "completedOn" //
+}, //
+        factoryClass = DeviceBatchOperationXmlRegistry.class, //
+        factoryMethod = "newDeviceBatchOperationTarget")
+public interface DeviceBatchOperationTarget extends KapuaUpdatableEntity {
+
+    public static final String TYPE = "deviceBatchOperationTarget";
+
+    public default String getType() {
+        return TYPE;
+    }
+
+    /**
+     * Get the batch operation identifier
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "batchOperationId")
+    @XmlJavaTypeAdapter(KapuaIdAdapter.class)
+    public KapuaId getBatchOperationId();
+
+    /**
+     * Set the batch operation identifier
+     * 
+     * @param batchOperationId
+     * @since 1.0.0
+     */
+    public void setBatchOperationId(KapuaId batchOperationId);
+
+    /**
+     * Get the device identifier
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "deviceId")
+    @XmlJavaTypeAdapter(KapuaIdAdapter.class)
+    public KapuaId getDeviceId();
+
+    /**
+     * Set the device identifier
+     * 
+     * @param deviceId
+     * @since 1.0.0
+     */
+    public void setDeviceId(KapuaId deviceId);
+
+    /**
+     * Get the status
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "status")
+    public DeviceBatchOperationTargetStatus getStatus();
+
+    /**
+     * Set the status
+     * 
+     * @param status
+     * @since 1.0.0
+     */
+    public void setStatus(DeviceBatchOperationTargetStatus status);
+
+    /**
+     * Get the error message of a failed operation
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "errorMessage")
+    public String getErrorMessage();
+
+    /**
+     * Set the error message of a failed operation
+     * 
+     * @param errorMessage
+     * @since 1.0.0
+     */
+    public void setErrorMessage(String errorMessage);
+
+    /**
+     * Get the date on which the operation on the device has completed
+     * 
+     * @return
+     * @since 1.0.0
+     */
+    @XmlElement(name = "completedOn")
+    @XmlJavaTypeAdapter(DateXmlAdapter.class)
+    public Date getCompletedOn();
+
+    /**
+     * Set the date on which the operation on the device has completed
+     * 
+     * @param completedOn
+     * @since 1.0.0
+     */
+    public void setCompletedOn(Date completedOn);
+}
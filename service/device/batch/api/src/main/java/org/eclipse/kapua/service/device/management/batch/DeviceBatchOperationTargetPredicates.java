@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch;
+
+import org.eclipse.kapua.model.KapuaUpdatableEntityPredicates;
+
+/**
+ * {@link DeviceBatchOperationTarget} predicates.
+ * 
+ * @since 1.0.0
+ *
+ */
+public interface DeviceBatchOperationTargetPredicates extends KapuaUpdatableEntityPredicates {
+
+    /**
+     * Batch operation identifier
+     */
+    public static final String BATCH_OPERATION_ID = "batchOperationId";
+
+    /**
+     * Device identifier
+     */
+    public static final String DEVICE_ID = "deviceId";
+
+    /**
+     * Status
+     */
+    public static final String STATUS = "status";
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch;
+
+/**
+ * {@link DeviceBatchOperationTarget} status.
+ * 
+ * @since 1.0.0
+ *
+ */
+public enum DeviceBatchOperationTargetStatus {
+    /**
+     * The request has not been sent to the device yet
+     */
+    PENDING,
+    /**
+     * The device has executed the request successfully
+     */
+    SUCCEEDED,
+    /**
+     * The request has failed or the device did not respond in time
+     */
+    FAILED,
+    /**
+     * The batch operation has been canceled before sending the request to the device
+     */
+    CANCELED
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch;
+
+import org.eclipse.kapua.service.device.management.command.DeviceCommandManagementService;
+import org.eclipse.kapua.service.device.management.configuration.DeviceConfigurationManagementService;
+import org.eclipse.kapua.service.device.management.packages.DevicePackageManagementService;
+
+/**
+ * The device management operations that can be executed on a set of devices with a {@link DeviceBatchOperation}.
+ * 
+ * @since 1.0.0
+ *
+ */
+public enum DeviceBatchOperationType {
+    /**
+     * Command execution, see {@link DeviceCommandManagementService#exec}
+     */
+    COMMAND_EXEC,
+    /**
+     * Configuration update, see {@link DeviceConfigurationManagementService#put}
+     */
+    CONFIGURATION_PUT,
+    /**
+     * Package download and install, see {@link DevicePackageManagementService#downloadExec}
+     */
+    PACKAGE_DOWNLOAD
+}
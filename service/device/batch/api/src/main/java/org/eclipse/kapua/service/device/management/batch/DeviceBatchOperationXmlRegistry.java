@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch;
+
+import javax.xml.bind.annotation.XmlRegistry;
+
+import org.eclipse.kapua.locator.KapuaLocator;
+
+/**
+ * {@link DeviceBatchOperation} xml factory class.
+ * 
+ * @since 1.0.0
+ *
+ */
+@XmlRegistry
+public class DeviceBatchOperationXmlRegistry {
+
+    private final KapuaLocator locator = KapuaLocator.getInstance();
+    private final DeviceBatchOperationFactory factory = locator.getFactory(DeviceBatchOperationFactory.class);
+
+    /**
+     * Creates a new device batch operation
+     * 
+     * @return
+     */
+    public DeviceBatchOperation newDeviceBatchOperation() {
+        return factory.newEntity(null);
+    }
+
+    /**
+     * Creates a new device batch operation creator
+     * 
+     * @return
+     */
+    public DeviceBatchOperationCreator newDeviceBatchOperationCreator() {
+        return factory.newCreator(null);
+    }
+
+    /**
+     * Creates a new device batch operation list result
+     * 
+     * @return
+     */
+    public DeviceBatchOperationListResult newDeviceBatchOperationListResult() {
+        return factory.newListResult();
+    }
+
+    /**
+     * Creates a new device batch operation query
+     * 
+     * @return
+     */
+    public DeviceBatchOperationQuery newQuery() {
+        return factory.newQuery(null);
+    }
+
+    /**
+     * Creates a new device batch operation target
+     * 
+     * @return
+     */
+    public DeviceBatchOperationTarget newDeviceBatchOperationTarget() {
+        return factory.newTarget(null);
+    }
+
+    /**
+     * Creates a new device batch operation target list result
+     * 
+     * @return
+     */
+    public DeviceBatchOperationTargetListResult newDeviceBatchOperationTargetListResult() {
+        return factory.newTargetListResult();
+    }
+
+    /**
+     * Creates a new device batch operation target query
+     * 
+     * @return
+     */
+    public DeviceBatchOperationTargetQuery newTargetQuery() {
+        return factory.newTargetQuery(null);
+    }
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.AbstractEntityManagerFactory;
+import org.eclipse.kapua.commons.jpa.EntityManager;
+
+/**
+ * Entity manager factory for the device batch operation module.
+ * 
+ * @since 1.0.0
+ *
+ */
+public class DeviceBatchEntityManagerFactory extends AbstractEntityManagerFactory {
+
+    private static final String PERSISTENCE_UNIT_NAME = "kapua-device-batch";
+    private static final String DATASOURCE_NAME = "kapua-dbpool";
+    private static final Map<String, String> UNIQUE_CONSTRAINTS = new HashMap<>();
+
+    private static DeviceBatchEntityManagerFactory instance = new DeviceBatchEntityManagerFactory();
+
+    /**
+     * Constructs a new entity manager factory and configure it to use the device batch operation persistence unit.
+     */
+    private DeviceBatchEntityManagerFactory() {
+        super(PERSISTENCE_UNIT_NAME,
+                DATASOURCE_NAME,
+                UNIQUE_CONSTRAINTS);
+    }
+
+    /**
+     * Return a new {@link EntityManager} instance
+     * 
+     * @return
+     * @throws KapuaException
+     */
+    public static EntityManager getEntityManager()
+            throws KapuaException {
+        return instance.createEntityManager();
+    }
+
+    /**
+     * Return the {@link EntityManager} singleton instance
+     * 
+     * @return
+     */
+    public static DeviceBatchEntityManagerFactory instance() {
+        return instance;
+    }
+}
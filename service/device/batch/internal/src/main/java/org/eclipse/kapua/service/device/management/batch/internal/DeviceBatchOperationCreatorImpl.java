@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch.internal;
+
+import java.util.List;
+
+import org.eclipse.kapua.commons.model.AbstractKapuaEntityCreator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperation;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationCreator;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationType;
+import org.eclipse.kapua.service.device.management.command.DeviceCommandInput;
+import org.eclipse.kapua.service.device.management.configuration.DeviceConfiguration;
+import org.eclipse.kapua.service.device.management.packages.model.download.DevicePackageDownloadRequest;
+import org.eclipse.kapua.service.device.registry.DeviceQuery;
+
+/**
+ * {@link DeviceBatchOperationCreator} implementation.
+ *
+ * @since 1.0.0
+ */
+public class DeviceBatchOperationCreatorImpl extends AbstractKapuaEntityCreator<DeviceBatchOperation> implements DeviceBatchOperationCreator {
+
+    private static final long serialVersionUID = 4370286459134722167L;
+
+    private DeviceBatchOperationType operationType;
+    private Long timeout;
+    private List<KapuaId> deviceIds;
+    private transient DeviceQuery deviceQuery;
+    private transient DeviceCommandInput commandInput;
+    private transient DeviceConfiguration configuration;
+    private transient DevicePackageDownloadRequest packageDownloadRequest;
+
+    /**
+     * Constructor
+     *
+     * @param scopeId
+     */
+    protected DeviceBatchOperationCreatorImpl(KapuaId scopeId) {
+        super(scopeId);
+    }
+
+    @Override
+    public DeviceBatchOperationType getOperationType() {
+        return operationType;
+    }
+
+    @Override
+    public void setOperationType(DeviceBatchOperationType operationType) {
+        this.operationType = operationType;
+    }
+
+    @Override
+    public Long getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public void setTimeout(Long timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public List<KapuaId> getDeviceIds() {
+        return deviceIds;
+    }
+
+    @Override
+    public void setDeviceIds(List<KapuaId> deviceIds) {
+        this.deviceIds = deviceIds;
+    }
+
+    @Override
+    public DeviceQuery getDeviceQuery() {
+        return deviceQuery;
+    }
+
+    @Override
+    public void setDeviceQuery(DeviceQuery deviceQuery) {
+        this.deviceQuery = deviceQuery;
+    }
+
+    @Override
+    public DeviceCommandInput getCommandInput() {
+        return commandInput;
+    }
+
+    @Override
+    public void setCommandInput(DeviceCommandInput commandInput) {
+        this.commandInput = commandInput;
+    }
+
+    @Override
+    public DeviceConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public void setConfiguration(DeviceConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    @Override
+    public DevicePackageDownloadRequest getPackageDownloadRequest() {
+        return packageDownloadRequest;
+    }
+
+    @Override
+    public void setPackageDownloadRequest(DevicePackageDownloadRequest packageDownloadRequest) {
+        this.packageDownloadRequest = packageDownloadRequest;
+    }
+}
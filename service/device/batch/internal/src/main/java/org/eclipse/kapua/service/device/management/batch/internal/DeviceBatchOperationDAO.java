@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch.internal;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.kapua.KapuaEntityNotFoundException;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.service.internal.ServiceDAO;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.query.KapuaQuery;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperation;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationCreator;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationListResult;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationStatus;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetStatus;
+
+/**
+ * {@link DeviceBatchOperation} DAO
+ *
+ * @since 1.0.0
+ */
+public class DeviceBatchOperationDAO extends ServiceDAO {
+
+    /**
+     * The {@link DeviceBatchOperationStatus}es of a batch operation not ended yet
+     */
+    private static final List<DeviceBatchOperationStatus> ACTIVE_STATUSES = Arrays.asList(DeviceBatchOperationStatus.QUEUED, DeviceBatchOperationStatus.RUNNING);
+
+    /**
+     * Create a new {@link DeviceBatchOperation} in {@link DeviceBatchOperationStatus#QUEUED} status
+     *
+     * @param em
+     * @param creator
+     * @param targetCount
+     *            The number of target devices
+     * @return
+     */
+    public static DeviceBatchOperation create(EntityManager em, DeviceBatchOperationCreator creator, int targetCount) {
+        DeviceBatchOperation batchOperation = new DeviceBatchOperationImpl(creator.getScopeId());
+        batchOperation.setOperationType(creator.getOperationType());
+        batchOperation.setTimeout(creator.getTimeout());
+        batchOperation.setStatus(DeviceBatchOperationStatus.QUEUED);
+        batchOperation.setTargetCount(targetCount);
+        return ServiceDAO.create(em, batchOperation);
+    }
+
+    /**
+     * Find the {@link DeviceBatchOperation} by identifier
+     *
+     * @param em
+     * @param batchOperationId
+     * @return
+     */
+    public static DeviceBatchOperationImpl find(EntityManager em, KapuaId batchOperationId) {
+        return em.find(DeviceBatchOperationImpl.class, batchOperationId);
+    }
+
+    /**
+     * Find the {@link DeviceBatchOperation} by scope identifier and identifier
+     *
+     * @param em
+     * @param scopeId
+     * @param batchOperationId
+     * @return the {@link DeviceBatchOperation}, or {@code null} if it is not found or if it belongs to another scope
+     */
+    public static DeviceBatchOperationImpl find(EntityManager em, KapuaId scopeId, KapuaId batchOperationId) {
+        DeviceBatchOperationImpl batchOperation = find(em, batchOperationId);
+        return batchOperation != null && scopeId.equals(batchOperation.getScopeId()) ? batchOperation : null;
+    }
+
+    /**
+     * Return the {@link DeviceBatchOperation} list matching the provided query
+     *
+     * @param em
+     * @param query
+     * @return
+     * @throws KapuaException
+     */
+    public static DeviceBatchOperationListResult query(EntityManager em, KapuaQuery<DeviceBatchOperation> query)
+            throws KapuaException {
+        return ServiceDAO.query(em, DeviceBatchOperation.class, DeviceBatchOperationImpl.class, new DeviceBatchOperationListResultImpl(), query);
+    }
+
+    /**
+     * Return the {@link DeviceBatchOperation} count matching the provided query
+     *
+     * @param em
+     * @param query
+     * @return
+     * @throws KapuaException
+     */
+    public static long count(EntityManager em, KapuaQuery<DeviceBatchOperation> query)
+            throws KapuaException {
+        return ServiceDAO.count(em, DeviceBatchOperation.class, DeviceBatchOperationImpl.class, query);
+    }
+
+    /**
+     * Delete the {@link DeviceBatchOperation} by identifier
+     *
+     * @param em
+     * @param batchOperationId
+     * @throws KapuaEntityNotFoundException
+     *             If the {@link DeviceBatchOperation} is not found.
+     */
+    public static void delete(EntityManager em, KapuaId batchOperationId)
+            throws KapuaEntityNotFoundException {
+        ServiceDAO.delete(em, DeviceBatchOperationImpl.class, batchOperationId);
+    }
+
+    /**
+     * Mark as {@link DeviceBatchOperationStatus#FAILED} the {@link DeviceBatchOperation} if it is not ended yet.<br>
+     * Its {@link DeviceBatchOperationTargetStatus#PENDING} targets are canceled.
+     *
+     * @param em
+     * @param batchOperationId
+     * @param succeededCount
+     *            The number of targets succeeded
+     * @param failedCount
+     *            The number of targets failed
+     */
+    public static void fail(EntityManager em, KapuaId batchOperationId, int succeededCount, int failedCount) {
+        DeviceBatchOperationImpl batchOperation = find(em, batchOperationId);
+        if (batchOperation != null && ACTIVE_STATUSES.contains(batchOperation.getStatus())) {
+            batchOperation.setStatus(DeviceBatchOperationStatus.FAILED);
+            batchOperation.setSucceededCount(succeededCount);
+            batchOperation.setFailedCount(failedCount);
+            batchOperation.setCanceledCount(batchOperation.getCanceledCount() + DeviceBatchOperationTargetDAO.cancelPending(em, batchOperationId));
+            batchOperation.setEndedOn(new Date());
+        }
+    }
+
+    /**
+     * Set the modified on date of the {@link DeviceBatchOperation}s to now, to signal that they are still queued or running on a node
+     *
+     * @param em
+     * @param batchOperationIds
+     */
+    public static void touch(EntityManager em, Collection<KapuaId> batchOperationIds) {
+        List<BigInteger> ids = new ArrayList<>(batchOperationIds.size());
+        for (KapuaId batchOperationId : batchOperationIds) {
+            ids.add(batchOperationId.getId());
+        }
+        em.createNamedQuery("DeviceBatchOperation.touch", DeviceBatchOperation.class)
+                .setParameter("batchOperationIds", ids)
+                .setParameter("modifiedOn", new Date())
+                .executeUpdate();
+    }
+
+    /**
+     * Find the {@link DeviceBatchOperation}s queued or running but not modified since the given date
+     *
+     * @param em
+     * @param modifiedBefore
+     * @return
+     */
+    public static List<KapuaId> findOrphaned(EntityManager em, Date modifiedBefore) {
+        List<KapuaId> batchOperationIds = new ArrayList<>();
+        for (BigInteger id : em.createNamedQuery("DeviceBatchOperation.findOrphaned", BigInteger.class)
+                .setParameter("statuses", ACTIVE_STATUSES)
+                .setParameter("modifiedBefore", modifiedBefore)
+                .getResultList()) {
+            batchOperationIds.add(new KapuaEid(id));
+        }
+        return batchOperationIds;
+    }
+
+    /**
+     * Mark as {@link DeviceBatchOperationStatus#FAILED} the {@link DeviceBatchOperation} if it is still queued or running but not modified since the given
+     * date. Its {@link DeviceBatchOperationTargetStatus#PENDING} targets are canceled.<br>
+     * The conditions are checked by the update itself, so a batch operation touched meanwhile by the node running it is left untouched.
+     *
+     * @param em
+     * @param batchOperationId
+     * @param modifiedBefore
+     * @return {@code true} if the batch operation has been marked as failed
+     */
+    public static boolean failOrphaned(EntityManager em, KapuaId batchOperationId, Date modifiedBefore) {
+        int updated = em.createNamedQuery("DeviceBatchOperation.failOrphaned", DeviceBatchOperation.class)
+                .setParameter("batchOperationId", batchOperationId.getId())
+                .setParameter("statuses", ACTIVE_STATUSES)
+                .setParameter("modifiedBefore", modifiedBefore)
+                .setParameter("toStatus", DeviceBatchOperationStatus.FAILED)
+                .setParameter("endedOn", new Date())
+                .executeUpdate();
+        if (updated == 0) {
+            return false;
+        }
+
+        em.createNamedQuery("DeviceBatchOperation.addCanceledCount", DeviceBatchOperation.class)
+                .setParameter("batchOperationId", batchOperationId.getId())
+                .setParameter("canceledCount", DeviceBatchOperationTargetDAO.cancelPending(em, batchOperationId))
+                .executeUpdate();
+        return true;
+    }
+}
@@ -0,0 +1,369 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch.internal;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.EntityManagerSession;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperation;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationStatus;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTarget;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetStatus;
+import org.eclipse.kapua.service.device.management.commons.setting.DeviceManagementSetting;
+import org.eclipse.kapua.service.device.management.commons.setting.DeviceManagementSettingKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes the {@link DeviceBatchOperation}s in background.
+ * <p>
+ * At most {@link DeviceManagementSettingKey#BATCH_RUNNING_MAX} batch operations run at the same time, the others wait in {@link DeviceBatchOperationStatus#QUEUED} status.
+ * The devices of all the running batch operations share a pool of {@link DeviceManagementSettingKey#BATCH_CONCURRENCY} threads, so the number of requests
+ * in flight towards the devices is bounded regardless of the number and the size of the batch operations.
+ * </p>
+ * <p>
+ * The outcome on each device is persisted as soon as it is known, while the counters of the {@link DeviceBatchOperation} are persisted every
+ * {@link DeviceManagementSettingKey#BATCH_PROGRESS_INTERVAL} milliseconds and when the batch operation ends. A batch operation that cannot be executed is
+ * marked as {@link DeviceBatchOperationStatus#FAILED}.
+ * </p>
+ * <p>
+ * The batch operations queued or running on this node are touched periodically. Once {@link #start() started}, the executor marks as
+ * {@link DeviceBatchOperationStatus#FAILED} the batch operations queued or running but not touched by any node for
+ * {@link DeviceManagementSettingKey#BATCH_ORPHAN_TIMEOUT} milliseconds, like the ones left by a node that has been stopped.
+ * </p>
+ * <p>
+ * The operation on each device goes through the synchronous device management services, that validate the request, translate it and record the device
+ * events; the asynchronous send is only available at the lower level of the device calls. So each request in flight holds one of the device threads, and
+ * their number is bounded by {@link DeviceManagementSettingKey#BATCH_CONCURRENCY}.
+ * </p>
+ *
+ * @since 1.0.0
+ */
+public class DeviceBatchOperationExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceBatchOperationExecutor.class);
+
+    private static final DeviceBatchOperationExecutor INSTANCE = new DeviceBatchOperationExecutor();
+
+    /**
+     * The operation executed on each target device.
+     *
+     * @since 1.0.0
+     */
+    @FunctionalInterface
+    public interface DeviceOperation {
+
+        /**
+         * Executes the operation on the device.
+         *
+         * @param deviceId
+         *            The target device identifier.
+         * @throws KapuaException
+         *             When the operation fails on the device.
+         */
+        public void execute(KapuaId deviceId) throws KapuaException;
+    }
+
+    private final EntityManagerSession entityManagerSession = new EntityManagerSession(DeviceBatchEntityManagerFactory.instance());
+
+    private final int concurrency;
+    private final long progressInterval;
+    private final long orphanTimeout;
+
+    private final ExecutorService batchOperationExecutor;
+    private final ExecutorService deviceExecutor;
+    private final ScheduledExecutorService reconcileExecutor;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final ConcurrentMap<KapuaId, BatchOperationRun> runs = new ConcurrentHashMap<>();
+
+    private DeviceBatchOperationExecutor() {
+        DeviceManagementSetting config = DeviceManagementSetting.getInstance();
+        concurrency = Math.max(1, config.getInt(DeviceManagementSettingKey.BATCH_CONCURRENCY, 50));
+        progressInterval = config.getLong(DeviceManagementSettingKey.BATCH_PROGRESS_INTERVAL, 1000L);
+        orphanTimeout = Math.max(1000L, config.getLong(DeviceManagementSettingKey.BATCH_ORPHAN_TIMEOUT, 300000L));
+
+        batchOperationExecutor = Executors.newFixedThreadPool(Math.max(1, config.getInt(DeviceManagementSettingKey.BATCH_RUNNING_MAX, 4)), newThreadFactory("BatchOperation"));
+        deviceExecutor = Executors.newFixedThreadPool(concurrency, newThreadFactory("BatchOperationDevice"));
+        reconcileExecutor = Executors.newSingleThreadScheduledExecutor(newThreadFactory("BatchOperationReconcile"));
+    }
+
+    /**
+     * Gets the singleton instance of {@link DeviceBatchOperationExecutor}.
+     *
+     * @return The singleton instance of {@link DeviceBatchOperationExecutor}.
+     * @since 1.0.0
+     */
+    public static DeviceBatchOperationExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts touching the batch operations of this node and failing the orphaned ones, first of all the ones left by the previous run of this node.<br>
+     * It does nothing if already started.
+     *
+     * @since 1.0.0
+     */
+    public void start() {
+        if (started.compareAndSet(false, true)) {
+            reconcileExecutor.scheduleWithFixedDelay(this::reconcile, 0, orphanTimeout / 3, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Touches the batch operations queued or running on this node, then marks as {@link DeviceBatchOperationStatus#FAILED} the batch operations
+     * queued or running but not touched for {@link #orphanTimeout} milliseconds.
+     *
+     * @return The number of batch operations marked as failed.
+     */
+    int reconcile() {
+        int failedCount = 0;
+        try {
+            List<KapuaId> localIds = new ArrayList<>(runs.keySet());
+            if (!localIds.isEmpty()) {
+                entityManagerSession.onTransactedAction(em -> DeviceBatchOperationDAO.touch(em, localIds));
+            }
+
+            Date modifiedBefore = new Date(System.currentTimeMillis() - orphanTimeout);
+            List<KapuaId> orphanedIds = entityManagerSession.onResult(em -> DeviceBatchOperationDAO.findOrphaned(em, modifiedBefore));
+            for (KapuaId orphanedId : orphanedIds) {
+                if (!runs.containsKey(orphanedId) &&
+                        entityManagerSession.onTransactedResult(em -> DeviceBatchOperationDAO.failOrphaned(em, orphanedId, modifiedBefore))) {
+                    logger.warn("Batch operation {} not updated since {}, marked as failed", orphanedId, modifiedBefore);
+                    failedCount++;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Cannot reconcile the batch operations", e);
+        }
+        return failedCount;
+    }
+
+    /**
+     * Queues the {@link DeviceBatchOperation} for execution.<br>
+     * The operation on the devices is executed with the permissions of the given {@link KapuaSession}.
+     *
+     * @param batchOperation
+     *            The {@link DeviceBatchOperation} to execute.
+     * @param targets
+     *            The {@link DeviceBatchOperationTarget}s of the batch operation.
+     * @param deviceOperation
+     *            The operation to execute on each device.
+     * @param session
+     *            The {@link KapuaSession} of the user that submitted the batch operation.
+     * @since 1.0.0
+     */
+    public void submit(DeviceBatchOperation batchOperation, List<DeviceBatchOperationTarget> targets, DeviceOperation deviceOperation, KapuaSession session) {
+        BatchOperationRun run = new BatchOperationRun(batchOperation.getId(), targets, deviceOperation, session);
+        runs.put(batchOperation.getId(), run);
+        batchOperationExecutor.execute(run);
+    }
+
+    /**
+     * Cancels the {@link DeviceBatchOperation} if it is queued or running on this node.
+     *
+     * @param batchOperationId
+     *            The {@link DeviceBatchOperation} identifier.
+     * @return {@code true} if the batch operation is queued or running on this node, {@code false} otherwise.
+     * @since 1.0.0
+     */
+    public boolean cancel(KapuaId batchOperationId) {
+        BatchOperationRun run = runs.get(batchOperationId);
+        if (run == null) {
+            return false;
+        }
+        run.canceled = true;
+        return true;
+    }
+
+    private static ThreadFactory newThreadFactory(String name) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, DeviceBatchOperationExecutor.class.getSimpleName() + "-" + name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The execution of a single {@link DeviceBatchOperation}.<br>
+     * The targets are handed over to the device threads through a window of {@link DeviceBatchOperationExecutor#concurrency} permits, so a large batch operation
+     * does not fill the device threads queue and the running batch operations progress together.
+     */
+    private class BatchOperationRun implements Runnable {
+
+        private final KapuaId batchOperationId;
+        private final List<DeviceBatchOperationTarget> targets;
+        private final DeviceOperation deviceOperation;
+        private final KapuaSession session;
+
+        private final Semaphore window = new Semaphore(concurrency);
+        private final AtomicInteger succeededCount = new AtomicInteger();
+        private final AtomicInteger failedCount = new AtomicInteger();
+
+        private volatile boolean canceled;
+        private boolean drained;
+        private long lastProgressUpdate;
+
+        private BatchOperationRun(KapuaId batchOperationId, List<DeviceBatchOperationTarget> targets, DeviceOperation deviceOperation, KapuaSession session) {
+            this.batchOperationId = batchOperationId;
+            this.targets = targets;
+            this.deviceOperation = deviceOperation;
+            this.session = session;
+        }
+
+        @Override
+        public void run() {
+            KapuaSecurityUtils.setSession(session);
+            try {
+                if (!canceled) {
+                    updateProgress(DeviceBatchOperationStatus.RUNNING, null);
+                }
+
+                for (DeviceBatchOperationTarget target : targets) {
+                    if (canceled) {
+                        break;
+                    }
+                    window.acquire();
+                    deviceExecutor.execute(() -> process(target));
+
+                    if (System.currentTimeMillis() - lastProgressUpdate >= progressInterval) {
+                        updateProgress(null, null);
+                    }
+                }
+
+                // wait for the requests in flight
+                window.acquire(concurrency);
+                drained = true;
+
+                int canceledCount = 0;
+                if (canceled) {
+                    canceledCount = entityManagerSession.onTransactedResult(em -> DeviceBatchOperationTargetDAO.cancelPending(em, batchOperationId));
+                }
+                updateProgress(canceled ? DeviceBatchOperationStatus.CANCELED : DeviceBatchOperationStatus.COMPLETED, canceledCount);
+            } catch (InterruptedException e) {
+                logger.warn("Batch operation {} interrupted", batchOperationId);
+                Thread.currentThread().interrupt();
+                fail();
+            } catch (Exception e) {
+                logger.error("Batch operation {} failed", batchOperationId, e);
+                if (!drained) {
+                    window.acquireUninterruptibly(concurrency);
+                    drained = true;
+                }
+                fail();
+            } finally {
+                runs.remove(batchOperationId);
+                KapuaSecurityUtils.clearSession();
+            }
+        }
+
+        /**
+         * Marks the batch operation as {@link DeviceBatchOperationStatus#FAILED}.<br>
+         * If it cannot be persisted, the batch operation is marked as failed as an orphan, once no longer touched by this node.
+         */
+        private void fail() {
+            try {
+                entityManagerSession.onTransactedAction(em -> DeviceBatchOperationDAO.fail(em, batchOperationId, succeededCount.get(), failedCount.get()));
+            } catch (Exception e) {
+                logger.error("Cannot mark the batch operation {} as failed", batchOperationId, e);
+            }
+        }
+
+        /**
+         * Executes the operation on the target device and persists the outcome.
+         */
+        private void process(DeviceBatchOperationTarget target) {
+            KapuaSecurityUtils.setSession(session);
+            try {
+                String errorMessage = null;
+                try {
+                    KapuaSecurityUtils.doPrivileged(() -> {
+                        deviceOperation.execute(target.getDeviceId());
+                        return null;
+                    });
+                } catch (Exception e) {
+                    errorMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+                }
+
+                if (errorMessage == null) {
+                    succeededCount.incrementAndGet();
+                } else {
+                    failedCount.incrementAndGet();
+                }
+
+                String targetErrorMessage = errorMessage;
+                entityManagerSession.onTransactedAction(em -> {
+                    DeviceBatchOperationTargetImpl targetToUpdate = DeviceBatchOperationTargetDAO.find(em, target.getId());
+                    if (targetToUpdate != null) {
+                        targetToUpdate.setStatus(targetErrorMessage == null ? DeviceBatchOperationTargetStatus.SUCCEEDED : DeviceBatchOperationTargetStatus.FAILED);
+                        targetToUpdate.setErrorMessage(targetErrorMessage);
+                        targetToUpdate.setCompletedOn(new Date());
+                    }
+                });
+            } catch (Exception e) {
+                logger.warn("Cannot update the target {} of the batch operation {}", target.getId(), batchOperationId, e);
+            } finally {
+                KapuaSecurityUtils.clearSession();
+                window.release();
+            }
+        }
+
+        /**
+         * Persists the counters of the batch operation together with the new status, if any.<br>
+         * A batch operation canceled on another node (or failed as orphan) is detected here and stopped on this node too.
+         */
+        private void updateProgress(DeviceBatchOperationStatus status, Integer canceledCount)
+                throws KapuaException {
+            lastProgressUpdate = System.currentTimeMillis();
+            entityManagerSession.onTransactedAction(em -> {
+                DeviceBatchOperationImpl batchOperation = DeviceBatchOperationDAO.find(em, batchOperationId);
+                if (batchOperation == null) {
+                    canceled = true;
+                    return;
+                }
+
+                if (DeviceBatchOperationStatus.CANCELED.equals(batchOperation.getStatus()) ||
+                        DeviceBatchOperationStatus.FAILED.equals(batchOperation.getStatus())) {
+                    canceled = true;
+                } else if (status != null) {
+                    batchOperation.setStatus(status);
+                }
+
+                if (DeviceBatchOperationStatus.RUNNING.equals(status)) {
+                    batchOperation.setStartedOn(new Date());
+                } else if (canceledCount != null) {
+                    batchOperation.setCanceledCount(batchOperation.getCanceledCount() + canceledCount);
+                    batchOperation.setEndedOn(new Date());
+                }
+                batchOperation.setSucceededCount(succeededCount.get());
+                batchOperation.setFailedCount(failedCount.get());
+            });
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch.internal;
+
+import org.eclipse.kapua.locator.KapuaProvider;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperation;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationCreator;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationFactory;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationListResult;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationQuery;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTarget;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetListResult;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetQuery;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationType;
+
+/**
+ * {@link DeviceBatchOperationFactory} implementation.
+ *
+ * @since 1.0.0
+ */
+@KapuaProvider
+public class DeviceBatchOperationFactoryImpl implements DeviceBatchOperationFactory {
+
+    @Override
+    public DeviceBatchOperationCreator newCreator(KapuaId scopeId, DeviceBatchOperationType operationType) {
+        DeviceBatchOperationCreator creator = newCreator(scopeId);
+        creator.setOperationType(operationType);
+        return creator;
+    }
+
+    @Override
+    public DeviceBatchOperation newEntity(KapuaId scopeId) {
+        return new DeviceBatchOperationImpl(scopeId);
+    }
+
+    @Override
+    public DeviceBatchOperationCreator newCreator(KapuaId scopeId) {
+        return new DeviceBatchOperationCreatorImpl(scopeId);
+    }
+
+    @Override
+    public DeviceBatchOperationQuery newQuery(KapuaId scopeId) {
+        return new DeviceBatchOperationQueryImpl(scopeId);
+    }
+
+    @Override
+    public DeviceBatchOperationListResult newListResult() {
+        return new DeviceBatchOperationListResultImpl();
+    }
+
+    @Override
+    public DeviceBatchOperationTarget newTarget(KapuaId scopeId) {
+        return new DeviceBatchOperationTargetImpl(scopeId);
+    }
+
+    @Override
+    public DeviceBatchOperationTargetQuery newTargetQuery(KapuaId scopeId) {
+        return new DeviceBatchOperationTargetQueryImpl(scopeId);
+    }
+
+    @Override
+    public DeviceBatchOperationTargetListResult newTargetListResult() {
+        return new DeviceBatchOperationTargetListResultImpl();
+    }
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch.internal;
+
+import java.util.Date;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import org.eclipse.kapua.commons.model.AbstractKapuaUpdatableEntity;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperation;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationStatus;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationType;
+
+/**
+ * {@link DeviceBatchOperation} implementation.
+ * 
+ * @since 1.0.0
+ *
+ */
+@Entity(name = "DeviceBatchOperation")
+@NamedQueries({
+        @NamedQuery(name = "DeviceBatchOperation.touch", query = "UPDATE DeviceBatchOperation o SET o.modifiedOn = :modifiedOn WHERE o.id.eid IN :batchOperationIds"),
+        @NamedQuery(name = "DeviceBatchOperation.findOrphaned", query = "SELECT o.id.eid FROM DeviceBatchOperation o WHERE o.status IN :statuses AND o.modifiedOn < :modifiedBefore"),
+        @NamedQuery(name = "DeviceBatchOperation.failOrphaned", query = "UPDATE DeviceBatchOperation o SET o.status = :toStatus, o.endedOn = :endedOn, o.modifiedOn = :endedOn WHERE o.id.eid = :batchOperationId AND o.status IN :statuses AND o.modifiedOn < :modifiedBefore"),
+        @NamedQuery(name = "DeviceBatchOperation.addCanceledCount", query = "UPDATE DeviceBatchOperation o SET o.canceledCount = o.canceledCount + :canceledCount WHERE o.id.eid = :batchOperationId")
+})
+@Table(name = "dvc_batch_operation")
+public class DeviceBatchOperationImpl extends AbstractKapuaUpdatableEntity implements DeviceBatchOperation {
+
+    private static final long serialVersionUID = -2375497046813209452L;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation_type", updatable = false, nullable = false)
+    private DeviceBatchOperationType operationType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private DeviceBatchOperationStatus status;
+
+    @Basic
+    @Column(name = "timeout", updatable = false)
+    private Long timeout;
+
+    @Basic
+    @Column(name = "target_count", nullable = false)
+    private int targetCount;
+
+    @Basic
+    @Column(name = "succeeded_count", nullable = false)
+    private int succeededCount;
+
+    @Basic
+    @Column(name = "failed_count", nullable = false)
+    private int failedCount;
+
+    @Basic
+    @Column(name = "canceled_count", nullable = false)
+    private int canceledCount;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "started_on")
+    private Date startedOn;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "ended_on")
+    private Date endedOn;
+
+    /**
+     * Constructor
+     */
+    protected DeviceBatchOperationImpl() {
+        super();
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param scopeId
+     */
+    public DeviceBatchOperationImpl(KapuaId scopeId) {
+        super(scopeId);
+    }
+
+    @Override
+    public DeviceBatchOperationType getOperationType() {
+        return operationType;
+    }
+
+    @Override
+    public void setOperationType(DeviceBatchOperationType operationType) {
+        this.operationType = operationType;
+    }
+
+    @Override
+    public DeviceBatchOperationStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public void setStatus(DeviceBatchOperationStatus status) {
+        this.status = status;
+    }
+
+    @Override
+    public Long getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public void setTimeout(Long timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    @Override
+    public void setTargetCount(int targetCount) {
+        this.targetCount = targetCount;
+    }
+
+    @Override
+    public int getSucceededCount() {
+        return succeededCount;
+    }
+
+    @Override
+    public void setSucceededCount(int succeededCount) {
+        this.succeededCount = succeededCount;
+    }
+
+    @Override
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    @Override
+    public void setFailedCount(int failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    @Override
+    public int getCanceledCount() {
+        return canceledCount;
+    }
+
+    @Override
+    public void setCanceledCount(int canceledCount) {
+        this.canceledCount = canceledCount;
+    }
+
+    @Override
+    public Date getStartedOn() {
+        return startedOn;
+    }
+
+    @Override
+    public void setStartedOn(Date startedOn) {
+        this.startedOn = startedOn;
+    }
+
+    @Override
+    public Date getEndedOn() {
+        return endedOn;
+    }
+
+    @Override
+    public void setEndedOn(Date endedOn) {
+        this.endedOn = endedOn;
+    }
+}
@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch.internal;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.kapua.KapuaEntityNotFoundException;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.service.internal.AbstractKapuaService;
+import org.eclipse.kapua.commons.util.ArgumentValidator;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.locator.KapuaProvider;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.query.KapuaQuery;
+import org.eclipse.kapua.service.authorization.AuthorizationService;
+import org.eclipse.kapua.service.authorization.domain.Domain;
+import org.eclipse.kapua.service.authorization.permission.Actions;
+import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperation;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationCreator;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationListResult;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationService;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationStatus;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTarget;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetListResult;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationType;
+import org.eclipse.kapua.service.device.management.batch.internal.DeviceBatchOperationExecutor.DeviceOperation;
+import org.eclipse.kapua.service.device.management.command.DeviceCommandInput;
+import org.eclipse.kapua.service.device.management.command.DeviceCommandManagementService;
+import org.eclipse.kapua.service.device.management.command.DeviceCommandOutput;
+import org.eclipse.kapua.service.device.management.commons.DeviceManagementDomain;
+import org.eclipse.kapua.service.device.management.commons.exception.DeviceManagementErrorCodes;
+import org.eclipse.kapua.service.device.management.commons.exception.DeviceManagementException;
+import org.eclipse.kapua.service.device.management.configuration.DeviceConfiguration;
+import org.eclipse.kapua.service.device.management.configuration.DeviceConfigurationManagementService;
+import org.eclipse.kapua.service.device.management.packages.DevicePackageManagementService;
+import org.eclipse.kapua.service.device.management.packages.model.download.DevicePackageDownloadRequest;
+import org.eclipse.kapua.service.device.registry.Device;
+import org.eclipse.kapua.service.device.registry.DeviceListResult;
+import org.eclipse.kapua.service.device.registry.DeviceQuery;
+import org.eclipse.kapua.service.device.registry.DeviceRegistryService;
+
+/**
+ * {@link DeviceBatchOperationService} implementation.
+ * <p>
+ * The batch operation and its targets are persisted when submitted, then the operation is executed in background by the {@link DeviceBatchOperationExecutor}
+ * through the device management services, with the permissions of the user that submitted the batch operation.
+ * </p>
+ *
+ * @since 1.0.0
+ */
+@KapuaProvider
+public class DeviceBatchOperationServiceImpl extends AbstractKapuaService implements DeviceBatchOperationService {
+
+    private static final Domain deviceManagementDomain = new DeviceManagementDomain();
+
+    /**
+     * Page size used to resolve the target devices of a {@link DeviceQuery}
+     */
+    private static final int DEVICE_QUERY_PAGE_SIZE = 1000;
+
+    /**
+     * Constructor
+     */
+    public DeviceBatchOperationServiceImpl() {
+        super(DeviceBatchEntityManagerFactory.instance());
+    }
+
+    @Override
+    public DeviceBatchOperation create(DeviceBatchOperationCreator creator)
+            throws KapuaException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(creator, "deviceBatchOperationCreator");
+        ArgumentValidator.notNull(creator.getScopeId(), "deviceBatchOperationCreator.scopeId");
+        ArgumentValidator.notNull(creator.getOperationType(), "deviceBatchOperationCreator.operationType");
+
+        DeviceOperation deviceOperation = newDeviceOperation(creator);
+
+        //
+        // Check Access
+        // the same permission checked by the device management service for a single device
+        Actions action = DeviceBatchOperationType.COMMAND_EXEC.equals(creator.getOperationType()) ? Actions.execute : Actions.write;
+        checkPermission(action, creator.getScopeId());
+
+        //
+        // Resolve the target devices
+        List<KapuaId> deviceIds = findTargetDevices(creator);
+        if (deviceIds.isEmpty()) {
+            throw new KapuaIllegalArgumentException("deviceBatchOperationCreator.deviceIds", null);
+        }
+
+        //
+        // Create the batch operation and its targets
+        List<DeviceBatchOperationTarget> targets = new ArrayList<>();
+        DeviceBatchOperation batchOperation = entityManagerSession.onTransactedInsert(em -> {
+            DeviceBatchOperation newBatchOperation = DeviceBatchOperationDAO.create(em, creator, deviceIds.size());
+            targets.addAll(DeviceBatchOperationTargetDAO.create(em, newBatchOperation, deviceIds));
+            return newBatchOperation;
+        });
+
+        //
+        // Start the batch operation
+        DeviceBatchOperationExecutor.getInstance().submit(batchOperation, targets, deviceOperation, KapuaSecurityUtils.getSession());
+
+        return batchOperation;
+    }
+
+    @Override
+    public DeviceBatchOperation find(KapuaId scopeId, KapuaId batchOperationId)
+            throws KapuaException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(scopeId, "scopeId");
+        ArgumentValidator.notNull(batchOperationId, "batchOperationId");
+
+        //
+        // Check Access
+        checkPermission(Actions.read, scopeId);
+
+        return entityManagerSession.onResult(em -> DeviceBatchOperationDAO.find(em, scopeId, batchOperationId));
+    }
+
+    @Override
+    public DeviceBatchOperationListResult query(KapuaQuery<DeviceBatchOperation> query)
+            throws KapuaException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(query, "query");
+        ArgumentValidator.notNull(query.getScopeId(), "query.scopeId");
+
+        //
+        // Check Access
+        checkPermission(Actions.read, query.getScopeId());
+
+        return entityManagerSession.onResult(em -> DeviceBatchOperationDAO.query(em, query));
+    }
+
+    @Override
+    public long count(KapuaQuery<DeviceBatchOperation> query)
+            throws KapuaException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(query, "query");
+        ArgumentValidator.notNull(query.getScopeId(), "query.scopeId");
+
+        //
+        // Check Access
+        checkPermission(Actions.read, query.getScopeId());
+
+        return entityManagerSession.onResult(em -> DeviceBatchOperationDAO.count(em, query));
+    }
+
+    @Override
+    public DeviceBatchOperation cancel(KapuaId scopeId, KapuaId batchOperationId)
+            throws KapuaException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(scopeId, "scopeId");
+        ArgumentValidator.notNull(batchOperationId, "batchOperationId");
+
+        //
+        // Check Access
+        checkPermission(Actions.write, scopeId);
+
+        //
+        // The batch operation must belong to the scope on which the permission is checked
+        if (find(scopeId, batchOperationId) == null) {
+            throw new KapuaEntityNotFoundException(DeviceBatchOperation.TYPE, batchOperationId);
+        }
+
+        //
+        // Cancel the batch operation running on this node, it will be marked as canceled when the requests in flight complete
+        if (DeviceBatchOperationExecutor.getInstance().cancel(batchOperationId)) {
+            return find(scopeId, batchOperationId);
+        }
+
+        //
+        // Otherwise mark it as canceled, a node running it will stop at its next progress update
+        return entityManagerSession.onTransactedResult(em -> {
+            DeviceBatchOperationImpl batchOperation = DeviceBatchOperationDAO.find(em, scopeId, batchOperationId);
+            if (batchOperation == null) {
+                throw new KapuaEntityNotFoundException(DeviceBatchOperation.TYPE, batchOperationId);
+            }
+
+            if (isActive(batchOperation)) {
+                batchOperation.setStatus(DeviceBatchOperationStatus.CANCELED);
+                batchOperation.setCanceledCount(DeviceBatchOperationTargetDAO.cancelPending(em, batchOperationId));
+                batchOperation.setEndedOn(new Date());
+            }
+            return batchOperation;
+        });
+    }
+
+    @Override
+    public void delete(KapuaId scopeId, KapuaId batchOperationId)
+            throws KapuaException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(scopeId, "scopeId");
+        ArgumentValidator.notNull(batchOperationId, "batchOperationId");
+
+        //
+        // Check Access
+        checkPermission(Actions.write, scopeId);
+
+        entityManagerSession.onTransactedAction(em -> {
+            DeviceBatchOperation batchOperation = DeviceBatchOperationDAO.find(em, scopeId, batchOperationId);
+            if (batchOperation == null) {
+                throw new KapuaEntityNotFoundException(DeviceBatchOperation.TYPE, batchOperationId);
+            }
+            if (isActive(batchOperation)) {
+                throw new KapuaIllegalArgumentException("batchOperation.status", batchOperation.getStatus().name());
+            }
+
+            DeviceBatchOperationTargetDAO.deleteByBatchOperationId(em, batchOperationId);
+            DeviceBatchOperationDAO.delete(em, batchOperationId);
+        });
+    }
+
+    @Override
+    public DeviceBatchOperationTargetListResult queryTargets(KapuaQuery<DeviceBatchOperationTarget> query)
+            throws KapuaException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(query, "query");
+        ArgumentValidator.notNull(query.getScopeId(), "query.scopeId");
+
+        //
+        // Check Access
+        checkPermission(Actions.read, query.getScopeId());
+
+        return entityManagerSession.onResult(em -> DeviceBatchOperationTargetDAO.query(em, query));
+    }
+
+    @Override
+    public long countTargets(KapuaQuery<DeviceBatchOperationTarget> query)
+            throws KapuaException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(query, "query");
+        ArgumentValidator.notNull(query.getScopeId(), "query.scopeId");
+
+        //
+        // Check Access
+        checkPermission(Actions.read, query.getScopeId());
+
+        return entityManagerSession.onResult(em -> DeviceBatchOperationTargetDAO.count(em, query));
+    }
+
+    //
+    // Private methods
+    //
+
+    private static boolean isActive(DeviceBatchOperation batchOperation) {
+        return DeviceBatchOperationStatus.QUEUED.equals(batchOperation.getStatus()) ||
+                DeviceBatchOperationStatus.RUNNING.equals(batchOperation.getStatus());
+    }
+
+    private static void checkPermission(Actions action, KapuaId scopeId)
+            throws KapuaException {
+        KapuaLocator locator = KapuaLocator.getInstance();
+        AuthorizationService authorizationService = locator.getService(AuthorizationService.class);
+        PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
+        authorizationService.checkPermission(permissionFactory.newPermission(deviceManagementDomain, action, scopeId));
+    }
+
+    /**
+     * Builds the operation to execute on each device, validating the request of the batch operation type.
+     */
+    private static DeviceOperation newDeviceOperation(DeviceBatchOperationCreator creator)
+            throws KapuaException {
+        KapuaLocator locator = KapuaLocator.getInstance();
+        KapuaId scopeId = creator.getScopeId();
+        Long timeout = creator.getTimeout();
+
+        switch (creator.getOperationType()) {
+        case COMMAND_EXEC:
+            DeviceCommandInput commandInput = creator.getCommandInput();
+            ArgumentValidator.notNull(commandInput, "deviceBatchOperationCreator.commandInput");
+            ArgumentValidator.notNull(commandInput.getTimeout(), "deviceBatchOperationCreator.commandInput.timeout");
+
+            DeviceCommandManagementService commandService = locator.getService(DeviceCommandManagementService.class);
+            return deviceId -> {
+                DeviceCommandOutput commandOutput = commandService.exec(scopeId, deviceId, commandInput, timeout);
+                if (commandOutput.getExitCode() != null && commandOutput.getExitCode() != 0) {
+                    throw new DeviceManagementException(DeviceManagementErrorCodes.RESPONSE_INTERNAL_ERROR, "exit code " + commandOutput.getExitCode(), commandOutput.getStderr());
+                }
+            };
+        case CONFIGURATION_PUT:
+            DeviceConfiguration configuration = creator.getConfiguration();
+            ArgumentValidator.notNull(configuration, "deviceBatchOperationCreator.configuration");
+
+            DeviceConfigurationManagementService configurationService = locator.getService(DeviceConfigurationManagementService.class);
+            return deviceId -> configurationService.put(scopeId, deviceId, configuration, timeout);
+        case PACKAGE_DOWNLOAD:
+            DevicePackageDownloadRequest packageDownloadRequest = creator.getPackageDownloadRequest();
+            ArgumentValidator.notNull(packageDownloadRequest, "deviceBatchOperationCreator.packageDownloadRequest");
+
+            DevicePackageManagementService packageService = locator.getService(DevicePackageManagementService.class);
+            return deviceId -> packageService.downloadExec(scopeId, deviceId, packageDownloadRequest, timeout);
+        default:
+            throw new KapuaIllegalArgumentException("deviceBatchOperationCreator.operationType", creator.getOperationType().name());
+        }
+    }
+
+    /**
+     * Resolves the target devices from the device identifiers, or from the device query when no device identifier is given.<br>
+     * The device query is paged by key offset and executed with the permissions of the current user.
+     */
+    private static List<KapuaId> findTargetDevices(DeviceBatchOperationCreator creator)
+            throws KapuaException {
+        Set<KapuaId> deviceIds = new LinkedHashSet<>();
+        if (creator.getDeviceIds() != null && !creator.getDeviceIds().isEmpty()) {
+            deviceIds.addAll(creator.getDeviceIds());
+        } else {
+            DeviceQuery deviceQuery = creator.getDeviceQuery();
+            ArgumentValidator.notNull(deviceQuery, "deviceBatchOperationCreator.deviceQuery");
+
+            DeviceRegistryService deviceRegistryService = KapuaLocator.getInstance().getService(DeviceRegistryService.class);
+            deviceQuery.setScopeId(creator.getScopeId());
+            deviceQuery.setLimit(DEVICE_QUERY_PAGE_SIZE);
+
+            // the pages follow the last device of the previous page (key offset), so large fleets are not read with deep offsets
+            deviceQuery.setOffset(null);
+            deviceQuery.setKeyOffset(null);
+            DeviceListResult devices;
+            do {
+                devices = deviceRegistryService.query(deviceQuery);
+                for (Device device : devices.getItems()) {
+                    deviceIds.add(device.getId());
+                }
+                deviceQuery.setKeyOffset(devices.getNextKey());
+            } while (devices.isLimitExceeded() && devices.getNextKey() != null);
+        }
+        return new ArrayList<>(deviceIds);
+    }
+}
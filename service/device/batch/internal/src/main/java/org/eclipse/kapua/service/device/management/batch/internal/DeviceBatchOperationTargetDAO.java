@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch.internal;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.service.internal.ServiceDAO;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.query.KapuaQuery;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperation;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTarget;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetListResult;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetStatus;
+
+/**
+ * {@link DeviceBatchOperationTarget} DAO
+ *
+ * @since 1.0.0
+ */
+public class DeviceBatchOperationTargetDAO extends ServiceDAO {
+
+    /**
+     * Number of targets persisted before flushing them to the database
+     */
+    private static final int CREATE_FLUSH_SIZE = 500;
+
+    /**
+     * Create a {@link DeviceBatchOperationTarget} in {@link DeviceBatchOperationTargetStatus#PENDING} status for each device
+     *
+     * @param em
+     * @param batchOperation
+     * @param deviceIds
+     * @return
+     */
+    public static List<DeviceBatchOperationTarget> create(EntityManager em, DeviceBatchOperation batchOperation, List<KapuaId> deviceIds) {
+        List<DeviceBatchOperationTarget> targets = new ArrayList<>(deviceIds.size());
+        for (KapuaId deviceId : deviceIds) {
+            DeviceBatchOperationTargetImpl target = new DeviceBatchOperationTargetImpl(batchOperation.getScopeId());
+            target.setBatchOperationId(batchOperation.getId());
+            target.setDeviceId(deviceId);
+            target.setStatus(DeviceBatchOperationTargetStatus.PENDING);
+
+            em.persist(target);
+            targets.add(target);
+
+            if (targets.size() % CREATE_FLUSH_SIZE == 0) {
+                em.flush();
+            }
+        }
+        em.flush();
+
+        return targets;
+    }
+
+    /**
+     * Find the {@link DeviceBatchOperationTarget} by identifier
+     *
+     * @param em
+     * @param targetId
+     * @return
+     */
+    public static DeviceBatchOperationTargetImpl find(EntityManager em, KapuaId targetId) {
+        return em.find(DeviceBatchOperationTargetImpl.class, targetId);
+    }
+
+    /**
+     * Return the {@link DeviceBatchOperationTarget} list matching the provided query
+     *
+     * @param em
+     * @param query
+     * @return
+     * @throws KapuaException
+     */
+    public static DeviceBatchOperationTargetListResult query(EntityManager em, KapuaQuery<DeviceBatchOperationTarget> query)
+            throws KapuaException {
+        return ServiceDAO.query(em, DeviceBatchOperationTarget.class, DeviceBatchOperationTargetImpl.class, new DeviceBatchOperationTargetListResultImpl(), query);
+    }
+
+    /**
+     * Return the {@link DeviceBatchOperationTarget} count matching the provided query
+     *
+     * @param em
+     * @param query
+     * @return
+     * @throws KapuaException
+     */
+    public static long count(EntityManager em, KapuaQuery<DeviceBatchOperationTarget> query)
+            throws KapuaException {
+        return ServiceDAO.count(em, DeviceBatchOperationTarget.class, DeviceBatchOperationTargetImpl.class, query);
+    }
+
+    /**
+     * Mark as {@link DeviceBatchOperationTargetStatus#CANCELED} all the {@link DeviceBatchOperationTargetStatus#PENDING} targets of the batch operation
+     *
+     * @param em
+     * @param batchOperationId
+     * @return The number of canceled targets
+     */
+    public static int cancelPending(EntityManager em, KapuaId batchOperationId) {
+        return em.createNamedQuery("DeviceBatchOperationTarget.updateStatus", DeviceBatchOperationTarget.class)
+                .setParameter("batchOperationId", batchOperationId.getId())
+                .setParameter("fromStatus", DeviceBatchOperationTargetStatus.PENDING)
+                .setParameter("toStatus", DeviceBatchOperationTargetStatus.CANCELED)
+                .setParameter("completedOn", new Date())
+                .executeUpdate();
+    }
+
+    /**
+     * Delete all the {@link DeviceBatchOperationTarget}s of the batch operation
+     *
+     * @param em
+     * @param batchOperationId
+     */
+    public static void deleteByBatchOperationId(EntityManager em, KapuaId batchOperationId) {
+        em.createNamedQuery("DeviceBatchOperationTarget.deleteByBatchOperationId", DeviceBatchOperationTarget.class)
+                .setParameter("batchOperationId", batchOperationId.getId())
+                .executeUpdate();
+    }
+}
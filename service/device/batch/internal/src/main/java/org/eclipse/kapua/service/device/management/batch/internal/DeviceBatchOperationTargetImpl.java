@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch.internal;
+
+import java.util.Date;
+
+import javax.persistence.AttributeOverride;
+import javax.persistence.AttributeOverrides;
+import javax.persistence.Column;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Lob;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import org.eclipse.kapua.commons.model.AbstractKapuaUpdatableEntity;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTarget;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetStatus;
+
+/**
+ * {@link DeviceBatchOperationTarget} implementation.
+ * 
+ * @since 1.0.0
+ *
+ */
+@Entity(name = "DeviceBatchOperationTarget")
+@NamedQueries({
+        @NamedQuery(name = "DeviceBatchOperationTarget.updateStatus", query = "UPDATE DeviceBatchOperationTarget t SET t.status = :toStatus, t.completedOn = :completedOn WHERE t.batchOperationId.eid = :batchOperationId AND t.status = :fromStatus"),
+        @NamedQuery(name = "DeviceBatchOperationTarget.deleteByBatchOperationId", query = "DELETE FROM DeviceBatchOperationTarget t WHERE t.batchOperationId.eid = :batchOperationId")
+})
+@Table(name = "dvc_batch_operation_target")
+public class DeviceBatchOperationTargetImpl extends AbstractKapuaUpdatableEntity implements DeviceBatchOperationTarget {
+
+    private static final long serialVersionUID = 5129735624092714831L;
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "eid", column = @Column(name = "batch_operation_id", nullable = false, updatable = false))
+    })
+    private KapuaEid batchOperationId;
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "eid", column = @Column(name = "device_id", nullable = false, updatable = false))
+    })
+    private KapuaEid deviceId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private DeviceBatchOperationTargetStatus status;
+
+    @Lob
+    @Column(name = "error_message")
+    private String errorMessage;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "completed_on")
+    private Date completedOn;
+
+    /**
+     * Constructor
+     */
+    protected DeviceBatchOperationTargetImpl() {
+        super();
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param scopeId
+     */
+    public DeviceBatchOperationTargetImpl(KapuaId scopeId) {
+        super(scopeId);
+    }
+
+    @Override
+    public KapuaId getBatchOperationId() {
+        return batchOperationId;
+    }
+
+    @Override
+    public void setBatchOperationId(KapuaId batchOperationId) {
+        this.batchOperationId = batchOperationId != null ? (batchOperationId instanceof KapuaEid ? (KapuaEid) batchOperationId : new KapuaEid(batchOperationId)) : null;
+    }
+
+    @Override
+    public KapuaId getDeviceId() {
+        return deviceId;
+    }
+
+    @Override
+    public void setDeviceId(KapuaId deviceId) {
+        this.deviceId = deviceId != null ? (deviceId instanceof KapuaEid ? (KapuaEid) deviceId : new KapuaEid(deviceId)) : null;
+    }
+
+    @Override
+    public DeviceBatchOperationTargetStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public void setStatus(DeviceBatchOperationTargetStatus status) {
+        this.status = status;
+    }
+
+    @Override
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    @Override
+    public Date getCompletedOn() {
+        return completedOn;
+    }
+
+    @Override
+    public void setCompletedOn(Date completedOn) {
+        this.completedOn = completedOn;
+    }
+}
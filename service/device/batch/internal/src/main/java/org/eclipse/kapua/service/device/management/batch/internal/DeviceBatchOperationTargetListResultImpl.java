@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch.internal;
+
+import org.eclipse.kapua.commons.model.query.KapuaListResultImpl;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTarget;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetListResult;
+
+/**
+ * {@link DeviceBatchOperationTargetListResult} implementation.
+ *
+ * @since 1.0.0
+ */
+public class DeviceBatchOperationTargetListResultImpl extends KapuaListResultImpl<DeviceBatchOperationTarget> implements DeviceBatchOperationTargetListResult {
+
+    private static final long serialVersionUID = 8826408193167234719L;
+}
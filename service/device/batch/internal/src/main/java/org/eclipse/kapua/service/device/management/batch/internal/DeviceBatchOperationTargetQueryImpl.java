@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch.internal;
+
+import org.eclipse.kapua.commons.model.query.predicate.AbstractKapuaQuery;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTarget;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetQuery;
+
+/**
+ * {@link DeviceBatchOperationTargetQuery} implementation.
+ *
+ * @since 1.0.0
+ */
+public class DeviceBatchOperationTargetQueryImpl extends AbstractKapuaQuery<DeviceBatchOperationTarget> implements DeviceBatchOperationTargetQuery {
+
+    /**
+     * Constructor
+     */
+    private DeviceBatchOperationTargetQueryImpl() {
+        super();
+    }
+
+    /**
+     * Constructor
+     *
+     * @param scopeId
+     */
+    public DeviceBatchOperationTargetQueryImpl(KapuaId scopeId) {
+        this();
+        setScopeId(scopeId);
+    }
+}
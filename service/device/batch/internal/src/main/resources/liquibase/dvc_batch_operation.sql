@@ -0,0 +1,65 @@
+-- *******************************************************************************
+-- Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+--
+-- All rights reserved. This program and the accompanying materials
+-- are made available under the terms of the Eclipse Public License v1.0
+-- which accompanies this distribution, and is available at
+-- http://www.eclipse.org/legal/epl-v10.html
+--
+-- Contributors:
+--     Eurotech - initial API and implementation
+-- *******************************************************************************
+
+--liquibase formatted sql
+
+--changeset device_batch_operation:1
+
+CREATE TABLE dvc_batch_operation (
+  scope_id             	    BIGINT(21) 	  UNSIGNED NOT NULL,
+  id                     	BIGINT(21) 	  UNSIGNED NOT NULL,
+  created_on             	TIMESTAMP(3)  NULL,
+  created_by             	BIGINT(21)    UNSIGNED NOT NULL,
+  modified_on            	TIMESTAMP(3)  NULL,
+  modified_by            	BIGINT(21)    UNSIGNED NOT NULL,
+
+  operation_type            VARCHAR(64)   NOT NULL,
+  status                    VARCHAR(64)   NOT NULL,
+  timeout                   BIGINT(21),
+  target_count              INT           NOT NULL DEFAULT 0,
+  succeeded_count           INT           NOT NULL DEFAULT 0,
+  failed_count              INT           NOT NULL DEFAULT 0,
+  canceled_count            INT           NOT NULL DEFAULT 0,
+  started_on                TIMESTAMP(3)  NULL DEFAULT NULL,
+  ended_on                  TIMESTAMP(3)  NULL DEFAULT NULL,
+
+  optlock                   INT UNSIGNED,
+  attributes             	TEXT,
+  properties                TEXT,
+
+  PRIMARY KEY (scope_id, id)   -- primary key needs to include the partitioning key
+) CHARSET=utf8;
+
+CREATE INDEX idx_batch_operation_status ON dvc_batch_operation (scope_id, status);
+
+CREATE TABLE dvc_batch_operation_target (
+  scope_id             	    BIGINT(21) 	  UNSIGNED NOT NULL,
+  id                     	BIGINT(21) 	  UNSIGNED NOT NULL,
+  created_on             	TIMESTAMP(3)  NULL,
+  created_by             	BIGINT(21)    UNSIGNED NOT NULL,
+  modified_on            	TIMESTAMP(3)  NULL,
+  modified_by            	BIGINT(21)    UNSIGNED NOT NULL,
+
+  batch_operation_id        BIGINT(21) 	  UNSIGNED NOT NULL,
+  device_id                 BIGINT(21) 	  UNSIGNED NOT NULL,
+  status                    VARCHAR(64)   NOT NULL,
+  error_message             TEXT,
+  completed_on              TIMESTAMP(3)  NULL DEFAULT NULL,
+
+  optlock                   INT UNSIGNED,
+  attributes             	TEXT,
+  properties                TEXT,
+
+  PRIMARY KEY (scope_id, id)   -- primary key needs to include the partitioning key
+) CHARSET=utf8;
+
+CREATE INDEX idx_batch_operation_target_operation ON dvc_batch_operation_target (scope_id, batch_operation_id, status);
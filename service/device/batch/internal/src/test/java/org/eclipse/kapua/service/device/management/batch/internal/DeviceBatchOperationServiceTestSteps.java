@@ -0,0 +1,520 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.batch.internal;
+
+import static org.eclipse.kapua.commons.model.query.predicate.AttributePredicate.attributeIsEqualTo;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.KapuaEntityNotFoundException;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.EntityManagerSession;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.model.query.predicate.AndPredicate;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.authorization.AuthorizationService;
+import org.eclipse.kapua.service.authorization.permission.Permission;
+import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperation;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationCreator;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationStatus;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTarget;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetListResult;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetPredicates;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetQuery;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationTargetStatus;
+import org.eclipse.kapua.service.device.management.batch.DeviceBatchOperationType;
+import org.eclipse.kapua.service.device.management.command.DeviceCommandInput;
+import org.eclipse.kapua.service.device.management.command.DeviceCommandManagementService;
+import org.eclipse.kapua.service.device.management.command.DeviceCommandOutput;
+import org.eclipse.kapua.service.device.management.configuration.DeviceConfiguration;
+import org.eclipse.kapua.service.device.management.configuration.DeviceConfigurationManagementService;
+import org.eclipse.kapua.service.device.registry.Device;
+import org.eclipse.kapua.service.device.registry.DeviceListResult;
+import org.eclipse.kapua.service.device.registry.DeviceQuery;
+import org.eclipse.kapua.service.device.registry.DeviceRegistryService;
+import org.eclipse.kapua.service.liquibase.KapuaLiquibaseClient;
+import org.eclipse.kapua.test.KapuaTest;
+import org.eclipse.kapua.test.MockedLocator;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+
+/**
+ * Implementation of Gherkin steps used in DeviceBatchOperation.feature scenarios.
+ *
+ * MockedLocator is used for Location Service. Mockito is used to mock the services the Device Batch Operation service
+ * depends on: the Authorization Service, the Device Registry Service and the device management services.
+ * Each scenario works in its own scope, so the batch operations of the previous scenarios are not counted.
+ */
+public class DeviceBatchOperationServiceTestSteps extends KapuaTest {
+
+    private static final long END_TIMEOUT = 10000L;
+    private static final String NEXT_KEY = "nextKey";
+
+    // Device batch operation related service references
+    DeviceBatchOperationServiceImpl batchOperationService;
+    DeviceBatchOperationFactoryImpl batchOperationFactory;
+
+    // Mocked services
+    DeviceRegistryService deviceRegistryService;
+    DeviceCommandManagementService commandService;
+    DeviceConfigurationManagementService configurationService;
+
+    // The scope of the current scenario
+    KapuaId scopeId;
+
+    // The target devices, and the ones where the command fails
+    List<KapuaId> deviceIds;
+    Set<KapuaId> failingDeviceIds;
+
+    // Holds the command execution when set
+    volatile CountDownLatch commandLatch;
+
+    DeviceConfiguration configuration;
+    DeviceQuery deviceQuery;
+    DeviceBatchOperation batchOperation;
+
+    // Check if exception was fired in step.
+    boolean exceptionCaught;
+
+    // *************************************
+    // Definition of Cucumber scenario steps
+    // *************************************
+
+    // Setup and tear-down steps
+
+    @Before
+    public void beforeScenario()
+            throws Exception {
+        enableH2Connection();
+        new KapuaLiquibaseClient("jdbc:h2:mem:kapua;MODE=MySQL", "kapua", "kapua").update();
+
+        scopeId = new KapuaEid(BigInteger.valueOf(random.nextInt(Integer.MAX_VALUE) + 2L));
+        deviceIds = new ArrayList<>();
+        failingDeviceIds = new HashSet<>();
+        commandLatch = null;
+        batchOperation = null;
+        exceptionCaught = false;
+
+        MockedLocator mockLocator = (MockedLocator) locator;
+
+        // Inject mocked Authorization Service method checkPermission
+        AuthorizationService mockedAuthorization = mock(AuthorizationService.class);
+        Mockito.doNothing().when(mockedAuthorization).checkPermission(any(Permission.class));
+        mockLocator.setMockedService(AuthorizationService.class, mockedAuthorization);
+
+        // Inject mocked Permission Factory
+        mockLocator.setMockedFactory(PermissionFactory.class, mock(PermissionFactory.class));
+
+        // Inject mocked Device Registry Service
+        deviceRegistryService = mock(DeviceRegistryService.class);
+        mockLocator.setMockedService(DeviceRegistryService.class, deviceRegistryService);
+
+        // Inject mocked Device Command Management Service, the command fails on the failing devices
+        commandService = mock(DeviceCommandManagementService.class);
+        when(commandService.exec(any(KapuaId.class), any(KapuaId.class), any(DeviceCommandInput.class), any(Long.class))).thenAnswer(invocation -> {
+            CountDownLatch latch = commandLatch;
+            if (latch != null) {
+                latch.await(END_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+
+            DeviceCommandOutput commandOutput = mock(DeviceCommandOutput.class);
+            if (failingDeviceIds.contains(invocation.getArgumentAt(1, KapuaId.class))) {
+                when(commandOutput.getExitCode()).thenReturn(1);
+                when(commandOutput.getStderr()).thenReturn("command failed");
+            } else {
+                when(commandOutput.getExitCode()).thenReturn(0);
+            }
+            return commandOutput;
+        });
+        mockLocator.setMockedService(DeviceCommandManagementService.class, commandService);
+
+        // Inject mocked Device Configuration Management Service
+        configurationService = mock(DeviceConfigurationManagementService.class);
+        mockLocator.setMockedService(DeviceConfigurationManagementService.class, configurationService);
+
+        // Inject actual device batch operation related services
+        batchOperationService = new DeviceBatchOperationServiceImpl();
+        batchOperationFactory = new DeviceBatchOperationFactoryImpl();
+
+        // All operations on database are performed using system user.
+        KapuaSession kapuaSession = new KapuaSession(null, new KapuaEid(BigInteger.ONE), new KapuaEid(BigInteger.ONE));
+        KapuaSecurityUtils.setSession(kapuaSession);
+    }
+
+    @After
+    public void afterScenario() {
+        // Do not leave a batch operation of a failed scenario waiting for the command
+        CountDownLatch latch = commandLatch;
+        if (latch != null) {
+            latch.countDown();
+        }
+        KapuaSecurityUtils.clearSession();
+    }
+
+    // The Cucumber test steps
+
+    @Given("^(\\d+) devices$")
+    public void prepareDevices(int deviceCount) {
+        for (int i = 0; i < deviceCount; i++) {
+            deviceIds.add(new KapuaEid(BigInteger.valueOf(i + 1)));
+        }
+    }
+
+    @Given("^(\\d+) devices matching a device query$")
+    public void prepareQueriedDevices(int deviceCount)
+            throws KapuaException {
+        prepareDevices(deviceCount);
+
+        List<Device> devices = new ArrayList<>();
+        for (KapuaId deviceId : deviceIds) {
+            Device device = mock(Device.class);
+            when(device.getId()).thenReturn(deviceId);
+            devices.add(device);
+        }
+        DeviceListResult deviceListResult = mock(DeviceListResult.class);
+        when(deviceListResult.getItems()).thenReturn(devices);
+        when(deviceListResult.isLimitExceeded()).thenReturn(false);
+        when(deviceRegistryService.query(any(DeviceQuery.class))).thenReturn(deviceListResult);
+    }
+
+    @Given("^(\\d+) devices matching a device query in 2 pages$")
+    public void prepareQueriedDevicePages(int deviceCount)
+            throws KapuaException {
+        prepareDevices(deviceCount);
+
+        List<Device> devices = new ArrayList<>();
+        for (KapuaId deviceId : deviceIds) {
+            Device device = mock(Device.class);
+            when(device.getId()).thenReturn(deviceId);
+            devices.add(device);
+        }
+        DeviceListResult firstPage = mock(DeviceListResult.class);
+        when(firstPage.getItems()).thenReturn(devices.subList(0, 1));
+        when(firstPage.isLimitExceeded()).thenReturn(true);
+        when(firstPage.getNextKey()).thenReturn(NEXT_KEY);
+        DeviceListResult lastPage = mock(DeviceListResult.class);
+        when(lastPage.getItems()).thenReturn(devices.subList(1, devices.size()));
+        when(lastPage.isLimitExceeded()).thenReturn(false);
+        when(deviceRegistryService.query(any(DeviceQuery.class))).thenReturn(firstPage, lastPage);
+    }
+
+    @Given("^The command fails on (\\d+) devices$")
+    public void commandFails(int deviceCount) {
+        failingDeviceIds.addAll(deviceIds.subList(0, deviceCount));
+    }
+
+    @Given("^The command waits to be released$")
+    public void commandWaits() {
+        commandLatch = new CountDownLatch(1);
+    }
+
+    @When("^The command is released$")
+    public void releaseCommand() {
+        commandLatch.countDown();
+    }
+
+    @When("^I execute a batch command on the devices$")
+    public void executeCommand() {
+        DeviceBatchOperationCreator creator = batchOperationFactory.newCreator(scopeId, DeviceBatchOperationType.COMMAND_EXEC);
+        creator.setDeviceIds(deviceIds);
+        creator.setCommandInput(newCommandInput());
+        create(creator);
+    }
+
+    @When("^I execute a batch command on the devices matching the query$")
+    public void executeCommandOnQuery() {
+        DeviceBatchOperationCreator creator = batchOperationFactory.newCreator(scopeId, DeviceBatchOperationType.COMMAND_EXEC);
+        deviceQuery = mock(DeviceQuery.class);
+        creator.setDeviceQuery(deviceQuery);
+        creator.setCommandInput(newCommandInput());
+        create(creator);
+    }
+
+    @When("^I execute a batch command without input on the devices$")
+    public void executeCommandWithoutInput() {
+        DeviceBatchOperationCreator creator = batchOperationFactory.newCreator(scopeId, DeviceBatchOperationType.COMMAND_EXEC);
+        creator.setDeviceIds(deviceIds);
+        create(creator);
+    }
+
+    @When("^I put a configuration on the devices$")
+    public void putConfiguration() {
+        configuration = mock(DeviceConfiguration.class);
+
+        DeviceBatchOperationCreator creator = batchOperationFactory.newCreator(scopeId, DeviceBatchOperationType.CONFIGURATION_PUT);
+        creator.setDeviceIds(deviceIds);
+        creator.setConfiguration(configuration);
+        create(creator);
+    }
+
+    @When("^A batch operation fails before processing the devices$")
+    public void failBatchOperation()
+            throws KapuaException {
+        // the executor fails iterating over the missing targets, after the batch operation is marked as running
+        batchOperation = createWithoutExecution();
+        DeviceBatchOperationExecutor.getInstance().submit(batchOperation, null, deviceId -> {
+        }, KapuaSecurityUtils.getSession());
+    }
+
+    @When("^A batch operation is queued$")
+    public void queueBatchOperation()
+            throws KapuaException {
+        batchOperation = createWithoutExecution();
+    }
+
+    @When("^A batch operation is left queued by a stopped node$")
+    public void leaveBatchOperation()
+            throws Exception {
+        batchOperation = createWithoutExecution();
+
+        // wait for the orphan timeout
+        Thread.sleep(Long.parseLong(System.getProperty("batch.orphan.timeout")) + 500L);
+    }
+
+    @When("^The orphaned batch operations are reconciled$")
+    public void reconcile() {
+        assertTrue(DeviceBatchOperationExecutor.getInstance().reconcile() >= 1);
+    }
+
+    @When("^I cancel the batch operation$")
+    public void cancel()
+            throws KapuaException {
+        batchOperationService.cancel(scopeId, batchOperation.getId());
+    }
+
+    @When("^I cancel the batch operation in another scope$")
+    public void cancelInOtherScope() {
+        try {
+            batchOperationService.cancel(otherScopeId(), batchOperation.getId());
+        } catch (KapuaEntityNotFoundException ex) {
+            exceptionCaught = true;
+        } catch (KapuaException ex) {
+            fail("Unexpected exception: " + ex.getMessage());
+        }
+    }
+
+    @When("^I delete the batch operation in another scope$")
+    public void deleteInOtherScope() {
+        exceptionCaught = false;
+        try {
+            batchOperationService.delete(otherScopeId(), batchOperation.getId());
+        } catch (KapuaEntityNotFoundException ex) {
+            exceptionCaught = true;
+        } catch (KapuaException ex) {
+            fail("Unexpected exception: " + ex.getMessage());
+        }
+    }
+
+    @When("^I delete the batch operation$")
+    public void delete() {
+        try {
+            batchOperationService.delete(scopeId, batchOperation.getId());
+        } catch (KapuaException ex) {
+            exceptionCaught = true;
+        }
+    }
+
+    @Then("^An exception was thrown$")
+    public void exceptionWasThrown() {
+        assertTrue(exceptionCaught);
+    }
+
+    @Then("^The batch operation becomes \"(.*)\"$")
+    public void checkStatus(String status)
+            throws Exception {
+        DeviceBatchOperationStatus expectedStatus = DeviceBatchOperationStatus.valueOf(status);
+        long end = System.currentTimeMillis() + END_TIMEOUT;
+        while (!expectedStatus.equals(batchOperationService.find(scopeId, batchOperation.getId()).getStatus()) && System.currentTimeMillis() < end) {
+            Thread.sleep(50);
+        }
+        assertEquals(expectedStatus, batchOperationService.find(scopeId, batchOperation.getId()).getStatus());
+    }
+
+    @Then("^The batch operation ends as \"(.*)\"$")
+    public void checkEndStatus(String status)
+            throws Exception {
+        checkStatus(status);
+        batchOperation = batchOperationService.find(scopeId, batchOperation.getId());
+        assertNotNull(batchOperation.getEndedOn());
+    }
+
+    @Then("^The batch operation counts (\\d+) succeeded, (\\d+) failed and (\\d+) canceled targets$")
+    public void checkCounts(int succeededCount, int failedCount, int canceledCount) {
+        assertEquals(deviceIds.size(), batchOperation.getTargetCount());
+        assertEquals(succeededCount, batchOperation.getSucceededCount());
+        assertEquals(failedCount, batchOperation.getFailedCount());
+        assertEquals(canceledCount, batchOperation.getCanceledCount());
+    }
+
+    @Then("^The batch operation targets add up to (\\d+)$")
+    public void checkTotalCount(int targetCount) {
+        assertEquals(targetCount, batchOperation.getTargetCount());
+        assertEquals(targetCount, batchOperation.getSucceededCount() + batchOperation.getFailedCount() + batchOperation.getCanceledCount());
+    }
+
+    @Then("^The batch operation has (\\d+) targets in \"(.*)\" status$")
+    public void checkTargets(int targetCount, String status)
+            throws KapuaException {
+        assertEquals(targetCount, queryTargets(DeviceBatchOperationTargetStatus.valueOf(status)).getSize());
+    }
+
+    @Then("^The batch operation has some targets in \"(.*)\" status$")
+    public void checkSomeTargets(String status)
+            throws KapuaException {
+        assertTrue(queryTargets(DeviceBatchOperationTargetStatus.valueOf(status)).getSize() > 0);
+    }
+
+    @Then("^The batch operation has (\\d+) targets in \"(.*)\" status with an error message$")
+    public void checkTargetsWithErrorMessage(int targetCount, String status)
+            throws KapuaException {
+        DeviceBatchOperationTargetListResult targets = queryTargets(DeviceBatchOperationTargetStatus.valueOf(status));
+        assertEquals(targetCount, targets.getSize());
+        for (DeviceBatchOperationTarget target : targets.getItems()) {
+            assertTrue(failingDeviceIds.contains(target.getDeviceId()));
+            assertNotNull(target.getErrorMessage());
+            assertNotNull(target.getCompletedOn());
+        }
+    }
+
+    @Then("^The command has been executed on (\\d+) devices$")
+    public void checkCommandExecutions(int deviceCount)
+            throws KapuaException {
+        verify(commandService, times(deviceCount)).exec(eq(scopeId), any(KapuaId.class), any(DeviceCommandInput.class), any(Long.class));
+    }
+
+    @Then("^The configuration has been put on (\\d+) devices$")
+    public void checkConfigurationPuts(int deviceCount)
+            throws KapuaException {
+        for (KapuaId deviceId : deviceIds) {
+            verify(configurationService, atLeast(1)).put(eq(scopeId), eq(deviceId), eq(configuration), any(Long.class));
+        }
+        verify(configurationService, times(deviceCount)).put(eq(scopeId), any(KapuaId.class), eq(configuration), any(Long.class));
+    }
+
+    @Then("^I find the batch operation$")
+    public void findBatchOperation()
+            throws KapuaException {
+        DeviceBatchOperation foundBatchOperation = batchOperationService.find(scopeId, batchOperation.getId());
+        assertNotNull(foundBatchOperation);
+        assertEquals(DeviceBatchOperationType.COMMAND_EXEC, foundBatchOperation.getOperationType());
+    }
+
+    @Then("^I don't find the batch operation$")
+    public void batchOperationNotFound()
+            throws KapuaException {
+        assertNull(batchOperationService.find(scopeId, batchOperation.getId()));
+    }
+
+    @Then("^I don't find the batch operation in another scope$")
+    public void batchOperationNotFoundInOtherScope()
+            throws KapuaException {
+        assertNull(batchOperationService.find(otherScopeId(), batchOperation.getId()));
+    }
+
+    @Then("^I find the batch operation not canceled$")
+    public void findBatchOperationNotCanceled()
+            throws KapuaException {
+        // the batch operation may be failed meanwhile by the reconciliation, since it is not run by any node
+        DeviceBatchOperation foundBatchOperation = batchOperationService.find(scopeId, batchOperation.getId());
+        assertNotNull(foundBatchOperation);
+        assertNotEquals(DeviceBatchOperationStatus.CANCELED, foundBatchOperation.getStatus());
+    }
+
+    @Then("^The device query has been paged by key offset$")
+    public void checkKeyOffsetPaging() {
+        verify(deviceQuery).setKeyOffset(NEXT_KEY);
+        ArgumentCaptor<Integer> offsets = ArgumentCaptor.forClass(Integer.class);
+        verify(deviceQuery, atLeast(0)).setOffset(offsets.capture());
+        for (Integer offset : offsets.getAllValues()) {
+            assertNull(offset);
+        }
+    }
+
+    @Then("^I count (\\d+) batch operations$")
+    public void countBatchOperations(int count)
+            throws KapuaException {
+        assertEquals(count, batchOperationService.count(batchOperationFactory.newQuery(scopeId)));
+    }
+
+    @Then("^I query (\\d+) batch operations$")
+    public void queryBatchOperations(int count)
+            throws KapuaException {
+        assertEquals(count, batchOperationService.query(batchOperationFactory.newQuery(scopeId)).getSize());
+    }
+
+    // *******************
+    // * Private Helpers *
+    // *******************
+
+    private void create(DeviceBatchOperationCreator creator) {
+        try {
+            batchOperation = batchOperationService.create(creator);
+        } catch (KapuaException ex) {
+            exceptionCaught = true;
+        }
+    }
+
+    private KapuaId otherScopeId() {
+        return new KapuaEid(scopeId.getId().add(BigInteger.ONE));
+    }
+
+    private static DeviceCommandInput newCommandInput() {
+        DeviceCommandInput commandInput = mock(DeviceCommandInput.class);
+        when(commandInput.getCommand()).thenReturn("ls");
+        when(commandInput.getTimeout()).thenReturn(1000);
+        return commandInput;
+    }
+
+    /**
+     * Persists a queued batch operation and its targets, without submitting it to the executor
+     */
+    private DeviceBatchOperation createWithoutExecution()
+            throws KapuaException {
+        DeviceBatchOperationCreator creator = batchOperationFactory.newCreator(scopeId, DeviceBatchOperationType.COMMAND_EXEC);
+        return new EntityManagerSession(DeviceBatchEntityManagerFactory.instance()).onTransactedInsert(em -> {
+            DeviceBatchOperation newBatchOperation = DeviceBatchOperationDAO.create(em, creator, deviceIds.size());
+            DeviceBatchOperationTargetDAO.create(em, newBatchOperation, deviceIds);
+            return newBatchOperation;
+        });
+    }
+
+    private DeviceBatchOperationTargetListResult queryTargets(DeviceBatchOperationTargetStatus status)
+            throws KapuaException {
+        DeviceBatchOperationTargetQuery query = batchOperationFactory.newTargetQuery(scopeId);
+        query.setPredicate(new AndPredicate()
+                .and(attributeIsEqualTo(DeviceBatchOperationTargetPredicates.BATCH_OPERATION_ID, batchOperation.getId()))
+                .and(attributeIsEqualTo(DeviceBatchOperationTargetPredicates.STATUS, status)));
+        return batchOperationService.queryTargets(query);
+    }
+}
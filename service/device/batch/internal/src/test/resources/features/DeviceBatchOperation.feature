@@ -0,0 +1,131 @@
+###############################################################################
+# Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+#
+# All rights reserved. This program and the accompanying materials
+# are made available under the terms of the Eclipse Public License v1.0
+# which accompanies this distribution, and is available at
+# http://www.eclipse.org/legal/epl-v10.html
+#
+# Contributors:
+#     Eurotech - initial API and implementation
+#
+###############################################################################
+
+Feature: Device Batch Operation Service
+    The Device Batch Operation Service executes a device management operation on a set of
+    devices in background, keeping track of the outcome on each device.
+
+Scenario: Execute a command on a batch of devices
+    The command is executed on every device and the batch operation completes.
+
+    Given 5 devices
+    When I execute a batch command on the devices
+    Then The batch operation ends as "COMPLETED"
+    And The batch operation counts 5 succeeded, 0 failed and 0 canceled targets
+    And The batch operation has 5 targets in "SUCCEEDED" status
+    And The command has been executed on 5 devices
+
+Scenario: Execute a command failing on some devices
+    The devices where the command fails are recorded with the error, the batch operation
+    completes anyway.
+
+    Given 5 devices
+    And The command fails on 2 devices
+    When I execute a batch command on the devices
+    Then The batch operation ends as "COMPLETED"
+    And The batch operation counts 3 succeeded, 2 failed and 0 canceled targets
+    And The batch operation has 2 targets in "FAILED" status with an error message
+
+Scenario: Put a configuration on a batch of devices
+
+    Given 3 devices
+    When I put a configuration on the devices
+    Then The batch operation ends as "COMPLETED"
+    And The configuration has been put on 3 devices
+
+Scenario: Execute a command on the devices matching a device query
+
+    Given 4 devices matching a device query
+    When I execute a batch command on the devices matching the query
+    Then The batch operation ends as "COMPLETED"
+    And The batch operation has 4 targets in "SUCCEEDED" status
+
+Scenario: Execute a command on the devices matching a device query over many pages
+    The device query pages follow the last device of the previous page.
+
+    Given 3 devices matching a device query in 2 pages
+    When I execute a batch command on the devices matching the query
+    Then The batch operation ends as "COMPLETED"
+    And The batch operation has 3 targets in "SUCCEEDED" status
+    And The device query has been paged by key offset
+
+Scenario: Find, query, count and delete batch operations
+
+    Given 2 devices
+    When I execute a batch command on the devices
+    Then The batch operation ends as "COMPLETED"
+    When I execute a batch command on the devices
+    Then The batch operation ends as "COMPLETED"
+    And I find the batch operation
+    And I count 2 batch operations
+    And I query 2 batch operations
+    When I delete the batch operation
+    Then I don't find the batch operation
+    And I count 1 batch operations
+
+Scenario: Cancel a running batch operation
+    The requests in flight complete, the targets not processed yet are canceled.
+
+    Given 60 devices
+    And The command waits to be released
+    When I execute a batch command on the devices
+    Then The batch operation becomes "RUNNING"
+    When I delete the batch operation
+    Then An exception was thrown
+    When I cancel the batch operation
+    And The command is released
+    Then The batch operation ends as "CANCELED"
+    And The batch operation targets add up to 60
+    And The batch operation has some targets in "CANCELED" status
+
+Scenario: A batch operation without devices is rejected
+
+    Given 0 devices
+    When I execute a batch command on the devices
+    Then An exception was thrown
+    And I count 0 batch operations
+
+Scenario: A batch command without input is rejected
+
+    Given 2 devices
+    When I execute a batch command without input on the devices
+    Then An exception was thrown
+    And I count 0 batch operations
+
+Scenario: A batch operation failing while processing the devices is marked as failed
+
+    Given 2 devices
+    When A batch operation fails before processing the devices
+    Then The batch operation ends as "FAILED"
+    And The batch operation has 2 targets in "CANCELED" status
+
+Scenario: A batch operation left queued by a stopped node is marked as failed
+    The batch operations not updated for the orphan timeout are reconciled as failed.
+
+    Given 2 devices
+    When A batch operation is left queued by a stopped node
+    And The orphaned batch operations are reconciled
+    Then The batch operation ends as "FAILED"
+    And The batch operation has 2 targets in "CANCELED" status
+
+Scenario: A batch operation is not visible from another scope
+    The batch operations of another scope are not found, canceled nor deleted.
+
+    Given 2 devices
+    When A batch operation is queued
+    Then I don't find the batch operation in another scope
+    When I cancel the batch operation in another scope
+    Then An exception was thrown
+    When I delete the batch operation in another scope
+    Then An exception was thrown
+    And I find the batch operation not canceled
@@ -11,6 +11,8 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.device.call;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.service.device.call.message.DeviceMessage;
 import org.eclipse.kapua.service.device.call.message.app.request.DeviceRequestMessage;
@@ -95,6 +97,17 @@ public interface DeviceCall<RQ extends DeviceRequestMessage, RS extends DeviceRe
     public RS options(RQ requestMessage, Long timeout)
         throws KapuaException;
 
+    /**
+     * Sends the command (the command method is the one set in the request channel) without blocking the caller while waiting for the response
+     * 
+     * @param requestMessage
+     * @param timeout
+     * @return the future completed with the response, or with {@code null} if the timeout is {@code null} (no response expected)
+     * @throws KapuaException
+     */
+    public CompletableFuture<RS> sendAsync(RQ requestMessage, Long timeout)
+        throws KapuaException;
+
     /**
      * Get the device base message type
      * 
@@ -12,7 +12,9 @@
 package org.eclipse.kapua.service.device.call.kura;
 
 import java.util.Date;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.locator.KapuaLocator;
@@ -98,28 +100,11 @@ public class KuraDeviceCallImpl implements DeviceCall<KuraRequestMessage, KuraRe
 
             //
             // Make the request
-            // Add requestId and requesterClientId to both payload and channel if response is expected
-            // Note: Adding to both payload and channel to let the translator choose what to do base on the transport used.
-            KuraRequestChannel requestChannel = requestMessage.getChannel();
-            KuraRequestPayload requestPayload = requestMessage.getPayload();
-            if (timeout != null) {
-                // FIXME: create an utilty class to use the same synchronized random instance to avoid duplicates
-                Random r = new Random();
-                String requestId = String.valueOf(r.nextLong());
-
-                requestChannel.setRequestId(requestId);
-                requestChannel.setRequesterClientId(transportFacade.getClientId());
-
-                requestPayload.setRequestId(requestId);
-                requestPayload.setRequesterClientId(transportFacade.getClientId());
-            }
+            prepareRequest(requestMessage, transportFacade.getClientId(), timeout);
 
             //
             // Do send
             try {
-                // Set current timestamp
-                requestMessage.setTimestamp(new Date());
-
                 // Send
                 TransportMessage transportResponseMessage = transportFacade.sendSync((TransportMessage) translatorKuraTransport.translate(requestMessage), timeout);
 
@@ -146,6 +131,105 @@ public class KuraDeviceCallImpl implements DeviceCall<KuraRequestMessage, KuraRe
         return response;
     }
 
+    /**
+     * Sends the request without blocking the caller while waiting for the response.<br>
+     * The transport client is released as soon as the response arrives (or the request fails), so many requests can be in flight at the same time without
+     * a thread waiting for each of them.
+     * 
+     * @param requestMessage
+     * @param timeout
+     * @return the future completed with the response (or with {@code null} if the timeout is {@code null}), or completed exceptionally with a
+     *         {@link KuraMqttDeviceCallException}
+     * @throws KuraMqttDeviceCallException
+     *             if the request cannot be sent
+     */
+    @Override
+    @SuppressWarnings({ "unchecked" })
+    public CompletableFuture<KuraResponseMessage> sendAsync(KuraRequestMessage requestMessage, Long timeout)
+        throws KuraMqttDeviceCallException
+    {
+        TransportFacade transportFacade = borrowClient();
+
+        CompletableFuture<TransportMessage> transportResponse;
+        Translator translatorTransportKura;
+        try {
+            //
+            // Get Kura to transport translator for the request and vice versa
+            Translator translatorKuraTransport = getTranslator(KuraRequestMessage.class, transportFacade.getMessageClass());
+            translatorTransportKura = getTranslator(transportFacade.getMessageClass(), KuraResponseMessage.class);
+
+            //
+            // Make the request
+            prepareRequest(requestMessage, transportFacade.getClientId(), timeout);
+
+            //
+            // Do send
+            try {
+                transportResponse = transportFacade.sendAsync((TransportMessage) translatorKuraTransport.translate(requestMessage), timeout);
+            }
+            catch (KapuaException e) {
+                throw new KuraMqttDeviceCallException(KuraMqttDeviceCallErrorCodes.CLIENT_SEND_ERROR,
+                                                      e,
+                                                      (Object[]) null);
+            }
+        }
+        catch (KapuaException ke) {
+            transportFacade.clean();
+            throw new KuraMqttDeviceCallException(KuraMqttDeviceCallErrorCodes.CALL_ERROR,
+                                                  ke,
+                                                  (Object[]) null);
+        }
+
+        CompletableFuture<KuraResponseMessage> response = new CompletableFuture<>();
+        transportResponse.whenComplete((transportResponseMessage, cause) -> {
+            transportFacade.clean();
+            if (cause != null) {
+                response.completeExceptionally(new KuraMqttDeviceCallException(KuraMqttDeviceCallErrorCodes.CLIENT_SEND_ERROR,
+                                                                               cause instanceof CompletionException ? cause.getCause() : cause,
+                                                                               (Object[]) null));
+                return;
+            }
+
+            //
+            // Translate response
+            try {
+                response.complete(transportResponseMessage != null ? (KuraResponseMessage) translatorTransportKura.translate(transportResponseMessage) : null);
+            }
+            catch (KapuaException | RuntimeException e) {
+                response.completeExceptionally(new KuraMqttDeviceCallException(KuraMqttDeviceCallErrorCodes.CALL_ERROR,
+                                                                               e,
+                                                                               (Object[]) null));
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Add the requestId and the requesterClientId to both payload and channel if a response is expected, and set the request timestamp.<br>
+     * Note: Adding to both payload and channel to let the translator choose what to do base on the transport used.
+     * 
+     * @param requestMessage
+     * @param requesterClientId
+     * @param timeout
+     */
+    private void prepareRequest(KuraRequestMessage requestMessage, String requesterClientId, Long timeout)
+    {
+        KuraRequestChannel requestChannel = requestMessage.getChannel();
+        KuraRequestPayload requestPayload = requestMessage.getPayload();
+        if (timeout != null) {
+            String requestId = String.valueOf(ThreadLocalRandom.current().nextLong());
+
+            requestChannel.setRequestId(requestId);
+            requestChannel.setRequesterClientId(requesterClientId);
+
+            requestPayload.setRequestId(requestId);
+            requestPayload.setRequesterClientId(requesterClientId);
+        }
+
+        // Set current timestamp
+        requestMessage.setTimestamp(new Date());
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public Class<KuraMessage> getBaseMessageClass()
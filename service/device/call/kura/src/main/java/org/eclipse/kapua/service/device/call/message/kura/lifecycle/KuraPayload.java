@@ -22,11 +22,12 @@ import org.eclipse.kapua.message.internal.MessageException;
 import org.eclipse.kapua.service.device.call.message.DevicePayload;
 import org.eclipse.kapua.service.device.call.message.DevicePosition;
 import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto;
-import org.eclipse.kapua.service.device.call.message.kura.utils.GZIPUtils;
+import org.eclipse.kapua.service.device.call.message.kura.utils.GZIPCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 
 /**
@@ -153,19 +154,19 @@ public class KuraPayload implements DevicePayload {
     @Override
     public void readFromByteArray(byte[] bytes)
             throws KapuaException {
-        if (GZIPUtils.isCompressed(bytes)) {
-            try {
-                bytes = GZIPUtils.decompress(bytes);
-            } catch (IOException e) {
-                // throw new KapuaDeviceCallException(KapuaDeviceCallErrorCodes.)
-                // FIXME: manage!
-                throw KapuaException.internalError(e);
-            }
+        CodedInputStream input;
+        try {
+            // a compressed payload is uncompressed into a reused buffer read by the parser
+            input = GZIPCodec.newCodedInputStream(bytes);
+        } catch (IOException e) {
+            // throw new KapuaDeviceCallException(KapuaDeviceCallErrorCodes.)
+            // FIXME: manage!
+            throw KapuaException.internalError(e);
         }
 
         KuraPayloadProto.KuraPayload protoMsg = null;
         try {
-            protoMsg = KuraPayloadProto.KuraPayload.parseFrom(bytes);
+            protoMsg = KuraPayloadProto.KuraPayload.PARSER.parseFrom(input);
         } catch (InvalidProtocolBufferException ipbe) {
             throw new MessageException(MessageErrorCodes.INVALID_MESSAGE, ipbe, (Object[]) null);
         }
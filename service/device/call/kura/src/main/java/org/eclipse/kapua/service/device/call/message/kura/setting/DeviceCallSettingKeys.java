@@ -31,7 +31,12 @@ public enum DeviceCallSettingKeys implements SettingKey
     /**
      * Destination reply part
      */
-    DESTINATION_REPLY_PART("destination.reply.part");
+    DESTINATION_REPLY_PART("destination.reply.part"),
+
+    /**
+     * Maximum size in bytes of an uncompressed payload (larger compressed payloads are rejected)
+     */
+    PAYLOAD_DECOMPRESSED_MAX_SIZE("payload.decompressed.max_size");
 
     private String key;
 
@@ -0,0 +1,296 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.call.message.kura.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.eclipse.kapua.service.device.call.message.kura.setting.DeviceCallSetting;
+import org.eclipse.kapua.service.device.call.message.kura.setting.DeviceCallSettingKeys;
+
+import com.google.protobuf.CodedInputStream;
+
+/**
+ * GZIP codec of the Kura payloads.<br>
+ * The {@link Inflater}, the {@link Deflater} and the working buffer are reused by each thread (so no stream is created for each payload) and the decompressed
+ * size is limited by the {@link DeviceCallSettingKeys#PAYLOAD_DECOMPRESSED_MAX_SIZE} setting.<br>
+ * The data is read and written as {@link GZIPInputStream} and {@link java.util.zip.GZIPOutputStream} do.
+ *
+ * @since 1.0
+ */
+public final class GZIPCodec {
+
+    private static final int GZIP_MAGIC = GZIPInputStream.GZIP_MAGIC;
+    private static final int HEADER_SIZE = 10;
+    private static final int TRAILER_SIZE = 8;
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private static final byte[] HEADER = new byte[] { (byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    // larger buffers are not kept by the threads
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+
+    private static final int MAX_DECOMPRESSED_SIZE = DeviceCallSetting.getInstance().getInt(DeviceCallSettingKeys.PAYLOAD_DECOMPRESSED_MAX_SIZE);
+
+    private static final ThreadLocal<Codec> CODECS = new ThreadLocal<Codec>() {
+
+        @Override
+        protected Codec initialValue() {
+            return new Codec();
+        }
+    };
+
+    private GZIPCodec() {
+    }
+
+    /**
+     * Check if the byte array represents compressed data
+     *
+     * @param bytes
+     * @return
+     */
+    public static boolean isCompressed(byte[] bytes) {
+        return bytes != null && bytes.length >= 2 && bytes[0] == (byte) GZIP_MAGIC && bytes[1] == (byte) (GZIP_MAGIC >> 8);
+    }
+
+    /**
+     * Compress provided data with GZIP
+     *
+     * @param source
+     *            the input data to compress
+     * @return the compressed output data, returns {@code null} if the input was {@code null}
+     */
+    public static byte[] compress(byte[] source) {
+        if (source == null) {
+            return null;
+        }
+
+        return CODECS.get().compress(source);
+    }
+
+    /**
+     * Uncompress GZIP compressed data
+     *
+     * @param source
+     *            the data to uncompress
+     * @return the uncompressed data, returns {@code null} if the input was {@code null}
+     * @throws IOException
+     *             if the data is not valid GZIP data or if the uncompressed data is larger than the maximum size
+     */
+    public static byte[] decompress(byte[] source) throws IOException {
+        if (source == null) {
+            return null;
+        }
+
+        Codec codec = CODECS.get();
+        int length = codec.decompress(source, MAX_DECOMPRESSED_SIZE);
+        return Arrays.copyOf(codec.buffer, length);
+    }
+
+    /**
+     * Get a protobuf input stream of the payload, uncompressing it if needed.<br>
+     * The compressed payloads are uncompressed in the buffer of the current thread, so the stream must be read before the next call of the thread to this
+     * class.
+     *
+     * @param payload
+     *            the payload (compressed or not)
+     * @return
+     * @throws IOException
+     *             if the payload is compressed and it is not valid GZIP data or if the uncompressed data is larger than the maximum size
+     */
+    public static CodedInputStream newCodedInputStream(byte[] payload) throws IOException {
+        if (!isCompressed(payload)) {
+            return CodedInputStream.newInstance(payload);
+        }
+
+        Codec codec = CODECS.get();
+        int length = codec.decompress(payload, MAX_DECOMPRESSED_SIZE);
+        return CodedInputStream.newInstance(codec.buffer, 0, length);
+    }
+
+    /**
+     * Per thread codec state
+     */
+    static class Codec {
+
+        private final Inflater inflater = new Inflater(true);
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final CRC32 crc = new CRC32();
+        private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+        byte[] compress(byte[] source) {
+            byte[] output = buffer(HEADER_SIZE + source.length + source.length / 1000 + 64);
+            System.arraycopy(HEADER, 0, output, 0, HEADER_SIZE);
+            int length = HEADER_SIZE;
+
+            deflater.reset();
+            deflater.setInput(source);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (length == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                length += deflater.deflate(output, length, output.length - length);
+            }
+
+            crc.reset();
+            crc.update(source, 0, source.length);
+            byte[] compressed = Arrays.copyOf(output, length + TRAILER_SIZE);
+            writeInt(compressed, length, (int) crc.getValue());
+            writeInt(compressed, length + 4, source.length);
+
+            retain(output);
+            return compressed;
+        }
+
+        /**
+         * Uncompress all the GZIP members of the source into the buffer
+         *
+         * @return the uncompressed length
+         */
+        int decompress(byte[] source, int maxSize) throws IOException {
+            // the buffer of a previous large payload is released
+            byte[] output = buffer.length > MAX_RETAINED_BUFFER_SIZE ? new byte[INITIAL_BUFFER_SIZE] : buffer;
+            int length = 0;
+            int offset = 0;
+            try {
+                do {
+                    offset = readHeader(source, offset);
+
+                    inflater.reset();
+                    inflater.setInput(source, offset, source.length - offset);
+                    crc.reset();
+                    int memberStart = length;
+                    while (!inflater.finished()) {
+                        // one more byte than the maximum size is inflated to detect the larger data
+                        int limit = (int) Math.min(output.length, (long) maxSize + 1);
+                        if (length == limit) {
+                            if (length > maxSize) {
+                                throw new ZipException("Uncompressed data larger than " + maxSize + " bytes");
+                            }
+                            output = Arrays.copyOf(output, (int) Math.min((long) output.length * 2, (long) maxSize + 1));
+                            limit = output.length;
+                        }
+                        int inflated = inflater.inflate(output, length, limit - length);
+                        if (inflated == 0) {
+                            if (inflater.needsDictionary()) {
+                                throw new ZipException("Unsupported preset dictionary");
+                            }
+                            if (inflater.needsInput()) {
+                                throw new EOFException("Unexpected end of ZLIB input stream");
+                            }
+                        }
+                        length += inflated;
+                    }
+                    if (length > maxSize) {
+                        throw new ZipException("Uncompressed data larger than " + maxSize + " bytes");
+                    }
+                    crc.update(output, memberStart, length - memberStart);
+
+                    offset = source.length - inflater.getRemaining();
+                    if (source.length - offset < TRAILER_SIZE) {
+                        throw new EOFException("Unexpected end of GZIP trailer");
+                    }
+                    if (readInt(source, offset) != (int) crc.getValue() || readInt(source, offset + 4) != length - memberStart) {
+                        throw new ZipException("Corrupt GZIP trailer");
+                    }
+                    offset += TRAILER_SIZE;
+                    // as the GZIPInputStream the bytes after a member are read only if they are another member
+                } while (source.length - offset >= HEADER_SIZE && source[offset] == (byte) GZIP_MAGIC && source[offset + 1] == (byte) (GZIP_MAGIC >> 8));
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage() != null ? e.getMessage() : "Invalid ZLIB data format");
+            } finally {
+                this.buffer = output;
+            }
+            return length;
+        }
+
+        private byte[] buffer(int size) {
+            return buffer.length >= size ? buffer : new byte[Math.max(size, buffer.length * 2)];
+        }
+
+        private void retain(byte[] output) {
+            if (output.length <= MAX_RETAINED_BUFFER_SIZE && output.length > buffer.length) {
+                buffer = output;
+            }
+        }
+
+        /**
+         * @return the offset of the compressed data
+         */
+        private static int readHeader(byte[] source, int offset) throws IOException {
+            if (source.length - offset < HEADER_SIZE) {
+                throw new EOFException("Unexpected end of GZIP header");
+            }
+            if (source[offset] != (byte) GZIP_MAGIC || source[offset + 1] != (byte) (GZIP_MAGIC >> 8)) {
+                throw new ZipException("Not in GZIP format");
+            }
+            if (source[offset + 2] != Deflater.DEFLATED) {
+                throw new ZipException("Unsupported compression method");
+            }
+            int flags = source[offset + 3] & 0xff;
+            int position = offset + HEADER_SIZE;
+            if ((flags & FEXTRA) != 0) {
+                checkAvailable(source, position, 2);
+                position += 2 + ((source[position] & 0xff) | (source[position + 1] & 0xff) << 8);
+            }
+            if ((flags & FNAME) != 0) {
+                position = skipString(source, position);
+            }
+            if ((flags & FCOMMENT) != 0) {
+                position = skipString(source, position);
+            }
+            if ((flags & FHCRC) != 0) {
+                position += 2;
+            }
+            checkAvailable(source, position, 0);
+            return position;
+        }
+
+        private static int skipString(byte[] source, int position) throws IOException {
+            while (position < source.length && source[position] != 0) {
+                position++;
+            }
+            checkAvailable(source, position, 1);
+            return position + 1;
+        }
+
+        private static void checkAvailable(byte[] source, int position, int size) throws IOException {
+            if (position + size > source.length) {
+                throw new EOFException("Unexpected end of GZIP header");
+            }
+        }
+
+        private static int readInt(byte[] source, int offset) {
+            return (source[offset] & 0xff) | (source[offset + 1] & 0xff) << 8 | (source[offset + 2] & 0xff) << 16 | (source[offset + 3] & 0xff) << 24;
+        }
+
+        private static void writeInt(byte[] target, int offset, int value) {
+            target[offset] = (byte) value;
+            target[offset + 1] = (byte) (value >> 8);
+            target[offset + 2] = (byte) (value >> 16);
+            target[offset + 3] = (byte) (value >> 24);
+        }
+    }
+}
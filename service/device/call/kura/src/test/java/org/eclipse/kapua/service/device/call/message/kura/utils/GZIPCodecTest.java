@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.call.message.kura.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.kapua.service.device.call.message.kura.utils.GZIPCodec.Codec;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GZIPCodecTest {
+
+    @Test
+    public void shouldCompressAsTheGZIPOutputStream() throws Exception {
+        Random random = new Random(18);
+        for (int size : new int[] { 0, 1, 100, 8 * 1024, 100 * 1024, 1024 * 1024 }) {
+            byte[] data = randomData(random, size);
+
+            byte[] compressed = GZIPCodec.compress(data);
+
+            Assert.assertArrayEquals(gzip(data), compressed);
+            Assert.assertArrayEquals(data, GZIPCodec.decompress(compressed));
+        }
+    }
+
+    @Test
+    public void shouldDecompressTheGZIPOutputStream() throws Exception {
+        Random random = new Random(18);
+        for (int size : new int[] { 0, 1, 100, 8 * 1024, 100 * 1024, 1024 * 1024 }) {
+            byte[] data = randomData(random, size);
+
+            Assert.assertArrayEquals(data, GZIPCodec.decompress(gzip(data)));
+            Assert.assertArrayEquals(data, GZIPCodec.newCodedInputStream(gzip(data)).readRawBytes(size));
+        }
+    }
+
+    @Test
+    public void shouldReadTheOptionalHeaderFieldsAndTheConcatenatedMembers() throws Exception {
+        byte[] member = gzip("first".getBytes("UTF-8"));
+        // FEXTRA, FNAME, FCOMMENT and FHCRC
+        byte[] header = new byte[] { 0x1f, (byte) 0x8b, 8, 4 | 8 | 16 | 2, 0, 0, 0, 0, 0, 0, 2, 0, 'x', 'y', 'n', 0, 'c', 0, 0, 0 };
+        byte[] extendedMember = concat(header, Arrays.copyOfRange(member, 10, member.length));
+
+        Assert.assertEquals("first", new String(GZIPCodec.decompress(extendedMember), "UTF-8"));
+        Assert.assertEquals("firstsecond", new String(GZIPCodec.decompress(concat(extendedMember, gzip("second".getBytes("UTF-8")))), "UTF-8"));
+        // trailing bytes that are not a member are ignored
+        Assert.assertEquals("first", new String(GZIPCodec.decompress(concat(member, new byte[] { 0, 0 })), "UTF-8"));
+    }
+
+    @Test
+    public void shouldLeaveTheUncompressedPayload() throws Exception {
+        byte[] payload = new byte[] { 8, 1 };
+
+        Assert.assertFalse(GZIPCodec.isCompressed(payload));
+        Assert.assertEquals(1, GZIPCodec.newCodedInputStream(payload).readTag() >>> 3);
+    }
+
+    @Test
+    public void shouldRejectTheInvalidData() throws Exception {
+        byte[] compressed = gzip(randomData(new Random(18), 1000));
+
+        assertInvalid(Arrays.copyOf(compressed, 5));
+        assertInvalid(Arrays.copyOf(compressed, compressed.length - 4));
+        assertInvalid(Arrays.copyOf(compressed, compressed.length / 2));
+
+        byte[] corrupted = compressed.clone();
+        corrupted[compressed.length - 8]++;
+        assertInvalid(corrupted);
+
+        byte[] wrongMethod = compressed.clone();
+        wrongMethod[2] = 7;
+        assertInvalid(wrongMethod);
+    }
+
+    @Test
+    public void shouldRejectTheDataLargerThanTheMaximumSize() throws Exception {
+        // highly compressible data, as a decompression bomb
+        byte[] compressed = gzip(new byte[10 * 1024 * 1024]);
+        Codec codec = new Codec();
+
+        Assert.assertEquals(10 * 1024 * 1024, codec.decompress(compressed, 10 * 1024 * 1024));
+        try {
+            codec.decompress(compressed, 10 * 1024 * 1024 - 1);
+            Assert.fail("The data should be larger than the maximum size");
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            GZIPCodec.decompress(gzip(new byte[10 * 1024 * 1024 + 1]));
+            Assert.fail("The data should be larger than the maximum size");
+        } catch (IOException e) {
+            // expected
+        }
+        // the codec can be used again
+        Assert.assertEquals(3, codec.decompress(gzip(new byte[3]), 3));
+    }
+
+    private static void assertInvalid(byte[] compressed) {
+        try {
+            GZIPCodec.decompress(compressed);
+            Assert.fail("The data should not be valid");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static byte[] randomData(Random random, int size) {
+        // half random and half repeated bytes so the data is compressed
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        for (int i = 0; i < size; i += 2) {
+            data[i] = (byte) (i % 7);
+        }
+        return data;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(result)) {
+            out.write(data);
+        }
+        return result.toByteArray();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
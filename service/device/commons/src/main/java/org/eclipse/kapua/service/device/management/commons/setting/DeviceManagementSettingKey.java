@@ -30,7 +30,27 @@ public enum DeviceManagementSettingKey implements SettingKey
     /**
      * Request timeout
      */
-    REQUEST_TIMEOUT("request.timeout");
+    REQUEST_TIMEOUT("request.timeout"),
+
+    /**
+     * Maximum number of devices processed at the same time by the batch operations
+     */
+    BATCH_CONCURRENCY("batch.concurrency"),
+
+    /**
+     * Maximum number of batch operations running at the same time, the others are queued
+     */
+    BATCH_RUNNING_MAX("batch.running.max"),
+
+    /**
+     * Interval in milliseconds between the updates of the batch operation progress
+     */
+    BATCH_PROGRESS_INTERVAL("batch.progress.interval"),
+
+    /**
+     * Time in milliseconds after which a queued or running batch operation no longer updated by any node is marked as failed
+     */
+    BATCH_ORPHAN_TIMEOUT("batch.orphan.timeout");
 
     private String key;
 
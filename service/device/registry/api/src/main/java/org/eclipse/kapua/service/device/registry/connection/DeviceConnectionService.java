@@ -11,6 +11,8 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.device.registry.connection;
 
+import java.util.List;
+
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
@@ -49,6 +51,20 @@ public interface DeviceConnectionService extends KapuaEntityService<DeviceConnec
     public DeviceConnectionListResult query(KapuaQuery<DeviceConnection> query)
             throws KapuaException;
 
+    /**
+     * Update the status of the provided device connections in a single transaction, sending the updates to the database in batches.<br>
+     * The user, protocol, client ip and server ip of each device connection are updated too, when they are set.
+     * The device connections that are not found are skipped.
+     * 
+     * @param deviceConnections
+     *            The device connections to update, identified by their id.
+     * @return The updated device connections.
+     * @throws KapuaException
+     * @since 1.0.0
+     */
+    public DeviceConnectionListResult updateStatus(List<DeviceConnection> deviceConnections)
+            throws KapuaException;
+
     /**
      * Updated the status of provided device connection to connected;
      * if a device connection for the provided clientId is not found,
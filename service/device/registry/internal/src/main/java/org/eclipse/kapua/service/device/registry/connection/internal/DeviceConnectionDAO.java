@@ -62,6 +62,34 @@ public class DeviceConnectionDAO extends ServiceDAO {
         return ServiceDAO.update(em, DeviceConnectionImpl.class, deviceConnectionImpl);
     }
 
+    /**
+     * Update the status of the provided device connection.<br>
+     * The user, protocol, client ip and server ip are updated too, when they are set. The changes are written when the transaction is committed.
+     *
+     * @param em
+     * @param deviceConnection
+     * @return The updated device connection or {@code null} if it is not found.
+     */
+    public static DeviceConnection updateStatus(EntityManager em, DeviceConnection deviceConnection) {
+        DeviceConnectionImpl deviceConnectionToUpdate = em.find(DeviceConnectionImpl.class, deviceConnection.getId());
+        if (deviceConnectionToUpdate != null) {
+            deviceConnectionToUpdate.setStatus(deviceConnection.getStatus());
+            if (deviceConnection.getUserId() != null) {
+                deviceConnectionToUpdate.setUserId(deviceConnection.getUserId());
+            }
+            if (deviceConnection.getProtocol() != null) {
+                deviceConnectionToUpdate.setProtocol(deviceConnection.getProtocol());
+            }
+            if (deviceConnection.getClientIp() != null) {
+                deviceConnectionToUpdate.setClientIp(deviceConnection.getClientIp());
+            }
+            if (deviceConnection.getServerIp() != null) {
+                deviceConnectionToUpdate.setServerIp(deviceConnection.getServerIp());
+            }
+        }
+        return deviceConnectionToUpdate;
+    }
+
     /**
      * Find the device connection by device connection identifier
      *
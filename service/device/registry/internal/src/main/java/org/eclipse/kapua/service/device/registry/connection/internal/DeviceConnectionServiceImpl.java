@@ -11,6 +11,11 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.device.registry.connection.internal;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicate;
@@ -91,6 +96,44 @@ public class DeviceConnectionServiceImpl extends AbstractKapuaService implements
         });
     }
 
+    @Override
+    public DeviceConnectionListResult updateStatus(List<DeviceConnection> deviceConnections)
+            throws KapuaException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(deviceConnections, "deviceConnections");
+        Set<KapuaId> scopeIds = new HashSet<>();
+        for (DeviceConnection deviceConnection : deviceConnections) {
+            ArgumentValidator.notNull(deviceConnection.getId(), "deviceConnection.id");
+            ArgumentValidator.notNull(deviceConnection.getScopeId(), "deviceConnection.scopeId");
+            ArgumentValidator.notNull(deviceConnection.getStatus(), "deviceConnection.status");
+            scopeIds.add(deviceConnection.getScopeId());
+        }
+
+        //
+        // Check Access
+        KapuaLocator locator = KapuaLocator.getInstance();
+        AuthorizationService authorizationService = locator.getService(AuthorizationService.class);
+        PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
+        for (KapuaId scopeId : scopeIds) {
+            authorizationService.checkPermission(permissionFactory.newPermission(deviceConnectonDomain, Actions.write, scopeId));
+        }
+
+        return entityManagerSession.onTransactedResult(em -> {
+            List<DeviceConnection> updatedDeviceConnections = new ArrayList<>();
+            for (DeviceConnection deviceConnection : deviceConnections) {
+                DeviceConnection updatedDeviceConnection = DeviceConnectionDAO.updateStatus(em, deviceConnection);
+                if (updatedDeviceConnection != null) {
+                    updatedDeviceConnections.add(updatedDeviceConnection);
+                }
+            }
+
+            DeviceConnectionListResult result = new DeviceConnectionListResultImpl();
+            result.addItems(updatedDeviceConnections);
+            return result;
+        });
+    }
+
     @Override
     public DeviceConnection find(KapuaId scopeId, KapuaId entityId)
             throws KapuaException {
@@ -36,6 +36,19 @@ public interface AuthenticationService extends KapuaService {
     public AccessToken login(LoginCredentials loginCredentials)
             throws KapuaException;
 
+    /**
+     * Login the provided user login credentials on the system (if the credentials are valid), without persisting the {@link AccessToken}.<br>
+     * The returned access token is held in memory by the current session only: it carries no signed JWT and cannot be used to authenticate other sessions or
+     * be refreshed. It is meant for sessions that never hand out the token, like the broker connections.
+     * 
+     * @param loginCredentials
+     * @return
+     * @throws KapuaException
+     *             an exception is thrown if the credentials are not found on the system, are expired or are disabled
+     */
+    public AccessToken loginTransient(LoginCredentials loginCredentials)
+            throws KapuaException;
+
     /**
      * FIXME: add javadoc
      * 
@@ -38,6 +38,7 @@ import org.eclipse.kapua.service.authentication.credential.CredentialQuery;
 import org.eclipse.kapua.service.authentication.credential.CredentialService;
 import org.eclipse.kapua.service.authentication.credential.CredentialType;
 import org.eclipse.kapua.service.authentication.shiro.AuthenticationEntityManagerFactory;
+import org.eclipse.kapua.service.authentication.shiro.realm.UserPassCredentialsCache;
 import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSetting;
 import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSettingKeys;
 import org.eclipse.kapua.service.authorization.AuthorizationService;
@@ -164,7 +165,7 @@ public class CredentialServiceImpl extends AbstractKapuaConfigurableService impl
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(credentialDomain, Actions.write, credential.getScopeId()));
 
-        return entityManagerSession.onTransactedResult(em -> {
+        Credential updatedCredential = entityManagerSession.onTransactedResult(em -> {
             Credential currentCredential = CredentialDAO.find(em, credential.getId());
 
             if (currentCredential == null) {
@@ -178,6 +179,10 @@ public class CredentialServiceImpl extends AbstractKapuaConfigurableService impl
             // Passing attributes??
             return CredentialDAO.update(em, credential);
         });
+
+        UserPassCredentialsCache.getInstance().invalidate(credential.getId());
+
+        return updatedCredential;
     }
 
     @Override
@@ -254,6 +259,8 @@ public class CredentialServiceImpl extends AbstractKapuaConfigurableService impl
             }
             CredentialDAO.delete(em, credentialId);
         });
+
+        UserPassCredentialsCache.getInstance().invalidate(credentialId);
     }
 
     @Override
@@ -48,6 +48,7 @@ import org.eclipse.kapua.service.authentication.token.AccessToken;
 import org.eclipse.kapua.service.authentication.token.AccessTokenCreator;
 import org.eclipse.kapua.service.authentication.token.AccessTokenFactory;
 import org.eclipse.kapua.service.authentication.token.AccessTokenService;
+import org.eclipse.kapua.service.authentication.token.shiro.AccessTokenImpl;
 import org.jose4j.jws.AlgorithmIdentifiers;
 import org.jose4j.jws.JsonWebSignature;
 import org.jose4j.jwt.JwtClaims;
@@ -120,6 +121,17 @@ public class AuthenticationServiceShiroImpl implements AuthenticationService {
     @Override
     public AccessToken login(LoginCredentials loginCredentials)
             throws KapuaException {
+        return login(loginCredentials, true);
+    }
+
+    @Override
+    public AccessToken loginTransient(LoginCredentials loginCredentials)
+            throws KapuaException {
+        return login(loginCredentials, false);
+    }
+
+    private AccessToken login(LoginCredentials loginCredentials, boolean persistAccessToken)
+            throws KapuaException {
 
         checkCurrentSubjectNotAuthenticated();
 
@@ -151,7 +163,7 @@ public class AuthenticationServiceShiroImpl implements AuthenticationService {
             // Create the access token
             Subject shiroSubject = SecurityUtils.getSubject();
             Session shiroSession = shiroSubject.getSession();
-            accessToken = createAccessToken(shiroSession);
+            accessToken = persistAccessToken ? createAccessToken(shiroSession) : createTransientAccessToken(shiroSession);
 
             //
             // Establish session
@@ -258,7 +270,8 @@ public class AuthenticationServiceShiroImpl implements AuthenticationService {
             if (kapuaSession != null) {
                 AccessToken accessToken = kapuaSession.getAccessToken();
 
-                if (accessToken != null) {
+                // transient access tokens are not persisted, there is nothing to invalidate
+                if (accessToken != null && accessToken.getId() != null) {
                     KapuaLocator locator = KapuaLocator.getInstance();
                     AccessTokenService accessTokenService = locator.getService(AccessTokenService.class);
                     KapuaSecurityUtils.doPrivileged(() -> {
@@ -382,6 +395,31 @@ public class AuthenticationServiceShiroImpl implements AuthenticationService {
         return accessToken;
     }
 
+    /**
+     * Create a not persisted {@link AccessToken} from the data contained in the Shiro {@link Session}.<br>
+     * The token has no JWT, so it doesn't need to be signed, and it lives only as long as the session.
+     * 
+     * @param session
+     *            The Shiro {@link Session} from which extract data
+     * @return The transient {@link AccessToken}
+     * 
+     * @since 1.0
+     */
+    private AccessToken createTransientAccessToken(Session session) {
+        KapuaEid scopeId = (KapuaEid) session.getAttribute("scopeId");
+        KapuaEid userId = (KapuaEid) session.getAttribute("userId");
+
+        KapuaAuthenticationSetting settings = KapuaAuthenticationSetting.getInstance();
+        long tokenTtl = settings.getLong(KapuaAuthenticationSettingKeys.AUTHENTICATION_TOKEN_EXPIRE_AFTER);
+
+        return new AccessTokenImpl(scopeId,
+                userId,
+                UUID.randomUUID().toString(),
+                new Date(System.currentTimeMillis() + tokenTtl),
+                null,
+                null);
+    }
+
     private void enstablishSession(Subject subject, AccessToken accessToken) {
         KapuaSession kapuaSession = new KapuaSession(accessToken, accessToken.getScopeId(), accessToken.getUserId());
         KapuaSecurityUtils.setSession(kapuaSession);
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authentication.shiro.realm;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.shiro.codec.Base64;
+import org.eclipse.kapua.KapuaRuntimeException;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.authentication.credential.Credential;
+import org.eclipse.kapua.service.authentication.shiro.KapuaAuthenticationErrorCodes;
+import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSetting;
+import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSettingKeys;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of the successfully verified username and password credentials.<br>
+ * It avoids to check the BCrypt hash of the password on every login of the same user (i.e. a device reconnecting to the broker).<br>
+ * The presented password is never kept: the entries are keyed by username and by the HMAC of the password computed with a random key generated at startup,
+ * which never leaves the process. Each entry holds the id and the hashed key of the verified {@link Credential}, so it matches only as long as the stored
+ * credential is unchanged.<br>
+ * The entries expire after a configurable time and are evicted when the credential is updated or deleted.
+ *
+ * @since 1.0
+ */
+public class UserPassCredentialsCache {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int HMAC_KEY_LENGTH = 32;
+
+    private static final UserPassCredentialsCache instance;
+
+    static {
+        KapuaAuthenticationSetting setting = KapuaAuthenticationSetting.getInstance();
+        boolean enabled = setting.getBoolean(KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_USERPASS_CACHE_ENABLE, true);
+        long ttl = setting.getLong(KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_USERPASS_CACHE_CACHE_TTL, 300000L);
+        int sizeMax = setting.getInt(KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_USERPASS_CACHE_SIZE_MAX, 100000);
+
+        instance = new UserPassCredentialsCache(enabled, sizeMax, ttl);
+    }
+
+    private final boolean enabled;
+    private final Cache<String, CachedCredential> cache;
+    private final SecretKeySpec hmacKey;
+
+    /**
+     * Constructor
+     *
+     * @param enabled
+     *            whether the verified credentials are cached
+     * @param sizeMax
+     *            the maximum number of cached credentials
+     * @param ttl
+     *            the time to live of the cached credentials in milliseconds
+     */
+    UserPassCredentialsCache(boolean enabled, int sizeMax, long ttl) {
+        this.enabled = enabled;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(sizeMax)
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .build();
+
+        byte[] key = new byte[HMAC_KEY_LENGTH];
+        new SecureRandom().nextBytes(key);
+        this.hmacKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+    }
+
+    /**
+     * Get the verified credentials cache instance (singleton)
+     *
+     * @return
+     */
+    public static UserPassCredentialsCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Check if the given username and password have already been verified against the given credential
+     *
+     * @param username
+     * @param password
+     * @param credential
+     *            the stored credential of the user
+     * @return {@code true} if the username and password have been verified against the same stored credential and the entry is not expired
+     */
+    public boolean isVerified(String username, char[] password, Credential credential) {
+        if (!enabled) {
+            return false;
+        }
+
+        CachedCredential cachedCredential = cache.getIfPresent(key(username, password));
+        return cachedCredential != null &&
+                cachedCredential.credentialId.equals(credential.getId()) &&
+                MessageDigest.isEqual(cachedCredential.credentialKey, credential.getCredentialKey().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Cache the username and password successfully verified against the given credential
+     *
+     * @param username
+     * @param password
+     * @param credential
+     *            the stored credential of the user
+     */
+    public void putVerified(String username, char[] password, Credential credential) {
+        if (enabled) {
+            cache.put(key(username, password), new CachedCredential(credential.getId(), credential.getCredentialKey().getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * Evict the entries verified against the given credential
+     *
+     * @param credentialId
+     */
+    public void invalidate(KapuaId credentialId) {
+        cache.asMap().values().removeIf(cachedCredential -> cachedCredential.credentialId.equals(credentialId));
+    }
+
+    /**
+     * Evict all the entries
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private String key(String username, char[] password) {
+        ByteBuffer passwordBytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(hmacKey);
+            mac.update(passwordBytes);
+            return username + ':' + Base64.encodeToString(mac.doFinal());
+        } catch (GeneralSecurityException e) {
+            throw new KapuaRuntimeException(KapuaAuthenticationErrorCodes.CREDENTIAL_CRYPT_ERROR, e, (Object[]) null);
+        } finally {
+            if (passwordBytes.hasArray()) {
+                Arrays.fill(passwordBytes.array(), (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Verified credential
+     */
+    private static final class CachedCredential {
+
+        private final KapuaId credentialId;
+        private final byte[] credentialKey;
+
+        private CachedCredential(KapuaId credentialId, byte[] credentialKey) {
+            this.credentialId = credentialId;
+            this.credentialKey = credentialKey;
+        }
+    }
+}
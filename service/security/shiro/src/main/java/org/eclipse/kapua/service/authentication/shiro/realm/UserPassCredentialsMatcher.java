@@ -41,7 +41,7 @@ public class UserPassCredentialsMatcher implements CredentialsMatcher {
         // Token data
         UsernamePasswordToken token = (UsernamePasswordToken) authenticationToken;
         String tokenUsername = token.getUsername();
-        String tokenPassword = new String(token.getPassword());
+        char[] tokenPassword = token.getPassword();
 
         //
         // Info data
@@ -52,10 +52,15 @@ public class UserPassCredentialsMatcher implements CredentialsMatcher {
         //
         // Match token with info
         boolean credentialMatch = false;
-        if (tokenUsername.equals(infoUser.getName()) && CredentialType.PASSWORD.equals(infoCredential.getCredentialType()) && BCrypt.checkpw(tokenPassword, infoCredential.getCredentialKey())) {
-            credentialMatch = true;
+        if (tokenUsername.equals(infoUser.getName()) && CredentialType.PASSWORD.equals(infoCredential.getCredentialType())) {
+            UserPassCredentialsCache credentialsCache = UserPassCredentialsCache.getInstance();
+            if (credentialsCache.isVerified(tokenUsername, tokenPassword, infoCredential)) {
+                credentialMatch = true;
+            } else if (BCrypt.checkpw(new String(tokenPassword), infoCredential.getCredentialKey())) {
+                credentialMatch = true;
 
-            // FIXME: if true cache token password for authentication performance improvement
+                credentialsCache.putVerified(tokenUsername, tokenPassword, infoCredential);
+            }
         }
 
         return credentialMatch;
@@ -46,6 +46,7 @@ import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.authorization.role.Role;
 import org.eclipse.kapua.service.authorization.role.RoleService;
 import org.eclipse.kapua.service.authorization.shiro.AuthorizationEntityManagerFactory;
+import org.eclipse.kapua.service.authorization.shiro.KapuaAuthorizationInfoCache;
 import org.eclipse.kapua.service.authorization.shiro.KapuaAuthorizationErrorCodes;
 import org.eclipse.kapua.service.authorization.shiro.KapuaAuthorizationException;
 
@@ -94,7 +95,7 @@ public class AccessInfoServiceImpl extends AbstractKapuaService implements Acces
             }
         }
 
-        return entityManagerSession.onTransactedInsert(em -> {
+        AccessInfo createdAccessInfo = entityManagerSession.onTransactedInsert(em -> {
             AccessInfo accessInfo = AccessInfoDAO.create(em, accessInfoCreator);
 
             if (!accessInfoCreator.getPermissions().isEmpty()) {
@@ -123,6 +124,10 @@ public class AccessInfoServiceImpl extends AbstractKapuaService implements Acces
 
             return accessInfo;
         });
+
+        KapuaAuthorizationInfoCache.getInstance().invalidateUser(createdAccessInfo.getUserId());
+
+        return createdAccessInfo;
     }
 
     @Override
@@ -203,8 +208,9 @@ public class AccessInfoServiceImpl extends AbstractKapuaService implements Acces
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(accessInfoDomain, Actions.write, scopeId));
 
-        entityManagerSession.onTransactedAction(em -> {
-            if (AccessInfoDAO.find(em, accessInfoId) == null) {
+        AccessInfo accessInfo = entityManagerSession.onTransactedResult(em -> {
+            AccessInfo currentAccessInfo = AccessInfoDAO.find(em, accessInfoId);
+            if (currentAccessInfo == null) {
                 throw new KapuaEntityNotFoundException(AccessPermission.TYPE, accessInfoId);
             }
 
@@ -224,6 +230,9 @@ public class AccessInfoServiceImpl extends AbstractKapuaService implements Acces
 
             // Finally, delete role
             AccessInfoDAO.delete(em, accessInfoId);
+            return currentAccessInfo;
         });
+
+        KapuaAuthorizationInfoCache.getInstance().invalidateUser(accessInfo.getUserId());
     }
 }
@@ -11,6 +11,10 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.authorization.access.shiro;
 
+import java.util.List;
+
+import javax.persistence.TypedQuery;
+
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.jpa.EntityManager;
@@ -95,4 +99,21 @@ public class AccessPermissionDAO extends ServiceDAO {
             throws KapuaException {
         return ServiceDAO.count(em, AccessPermission.class, AccessPermissionImpl.class, accessPermissionQuery);
     }
+
+    /**
+     * Return the {@link AccessPermission}s of all the access infos of the user
+     * 
+     * @param em
+     * @param scopeId
+     *            the scope id of the user
+     * @param userId
+     *            the user id
+     * @return
+     */
+    public static List<AccessPermissionImpl> findByUserId(EntityManager em, KapuaId scopeId, KapuaId userId) {
+        TypedQuery<AccessPermissionImpl> query = em.createNamedQuery("AccessPermission.findByUserId", AccessPermissionImpl.class);
+        query.setParameter("scopeId", scopeId.getId());
+        query.setParameter("userId", userId.getId());
+        return query.getResultList();
+    }
 }
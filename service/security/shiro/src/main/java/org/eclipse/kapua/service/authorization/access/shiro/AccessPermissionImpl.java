@@ -16,6 +16,8 @@ import javax.persistence.AttributeOverrides;
 import javax.persistence.Column;
 import javax.persistence.Embedded;
 import javax.persistence.Entity;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 
 import org.eclipse.kapua.commons.model.AbstractKapuaEntity;
@@ -31,6 +33,10 @@ import org.eclipse.kapua.service.authorization.permission.shiro.PermissionImpl;
  * @since 1.0
  *
  */
+@NamedQueries({
+        @NamedQuery(name = "AccessPermission.findByUserId", query = "SELECT ap FROM AccessPermission ap, AccessInfo ai "
+                + "WHERE ap.accessInfoId.eid = ai.id.eid AND ai.scopeId.eid = :scopeId AND ai.userId.eid = :userId")
+})
 @Entity(name = "AccessPermission")
 @Table(name = "athz_access_permission")
 public class AccessPermissionImpl extends AbstractKapuaEntity implements AccessPermission {
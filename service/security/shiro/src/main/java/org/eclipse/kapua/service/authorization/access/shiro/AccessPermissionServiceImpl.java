@@ -30,6 +30,7 @@ import org.eclipse.kapua.service.authorization.domain.Domain;
 import org.eclipse.kapua.service.authorization.permission.Actions;
 import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.authorization.shiro.AuthorizationEntityManagerFactory;
+import org.eclipse.kapua.service.authorization.shiro.KapuaAuthorizationInfoCache;
 
 /**
  * {@link AccessPermission} service implementation.
@@ -59,7 +60,11 @@ public class AccessPermissionServiceImpl extends AbstractKapuaService implements
         AuthorizationService authorizationService = locator.getService(AuthorizationService.class);
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(accessInfoDomain, Actions.write, accessPermissionCreator.getScopeId()));
-        return entityManagerSession.onTransactedInsert(em -> AccessPermissionDAO.create(em, accessPermissionCreator));
+        AccessPermission accessPermission = entityManagerSession.onTransactedInsert(em -> AccessPermissionDAO.create(em, accessPermissionCreator));
+
+        KapuaAuthorizationInfoCache.getInstance().invalidateAccessInfo(accessPermission.getAccessInfoId());
+
+        return accessPermission;
     }
 
     @Override
@@ -73,13 +78,17 @@ public class AccessPermissionServiceImpl extends AbstractKapuaService implements
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(accessInfoDomain, Actions.delete, scopeId));
 
-        entityManagerSession.onTransactedAction(em -> {
-            if (AccessPermissionDAO.find(em, accessPermissionId) == null) {
+        AccessPermission accessPermission = entityManagerSession.onTransactedResult(em -> {
+            AccessPermission currentAccessPermission = AccessPermissionDAO.find(em, accessPermissionId);
+            if (currentAccessPermission == null) {
                 throw new KapuaEntityNotFoundException(AccessPermission.TYPE, accessPermissionId);
             }
 
             AccessPermissionDAO.delete(em, accessPermissionId);
+            return currentAccessPermission;
         });
+
+        KapuaAuthorizationInfoCache.getInstance().invalidateAccessInfo(accessPermission.getAccessInfoId());
     }
 
     @Override
@@ -30,6 +30,7 @@ import org.eclipse.kapua.service.authorization.domain.Domain;
 import org.eclipse.kapua.service.authorization.permission.Actions;
 import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.authorization.shiro.AuthorizationEntityManagerFactory;
+import org.eclipse.kapua.service.authorization.shiro.KapuaAuthorizationInfoCache;
 
 /**
  * {@link AccessRole} service implementation.
@@ -59,7 +60,11 @@ public class AccessRoleServiceImpl extends AbstractKapuaService implements Acces
         AuthorizationService authorizationService = locator.getService(AuthorizationService.class);
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(accessInfoDomain, Actions.write, accessRoleCreator.getScopeId()));
-        return entityManagerSession.onTransactedInsert(em -> AccessRoleDAO.create(em, accessRoleCreator));
+        AccessRole accessRole = entityManagerSession.onTransactedInsert(em -> AccessRoleDAO.create(em, accessRoleCreator));
+
+        KapuaAuthorizationInfoCache.getInstance().invalidateAccessInfo(accessRole.getAccessInfoId());
+
+        return accessRole;
     }
 
     @Override
@@ -73,13 +78,17 @@ public class AccessRoleServiceImpl extends AbstractKapuaService implements Acces
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(accessInfoDomain, Actions.delete, scopeId));
 
-        entityManagerSession.onTransactedAction(em -> {
-            if (AccessRoleDAO.find(em, accessRoleId) == null) {
+        AccessRole accessRole = entityManagerSession.onTransactedResult(em -> {
+            AccessRole currentAccessRole = AccessRoleDAO.find(em, accessRoleId);
+            if (currentAccessRole == null) {
                 throw new KapuaEntityNotFoundException(AccessRole.TYPE, accessRoleId);
             }
 
             AccessRoleDAO.delete(em, accessRoleId);
+            return currentAccessRole;
         });
+
+        KapuaAuthorizationInfoCache.getInstance().invalidateAccessInfo(accessRole.getAccessInfoId());
     }
 
     @Override
@@ -167,8 +167,9 @@ public class PermissionImpl extends WildcardPermission implements Permission, or
 
         Permission permission = (Permission) p;
 
-        if (Group.ANY.equals(permission.getGroupId())) {
-            setGroupId(null);
+        if (Group.ANY.equals(permission.getGroupId()) && groupId != null) {
+            // check a copy without the group, this permission may be shared (i.e. cached) and must not change
+            return new PermissionImpl(domain, action, targetScopeId, null).implies(p);
         }
 
         setParts(toString());
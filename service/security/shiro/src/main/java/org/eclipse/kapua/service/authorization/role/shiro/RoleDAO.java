@@ -11,6 +11,10 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.authorization.role.shiro;
 
+import java.util.List;
+
+import javax.persistence.TypedQuery;
+
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.jpa.EntityManager;
@@ -109,4 +113,21 @@ public class RoleDAO extends ServiceDAO {
             throws KapuaException {
         return ServiceDAO.count(em, Role.class, RoleImpl.class, roleQuery);
     }
+
+    /**
+     * Return the {@link Role}s assigned to all the access infos of the user
+     * 
+     * @param em
+     * @param scopeId
+     *            the scope id of the user
+     * @param userId
+     *            the user id
+     * @return
+     */
+    public static List<RoleImpl> findByUserId(EntityManager em, KapuaId scopeId, KapuaId userId) {
+        TypedQuery<RoleImpl> query = em.createNamedQuery("Role.findByUserId", RoleImpl.class);
+        query.setParameter("scopeId", scopeId.getId());
+        query.setParameter("userId", userId.getId());
+        return query.getResultList();
+    }
 }
@@ -14,6 +14,8 @@ package org.eclipse.kapua.service.authorization.role.shiro;
 import javax.persistence.Basic;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 
 import org.eclipse.kapua.KapuaException;
@@ -26,6 +28,10 @@ import org.eclipse.kapua.service.authorization.role.Role;
  * 
  * @since 1.0
  */
+@NamedQueries({
+        @NamedQuery(name = "Role.findByUserId", query = "SELECT r FROM Role r, AccessRole ar, AccessInfo ai "
+                + "WHERE r.id.eid = ar.roleId.eid AND ar.accessInfoId.eid = ai.id.eid AND ai.scopeId.eid = :scopeId AND ai.userId.eid = :userId")
+})
 @Entity(name = "Role")
 @Table(name = "athz_role")
 public class RoleImpl extends AbstractKapuaUpdatableEntity implements Role {
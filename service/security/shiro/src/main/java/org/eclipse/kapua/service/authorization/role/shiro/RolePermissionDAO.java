@@ -11,6 +11,10 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.authorization.role.shiro;
 
+import java.util.List;
+
+import javax.persistence.TypedQuery;
+
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.jpa.EntityManager;
@@ -95,4 +99,21 @@ public class RolePermissionDAO extends ServiceDAO {
             throws KapuaException {
         return ServiceDAO.count(em, RolePermission.class, RolePermissionImpl.class, rolePermissionQuery);
     }
+
+    /**
+     * Return the {@link RolePermission}s of all the roles assigned to the access infos of the user
+     * 
+     * @param em
+     * @param scopeId
+     *            the scope id of the user
+     * @param userId
+     *            the user id
+     * @return
+     */
+    public static List<RolePermissionImpl> findByUserId(EntityManager em, KapuaId scopeId, KapuaId userId) {
+        TypedQuery<RolePermissionImpl> query = em.createNamedQuery("RolePermission.findByUserId", RolePermissionImpl.class);
+        query.setParameter("scopeId", scopeId.getId());
+        query.setParameter("userId", userId.getId());
+        return query.getResultList();
+    }
 }
@@ -18,6 +18,8 @@ import javax.persistence.AttributeOverrides;
 import javax.persistence.Column;
 import javax.persistence.Embedded;
 import javax.persistence.Entity;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 
@@ -35,6 +37,10 @@ import org.eclipse.kapua.service.authorization.role.RolePermission;
  * 
  * @since 1.0.0
  */
+@NamedQueries({
+        @NamedQuery(name = "RolePermission.findByUserId", query = "SELECT rp FROM RolePermission rp, AccessRole ar, AccessInfo ai "
+                + "WHERE rp.roleId.eid = ar.roleId.eid AND ar.accessInfoId.eid = ai.id.eid AND ai.scopeId.eid = :scopeId AND ai.userId.eid = :userId")
+})
 @Entity(name = "RolePermission")
 @Table(name = "athz_role_permission")
 public class RolePermissionImpl extends AbstractKapuaEntity implements RolePermission {
@@ -37,6 +37,7 @@ import org.eclipse.kapua.service.authorization.role.RolePermissionService;
 import org.eclipse.kapua.service.authorization.role.RoleQuery;
 import org.eclipse.kapua.service.authorization.role.RoleService;
 import org.eclipse.kapua.service.authorization.shiro.AuthorizationEntityManagerFactory;
+import org.eclipse.kapua.service.authorization.shiro.KapuaAuthorizationInfoCache;
 
 /**
  * Role service implementation.
@@ -101,7 +102,7 @@ public class RoleServiceImpl extends AbstractKapuaConfigurableResourceLimitedSer
         AuthorizationService authorizationService = locator.getService(AuthorizationService.class);
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(roleDomain, Actions.write, role.getScopeId()));
-        return entityManagerSession.onTransactedInsert(em -> {
+        Role updatedRole = entityManagerSession.onTransactedInsert(em -> {
 
             Role currentRole = RoleDAO.find(em, role.getId());
             if (currentRole == null) {
@@ -110,6 +111,10 @@ public class RoleServiceImpl extends AbstractKapuaConfigurableResourceLimitedSer
 
             return RoleDAO.update(em, role);
         });
+
+        KapuaAuthorizationInfoCache.getInstance().invalidateRole(role.getId());
+
+        return updatedRole;
     }
 
     @Override
@@ -133,6 +138,8 @@ public class RoleServiceImpl extends AbstractKapuaConfigurableResourceLimitedSer
 
             RoleDAO.delete(em, roleId);
         });
+
+        KapuaAuthorizationInfoCache.getInstance().invalidateRole(roleId);
     }
 
     @Override
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authorization.shiro;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.authorization.group.Group;
+import org.eclipse.kapua.service.authorization.permission.Permission;
+import org.eclipse.kapua.service.authorization.permission.shiro.PermissionImpl;
+
+/**
+ * Authorization info of a user, with the permissions indexed by domain, action and target scope id.<br>
+ * A {@link Permission} is checked with a constant number of lookups, with the same semantics of {@link PermissionImpl#implies(org.apache.shiro.authz.Permission)}:
+ * each part of a granted permission matches the same value or any value if it is not set (wildcard), and any group matches when the checked group is
+ * {@link Group#ANY}.<br>
+ * It also keeps the ids of the roles assigned to the user, to be evicted from the {@link KapuaAuthorizationInfoCache} when one of them changes.
+ *
+ * @since 1.0
+ */
+public class KapuaAuthorizationInfo extends SimpleAuthorizationInfo {
+
+    private static final long serialVersionUID = -1779244587315587549L;
+
+    private final Map<String, Set<String>> permissionGroups = new HashMap<>();
+    private final Set<KapuaId> roleIds = new HashSet<>();
+
+    /**
+     * Add a granted permission
+     *
+     * @param permission
+     */
+    public void addPermission(Permission permission) {
+        addObjectPermission((org.apache.shiro.authz.Permission) permission);
+
+        String key = key(part(permission.getDomain()), part(permission.getAction()), part(permission.getTargetScopeId()));
+        permissionGroups.computeIfAbsent(key, k -> new HashSet<>()).add(part(permission.getGroupId()));
+    }
+
+    /**
+     * Add a role assigned to the user
+     *
+     * @param roleId
+     * @param roleName
+     */
+    public void addRole(KapuaId roleId, String roleName) {
+        addRole(roleName);
+        roleIds.add(roleId);
+    }
+
+    /**
+     * Get the ids of the roles assigned to the user
+     *
+     * @return
+     */
+    public Set<KapuaId> getRoleIds() {
+        return Collections.unmodifiableSet(roleIds);
+    }
+
+    /**
+     * Check if the permission is granted
+     *
+     * @param permission
+     * @return
+     */
+    public boolean isPermitted(Permission permission) {
+        String domain = part(permission.getDomain());
+        String action = part(permission.getAction());
+        String targetScopeId = part(permission.getTargetScopeId());
+        boolean anyGroup = Group.ANY.equals(permission.getGroupId());
+        String groupId = part(permission.getGroupId());
+
+        for (String d : parts(domain)) {
+            for (String a : parts(action)) {
+                for (String s : parts(targetScopeId)) {
+                    Set<String> groups = permissionGroups.get(key(d, a, s));
+                    if (groups != null && (anyGroup || groups.contains(Permission.WILDCARD) || groups.contains(groupId))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String[] parts(String part) {
+        return Permission.WILDCARD.equals(part) ? new String[] { Permission.WILDCARD } : new String[] { part, Permission.WILDCARD };
+    }
+
+    private static String key(String domain, String action, String targetScopeId) {
+        return domain + Permission.SEPARATOR + action + Permission.SEPARATOR + targetScopeId;
+    }
+
+    private static String part(Object value) {
+        if (value == null) {
+            return Permission.WILDCARD;
+        }
+        // the permission parts are case insensitive, as for the shiro wildcard permissions
+        String part = value instanceof KapuaId ? ((KapuaId) value).getId().toString() : value.toString();
+        return part.toLowerCase(Locale.ENGLISH);
+    }
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authorization.shiro;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.EntityManagerSession;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.authorization.access.AccessInfo;
+import org.eclipse.kapua.service.authorization.access.shiro.AccessInfoDAO;
+import org.eclipse.kapua.service.authorization.shiro.setting.KapuaAuthorizationSetting;
+import org.eclipse.kapua.service.authorization.shiro.setting.KapuaAuthorizationSettingKeys;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of the {@link KapuaAuthorizationInfo} by user id.<br>
+ * The authorization services evict the users affected by a change of their access infos, access permissions, access roles, roles and role permissions.
+ * The changes made on other nodes are seen when the entries expire, after a configurable time.
+ *
+ * @since 1.0
+ */
+public class KapuaAuthorizationInfoCache {
+
+    private static final KapuaAuthorizationInfoCache instance;
+
+    static {
+        KapuaAuthorizationSetting setting = KapuaAuthorizationSetting.getInstance();
+        boolean enabled = setting.getBoolean(KapuaAuthorizationSettingKeys.AUTHORIZATION_CACHE_ENABLE, true);
+        long ttl = setting.getLong(KapuaAuthorizationSettingKeys.AUTHORIZATION_CACHE_TTL, 60000L);
+        int sizeMax = setting.getInt(KapuaAuthorizationSettingKeys.AUTHORIZATION_CACHE_SIZE_MAX, 10000);
+
+        instance = new KapuaAuthorizationInfoCache(enabled, sizeMax, ttl);
+    }
+
+    private final boolean enabled;
+    private final Cache<KapuaId, KapuaAuthorizationInfo> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param enabled
+     *            whether the authorization infos are cached
+     * @param sizeMax
+     *            the maximum number of cached authorization infos
+     * @param ttl
+     *            the time to live of the cached authorization infos in milliseconds
+     */
+    KapuaAuthorizationInfoCache(boolean enabled, int sizeMax, long ttl) {
+        this.enabled = enabled;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(sizeMax)
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Get the authorization info cache instance (singleton)
+     *
+     * @return
+     */
+    public static KapuaAuthorizationInfoCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the authorization info of the user, loading it if it is not cached
+     *
+     * @param userId
+     * @param loader
+     *            the loader of the authorization info
+     * @return
+     * @throws KapuaException
+     */
+    public KapuaAuthorizationInfo get(KapuaId userId, Callable<KapuaAuthorizationInfo> loader) throws KapuaException {
+        KapuaAuthorizationInfo authorizationInfo = enabled ? cache.getIfPresent(userId) : null;
+        if (authorizationInfo == null) {
+            long loadGeneration = generation.get();
+            try {
+                authorizationInfo = loader.call();
+            } catch (KapuaException e) {
+                throw e;
+            } catch (Exception e) {
+                throw KapuaException.internalError(e);
+            }
+
+            if (enabled) {
+                synchronized (this) {
+                    // don't cache an authorization info loaded before a concurrent invalidation
+                    if (loadGeneration == generation.get()) {
+                        cache.put(userId, authorizationInfo);
+                    }
+                }
+            }
+        }
+        return authorizationInfo;
+    }
+
+    /**
+     * Evict the authorization info of the user
+     *
+     * @param userId
+     */
+    public synchronized void invalidateUser(KapuaId userId) {
+        generation.incrementAndGet();
+        cache.invalidate(userId);
+    }
+
+    /**
+     * Evict the authorization info of the user of the access info
+     *
+     * @param accessInfoId
+     * @throws KapuaException
+     */
+    public void invalidateAccessInfo(KapuaId accessInfoId) throws KapuaException {
+        AccessInfo accessInfo = new EntityManagerSession(AuthorizationEntityManagerFactory.getInstance()).onResult(em -> AccessInfoDAO.find(em, accessInfoId));
+        if (accessInfo != null) {
+            invalidateUser(accessInfo.getUserId());
+        }
+    }
+
+    /**
+     * Evict the authorization infos of the users the role is assigned to
+     *
+     * @param roleId
+     */
+    public synchronized void invalidateRole(KapuaId roleId) {
+        generation.incrementAndGet();
+        cache.asMap().values().removeIf(authorizationInfo -> authorizationInfo.getRoleIds().contains(roleId));
+    }
+
+    /**
+     * Evict all the authorization infos
+     */
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+}
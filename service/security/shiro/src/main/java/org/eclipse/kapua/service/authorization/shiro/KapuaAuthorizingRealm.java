@@ -15,37 +15,19 @@ import org.apache.shiro.ShiroException;
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
-import org.apache.shiro.authc.UnknownAccountException;
 import org.apache.shiro.authz.AuthorizationInfo;
-import org.apache.shiro.authz.SimpleAuthorizationInfo;
 import org.apache.shiro.realm.AuthorizingRealm;
 import org.apache.shiro.subject.PrincipalCollection;
 import org.eclipse.kapua.KapuaException;
-import org.eclipse.kapua.commons.model.query.predicate.AttributePredicate;
-import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
-import org.eclipse.kapua.locator.KapuaLocator;
-import org.eclipse.kapua.model.id.KapuaId;
-import org.eclipse.kapua.model.query.KapuaListResult;
-import org.eclipse.kapua.model.query.predicate.KapuaPredicate;
-import org.eclipse.kapua.service.authorization.access.AccessInfo;
-import org.eclipse.kapua.service.authorization.access.AccessInfoFactory;
-import org.eclipse.kapua.service.authorization.access.AccessInfoPredicates;
-import org.eclipse.kapua.service.authorization.access.AccessInfoQuery;
-import org.eclipse.kapua.service.authorization.access.AccessInfoService;
-import org.eclipse.kapua.service.authorization.access.AccessPermission;
-import org.eclipse.kapua.service.authorization.access.AccessPermissionListResult;
-import org.eclipse.kapua.service.authorization.access.AccessPermissionService;
-import org.eclipse.kapua.service.authorization.access.AccessRole;
-import org.eclipse.kapua.service.authorization.access.AccessRoleListResult;
-import org.eclipse.kapua.service.authorization.access.AccessRoleService;
-import org.eclipse.kapua.service.authorization.permission.shiro.PermissionImpl;
-import org.eclipse.kapua.service.authorization.role.Role;
-import org.eclipse.kapua.service.authorization.role.RolePermission;
-import org.eclipse.kapua.service.authorization.role.RolePermissionListResult;
-import org.eclipse.kapua.service.authorization.role.RolePermissionService;
-import org.eclipse.kapua.service.authorization.role.RoleService;
+import org.eclipse.kapua.commons.jpa.EntityManagerSession;
+import org.eclipse.kapua.service.authorization.access.shiro.AccessPermissionDAO;
+import org.eclipse.kapua.service.authorization.access.shiro.AccessPermissionImpl;
+import org.eclipse.kapua.service.authorization.permission.Permission;
+import org.eclipse.kapua.service.authorization.role.shiro.RoleDAO;
+import org.eclipse.kapua.service.authorization.role.shiro.RoleImpl;
+import org.eclipse.kapua.service.authorization.role.shiro.RolePermissionDAO;
+import org.eclipse.kapua.service.authorization.role.shiro.RolePermissionImpl;
 import org.eclipse.kapua.service.user.User;
-import org.eclipse.kapua.service.user.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,130 +45,54 @@ public class KapuaAuthorizingRealm extends AuthorizingRealm {
     }
 
     /**
-     * Authorization.
+     * Authorization.<br>
+     * The {@link KapuaAuthorizationInfo} of the user is loaded with the permissions granted directly and through the assigned roles, and it is kept in the
+     * {@link KapuaAuthorizationInfoCache}.
      */
     protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals)
             throws AuthenticationException {
         //
         // Extract principal
-        String username = ((User) principals.getPrimaryPrincipal()).getName();
-        logger.debug("Getting authorization info for: {}", username);
+        User user = (User) principals.getPrimaryPrincipal();
+        logger.debug("Getting authorization info for: {}", user.getName());
 
-        //
-        // Get Services
-        KapuaLocator locator = KapuaLocator.getInstance();
-
-        UserService userService = locator.getService(UserService.class);
-        AccessInfoService accessInfoService = locator.getService(AccessInfoService.class);
-        AccessInfoFactory accessInfoFactory = locator.getFactory(AccessInfoFactory.class);
-
-        //
-        // Get the associated user by name
-        final User user;
-        try {
-            user = KapuaSecurityUtils.doPrivileged(() -> userService.findByName(username));
-        } catch (AuthenticationException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new ShiroException("Error while find user!", e);
-        }
-
-        //
-        // Check existence
-        if (user == null) {
-            throw new UnknownAccountException();
-        }
-
-        //
-        // Get user access infos
-        AccessInfoQuery accessInfoQuery = accessInfoFactory.newQuery(user.getScopeId());
-        KapuaPredicate predicate = new AttributePredicate<KapuaId>(AccessInfoPredicates.USER_ID, user.getId());
-        accessInfoQuery.setPredicate(predicate);
-
-        final KapuaListResult<AccessInfo> accessInfos;
         try {
-            accessInfos = KapuaSecurityUtils.doPrivileged(() -> accessInfoService.query(accessInfoQuery));
-        } catch (AuthenticationException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new ShiroException("Error while find access info!", e);
+            return KapuaAuthorizationInfoCache.getInstance().get(user.getId(), () -> loadAuthorizationInfo(user));
+        } catch (KapuaException e) {
+            throw new ShiroException("Error while find authorization info!", e);
         }
+    }
 
-        //
-        // Check existence
-        if (accessInfos == null) {
-            throw new UnknownAccountException();
+    /**
+     * Checks the {@link Permission}s against the indexed permissions of the {@link KapuaAuthorizationInfo}.
+     */
+    @Override
+    protected boolean isPermitted(org.apache.shiro.authz.Permission permission, AuthorizationInfo info) {
+        if (info instanceof KapuaAuthorizationInfo && permission instanceof Permission) {
+            return ((KapuaAuthorizationInfo) info).isPermitted((Permission) permission);
         }
+        return super.isPermitted(permission, info);
+    }
 
-        //
-        // Create SimpleAuthorizationInfo with principals permissions
-        SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
-
-        // Get user roles set and related permissions
-        for (AccessInfo accessInfo : accessInfos.getItems()) {
-
-            // Access Permissions
-            AccessPermissionService accessPermissionService = locator.getService(AccessPermissionService.class);
-            AccessPermissionListResult accessPermissions;
-            try {
-                accessPermissions = KapuaSecurityUtils.doPrivileged(() -> accessPermissionService.findByAccessInfoId(accessInfo.getScopeId(), accessInfo.getId()));
-            } catch (AuthenticationException e) {
-                throw e;
-            } catch (Exception e) {
-                throw new ShiroException("Error while find access permissions!", e);
-            }
+    private KapuaAuthorizationInfo loadAuthorizationInfo(User user) throws KapuaException {
+        KapuaAuthorizationInfo info = new KapuaAuthorizationInfo();
 
-            for (AccessPermission accessPermission : accessPermissions.getItems()) {
-                PermissionImpl p = accessPermission.getPermission();
-                logger.trace("User: {} has permission: {}", username, p);
-                info.addObjectPermission(p);
+        new EntityManagerSession(AuthorizationEntityManagerFactory.getInstance()).onAction(em -> {
+            for (AccessPermissionImpl accessPermission : AccessPermissionDAO.findByUserId(em, user.getScopeId(), user.getId())) {
+                logger.trace("User: {} has permission: {}", user.getName(), accessPermission.getPermission());
+                info.addPermission(accessPermission.getPermission());
             }
 
-            // Access Role Id
-            AccessRoleService accessRoleService = locator.getService(AccessRoleService.class);
-            AccessRoleListResult accessRoles;
-            try {
-                accessRoles = KapuaSecurityUtils.doPrivileged(() -> accessRoleService.findByAccessInfoId(accessInfo.getScopeId(), accessInfo.getId()));
-            } catch (AuthenticationException e) {
-                throw e;
-            } catch (Exception e) {
-                throw new ShiroException("Error while find access role ids!", e);
+            for (RoleImpl role : RoleDAO.findByUserId(em, user.getScopeId(), user.getId())) {
+                info.addRole(role.getId(), role.getName());
             }
 
-            RoleService roleService = locator.getService(RoleService.class);
-            RolePermissionService rolePermissionService = locator.getService(RolePermissionService.class);
-            for (AccessRole accessRole : accessRoles.getItems()) {
-
-                KapuaId roleId = accessRole.getRoleId();
-
-                Role role;
-                try {
-                    role = KapuaSecurityUtils.doPrivileged(() -> roleService.find(accessRole.getScopeId(), roleId));
-                } catch (AuthenticationException e) {
-                    throw e;
-                } catch (Exception e) {
-                    throw new ShiroException("Error while find role ids!", e);
-                }
-
-                info.addRole(role.getName());
-                final RolePermissionListResult rolePermissions;
-                try {
-                    rolePermissions = KapuaSecurityUtils.doPrivileged(() -> rolePermissionService.findByRoleId(role.getScopeId(), role.getId()));
-                } catch (Exception e) {
-                    throw new ShiroException("Error while find role permission!", e);
-                }
-
-                for (RolePermission rolePermission : rolePermissions.getItems()) {
-
-                    PermissionImpl p = rolePermission.getPermission();
-                    logger.trace("Role: {} has permission: {}", role, p);
-                    info.addObjectPermission(p);
-                }
+            for (RolePermissionImpl rolePermission : RolePermissionDAO.findByUserId(em, user.getScopeId(), user.getId())) {
+                logger.trace("User: {} has role permission: {}", user.getName(), rolePermission.getPermission());
+                info.addPermission(rolePermission.getPermission());
             }
-        }
+        });
 
-        //
-        // Return authorization info
         return info;
     }
 
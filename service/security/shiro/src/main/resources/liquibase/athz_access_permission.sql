@@ -40,4 +40,8 @@ INSERT INTO athz_access_permission
 
 --changeset access_permission:2
 
-ALTER TABLE athz_access_permission MODIFY COLUMN domain VARCHAR(64) NULL;
\ No newline at end of file
+ALTER TABLE athz_access_permission MODIFY COLUMN domain VARCHAR(64) NULL;
+
+--changeset access_permission:3
+
+CREATE INDEX idx_access_permission_accessInfoId ON athz_access_permission (access_info_id);
@@ -33,4 +33,8 @@ CREATE UNIQUE INDEX idx_scopeId_accessId_roleId ON athz_access_role (scope_id, a
 
 INSERT INTO athz_access_role
 	VALUES
-		(1, 1, NOW(), 1, 1, 1); -- kapua-sys assigned of role admin
\ No newline at end of file
+		(1, 1, NOW(), 1, 1, 1); -- kapua-sys assigned of role admin
+
+--changeset access_role:2
+
+CREATE INDEX idx_access_role_accessInfoId ON athz_access_role (access_info_id);
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authentication.shiro.realm;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.service.authentication.credential.CredentialType;
+import org.eclipse.kapua.service.authentication.credential.shiro.CredentialImpl;
+import org.junit.Test;
+
+public class UserPassCredentialsCacheTest {
+
+    private static final char[] PASSWORD = "kapua-password".toCharArray();
+
+    @Test
+    public void shouldMatchOnlyTheVerifiedPassword() {
+        // Given
+        UserPassCredentialsCache cache = new UserPassCredentialsCache(true, 100, 60000);
+        CredentialImpl credential = newCredential(10, "$2a$12$hashedKey");
+        cache.putVerified("kapua-user", PASSWORD, credential);
+
+        // Then
+        assertTrue(cache.isVerified("kapua-user", PASSWORD, credential));
+        assertFalse(cache.isVerified("kapua-user", "wrong-password".toCharArray(), credential));
+        assertFalse(cache.isVerified("other-user", PASSWORD, credential));
+    }
+
+    @Test
+    public void shouldNotMatchAChangedCredential() {
+        // Given
+        UserPassCredentialsCache cache = new UserPassCredentialsCache(true, 100, 60000);
+        cache.putVerified("kapua-user", PASSWORD, newCredential(10, "$2a$12$hashedKey"));
+
+        // Then
+        assertFalse(cache.isVerified("kapua-user", PASSWORD, newCredential(10, "$2a$12$otherHashedKey")));
+        assertFalse(cache.isVerified("kapua-user", PASSWORD, newCredential(11, "$2a$12$hashedKey")));
+    }
+
+    @Test
+    public void shouldEvictTheInvalidatedCredential() {
+        // Given
+        UserPassCredentialsCache cache = new UserPassCredentialsCache(true, 100, 60000);
+        CredentialImpl credential = newCredential(10, "$2a$12$hashedKey");
+        CredentialImpl otherCredential = newCredential(11, "$2a$12$otherHashedKey");
+        cache.putVerified("kapua-user", PASSWORD, credential);
+        cache.putVerified("other-user", PASSWORD, otherCredential);
+
+        // When
+        cache.invalidate(credential.getId());
+
+        // Then
+        assertFalse(cache.isVerified("kapua-user", PASSWORD, credential));
+        assertTrue(cache.isVerified("other-user", PASSWORD, otherCredential));
+    }
+
+    @Test
+    public void shouldNotCacheWhenDisabled() {
+        // Given
+        UserPassCredentialsCache cache = new UserPassCredentialsCache(false, 100, 60000);
+        CredentialImpl credential = newCredential(10, "$2a$12$hashedKey");
+        cache.putVerified("kapua-user", PASSWORD, credential);
+
+        // Then
+        assertFalse(cache.isVerified("kapua-user", PASSWORD, credential));
+    }
+
+    private static CredentialImpl newCredential(long id, String credentialKey) {
+        CredentialImpl credential = new CredentialImpl(new KapuaEid(BigInteger.ONE), new KapuaEid(BigInteger.TEN), CredentialType.PASSWORD, credentialKey);
+        credential.setId(new KapuaEid(BigInteger.valueOf(id)));
+        return credential;
+    }
+}
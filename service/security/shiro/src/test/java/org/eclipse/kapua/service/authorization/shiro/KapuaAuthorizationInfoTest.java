@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authorization.shiro;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.authorization.group.Group;
+import org.eclipse.kapua.service.authorization.permission.Actions;
+import org.eclipse.kapua.service.authorization.permission.shiro.PermissionImpl;
+import org.junit.Test;
+
+public class KapuaAuthorizationInfoTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.TEN);
+    private static final KapuaId OTHER_SCOPE_ID = new KapuaEid(BigInteger.valueOf(11));
+    private static final KapuaId GROUP_ID = new KapuaEid(BigInteger.valueOf(20));
+    private static final KapuaId OTHER_GROUP_ID = new KapuaEid(BigInteger.valueOf(21));
+
+    @Test
+    public void shouldMatchLikeThePermissionImplies() {
+        // Given
+        PermissionImpl[] granted = new PermissionImpl[] {
+                new PermissionImpl("device", Actions.read, SCOPE_ID, GROUP_ID),
+                new PermissionImpl("user", null, SCOPE_ID, null),
+                new PermissionImpl(null, Actions.write, null, OTHER_GROUP_ID)
+        };
+        KapuaAuthorizationInfo authorizationInfo = new KapuaAuthorizationInfo();
+        for (PermissionImpl permission : granted) {
+            authorizationInfo.addPermission(permission);
+        }
+
+        PermissionImpl[] checked = new PermissionImpl[] {
+                new PermissionImpl("device", Actions.read, SCOPE_ID, GROUP_ID),
+                new PermissionImpl("device", Actions.read, SCOPE_ID, OTHER_GROUP_ID),
+                new PermissionImpl("device", Actions.read, SCOPE_ID, Group.ANY),
+                new PermissionImpl("device", Actions.read, OTHER_SCOPE_ID, GROUP_ID),
+                new PermissionImpl("device", Actions.write, SCOPE_ID, GROUP_ID),
+                new PermissionImpl("device", Actions.write, OTHER_SCOPE_ID, OTHER_GROUP_ID),
+                new PermissionImpl("device", null, SCOPE_ID, GROUP_ID),
+                new PermissionImpl("DEVICE", Actions.read, SCOPE_ID, GROUP_ID),
+                new PermissionImpl("user", Actions.delete, SCOPE_ID, OTHER_GROUP_ID),
+                new PermissionImpl("user", Actions.delete, OTHER_SCOPE_ID, null),
+                new PermissionImpl("account", Actions.read, SCOPE_ID, Group.ANY)
+        };
+
+        // Then
+        for (PermissionImpl permission : checked) {
+            boolean implied = false;
+            for (PermissionImpl grantedPermission : granted) {
+                implied |= grantedPermission.implies(permission);
+            }
+            assertEquals(permission.toString(), implied, authorizationInfo.isPermitted(permission));
+        }
+    }
+
+    @Test
+    public void shouldPermitEverythingWithTheWildcardPermission() {
+        // Given
+        KapuaAuthorizationInfo authorizationInfo = new KapuaAuthorizationInfo();
+        authorizationInfo.addPermission(new PermissionImpl(null, null, null, null));
+
+        // Then
+        assertTrue(authorizationInfo.isPermitted(new PermissionImpl("device", Actions.delete, SCOPE_ID, GROUP_ID)));
+        assertTrue(authorizationInfo.isPermitted(new PermissionImpl(null, null, null, null)));
+    }
+
+    @Test
+    public void shouldNotPermitWithoutPermissions() {
+        // Given
+        KapuaAuthorizationInfo authorizationInfo = new KapuaAuthorizationInfo();
+
+        // Then
+        assertFalse(authorizationInfo.isPermitted(new PermissionImpl("device", Actions.read, SCOPE_ID, Group.ANY)));
+    }
+
+    @Test
+    public void shouldNotChangeTheGrantedPermissionWhenCheckingAnyGroup() {
+        // Given
+        PermissionImpl granted = new PermissionImpl("device", Actions.read, SCOPE_ID, GROUP_ID);
+
+        // When
+        assertTrue(granted.implies(new PermissionImpl("device", Actions.read, SCOPE_ID, Group.ANY)));
+
+        // Then
+        assertFalse(granted.implies(new PermissionImpl("device", Actions.read, SCOPE_ID, OTHER_GROUP_ID)));
+    }
+}
@@ -49,6 +49,12 @@ public class AuthenticationServiceMock implements AuthenticationService {
         return null;
     }
 
+    @Override
+    public AccessToken loginTransient(LoginCredentials authenticationToken)
+            throws KapuaException {
+        return login(authenticationToken);
+    }
+
     @Override
     public void logout()
             throws KapuaException {
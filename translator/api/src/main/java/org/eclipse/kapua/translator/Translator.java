@@ -12,8 +12,13 @@
  *******************************************************************************/
 package org.eclipse.kapua.translator;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.KapuaRuntimeErrorCodes;
@@ -45,12 +50,12 @@ public abstract class Translator<FROM_M extends Message, TO_M extends Message> {
 
     private static final Logger logger = LoggerFactory.getLogger(Translator.class);
 
-    private static final ServiceLoader<Translator> translators = ServiceLoader.load(Translator.class);
-
     /**
      * Return a translator for the given messages classes.
      * <br>
-     * This method will lookup instances of Translator through {@link java.util.ServiceLoader}
+     * This method will lookup instances of Translator through {@link java.util.ServiceLoader}.<br>
+     * The translators are loaded once, the translator found for a couple of messages classes is cached so the following lookups don't lock, iterate the
+     * translators nor allocate.
      * 
      * @param fromMessageClass
      *            message from type
@@ -60,28 +65,29 @@ public abstract class Translator<FROM_M extends Message, TO_M extends Message> {
      * @throws KapuaException
      */
     @SuppressWarnings("unchecked")
-    public static synchronized <FROM_M extends Message, TO_M extends Message, T extends Translator<FROM_M, TO_M>> T getTranslatorFor(Class<? extends FROM_M> fromMessageClass,
+    public static <FROM_M extends Message, TO_M extends Message, T extends Translator<FROM_M, TO_M>> T getTranslatorFor(Class<? extends FROM_M> fromMessageClass,
             Class<? extends TO_M> toMessageClass)
             throws KapuaException {
 
         Objects.requireNonNull(fromMessageClass);
         Objects.requireNonNull(toMessageClass);
 
-        for (Translator translator : translators) {
-            if ((fromMessageClass.isAssignableFrom(translator.getClassFrom())) &&
-                    toMessageClass.isAssignableFrom(translator.getClassTo())) {
-                return (T) translator;
+        Translator translator = TranslatorRegistry.getCachedTranslator(fromMessageClass, toMessageClass);
+        if (translator == null) {
+            translator = TranslatorRegistry.findTranslator(fromMessageClass, toMessageClass);
+            if (translator == null) {
+                logger.error("Cannot find translator from: {}- to: {}", fromMessageClass.getName(), toMessageClass.getName());
+                throw new KapuaRuntimeException(KapuaRuntimeErrorCodes.TRANSLATOR_NOT_FOUND,
+                        null,
+                        new Object[] {
+                                TranslatorRegistry.TRANSLATORS,
+                                fromMessageClass.getName(),
+                                toMessageClass.getName(),
+                        });
             }
+            TranslatorRegistry.cacheTranslator(fromMessageClass, toMessageClass, translator);
         }
-
-        logger.error("Cannot find translator from: {}- to: {}", fromMessageClass.getName(), toMessageClass.getName());
-        throw new KapuaRuntimeException(KapuaRuntimeErrorCodes.TRANSLATOR_NOT_FOUND,
-                null,
-                new Object[] {
-                        translators,
-                        fromMessageClass.getName(),
-                        toMessageClass.getName(),
-                });
+        return (T) translator;
     }
 
     /**
@@ -107,4 +113,52 @@ public abstract class Translator<FROM_M extends Message, TO_M extends Message> {
      * @return
      */
     public abstract Class<TO_M> getClassTo();
+
+    /**
+     * Translators loaded through the {@link ServiceLoader} and translators found by messages classes.<br>
+     * Loaded on the first lookup, since the loading instantiates the translators.
+     */
+    private static class TranslatorRegistry {
+
+        private static final List<Translator> TRANSLATORS;
+        /**
+         * Translators found, by from message class and by to message class
+         */
+        private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, Translator>> TRANSLATOR_CACHE = new ConcurrentHashMap<>();
+
+        static {
+            List<Translator> translators = new ArrayList<>();
+            for (Translator translator : ServiceLoader.load(Translator.class)) {
+                translators.add(translator);
+            }
+            TRANSLATORS = Collections.unmodifiableList(translators);
+
+            // index the translators by their own messages classes
+            for (Translator translator : TRANSLATORS) {
+                cacheTranslator(translator.getClassFrom(), translator.getClassTo(), findTranslator(translator.getClassFrom(), translator.getClassTo()));
+            }
+        }
+
+        private static Translator getCachedTranslator(Class<?> fromMessageClass, Class<?> toMessageClass) {
+            ConcurrentMap<Class<?>, Translator> translatorsTo = TRANSLATOR_CACHE.get(fromMessageClass);
+            return translatorsTo != null ? translatorsTo.get(toMessageClass) : null;
+        }
+
+        private static void cacheTranslator(Class<?> fromMessageClass, Class<?> toMessageClass, Translator translator) {
+            TRANSLATOR_CACHE.computeIfAbsent(fromMessageClass, messageClass -> new ConcurrentHashMap<>()).putIfAbsent(toMessageClass, translator);
+        }
+
+        /**
+         * Find the first translator whose messages classes are assignable to the given ones
+         */
+        private static Translator findTranslator(Class<?> fromMessageClass, Class<?> toMessageClass) {
+            for (Translator translator : TRANSLATORS) {
+                if ((fromMessageClass.isAssignableFrom(translator.getClassFrom())) &&
+                        toMessageClass.isAssignableFrom(translator.getClassTo())) {
+                    return translator;
+                }
+            }
+            return null;
+        }
+    }
 }
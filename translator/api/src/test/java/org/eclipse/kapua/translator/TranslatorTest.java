@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.eclipse.kapua.KapuaRuntimeErrorCodes;
+import org.eclipse.kapua.KapuaRuntimeException;
+import org.eclipse.kapua.message.Message;
+import org.junit.Test;
+
+public class TranslatorTest {
+
+    @Test
+    public void shouldFindTheTranslatorOfAKnownPair() throws Exception {
+        Translator<FromMessage, ToMessage> translator = Translator.getTranslatorFor(FromMessage.class, ToMessage.class);
+        assertTrue(translator instanceof FromToTranslator);
+        assertSame(translator, Translator.getTranslatorFor(FromMessage.class, ToMessage.class));
+
+        Translator<ToMessage, FromMessage> reverseTranslator = Translator.getTranslatorFor(ToMessage.class, FromMessage.class);
+        assertTrue(reverseTranslator instanceof ToFromTranslator);
+    }
+
+    @Test
+    public void shouldFindTheTranslatorOfAssignableMessageClasses() throws Exception {
+        Object translator = Translator.getTranslatorFor(Message.class, ToMessage.class);
+        assertTrue(translator instanceof FromToTranslator);
+        assertSame(translator, Translator.getTranslatorFor(Message.class, ToMessage.class));
+    }
+
+    @Test
+    public void shouldRejectAnUnknownPair() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try {
+                Translator.getTranslatorFor(FromMessage.class, OtherMessage.class);
+                fail("No translator expected");
+            } catch (KapuaRuntimeException e) {
+                assertEquals(KapuaRuntimeErrorCodes.TRANSLATOR_NOT_FOUND, e.getCode());
+            }
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    public static class FromMessage implements Message {
+    }
+
+    @SuppressWarnings("rawtypes")
+    public static class ToMessage implements Message {
+    }
+
+    @SuppressWarnings("rawtypes")
+    public static class OtherMessage implements Message {
+    }
+
+    public static class FromToTranslator extends Translator<FromMessage, ToMessage> {
+
+        @Override
+        public ToMessage translate(FromMessage message) {
+            return new ToMessage();
+        }
+
+        @Override
+        public Class<FromMessage> getClassFrom() {
+            return FromMessage.class;
+        }
+
+        @Override
+        public Class<ToMessage> getClassTo() {
+            return ToMessage.class;
+        }
+    }
+
+    public static class ToFromTranslator extends Translator<ToMessage, FromMessage> {
+
+        @Override
+        public FromMessage translate(ToMessage message) {
+            return new FromMessage();
+        }
+
+        @Override
+        public Class<ToMessage> getClassFrom() {
+            return ToMessage.class;
+        }
+
+        @Override
+        public Class<FromMessage> getClassTo() {
+            return FromMessage.class;
+        }
+    }
+}
@@ -11,6 +11,8 @@
  *******************************************************************************/
 package org.eclipse.kapua.transport;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.transport.message.TransportChannel;
 import org.eclipse.kapua.transport.message.TransportMessage;
@@ -57,6 +59,21 @@ public interface TransportFacade<C extends TransportChannel, P extends Transport
     public void sendAsync(MQ message)
             throws KapuaException;
 
+    /**
+     * Send a request message to a device without blocking the caller while waiting for the response.
+     * <p>
+     * The timeout is optional. If {@code null} the request is fired without waiting for the response and the returned future is completed with {@code null}.
+     * </p>
+     *
+     * @param message The request message to send.
+     * @param timeout The timeout for the operation.
+     * @return The future completed with the response to the request message.
+     * @throws KapuaException When the request message cannot be sent.
+     * @since 1.0.0
+     */
+    public CompletableFuture<MS> sendAsync(MQ message, Long timeout)
+            throws KapuaException;
+
     //
     // Utilities
     //
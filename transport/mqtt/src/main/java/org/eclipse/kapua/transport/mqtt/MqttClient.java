@@ -20,6 +20,7 @@ import org.eclipse.kapua.transport.TransportClientConnectOptions;
 import org.eclipse.kapua.transport.message.mqtt.MqttMessage;
 import org.eclipse.kapua.transport.message.mqtt.MqttPayload;
 import org.eclipse.kapua.transport.message.mqtt.MqttTopic;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
@@ -217,10 +218,11 @@ public class MqttClient {
      *             When unsubscribe fails.
      * @since 1.0.0
      */
-    private void unsubscribe(MqttTopic mqttTopic)
+    public synchronized void unsubscribe(MqttTopic mqttTopic)
             throws KapuaException {
         try {
             getPahoClient().unsubscribe(mqttTopic.getTopic());
+            subscribedTopics.removeIf(subscribedTopic -> subscribedTopic.getTopic().equals(mqttTopic.getTopic()));
         } catch (MqttException | KapuaException e) {
             throw new MqttClientException(MqttClientErrorCodes.CLIENT_UNSUBSCRIBE_ERROR,
                     e,
@@ -237,7 +239,7 @@ public class MqttClient {
      */
     public synchronized void unsubscribeAll()
             throws KapuaException {
-        Iterator<MqttTopic> subscribptionIterator = subscribedTopics.iterator();
+        Iterator<MqttTopic> subscribptionIterator = new ArrayList<>(subscribedTopics).iterator();
 
         while (subscribptionIterator.hasNext()) {
             MqttTopic mqttTopic = subscribptionIterator.next();
@@ -249,14 +251,14 @@ public class MqttClient {
     }
 
     /**
-     * Sets a {@link MqttClientCallback} to this client.
+     * Sets a {@link MqttCallback} (usually a {@link MqttClientCallback}) to this client.
      * 
      * @param mqttClientCallback
-     *            The {@link MqttClientCallback} to use.
+     *            The {@link MqttCallback} to use.
      * @throws KapuaException
      *             When set the callback fails.
      */
-    public void setCallback(MqttClientCallback mqttClientCallback)
+    public void setCallback(MqttCallback mqttClientCallback)
             throws KapuaException {
         try {
             getPahoClient().setCallback(mqttClientCallback);
@@ -15,6 +15,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.eclipse.kapua.KapuaErrorCodes;
 import org.eclipse.kapua.KapuaException;
@@ -22,10 +24,16 @@ import org.eclipse.kapua.transport.TransportFacade;
 import org.eclipse.kapua.transport.message.mqtt.MqttMessage;
 import org.eclipse.kapua.transport.message.mqtt.MqttPayload;
 import org.eclipse.kapua.transport.message.mqtt.MqttTopic;
+import org.eclipse.kapua.transport.mqtt.multiplexing.MqttMultiplexedClient;
+import org.eclipse.kapua.transport.mqtt.multiplexing.MqttMultiplexedClients;
 import org.eclipse.kapua.transport.mqtt.pooling.MqttClientPool;
 
 /**
  * Implementation of {@link TransportFacade} API for MQTT transport facade.
+ * <p>
+ * When the multiplexed clients are enabled the requests are sent through one of the shared {@link MqttMultiplexedClient}s, otherwise
+ * a client is borrowed from the {@link MqttClientPool} for the lifetime of this facade.
+ * </p>
  *
  * @since 1.0.0
  */
@@ -45,6 +53,13 @@ public class MqttFacade implements TransportFacade<MqttTopic, MqttPayload, MqttM
      */
     private MqttClientCallback mqttClientCallback;
 
+    /**
+     * The shared client to use to make requests, if the multiplexed clients are enabled.
+     * 
+     * @since 1.0.0
+     */
+    private MqttMultiplexedClient multiplexedClient;
+
     /**
      * Initialize a transport facade to be used to send requests to devices.
      * 
@@ -52,6 +67,11 @@ public class MqttFacade implements TransportFacade<MqttTopic, MqttPayload, MqttM
      *             When MQTT client is not available.
      */
     public MqttFacade() throws KapuaException {
+        if (MqttMultiplexedClients.isEnabled()) {
+            multiplexedClient = MqttMultiplexedClients.getInstance().next();
+            return;
+        }
+
         //
         // Get the client form the pool
         try {
@@ -77,6 +97,24 @@ public class MqttFacade implements TransportFacade<MqttTopic, MqttPayload, MqttM
     @Override
     public MqttMessage sendSync(MqttMessage mqttMessage, Long timeout)
             throws KapuaException {
+        if (multiplexedClient != null) {
+            try {
+                return sendAsync(mqttMessage, timeout).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MqttClientException(MqttClientErrorCodes.CLIENT_CALLBACK_ERROR,
+                        e,
+                        (Object[]) null);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof KapuaException) {
+                    throw (KapuaException) e.getCause();
+                }
+                throw new MqttClientException(MqttClientErrorCodes.SEND_ERROR,
+                        e.getCause(),
+                        mqttMessage.getRequestTopic().getTopic());
+            }
+        }
+
         List<MqttMessage> responses = new ArrayList<>();
 
         sendInternal(mqttMessage, responses, timeout);
@@ -97,6 +135,39 @@ public class MqttFacade implements TransportFacade<MqttTopic, MqttPayload, MqttM
         }
     }
 
+    /**
+     * Send a request message to a device without blocking the caller while waiting for the response.
+     * <p>
+     * Only the multiplexed clients send the request asynchronously: a pooled client sends it synchronously and returns an already completed future.
+     * </p>
+     * 
+     * @param mqttMessage
+     *            The request to send.
+     * @param timeout
+     *            The timeout of waiting the response from the device.
+     *            If {@code null} request will be fired without waiting for the response.
+     * @return The future completed with the response, or with {@code null} if no response is expected.
+     *         If the response does not arrive in time the future is completed exceptionally with a {@link MqttClientException}.
+     * @throws KapuaException
+     *             When the request cannot be sent.
+     * @since 1.0.0
+     */
+    @Override
+    public CompletableFuture<MqttMessage> sendAsync(MqttMessage mqttMessage, Long timeout)
+            throws KapuaException {
+        if (multiplexedClient == null) {
+            return CompletableFuture.completedFuture(sendSync(mqttMessage, timeout));
+        }
+
+        try {
+            return multiplexedClient.send(mqttMessage, timeout);
+        } catch (KapuaException e) {
+            throw new MqttClientException(MqttClientErrorCodes.SEND_ERROR,
+                    e,
+                    mqttMessage.getRequestTopic().getTopic());
+        }
+    }
+
     /**
      * Actual implementation of the send operations.
      * <p>
@@ -188,7 +259,7 @@ public class MqttFacade implements TransportFacade<MqttTopic, MqttPayload, MqttM
 
     @Override
     public String getClientId() {
-        return borrowedClient.getClientId();
+        return multiplexedClient != null ? multiplexedClient.getClientId() : borrowedClient.getClientId();
     }
 
     @Override
@@ -198,6 +269,13 @@ public class MqttFacade implements TransportFacade<MqttTopic, MqttPayload, MqttM
 
     @Override
     public void clean() {
+        //
+        // The multiplexed client is shared, it is not returned to any pool
+        if (multiplexedClient != null) {
+            multiplexedClient = null;
+            return;
+        }
+
         //
         // Return the client form the pool
         MqttClientPool.getInstance().returnObject(borrowedClient);
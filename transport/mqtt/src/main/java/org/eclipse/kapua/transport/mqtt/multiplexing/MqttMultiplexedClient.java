@@ -0,0 +1,345 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.transport.mqtt.multiplexing;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.transport.message.mqtt.MqttMessage;
+import org.eclipse.kapua.transport.message.mqtt.MqttPayload;
+import org.eclipse.kapua.transport.message.mqtt.MqttTopic;
+import org.eclipse.kapua.transport.mqtt.MqttClient;
+import org.eclipse.kapua.transport.mqtt.MqttClientErrorCodes;
+import org.eclipse.kapua.transport.mqtt.MqttClientException;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Long lived {@link MqttClient} shared by many concurrent requests.
+ * <p>
+ * The client subscribes once to the wildcard reply topic of each application (the response topic with the request id replaced by a single level wildcard)
+ * and correlates the responses to the pending requests by their request id (the last level of the response topic).
+ * </p>
+ * <p>
+ * The response futures are completed by the response executor, so the dependent stages (like the translation of the response) do not hold the MQTT client
+ * thread. The reply topics not used for the subscription idle time are unsubscribed.
+ * </p>
+ *
+ * @since 1.0.0
+ */
+public class MqttMultiplexedClient implements MqttCallback {
+
+    private static final Logger logger = LoggerFactory.getLogger(MqttMultiplexedClient.class);
+
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+
+    /**
+     * The wrapped client.
+     *
+     * @since 1.0.0
+     */
+    private final MqttClient mqttClient;
+
+    /**
+     * The scheduler of the response timeouts, shared by all the multiplexed clients.
+     *
+     * @since 1.0.0
+     */
+    private final ScheduledExecutorService timeoutScheduler;
+
+    /**
+     * The executor completing the response futures, shared by all the multiplexed clients.
+     *
+     * @since 1.0.0
+     */
+    private final Executor responseExecutor;
+
+    /**
+     * The time in milliseconds after which a reply topic not used by any request is unsubscribed.
+     *
+     * @since 1.0.0
+     */
+    private final long subscriptionIdleTime;
+
+    /**
+     * The pending responses by request id.
+     *
+     * @since 1.0.0
+     */
+    private final ConcurrentMap<String, CompletableFuture<MqttMessage>> pendingResponses = new ConcurrentHashMap<>();
+
+    /**
+     * The wildcard reply topics already subscribed, with the time of their last use.
+     *
+     * @since 1.0.0
+     */
+    private final ConcurrentMap<String, Long> subscriptions = new ConcurrentHashMap<>();
+
+    private final ScheduledFuture<?> subscriptionsExpiration;
+
+    private volatile boolean connectionLost;
+
+    /**
+     * Constructs a multiplexed client on top of the given connected client.
+     *
+     * @param mqttClient
+     *            The connected client.
+     * @param timeoutScheduler
+     *            The scheduler of the response timeouts and of the subscriptions expiration.
+     * @param responseExecutor
+     *            The executor completing the response futures.
+     * @param subscriptionIdleTime
+     *            The time in milliseconds after which a reply topic not used by any request is unsubscribed.
+     * @throws KapuaException
+     *             When the callback cannot be set to the client.
+     * @since 1.0.0
+     */
+    public MqttMultiplexedClient(MqttClient mqttClient, ScheduledExecutorService timeoutScheduler, Executor responseExecutor, long subscriptionIdleTime)
+            throws KapuaException {
+        this.mqttClient = mqttClient;
+        this.timeoutScheduler = timeoutScheduler;
+        this.responseExecutor = responseExecutor;
+        this.subscriptionIdleTime = subscriptionIdleTime;
+        mqttClient.setCallback(this);
+
+        long expirationPeriod = Math.max(1, subscriptionIdleTime / 2);
+        subscriptionsExpiration = timeoutScheduler.scheduleWithFixedDelay(this::expireSubscriptions, expirationPeriod, expirationPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the request.
+     * <p>
+     * If the request has no response topic or the timeout is {@code null} the request is fired without waiting for the response and the returned future is
+     * already completed with {@code null}.
+     * </p>
+     *
+     * @param mqttMessage
+     *            The request to send.
+     * @param timeout
+     *            The timeout of waiting the response from the device.
+     * @return The future completed with the response or completed exceptionally with a {@link MqttClientException} if the response does not arrive in time.
+     * @throws KapuaException
+     *             When the subscription to the reply topic or the publish fail.
+     * @since 1.0.0
+     */
+    public CompletableFuture<MqttMessage> send(MqttMessage mqttMessage, Long timeout)
+            throws KapuaException {
+        if (mqttMessage.getResponseTopic() == null || timeout == null) {
+            mqttClient.publish(mqttMessage);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String[] responseTopicTokens = mqttMessage.getResponseTopic().getSplittedTopic();
+        String requestId = responseTopicTokens[responseTopicTokens.length - 1];
+
+        responseTopicTokens[responseTopicTokens.length - 1] = SINGLE_LEVEL_WILDCARD;
+        subscribe(new MqttTopic(responseTopicTokens));
+
+        CompletableFuture<MqttMessage> response = new CompletableFuture<>();
+        if (pendingResponses.putIfAbsent(requestId, response) != null) {
+            throw new MqttClientException(MqttClientErrorCodes.SEND_ERROR,
+                    null,
+                    mqttMessage.getRequestTopic().getTopic());
+        }
+
+        ScheduledFuture<?> timeoutTask = timeoutScheduler.schedule(() -> failResponse(response, new MqttClientException(MqttClientErrorCodes.CLIENT_TIMEOUT_EXCEPTION,
+                null,
+                new Object[] { mqttMessage.getRequestTopic() })),
+                timeout,
+                TimeUnit.MILLISECONDS);
+
+        response.whenComplete((message, cause) -> {
+            pendingResponses.remove(requestId, response);
+            timeoutTask.cancel(false);
+        });
+
+        try {
+            mqttClient.publish(mqttMessage);
+        } catch (KapuaException e) {
+            response.completeExceptionally(e);
+            throw e;
+        }
+        return response;
+    }
+
+    /**
+     * Subscribes to the given topic, unless already subscribed, and marks it as used.
+     *
+     * @param mqttTopic
+     * @throws KapuaException
+     */
+    private void subscribe(MqttTopic mqttTopic)
+            throws KapuaException {
+        String topic = mqttTopic.getTopic();
+        long now = System.currentTimeMillis();
+        if (subscriptions.replace(topic, now) != null) {
+            return;
+        }
+
+        synchronized (subscriptions) {
+            if (subscriptions.replace(topic, now) == null) {
+                mqttClient.subscribe(mqttTopic);
+                subscriptions.put(topic, now);
+            }
+        }
+    }
+
+    /**
+     * Unsubscribes the reply topics not used for the subscription idle time.<br>
+     * A topic used again while expiring is kept, or subscribed again after the unsubscribe.
+     *
+     * @return The number of unsubscribed topics.
+     */
+    int expireSubscriptions() {
+        long usedBefore = System.currentTimeMillis() - subscriptionIdleTime;
+        int expiredCount = 0;
+        for (Map.Entry<String, Long> subscription : subscriptions.entrySet()) {
+            if (subscription.getValue() >= usedBefore) {
+                continue;
+            }
+
+            synchronized (subscriptions) {
+                if (subscriptions.remove(subscription.getKey(), subscription.getValue())) {
+                    try {
+                        mqttClient.unsubscribe(new MqttTopic(subscription.getKey()));
+                        expiredCount++;
+                    } catch (KapuaException e) {
+                        logger.warn("Cannot unsubscribe the multiplexed client {} from {}", getClientId(), subscription.getKey(), e);
+                    }
+                }
+            }
+        }
+        return expiredCount;
+    }
+
+    /**
+     * Gets the client id of the wrapped client.
+     *
+     * @return The client id of the wrapped client.
+     * @since 1.0.0
+     */
+    public String getClientId() {
+        return mqttClient.getClientId();
+    }
+
+    /**
+     * Checks if this client can be used to send requests.
+     *
+     * @return {@code true} if the client is connected, {@code false} otherwise.
+     * @since 1.0.0
+     */
+    public boolean isConnected() {
+        return !connectionLost && mqttClient.isConnected();
+    }
+
+    /**
+     * Gets the number of requests waiting for the response.
+     *
+     * @return The number of requests waiting for the response.
+     * @since 1.0.0
+     */
+    public int getPendingResponsesCount() {
+        return pendingResponses.size();
+    }
+
+    /**
+     * Gets the number of reply topics subscribed.
+     *
+     * @return The number of reply topics subscribed.
+     * @since 1.0.0
+     */
+    public int getSubscriptionsCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Terminates the wrapped client and fails the pending requests.
+     *
+     * @since 1.0.0
+     */
+    public void close() {
+        subscriptionsExpiration.cancel(false);
+        failPendingResponses(null);
+        try {
+            mqttClient.terminateClient();
+        } catch (KapuaException e) {
+            logger.warn("Cannot terminate the multiplexed client {}", getClientId(), e);
+        }
+    }
+
+    /**
+     * Completes, through the response executor, the pending request matching the request id of the arrived message.
+     * <p>
+     * Responses arriving after the request timeout are discarded.
+     * </p>
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public void messageArrived(String stringTopic, org.eclipse.paho.client.mqttv3.MqttMessage message)
+            throws Exception {
+        MqttTopic mqttTopic = new MqttTopic(stringTopic);
+        String[] topicTokens = mqttTopic.getSplittedTopic();
+
+        CompletableFuture<MqttMessage> response = pendingResponses.get(topicTokens[topicTokens.length - 1]);
+        if (response == null) {
+            logger.debug("Discarding response without a pending request on topic {}", stringTopic);
+            return;
+        }
+
+        MqttMessage mqttMessage = new MqttMessage(mqttTopic,
+                new Date(),
+                new MqttPayload(message.getPayload()));
+        responseExecutor.execute(() -> response.complete(mqttMessage));
+    }
+
+    /**
+     * Implements the API signature {@link MqttCallback#deliveryComplete(IMqttDeliveryToken)} with an empty method
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public void deliveryComplete(IMqttDeliveryToken token) {
+    }
+
+    /**
+     * Fails the pending requests: the subscriptions are lost together with the connection so their responses would never arrive.
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public void connectionLost(Throwable cause) {
+        logger.warn("Multiplexed client {} lost the connection", getClientId(), cause);
+        connectionLost = true;
+        failPendingResponses(cause);
+    }
+
+    private void failPendingResponses(Throwable cause) {
+        for (CompletableFuture<MqttMessage> response : pendingResponses.values()) {
+            failResponse(response, new MqttClientException(MqttClientErrorCodes.CLIENT_CONNECTION_LOST, cause, (Object[]) null));
+        }
+    }
+
+    private void failResponse(CompletableFuture<MqttMessage> response, MqttClientException cause) {
+        responseExecutor.execute(() -> response.completeExceptionally(cause));
+    }
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.transport.mqtt.multiplexing;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.eclipse.kapua.KapuaErrorCodes;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.transport.mqtt.MqttClient;
+import org.eclipse.kapua.transport.mqtt.pooling.PooledMqttClientFactory;
+import org.eclipse.kapua.transport.mqtt.setting.MqttClientSetting;
+import org.eclipse.kapua.transport.mqtt.setting.MqttClientSettingKeys;
+
+/**
+ * The fixed set of {@link MqttMultiplexedClient}s shared by all the requests.
+ * <p>
+ * Clients are connected lazily, handed out in round robin and replaced when their connection is lost.
+ * All the clients share a single scheduler for the response timeouts and an executor completing the responses.
+ * </p>
+ *
+ * @since 1.0.0
+ */
+public class MqttMultiplexedClients {
+
+    /**
+     * Singleton instance of {@link MqttMultiplexedClients}
+     */
+    private static MqttMultiplexedClients instance;
+
+    private final PooledMqttClientFactory clientFactory = new PooledMqttClientFactory();
+    private final ScheduledExecutorService timeoutScheduler;
+    private final ExecutorService responseExecutor;
+    private final long subscriptionIdleTime;
+
+    private final AtomicReferenceArray<MqttMultiplexedClient> clients;
+    private final Object[] clientLocks;
+    private final AtomicInteger nextClient = new AtomicInteger();
+
+    private MqttMultiplexedClients(int clientsCount, int responseThreadsCount, long subscriptionIdleTime) {
+        this.subscriptionIdleTime = subscriptionIdleTime;
+        clients = new AtomicReferenceArray<>(clientsCount);
+        clientLocks = new Object[clientsCount];
+        for (int i = 0; i < clientsCount; i++) {
+            clientLocks[i] = new Object();
+        }
+
+        timeoutScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, MqttMultiplexedClients.class.getSimpleName() + "-TimeoutScheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicInteger responseThreadCount = new AtomicInteger();
+        responseExecutor = Executors.newFixedThreadPool(responseThreadsCount, runnable -> {
+            Thread thread = new Thread(runnable, MqttMultiplexedClients.class.getSimpleName() + "-Response-" + responseThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Gets the singleton instance of {@link MqttMultiplexedClients}.
+     *
+     * @return The singleton instance of {@link MqttMultiplexedClients}.
+     * @since 1.0.0
+     */
+    public static synchronized MqttMultiplexedClients getInstance() {
+        if (instance == null) {
+            MqttClientSetting config = MqttClientSetting.getInstance();
+            // a reply topic must not expire while a request may still wait for its response
+            long subscriptionIdleTime = Math.max(config.getLong(MqttClientSettingKeys.TRANSPORT_MULTIPLEXED_SUBSCRIPTION_IDLE, 3600000L),
+                    config.getLong(MqttClientSettingKeys.SEND_TIMEOUT_MAX, 1800000L));
+            instance = new MqttMultiplexedClients(Math.max(1, config.getInt(MqttClientSettingKeys.TRANSPORT_MULTIPLEXED_CLIENTS, 2)),
+                    Math.max(1, config.getInt(MqttClientSettingKeys.TRANSPORT_MULTIPLEXED_RESPONSE_THREADS, 4)),
+                    subscriptionIdleTime);
+        }
+        return instance;
+    }
+
+    /**
+     * Checks if the requests are sent through the multiplexed clients.
+     *
+     * @return {@code true} if the multiplexed clients are enabled, {@code false} otherwise.
+     * @since 1.0.0
+     */
+    public static boolean isEnabled() {
+        return MqttClientSetting.getInstance().getBoolean(MqttClientSettingKeys.TRANSPORT_MULTIPLEXED_ENABLED, false);
+    }
+
+    /**
+     * Gets the next connected multiplexed client.
+     *
+     * @return A connected multiplexed client.
+     * @throws KapuaException
+     *             When a new client cannot be connected.
+     * @since 1.0.0
+     */
+    public MqttMultiplexedClient next()
+            throws KapuaException {
+        int index = Math.floorMod(nextClient.getAndIncrement(), clients.length());
+
+        MqttMultiplexedClient client = clients.get(index);
+        if (client != null && client.isConnected()) {
+            return client;
+        }
+
+        synchronized (clientLocks[index]) {
+            client = clients.get(index);
+            if (client == null || !client.isConnected()) {
+                if (client != null) {
+                    client.close();
+                }
+                client = new MqttMultiplexedClient(connectClient(), timeoutScheduler, responseExecutor, subscriptionIdleTime);
+                clients.set(index, client);
+            }
+            return client;
+        }
+    }
+
+    private MqttClient connectClient()
+            throws KapuaException {
+        try {
+            return clientFactory.create();
+        } catch (KapuaException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new KapuaException(KapuaErrorCodes.INTERNAL_ERROR, e, (Object[]) null);
+        }
+    }
+}
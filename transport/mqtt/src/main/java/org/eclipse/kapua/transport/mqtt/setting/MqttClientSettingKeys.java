@@ -54,6 +54,35 @@ public enum MqttClientSettingKeys implements SettingKey {
      * @since 1.0.0
      */
     SEND_TIMEOUT_MAX("send.timeout.max"),
+
+    /**
+     * Whether the requests are sent through the shared multiplexed clients instead of a pooled client for each request.
+     * 
+     * @since 1.0.0
+     */
+    TRANSPORT_MULTIPLEXED_ENABLED("transport.multiplexed.enabled"),
+
+    /**
+     * The number of shared multiplexed clients.
+     * 
+     * @since 1.0.0
+     */
+    TRANSPORT_MULTIPLEXED_CLIENTS("transport.multiplexed.clients"),
+
+    /**
+     * The number of threads completing the responses of the multiplexed clients, off the MQTT client threads.
+     * 
+     * @since 1.0.0
+     */
+    TRANSPORT_MULTIPLEXED_RESPONSE_THREADS("transport.multiplexed.response.threads"),
+
+    /**
+     * Time in milliseconds after which a reply topic not used by any request is unsubscribed by the multiplexed clients.
+     * It is never shorter than {@link #SEND_TIMEOUT_MAX}.
+     * 
+     * @since 1.0.0
+     */
+    TRANSPORT_MULTIPLEXED_SUBSCRIPTION_IDLE("transport.multiplexed.subscription.idle"),
     ;
 
     /**
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.transport.mqtt.multiplexing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.KapuaErrorCodes;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.transport.message.mqtt.MqttMessage;
+import org.eclipse.kapua.transport.message.mqtt.MqttPayload;
+import org.eclipse.kapua.transport.message.mqtt.MqttTopic;
+import org.eclipse.kapua.transport.mqtt.MqttClient;
+import org.eclipse.kapua.transport.mqtt.MqttClientErrorCodes;
+import org.eclipse.kapua.transport.mqtt.MqttClientException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class MqttMultiplexedClientTest {
+
+    private static final String REPLY_TOPIC = "$EDC/acme/requester/CMD-V1/REPLY/";
+    private static final long IDLE_TIME = 60000L;
+
+    private MqttClient mqttClient;
+    private ScheduledExecutorService timeoutScheduler;
+
+    @Before
+    public void setUp() {
+        mqttClient = mock(MqttClient.class);
+        when(mqttClient.getClientId()).thenReturn("requester");
+        when(mqttClient.isConnected()).thenReturn(true);
+        timeoutScheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        timeoutScheduler.shutdownNow();
+    }
+
+    /**
+     * Test that each response completes the request with the same request id, whatever the arrival order
+     */
+    @Test
+    public void testResponseCorrelation()
+            throws Exception {
+        MqttMultiplexedClient client = newClient(Runnable::run, IDLE_TIME);
+
+        CompletableFuture<MqttMessage> response1 = client.send(newRequest("CMD-V1", "1"), 10000L);
+        CompletableFuture<MqttMessage> response2 = client.send(newRequest("CMD-V1", "2"), 10000L);
+        assertEquals(2, client.getPendingResponsesCount());
+
+        client.messageArrived(REPLY_TOPIC + "2", new org.eclipse.paho.client.mqttv3.MqttMessage("response 2".getBytes()));
+        assertFalse(response1.isDone());
+        client.messageArrived(REPLY_TOPIC + "1", new org.eclipse.paho.client.mqttv3.MqttMessage("response 1".getBytes()));
+
+        assertArrayEquals("response 1".getBytes(), response1.get(1, TimeUnit.SECONDS).getPayload().getBody());
+        assertArrayEquals("response 2".getBytes(), response2.get(1, TimeUnit.SECONDS).getPayload().getBody());
+        assertEquals(REPLY_TOPIC + "2", response2.get().getRequestTopic().getTopic());
+        assertEquals(0, client.getPendingResponsesCount());
+
+        // a response without a pending request is discarded
+        client.messageArrived(REPLY_TOPIC + "3", new org.eclipse.paho.client.mqttv3.MqttMessage("response 3".getBytes()));
+    }
+
+    /**
+     * Test that a request without response topic or timeout is only published
+     */
+    @Test
+    public void testFireAndForget()
+            throws Exception {
+        MqttMultiplexedClient client = newClient(Runnable::run, IDLE_TIME);
+
+        MqttMessage request = newRequest("CMD-V1", "1");
+        assertNull(client.send(request, null).get());
+        verify(mqttClient).publish(request);
+        verify(mqttClient, times(0)).subscribe(any(MqttTopic.class));
+        assertEquals(0, client.getPendingResponsesCount());
+    }
+
+    /**
+     * Test that a request fails when its response does not arrive in time, and the late response is discarded
+     */
+    @Test
+    public void testTimeout()
+            throws Exception {
+        MqttMultiplexedClient client = newClient(Runnable::run, IDLE_TIME);
+
+        CompletableFuture<MqttMessage> response = client.send(newRequest("CMD-V1", "1"), 100L);
+        assertFailed(response, MqttClientErrorCodes.CLIENT_TIMEOUT_EXCEPTION);
+        assertEquals(0, client.getPendingResponsesCount());
+
+        client.messageArrived(REPLY_TOPIC + "1", new org.eclipse.paho.client.mqttv3.MqttMessage("late".getBytes()));
+        assertTrue(response.isCompletedExceptionally());
+    }
+
+    /**
+     * Test that a lost connection fails all the pending requests and marks the client as not connected
+     */
+    @Test
+    public void testConnectionLost()
+            throws Exception {
+        MqttMultiplexedClient client = newClient(Runnable::run, IDLE_TIME);
+
+        CompletableFuture<MqttMessage> response1 = client.send(newRequest("CMD-V1", "1"), 10000L);
+        CompletableFuture<MqttMessage> response2 = client.send(newRequest("CONF-V1", "2"), 10000L);
+        assertTrue(client.isConnected());
+
+        client.connectionLost(new Exception("connection lost"));
+
+        assertFalse(client.isConnected());
+        assertFailed(response1, MqttClientErrorCodes.CLIENT_CONNECTION_LOST);
+        assertFailed(response2, MqttClientErrorCodes.CLIENT_CONNECTION_LOST);
+        assertEquals(0, client.getPendingResponsesCount());
+    }
+
+    /**
+     * Test that a failed publish fails the request without leaving it pending
+     */
+    @Test
+    public void testPublishFailure()
+            throws Exception {
+        MqttMultiplexedClient client = newClient(Runnable::run, IDLE_TIME);
+        doThrow(new KapuaException(KapuaErrorCodes.INTERNAL_ERROR)).when(mqttClient).publish(any(MqttMessage.class));
+
+        try {
+            client.send(newRequest("CMD-V1", "1"), 10000L);
+            fail("The publish failure must be thrown");
+        } catch (KapuaException e) {
+            assertEquals(KapuaErrorCodes.INTERNAL_ERROR, e.getCode());
+        }
+        assertEquals(0, client.getPendingResponsesCount());
+    }
+
+    /**
+     * Test that the wildcard reply topic of an application is subscribed only once
+     */
+    @Test
+    public void testSubscriptionReuse()
+            throws Exception {
+        MqttMultiplexedClient client = newClient(Runnable::run, IDLE_TIME);
+
+        client.send(newRequest("CMD-V1", "1"), 10000L);
+        client.send(newRequest("CMD-V1", "2"), 10000L);
+        client.send(newRequest("CONF-V1", "3"), 10000L);
+        client.send(newRequest("CMD-V1", "4"), 10000L);
+
+        ArgumentCaptor<MqttTopic> topics = ArgumentCaptor.forClass(MqttTopic.class);
+        verify(mqttClient, times(2)).subscribe(topics.capture());
+        List<MqttTopic> subscribedTopics = topics.getAllValues();
+        assertEquals("$EDC/acme/requester/CMD-V1/REPLY/+", subscribedTopics.get(0).getTopic());
+        assertEquals("$EDC/acme/requester/CONF-V1/REPLY/+", subscribedTopics.get(1).getTopic());
+        assertEquals(2, client.getSubscriptionsCount());
+    }
+
+    /**
+     * Test that the reply topics not used for the idle time are unsubscribed, and subscribed again when used
+     */
+    @Test
+    public void testSubscriptionExpiration()
+            throws Exception {
+        MqttMultiplexedClient client = newClient(Runnable::run, 100L);
+
+        client.send(newRequest("CMD-V1", "1"), 10000L);
+        assertEquals(1, client.getSubscriptionsCount());
+
+        ArgumentCaptor<MqttTopic> topic = ArgumentCaptor.forClass(MqttTopic.class);
+        verify(mqttClient, timeout(2000)).unsubscribe(topic.capture());
+        assertEquals("$EDC/acme/requester/CMD-V1/REPLY/+", topic.getValue().getTopic());
+        assertEquals(0, client.getSubscriptionsCount());
+
+        client.send(newRequest("CMD-V1", "2"), 10000L);
+        verify(mqttClient, times(2)).subscribe(any(MqttTopic.class));
+        assertEquals(1, client.getSubscriptionsCount());
+    }
+
+    /**
+     * Test that a reply topic used within the idle time is kept
+     */
+    @Test
+    public void testSubscriptionInUse()
+            throws Exception {
+        MqttMultiplexedClient client = newClient(Runnable::run, IDLE_TIME);
+
+        client.send(newRequest("CMD-V1", "1"), 10000L);
+        assertEquals(0, client.expireSubscriptions());
+        assertEquals(1, client.getSubscriptionsCount());
+        verify(mqttClient, times(0)).unsubscribe(any(MqttTopic.class));
+    }
+
+    /**
+     * Test that the response and its dependent stages are completed by the response executor, not by the MQTT client thread
+     */
+    @Test
+    public void testResponseExecutor()
+            throws Exception {
+        ExecutorService responseExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "response-executor"));
+        try {
+            MqttMultiplexedClient client = newClient(responseExecutor, IDLE_TIME);
+
+            CompletableFuture<String> translation = client.send(newRequest("CMD-V1", "1"), 10000L)
+                    .thenApply(response -> Thread.currentThread().getName());
+            client.messageArrived(REPLY_TOPIC + "1", new org.eclipse.paho.client.mqttv3.MqttMessage("response".getBytes()));
+
+            assertEquals("response-executor", translation.get(1, TimeUnit.SECONDS));
+        } finally {
+            responseExecutor.shutdownNow();
+        }
+    }
+
+    //
+    // Private methods
+    //
+
+    private MqttMultiplexedClient newClient(Executor responseExecutor, long subscriptionIdleTime)
+            throws KapuaException {
+        return new MqttMultiplexedClient(mqttClient, timeoutScheduler, responseExecutor, subscriptionIdleTime);
+    }
+
+    private static MqttMessage newRequest(String application, String requestId) {
+        return new MqttMessage(new MqttTopic("$EDC/acme/device/" + application + "/EXEC/command"),
+                new MqttTopic("$EDC/acme/requester/" + application + "/REPLY/" + requestId),
+                new MqttPayload("request".getBytes()));
+    }
+
+    private static void assertFailed(CompletableFuture<MqttMessage> response, MqttClientErrorCodes errorCode)
+            throws Exception {
+        try {
+            response.get(2, TimeUnit.SECONDS);
+            fail("The request must fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MqttClientException);
+            assertEquals(errorCode, ((MqttClientException) e.getCause()).getCode());
+        }
+    }
+}